@@ -7,6 +7,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class Application {
 
     public static void main(String[] args) throws Exception {
-        SpringApplication.run(Application.class, args);
+        // the context is closed once the job has run (the executor threads would keep the JVM alive), the exit
+        // code is the one of the job
+        System.exit(SpringApplication.exit(SpringApplication.run(Application.class, args)));
     }
 }
@@ -3,50 +3,135 @@ package org.sample.batch.config;
 import org.apache.logging.log4j.util.Strings;
 import org.sample.batch.csv.CsvNameExtractor;
 import org.sample.batch.csv.SimpleSkipListener;
+import org.sample.batch.export.ExportManifestTasklet;
+import org.sample.batch.export.KeysetRangePartitioner;
+import org.sample.batch.export.RangeExportTasklet;
+import org.sample.batch.launch.ConcurrentJobLauncher;
+import org.sample.batch.launch.FairShareTaskExecutor;
+import org.sample.batch.launch.StaleExecutionRecovery;
 import org.sample.batch.listener.ChunkListener;
+import org.sample.batch.jfr.RecordingNationalService;
 import org.sample.batch.listener.JobCompletionNotificationListener;
+import org.sample.batch.listener.PartitionListener;
+import org.sample.batch.listener.ReplayFileListener;
+import org.sample.batch.memory.MemoryBudget;
+import org.sample.batch.memory.MemoryBudgetListener;
 import org.sample.batch.model.InvalidDataException;
+import org.sample.batch.partition.LeasePartitionHandler;
+import org.sample.batch.partition.LeaseStore;
+import org.sample.batch.partition.LeaseWorker;
+import org.sample.batch.partition.ConcurrencyController;
+import org.sample.batch.partition.ElasticTaskExecutor;
 import org.sample.batch.model.Person;
+import org.sample.batch.prescan.PreScanTasklet;
+import org.sample.batch.prescan.PreScanner;
+import org.sample.batch.prescan.RejectedFilesPartitioner;
+import org.sample.batch.processor.NameDictionaries;
+import org.sample.batch.processor.ParallelItemProcessor;
 import org.sample.batch.processor.PersonItemProcessor;
+import org.sample.batch.processor.RowHashProcessor;
+import org.sample.batch.processor.RowHasher;
+import org.sample.batch.progress.ProgressEndpoint;
+import org.sample.batch.progress.ProgressTracker;
+import org.sample.batch.reader.PrefetchingItemReader;
+import org.sample.batch.repository.CompactBatchConfigurer;
+import org.sample.batch.stream.StreamingTasklet;
 import org.sample.batch.service.NationalService;
 import org.sample.batch.service.impl.NationalServiceImpl;
+import org.sample.batch.service.index.MappedNationalService;
+import org.sample.batch.service.resilience.AdaptiveConcurrencyLimit;
+import org.sample.batch.service.resilience.CircuitBreaker;
+import org.sample.batch.service.resilience.DeferredLookups;
+import org.sample.batch.service.resilience.EnrichmentTasklet;
+import org.sample.batch.service.resilience.JdbcDeferredLookups;
+import org.sample.batch.service.resilience.ResilientNationalService;
+import org.sample.batch.spill.PersonSpillCodec;
+import org.sample.batch.spill.SpillCache;
+import org.sample.batch.spill.SpillingItemReader;
+import org.sample.batch.writer.ColumnarItemWriter;
+import org.sample.batch.writer.FanOutItemWriter;
+import org.sample.batch.writer.GroupCommitItemWriter;
+import org.sample.batch.writer.IdempotentItemWriter;
+import org.sample.batch.writer.UpsertItemWriter;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.JobExecutionListener;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.*;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.job.builder.FlowBuilder;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.job.flow.Flow;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.listener.JobExecutionListenerSupport;
+import org.springframework.batch.core.step.builder.FaultTolerantStepBuilder;
+import org.springframework.batch.core.step.builder.PartitionStepBuilder;
+import org.springframework.batch.core.step.builder.TaskletStepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.BeanPropertyItemSqlParameterSourceProvider;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
 import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.FlatFileItemWriter;
 import org.springframework.batch.item.file.FlatFileParseException;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
 import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
 import org.springframework.batch.item.file.mapping.DefaultLineMapper;
 import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.batch.item.support.CompositeItemProcessor;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
-import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
-import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import javax.sql.DataSource;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
 @EnableBatchProcessing
+@Import(DataSourceConfiguration.class)
 public class BatchConfiguration {
 
   public static final String SHOULD_BE_OVERRIDDEN = "should be overridden";
+  public static final int SKIP_LIMIT = 2;
 
   @Autowired
   public JobBuilderFactory jobBuilderFactory;
@@ -57,61 +142,436 @@ public class BatchConfiguration {
   @Autowired
   private ResourcePatternResolver resoursePatternResolver;
 
+  @Autowired
+  private DataSource dataSource;
+
+  @Autowired
+  private JobExplorer jobExplorer;
+
+  @Value("${batch.name-dictionary.max-size:100000}")
+  private long nameDictionaryMaxSize;
+
+  @Value("${batch.reader.prefetch-size:0}")
+  private int prefetchSize;
+
+  @Value("${batch.spill.enabled:false}")
+  private boolean spillEnabled;
+
+  @Value("${batch.spill.max-size-mb:1024}")
+  private long spillMaxSizeMb;
+
+  @Value("${batch.group-commit.queue-capacity:64}")
+  private int groupCommitQueueCapacity;
+
+  @Value("${batch.group-commit.max-items:1000}")
+  private int groupCommitMaxItems;
+
+  @Value("${batch.archive.dir:}")
+  private String archiveDir;
+
+  @Value("${batch.archive.threads:2}")
+  private int sinkThreads;
+
+  @Value("${batch.columnar.dir:}")
+  private String columnarDir;
+
+  @Value("${batch.columnar.row-group-size:10000}")
+  private int columnarRowGroupSize;
+
+  @Value("${batch.upsert.natural-key:firstName,lastName}")
+  private String upsertNaturalKey;
+
+  @Value("${batch.execution.mode:chunk}")
+  private String executionMode;
+
+  @Value("${batch.stream.process-threads:4}")
+  private int streamProcessThreads;
+
+  @Value("${batch.stream.buffer-size:256}")
+  private int streamBufferSize;
+
+  @Value("${batch.stream.window-size:1000}")
+  private int streamWindowSize;
+
+  @Value("${batch.stream.window-ms:1000}")
+  private long streamWindowMs;
+
+  @Value("${batch.idempotent.chunk-size:5000}")
+  private int idempotentChunkSize;
+
+  @Value("${batch.partition.mode:local}")
+  private String partitionMode;
+
+  @Value("${batch.partition.lease-ms:30000}")
+  private long partitionLeaseMs;
+
+  @Value("${batch.partition.poll-interval-ms:500}")
+  private long partitionPollIntervalMs;
+
+  @Value("${batch.partition.elastic:false}")
+  private boolean elasticPartitions;
+
+  @Value("${batch.partition.min-threads:1}")
+  private int partitionMinThreads;
+
+  @Value("${batch.partition.max-threads:0}")
+  private int partitionMaxThreads;
+
+  @Value("${batch.partition.elastic.interval-ms:5000}")
+  private long elasticIntervalMs;
+
+  @Value("${batch.partition.elastic.max-cpu:0.9}")
+  private double elasticMaxCpu;
+
+  @Value("${batch.partition.elastic.latency-tolerance:2.0}")
+  private double elasticLatencyTolerance;
+
+  @Value("${batch.progress.sample-ms:1000}")
+  private long progressSampleMs;
+
+  @Value("${batch.progress.smoothing-ms:10000}")
+  private long progressSmoothingMs;
+
+  @Value("${batch.progress.retention-ms:600000}")
+  private long progressRetentionMs;
+
+  @Value("${batch.progress.jmx:true}")
+  private boolean progressJmx;
+
+  @Value("${batch.export.threads:0}")
+  private int exportThreads;
+
+  @Value("${batch.export.fetch-size:1000}")
+  private int exportFetchSize;
+
+  @Value("${batch.launcher.fair-share:false}")
+  private boolean fairShare;
+
+  @Value("${batch.launcher.threads:0}")
+  private int fairShareThreads;
+
+  @Value("${batch.launcher.chunk-permits:0}")
+  private int fairShareChunkPermits;
+
+  @Value("${batch.launcher.max-jobs:4}")
+  private int launcherMaxJobs;
+
+  @Value("${batch.launcher.queue-capacity:16}")
+  private int launcherQueueCapacity;
+
+  @Value("${batch.process.parallel:false}")
+  private boolean parallelProcessing;
+
+  @Value("${batch.process.threads:0}")
+  private int processThreads;
+
+  @Value("${batch.memory.budget-mb:0}")
+  private long memoryBudgetMb;
+
+  @Value("${batch.memory.max-wait-ms:30000}")
+  private long memoryMaxWaitMs;
+
+  @Value("${national.index.file:}")
+  private String nationalIndexFile;
+
+  @Value("${national.resilience.enabled:false}")
+  private boolean nationalResilienceEnabled;
+
+  @Value("${national.resilience.max-concurrency:16}")
+  private int nationalMaxConcurrency;
+
+  @Value("${national.resilience.call-timeout-ms:2000}")
+  private long nationalCallTimeoutMs;
+
+  /**
+   * Low overhead job repository, enabled by the property batch.repository.mode = compact. Refused with the columnar
+   * output: the saved contexts lag behind the chunks, and the journal of the open row group of a restarted partition
+   * may have been rotated since its context was saved.
+   */
   @Bean
-  public DataSource dataSource() {
-    EmbeddedDatabaseBuilder builder = new EmbeddedDatabaseBuilder();
-    EmbeddedDatabase db = builder
-      .setType(EmbeddedDatabaseType.HSQL) //.H2 or .DERBY
-      .addScripts("schema-all.sql")
-      .build();
-    return db;
+  @ConditionalOnProperty(name = "batch.repository.mode", havingValue = "compact")
+  public static BatchConfigurer compactBatchConfigurer(
+    DataSource dataSource,
+    @Value("${batch.repository.flush-commits:10}") int flushCommits,
+    @Value("${batch.repository.flush-interval-ms:1000}") long flushIntervalMillis,
+    @Value("${batch.columnar.dir:}") String columnarDir
+  ) {
+    if (!Strings.isBlank(columnarDir)) {
+      throw new IllegalStateException("batch.repository.mode=compact cannot be used with batch.columnar.dir");
+    }
+    return new CompactBatchConfigurer(dataSource, flushCommits, flushIntervalMillis);
   }
 
+  /**
+   * Startup mode for frequent short runs, enabled by the property batch.startup.lazy = true: only the beans used by
+   * the job are created.
+   */
   @Bean
+  @ConditionalOnProperty(name = "batch.startup.lazy", havingValue = "true")
+  public static LazyInitializationPostProcessor lazyInitializationPostProcessor() {
+    return new LazyInitializationPostProcessor("org.sample.batch");
+  }
+
+  @Bean
+  @Primary
   public Job importUserJob(JobCompletionNotificationListener listener, Step step1) {
-    return jobBuilderFactory.get("importUserJob")
+    JobBuilder builder = jobBuilderFactory.get("importUserJob")
       .incrementer(new RunIdIncrementer())
       .listener(listener)
-      .flow(partitionStep())
+      .listener(nameDictionaries())
+      .listener(nationalIndexReloader())
+      .listener(memoryBudgetListener());
+    if (fairShare) {
+      builder.listener(fairShareExecutor());
+    }
+    return builder
+      .start(importFlow())
       .end()
       .build();
   }
 
+  /**
+   * With national.resilience.enabled, the lookups deferred while the registry was unavailable are done by enrichStep
+   * after the partitions.
+   */
   @Bean
-  public Step partitionStep() {
-    return stepBuilderFactory.get("partitionStep")
-      .partitioner("slaveStep", partitioner(SHOULD_BE_OVERRIDDEN, SHOULD_BE_OVERRIDDEN))
-      .step(step1())
+  public Flow importFlow() {
+    FlowBuilder<Flow> builder = new FlowBuilder<Flow>("importFlow")
+      .start(preScanDecider())
+        .on("TRUE").to(preScanStep()).next(partitionStep())
+      .from(preScanDecider())
+        .on("*").to(partitionStep());
+    if (nationalResilienceEnabled) {
+      builder.from(partitionStep()).next(enrichStep());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Pre-scan is enabled by the job parameter 'prescan' = true.
+   */
+  @Bean
+  public JobExecutionDecider preScanDecider() {
+    return new JobParameterDecider("prescan", "false");
+  }
+
+  @Bean
+  public Step preScanStep() {
+    return stepBuilderFactory.get("preScanStep")
+      .partitioner("preScan", partitioner(SHOULD_BE_OVERRIDDEN, SHOULD_BE_OVERRIDDEN))
+      .step(preScanWorkerStep())
       .taskExecutor(taskExecutor())
       .build();
   }
 
+  @Bean
+  public Step preScanWorkerStep() {
+    return stepBuilderFactory.get("preScan")
+      .tasklet(preScanTasklet(SHOULD_BE_OVERRIDDEN, SHOULD_BE_OVERRIDDEN))
+      .build();
+  }
+
+  @Bean
+  @StepScope
+  public PreScanTasklet<Person> preScanTasklet(
+    @Value("#{stepExecutionContext['input.file']}") String inputFile,
+    @Value("#{stepExecutionContext['output.error.file']}") String errorFile
+  ) {
+    PreScanner scanner = PreScanner.forType(Person.class, "age", ';');
+    return new PreScanTasklet<>(scanner, Person.class, inputFile, errorFile, SKIP_LIMIT);
+  }
+
+  /**
+   * The files rejected by the pre-scan are not imported.
+   * The partitions are executed by the local task executor, or by {@link LeaseWorker}s sharing the job database
+   * when the property batch.partition.mode = remote. The local executor is elastic when batch.partition.elastic = true.
+   */
+  @Bean
+  public Step partitionStep() {
+    PartitionStepBuilder builder = stepBuilderFactory.get("partitionStep")
+      .partitioner("slaveStep", progressTracker().planning(
+        new RejectedFilesPartitioner(partitioner(SHOULD_BE_OVERRIDDEN, SHOULD_BE_OVERRIDDEN))))
+      .step(workerStep());
+    if ("remote".equalsIgnoreCase(partitionMode)) {
+      return builder.partitionHandler(leasePartitionHandler()).build();
+    }
+    return builder.taskExecutor(partitionTaskExecutor()).build();
+  }
+
+  private TaskExecutor partitionTaskExecutor() {
+    if (elasticPartitions) {
+      return partitionExecutor();
+    }
+    return fairShare ? fairShareExecutor() : taskExecutor();
+  }
+
+  /**
+   * Executes the partitions of all the running import jobs on batch.launcher.threads threads (the number of cores by
+   * default), shared by weighted fair queuing on the job parameter 'job.priority'. At most batch.launcher.chunk-permits
+   * chunks are executed at once (not limited if 0).
+   */
+  @Bean
+  @Lazy
+  public FairShareTaskExecutor fairShareExecutor() {
+    int threads = fairShareThreads > 0 ? fairShareThreads : Runtime.getRuntime().availableProcessors();
+    FairShareTaskExecutor taskExecutor = new FairShareTaskExecutor(threads, fairShareChunkPermits);
+    taskExecutor.setThreadNamePrefix("step-#");
+    taskExecutor.afterPropertiesSet();
+    return taskExecutor;
+  }
+
+  /**
+   * Launches jobs in the background, batch.launcher.max-jobs at once; up to batch.launcher.queue-capacity jobs wait
+   * by priority, the next ones are rejected.
+   */
+  @Bean
+  @Lazy
+  public ConcurrentJobLauncher concurrentJobLauncher(JobRepository jobRepository) {
+    return new ConcurrentJobLauncher(jobRepository, launcherMaxJobs, launcherQueueCapacity);
+  }
+
+  /**
+   * With batch.restart.fail-stale = true, the executions left running by a killed JVM are marked FAILED at startup,
+   * before the job is launched: the launch with their parameters and run.id restarts them.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "batch.restart.fail-stale", havingValue = "true")
+  public StaleExecutionRecovery staleExecutionRecovery(JobRepository jobRepository) {
+    return new StaleExecutionRecovery(jobExplorer, jobRepository);
+  }
+
+  /**
+   * Executes from batch.partition.min-threads to batch.partition.max-threads (the number of cores by default)
+   * partitions in parallel, resized every batch.partition.elastic.interval-ms from the throughput, the CPU load and
+   * the commit and lookup latencies.
+   */
+  @Bean
+  @Lazy
+  public ElasticTaskExecutor partitionExecutor() {
+    int maxThreads = Math.max(partitionMinThreads,
+      partitionMaxThreads > 0 ? partitionMaxThreads : Runtime.getRuntime().availableProcessors());
+    ConcurrencyController controller = new ConcurrencyController(
+      partitionMinThreads, Math.max(partitionMinThreads, Math.min(2, maxThreads)), maxThreads);
+    controller.setMaxCpuLoad(elasticMaxCpu);
+    controller.setLatencyTolerance(elasticLatencyTolerance);
+    ElasticTaskExecutor taskExecutor = new ElasticTaskExecutor(controller, elasticIntervalMs, TimeUnit.MILLISECONDS);
+    taskExecutor.setThreadNamePrefix("step-#");
+    taskExecutor.afterPropertiesSet();
+    return taskExecutor;
+  }
+
+  @Bean
+  public LeaseStore leaseStore() {
+    return new LeaseStore(dataSource);
+  }
+
+  @Bean
+  public LeasePartitionHandler leasePartitionHandler() {
+    LeasePartitionHandler handler = new LeasePartitionHandler(leaseStore(), jobExplorer, workerStep());
+    handler.setPollInterval(partitionPollIntervalMs, TimeUnit.MILLISECONDS);
+    return handler;
+  }
+
+  /**
+   * Worker of the remote partitioning, enabled by the property batch.worker.enabled = true.
+   * Runs batch.worker.threads workers, until idle for batch.worker.idle-timeout-ms (forever if negative).
+   */
+  @Bean
+  @ConditionalOnProperty(name = "batch.worker.enabled", havingValue = "true")
+  public ApplicationRunner leaseWorkerRunner(
+    @Value("${batch.worker.threads:2}") int threads,
+    @Value("${batch.worker.idle-timeout-ms:-1}") long idleTimeoutMs
+  ) {
+    return args -> {
+      List<Thread> workers = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        LeaseWorker worker = leaseWorker(ManagementFactory.getRuntimeMXBean().getName() + "#" + i);
+        worker.setIdleTimeout(idleTimeoutMs, TimeUnit.MILLISECONDS);
+        Thread thread = new Thread(() -> {
+          try {
+            worker.run();
+          } finally {
+            worker.close();
+          }
+        }, "worker-#" + i);
+        thread.start();
+        workers.add(thread);
+      }
+      for (Thread worker : workers) {
+        worker.join();
+      }
+    };
+  }
+
+  /**
+   * A worker executing the partitions of step1.
+   *
+   * @param owner identifier of the worker, unique among all the workers
+   */
+  public LeaseWorker leaseWorker(String owner) {
+    Step step = workerStep();
+    LeaseWorker worker = new LeaseWorker(leaseStore(), jobExplorer, Collections.singletonMap(step.getName(), step), owner);
+    worker.setLeaseDuration(partitionLeaseMs, TimeUnit.MILLISECONDS);
+    worker.setPollInterval(partitionPollIntervalMs, TimeUnit.MILLISECONDS);
+    return worker;
+  }
+
+  /**
+   * The step executing a partition: step1, or streamStep when the property batch.execution.mode = streaming, or
+   * idempotentStep when it is idempotent.
+   */
+  private Step workerStep() {
+    if ("streaming".equalsIgnoreCase(executionMode)) {
+      return streamStep();
+    }
+    return "idempotent".equalsIgnoreCase(executionMode) ? idempotentStep() : step1();
+  }
+
   @Bean
   public Step step1() {
-    return stepBuilderFactory.get("step1")
+    FaultTolerantStepBuilder<Person, Person> builder = stepBuilderFactory.get("step1")
       .<Person, Person>chunk(2)
-      .reader(reader(SHOULD_BE_OVERRIDDEN))
-      .processor(processor())
-      .writer(writer())
+      .reader(personReader(SHOULD_BE_OVERRIDDEN, null))
+      .processor(stepProcessor())
+      .writer(personWriter(SHOULD_BE_OVERRIDDEN, SHOULD_BE_OVERRIDDEN, null))
       .faultTolerant()
-      .skipLimit(2)
+      .skipLimit(SKIP_LIMIT)
       .skip(InvalidDataException.class)
-      .skip(FlatFileParseException.class)
+      .skip(FlatFileParseException.class);
+    registerParallelProcessor(builder);
+    if (elasticPartitions) {
+      builder.listener((org.springframework.batch.core.ChunkListener) partitionExecutor());
+      builder.listener((ItemWriteListener<Object>) partitionExecutor());
+    } else if (fairShare) {
+      builder.listener((org.springframework.batch.core.ChunkListener) fairShareExecutor());
+    }
+    return builder
       .listener(chunkListener())
       .listener(skipListener(SHOULD_BE_OVERRIDDEN))
+      .listener(partitionListener())
+      .listener(progressTracker())
+      .listener(memoryBudgetListener())
       .build();
   }
 
   @Bean
   @StepScope
   public FlatFileItemReader<Person> reader(@Value("#{stepExecutionContext['input.file']}") String inputFile) {
+    return personFileReader(new FileSystemResource(inputFile), Paths.get(inputFile).getFileName().toString());
+  }
+
+  /**
+   * @param sourceId set on each person with its line number
+   */
+  private static FlatFileItemReader<Person> personFileReader(Resource inputFile, String sourceId) {
 
     CsvNameExtractor<Person> csvNameExtractor = new CsvNameExtractor<>(Person.class);
     List<String> fields = csvNameExtractor.getNames();
     String[] header = fields.toArray(new String[fields.size()]);
     return new FlatFileItemReaderBuilder<Person>()
       .name("personItemReader")
-      .resource(new FileSystemResource(inputFile))
+      .encoding(StandardCharsets.UTF_8.name())
+      .resource(inputFile)
       .lineMapper(new DefaultLineMapper<Person>() {
         {
           setLineTokenizer(new DelimitedLineTokenizer() {
@@ -125,27 +585,399 @@ public class BatchConfiguration {
             setTargetType(Person.class);
           }});
         }
+
+        @Override
+        public Person mapLine(String line, int lineNumber) throws Exception {
+          Person person = super.mapLine(line, lineNumber);
+          person.setSourceId(sourceId);
+          person.setSourceLine(lineNumber);
+          return person;
+        }
       })
       .linesToSkip(1)
       .build();
   }
 
+  private static String sourceId(StepExecution stepExecution, String inputFile) {
+    return stepExecution.getExecutionContext().getString(CustomMultiResourcePartitioner.INPUT_FILE_ID_KEY,
+      Paths.get(inputFile).getFileName().toString());
+  }
+
+  /**
+   * The input file is read ahead by batch.reader.prefetch-size items (0, disabled, by default), while the chunk is
+   * processed and written: it only pays off with a buffer of at least a chunk (see PrefetchBenchmark).
+   * The bytes read are reported to the progress tracker, the prefetched items are reserved from the memory budget.
+   * If batch.spill.enabled = true, the parsed records are read from the spill of a previous run of the same content,
+   * in the directory .spill next to the input file.
+   */
+  @Bean
+  @StepScope
+  public ItemStreamReader<Person> personReader(
+    @Value("#{stepExecutionContext['input.file']}") String inputFile,
+    @Value("#{stepExecution}") StepExecution stepExecution
+  ) {
+    // not the step scoped reader: it is read by the prefetch thread, outside of the step scope
+    String sourceId = sourceId(stepExecution, inputFile);
+    AbstractItemCountingItemStreamItemReader<Person> reader = personFileReader(
+      progressTracker().resource(stepExecution, inputFile), sourceId);
+    if (spillEnabled) {
+      Path spillDirectory = Paths.get(inputFile).toAbsolutePath().resolveSibling(".spill");
+      SpillingItemReader<Person> spillingReader = new SpillingItemReader<>(reader, Paths.get(inputFile),
+        new SpillCache(spillDirectory, spillMaxSizeMb * 1024 * 1024), new PersonSpillCodec(sourceId));
+      spillingReader.setName("personSpillReader");
+      reader = spillingReader;
+    }
+    if (prefetchSize <= 0) {
+      return reader;
+    }
+    PrefetchingItemReader<Person> prefetchingReader = new PrefetchingItemReader<>(reader, prefetchSize);
+    prefetchingReader.setMemoryAccount(memoryBudgetListener().account(stepExecution));
+    return prefetchingReader;
+  }
+
+  /**
+   * Alternative to step1 without transaction, for large chunks (batch.idempotent.chunk-size items): the persons are
+   * inserted if their position in the input file is not stored yet. A partition restarted after a crash writes again
+   * the items read since its last saved position, they are not inserted twice.
+   */
+  @Bean
+  public Step idempotentStep() {
+    FaultTolerantStepBuilder<Person, Person> builder = stepBuilderFactory.get("idempotentStep")
+      .transactionManager(new ResourcelessTransactionManager())
+      .<Person, Person>chunk(idempotentChunkSize)
+      .reader(personReader(SHOULD_BE_OVERRIDDEN, null))
+      .processor(stepProcessor())
+      .writer(idempotentWriter())
+      .faultTolerant()
+      .skipLimit(SKIP_LIMIT)
+      .skip(InvalidDataException.class)
+      .skip(FlatFileParseException.class);
+    registerParallelProcessor(builder);
+    if (elasticPartitions) {
+      builder.listener((org.springframework.batch.core.ChunkListener) partitionExecutor());
+      builder.listener((ItemWriteListener<Object>) partitionExecutor());
+    } else if (fairShare) {
+      builder.listener((org.springframework.batch.core.ChunkListener) fairShareExecutor());
+    }
+    return builder
+      .listener(chunkListener())
+      .listener(skipListener(SHOULD_BE_OVERRIDDEN))
+      .listener(partitionListener())
+      .listener(progressTracker())
+      .listener(memoryBudgetListener())
+      .build();
+  }
+
+  /**
+   * With batch.process.parallel, the items of a chunk are processed in parallel by the processExecutor.
+   */
+  private ItemProcessor<Person, Person> stepProcessor() {
+    return parallelProcessing ? parallelProcessor() : personProcessor(SHOULD_BE_OVERRIDDEN);
+  }
+
+  private void registerParallelProcessor(FaultTolerantStepBuilder<Person, Person> builder) {
+    if (parallelProcessing) {
+      builder.listener((ItemReadListener<Person>) parallelProcessor());
+      builder.listener((org.springframework.batch.core.ChunkListener) parallelProcessor());
+      builder.listener((StepExecutionListener) parallelProcessor());
+    }
+  }
+
+  @Bean
+  public IdempotentItemWriter idempotentWriter() {
+    return new IdempotentItemWriter(dataSource);
+  }
+
+  /**
+   * Streaming alternative to step1, with the same reader, processor, writer and skip listener: the items are parsed,
+   * processed by batch.stream.process-threads threads and written in windows of batch.stream.window-size items or
+   * batch.stream.window-ms.
+   */
+  @Bean
+  public Step streamStep() {
+    StreamingTasklet<Person, Person> tasklet = streamingTasklet(SHOULD_BE_OVERRIDDEN, SHOULD_BE_OVERRIDDEN, null);
+    TaskletStepBuilder builder = stepBuilderFactory.get("streamStep")
+      .tasklet(tasklet);
+    if (elasticPartitions) {
+      builder.listener((org.springframework.batch.core.ChunkListener) partitionExecutor());
+    } else if (fairShare) {
+      builder.listener((org.springframework.batch.core.ChunkListener) fairShareExecutor());
+    }
+    return builder
+      .stream(tasklet)
+      .listener(chunkListener())
+      .listener(skipListener(SHOULD_BE_OVERRIDDEN))
+      .listener(partitionListener())
+      .listener(progressTracker())
+      .build();
+  }
+
+  @Bean
+  @StepScope
+  public StreamingTasklet<Person, Person> streamingTasklet(
+    @Value("#{jobParameters['write.mode']}") String writeMode,
+    @Value("#{stepExecutionContext['input.file']}") String inputFile,
+    @Value("#{stepExecution}") StepExecution stepExecution
+  ) {
+    // not the step scoped reader and processor: they are used by the reader and process threads
+    StreamingTasklet<Person, Person> tasklet = new StreamingTasklet<>(
+      personFileReader(progressTracker().resource(stepExecution, inputFile), sourceId(stepExecution, inputFile)),
+      itemProcessor(writeMode),
+      personWriter(writeMode, inputFile, stepExecution));
+    tasklet.setSkipListener(skipListener(SHOULD_BE_OVERRIDDEN));
+    tasklet.setSkippableExceptions(Arrays.asList(InvalidDataException.class, FlatFileParseException.class));
+    tasklet.setSkipLimit(SKIP_LIMIT);
+    tasklet.setProcessConcurrency(streamProcessThreads);
+    tasklet.setBufferSize(streamBufferSize);
+    tasklet.setWindow(streamWindowSize, streamWindowMs, TimeUnit.MILLISECONDS);
+    return tasklet;
+  }
+
   @Bean
   public PersonItemProcessor processor() {
-    return new PersonItemProcessor(nationalService());
+    PersonItemProcessor processor = new PersonItemProcessor(nationalService());
+    processor.setNameDictionaries(nameDictionaries());
+    return processor;
+  }
+
+  /**
+   * Processes the items of the chunks with the step scoped personProcessor, shared by the partitions.
+   */
+  @Bean
+  public ParallelItemProcessor<Person, Person> parallelProcessor() {
+    return new ParallelItemProcessor<>(personProcessor(SHOULD_BE_OVERRIDDEN), processExecutor());
+  }
+
+  /**
+   * Pool of batch.process.threads threads (0: the number of cores), shared by the partitions to process their chunks.
+   */
+  @Bean
+  public ForkJoinPool processExecutor() {
+    int threads = processThreads > 0 ? processThreads : Runtime.getRuntime().availableProcessors();
+    AtomicInteger threadCount = new AtomicInteger();
+    return new ForkJoinPool(threads, pool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("process-#" + threadCount.incrementAndGet());
+      return thread;
+    }, null, false);
+  }
+
+  /**
+   * The write mode is set by the job parameter 'write.mode': append (default), group or upsert.
+   * In upsert mode the content hash of the items is computed after the processing.
+   */
+  @Bean
+  @StepScope
+  public ItemProcessor<Person, Person> personProcessor(@Value("#{jobParameters['write.mode']}") String writeMode) {
+    return itemProcessor(writeMode);
+  }
+
+  private ItemProcessor<Person, Person> itemProcessor(String writeMode) {
+    if (!isUpsert(writeMode)) {
+      return processor();
+    }
+    CompositeItemProcessor<Person, Person> processor = new CompositeItemProcessor<>();
+    processor.setDelegates(Arrays.asList(processor(), rowHashProcessor()));
+    return processor;
+  }
+
+  /**
+   * Every chunk is written to the database and, if the property batch.archive.dir is set, to an archive file with
+   * the name of the input file, and if the property batch.columnar.dir is set, to a columnar file named after the
+   * input file. The sinks are written in parallel, in the chunk transaction.
+   */
+  @Bean
+  @StepScope
+  public ItemStreamWriter<Person> personWriter(
+    @Value("#{jobParameters['write.mode']}") String writeMode,
+    @Value("#{stepExecutionContext['input.file']}") String inputFile,
+    @Value("#{stepExecution}") StepExecution stepExecution
+  ) {
+    Map<String, ItemWriter<? super Person>> sinks = new LinkedHashMap<>();
+    if (!Strings.isBlank(archiveDir)) {
+      // not a step scoped bean: it is written by the sink executor, outside of the step scope
+      sinks.put("archive", archiveWriter(Paths.get(archiveDir, Paths.get(inputFile).getFileName().toString())));
+    }
+    if (!Strings.isBlank(columnarDir)) {
+      String fileName = Paths.get(inputFile).getFileName().toString().replaceFirst("\\.[^.]*$", "");
+      ColumnarItemWriter<Person> columnarWriter = new ColumnarItemWriter<>(Person.class,
+        Paths.get(columnarDir, fileName + ColumnarItemWriter.FILE_SUFFIX), columnarRowGroupSize);
+      columnarWriter.setMemoryAccount(memoryBudgetListener().account(stepExecution));
+      sinks.put("columnar", columnarWriter);
+    }
+    return new FanOutItemWriter<>(databaseWriter(writeMode), sinks, sinkExecutor());
+  }
+
+  private ItemWriter<Person> databaseWriter(String writeMode) {
+    if (isUpsert(writeMode)) {
+      return upsertWriter();
+    }
+    if ("group".equalsIgnoreCase(writeMode)) {
+      // not the shared writer itself: it would be destroyed with the step scope
+      return groupCommitWriter()::write;
+    }
+    return writer();
+  }
+
+  private static FlatFileItemWriter<Person> archiveWriter(Path archiveFile) {
+    CsvNameExtractor<Person> csvNameExtractor = new CsvNameExtractor<>(Person.class);
+    String header = String.join(SimpleSkipListener.DELIMITER, csvNameExtractor.getColumnNames());
+    return new FlatFileItemWriterBuilder<Person>()
+      .name("archiveWriter")
+      .resource(new FileSystemResource(archiveFile.toFile()))
+      .encoding(StandardCharsets.UTF_8.name())
+      .headerCallback(writer -> writer.write(header))
+      .delimited()
+      .delimiter(SimpleSkipListener.DELIMITER)
+      .fieldExtractor(csvNameExtractor.fieldExtractor(true, SimpleSkipListener::escape))
+      .build();
+  }
+
+  /**
+   * Progress of the partitions of step1, registered as an MXBean if batch.progress.jmx = true (default).
+   */
+  @Bean
+  public ProgressTracker progressTracker() {
+    ProgressTracker tracker = new ProgressTracker(progressSampleMs, progressSmoothingMs, progressRetentionMs,
+      TimeUnit.MILLISECONDS);
+    if (progressJmx) {
+      tracker.registerMBean();
+    }
+    return tracker;
+  }
+
+  /**
+   * Serves the progress on the local port batch.progress.http-port (any free port if 0), disabled if not set.
+   */
+  @Bean
+  @ConditionalOnProperty("batch.progress.http-port")
+  public ProgressEndpoint progressEndpoint(@Value("${batch.progress.http-port}") int port) throws IOException {
+    return new ProgressEndpoint(progressTracker(), port);
+  }
+
+  @Bean
+  public TaskExecutor sinkExecutor() {
+    ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+    taskExecutor.setCorePoolSize(sinkThreads);
+    taskExecutor.setMaxPoolSize(sinkThreads);
+    taskExecutor.setQueueCapacity(4 * sinkThreads);
+    // a saturated executor slows down the chunks
+    taskExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    taskExecutor.setThreadNamePrefix("sink-#");
+    taskExecutor.afterPropertiesSet();
+    return taskExecutor;
+  }
+
+  /**
+   * Inserts the chunks of all the partitions from a single thread, several chunks per transaction. The groups are
+   * committed before the chunks: the persons are inserted by their position in the input file, so a chunk written
+   * again after a rollback or a restart is not inserted twice. Created with the first job in write.mode = group.
+   */
+  @Bean
+  @Lazy
+  public GroupCommitItemWriter<Person> groupCommitWriter() {
+    return new GroupCommitItemWriter<>(idempotentWriter(), new DataSourceTransactionManager(dataSource),
+      groupCommitQueueCapacity, groupCommitMaxItems);
+  }
+
+  private static boolean isUpsert(String writeMode) {
+    return "upsert".equalsIgnoreCase(writeMode);
+  }
+
+  @Bean
+  public RowHashProcessor rowHashProcessor() {
+    return new RowHashProcessor(new RowHasher<>(Person.class, Arrays.asList(upsertNaturalKey.split(","))));
+  }
+
+  @Bean
+  public UpsertItemWriter upsertWriter() {
+    return new UpsertItemWriter(dataSource);
+  }
+
+  @Bean
+  public NameDictionaries nameDictionaries() {
+    return new NameDictionaries(nameDictionaryMaxSize, memoryBudget());
+  }
+
+  /**
+   * Estimated heap shared by the partitions of all the jobs, batch.memory.budget-mb (unlimited if 0, the usage is
+   * still reported). A partition waits at most batch.memory.max-wait-ms for memory, then exceeds the budget.
+   */
+  @Bean
+  public MemoryBudget memoryBudget() {
+    MemoryBudget budget = new MemoryBudget(memoryBudgetMb * 1024 * 1024);
+    budget.setMaxWait(memoryMaxWaitMs, TimeUnit.MILLISECONDS);
+    return budget;
+  }
+
+  @Bean
+  public MemoryBudgetListener memoryBudgetListener() {
+    return new MemoryBudgetListener(memoryBudget());
   }
 
   @Bean
   NationalService nationalService() {
-    return new NationalServiceImpl();
+    NationalService lookup = Strings.isBlank(nationalIndexFile) ? new NationalServiceImpl() : mappedNationalService();
+    NationalService nationalService = new RecordingNationalService(lookup);
+    if (elasticPartitions) {
+      nationalService = partitionExecutor().timed(nationalService);
+    }
+    if (!nationalResilienceEnabled) {
+      return nationalService;
+    }
+    ResilientNationalService resilientService = new ResilientNationalService(
+      nationalService,
+      new AdaptiveConcurrencyLimit(1, Math.min(4, nationalMaxConcurrency), nationalMaxConcurrency),
+      new CircuitBreaker(10, 30, TimeUnit.SECONDS),
+      deferredLookups());
+    resilientService.setCallTimeout(nationalCallTimeoutMs, TimeUnit.MILLISECONDS);
+    return resilientService;
+  }
+
+  /**
+   * The lookups deferred by the resilient national service, stored in the job database until enrichStep drains them.
+   */
+  @Bean
+  public DeferredLookups deferredLookups() {
+    return new JdbcDeferredLookups(dataSource);
+  }
+
+  @Bean
+  public Step enrichStep() {
+    return stepBuilderFactory.get("enrichStep")
+      .tasklet(enrichmentTasklet())
+      .build();
+  }
+
+  @Bean
+  public EnrichmentTasklet enrichmentTasklet() {
+    return new EnrichmentTasklet(deferredLookups(), nationalService(), dataSource);
+  }
+
+  /**
+   * Local index of the national identifiers, used when the property national.index.file is set.
+   */
+  @Bean
+  @Lazy
+  public MappedNationalService mappedNationalService() {
+    return new MappedNationalService(Paths.get(nationalIndexFile));
+  }
+
+  /**
+   * Swaps the national index before a job if the file has been rebuilt.
+   */
+  @Bean
+  public JobExecutionListener nationalIndexReloader() {
+    return Strings.isBlank(nationalIndexFile) ? new JobExecutionListenerSupport() : mappedNationalService();
   }
 
   @Bean
   public JdbcBatchItemWriter<Person> writer() {
     return new JdbcBatchItemWriterBuilder<Person>()
       .itemSqlParameterSourceProvider(new BeanPropertyItemSqlParameterSourceProvider<>())
-      .sql("INSERT INTO people (first_name, last_name, age) VALUES (:firstName, :lastName, :age)")
-      .dataSource(dataSource())
+      .sql("INSERT INTO people (first_name, last_name, age, national_id) " +
+        "VALUES (:firstName, :lastName, :age, :nationalId)")
+      .dataSource(dataSource)
       .build();
   }
 
@@ -156,35 +988,248 @@ public class BatchConfiguration {
     @Value("#{jobParameters['input.file']}") String inputFile
   ) {
     CustomMultiResourcePartitioner partitioner = new CustomMultiResourcePartitioner();
-    Resource[] resources;
-    if (!Strings.isBlank(inboudsDirJobParam)) {
+    partitioner.setResources(resources(inboudsDirJobParam, "*.csv", inputFile, "'input.dir' or 'input.file'"));
+    return partitioner;
+  }
+
+  private Resource[] resources(String dir, String filePattern, String file, String parameterNames) {
+    if (!Strings.isBlank(dir)) {
       try {
-        String locationPattern = "file://" + Paths.get(inboudsDirJobParam, "*.csv").toString();
-        resources = resoursePatternResolver.getResources(locationPattern);
+        String locationPattern = "file://" + Paths.get(dir, filePattern).toString();
+        return resoursePatternResolver.getResources(locationPattern);
       } catch (IOException e) {
         throw new RuntimeException("I/O problems when resolving the input file pattern.", e);
       }
 
-    } else if (!Strings.isBlank(inputFile)) {
+    } else if (!Strings.isBlank(file)) {
 
-      Resource resource = new FileSystemResource(inputFile);
-      resources = new Resource[]{resource};
+      Resource resource = new FileSystemResource(file);
+      return new Resource[]{resource};
 
     } else {
-      throw new RuntimeException("Either 'input.dir' or 'input.file' is mandatory");
+      throw new RuntimeException("Either " + parameterNames + " is mandatory");
     }
-    partitioner.setResources(resources);
+  }
+
+  /**
+   * Replays the error files written by the {@link SimpleSkipListener}: only the skipped items are read again and
+   * sent to the processor and writer of step1. One partition per error file.
+   */
+  @Bean
+  public Job replayJob(JobCompletionNotificationListener listener) {
+    return jobBuilderFactory.get("replayJob")
+      .incrementer(new RunIdIncrementer())
+      .listener(listener)
+      .listener(nameDictionaries())
+      .listener(nationalIndexReloader())
+      .listener(memoryBudgetListener())
+      .start(replayPartitionStep())
+      .build();
+  }
+
+  @Bean
+  public Step replayPartitionStep() {
+    return stepBuilderFactory.get("replayPartitionStep")
+      .partitioner("replayStep", replayPartitioner(SHOULD_BE_OVERRIDDEN, SHOULD_BE_OVERRIDDEN))
+      .step(replayStep())
+      .taskExecutor(taskExecutor())
+      .build();
+  }
+
+  /**
+   * Processes and writes the replayed items as step1 (or idempotentStep), with the job parameter write.mode of the
+   * replayJob: the import and its replays must use the same write mode.
+   */
+  @Bean
+  public Step replayStep() {
+    FaultTolerantStepBuilder<Person, Person> builder = stepBuilderFactory.get("replayStep")
+      .<Person, Person>chunk(2)
+      .reader(replayReader(SHOULD_BE_OVERRIDDEN, null))
+      .processor(stepProcessor())
+      .writer("idempotent".equalsIgnoreCase(executionMode) ? idempotentWriter()
+        : personWriter(SHOULD_BE_OVERRIDDEN, SHOULD_BE_OVERRIDDEN, null))
+      .faultTolerant()
+      // items failing again are kept in the error file for the next replay
+      .skipLimit(Integer.MAX_VALUE)
+      .skip(InvalidDataException.class)
+      .skip(FlatFileParseException.class);
+    registerParallelProcessor(builder);
+    return builder
+      .listener(replayFileListener())
+      .listener(chunkListener())
+      .listener(skipListener(SHOULD_BE_OVERRIDDEN))
+      .listener(partitionListener())
+      .listener(memoryBudgetListener())
+      .build();
+  }
+
+  @Bean
+  @StepScope
+  public FlatFileItemReader<Person> replayReader(
+    @Value("#{stepExecutionContext['input.file']}") String errorFile,
+    @Value("#{stepExecution}") StepExecution stepExecution
+  ) {
+
+    CsvNameExtractor<Person> csvNameExtractor = new CsvNameExtractor<>(Person.class);
+    List<String> fields = csvNameExtractor.getNames(false);
+    int columnCount = fields.size();
+    String sourceId = sourceId(stepExecution, errorFile);
+    fields.add("type");
+    fields.add("error");
+    String[] header = fields.toArray(new String[fields.size()]);
+    return new FlatFileItemReaderBuilder<Person>()
+      .name("replayItemReader")
+      .encoding(StandardCharsets.UTF_8.name())
+      .resource(new FileSystemResource(errorFile))
+      .lineMapper(new DefaultLineMapper<Person>() {
+        {
+          setLineTokenizer(new DelimitedLineTokenizer() {
+            {
+              setStrict(true);
+              setDelimiter(SimpleSkipListener.DELIMITER);
+              setNames(header);
+            }
+          });
+          setFieldSetMapper(fieldSet -> {
+            try {
+              return csvNameExtractor.beanFrom(Arrays.copyOf(fieldSet.getValues(), columnCount));
+            } catch (IllegalAccessException | InstantiationException e) {
+              throw new IllegalStateException(e);
+            }
+          });
+        }
+
+        @Override
+        public Person mapLine(String line, int lineNumber) throws Exception {
+          // the position in the error file: the idempotent writer inserts a replayed line once
+          Person person = super.mapLine(line, lineNumber);
+          person.setSourceId(sourceId);
+          person.setSourceLine(lineNumber);
+          return person;
+        }
+      })
+      .linesToSkip(1)
+      .build();
+  }
+
+  @Bean
+  @JobScope
+  public CustomMultiResourcePartitioner replayPartitioner(
+    @Value("#{jobParameters['replay.dir']}") String replayDir,
+    @Value("#{jobParameters['replay.file']}") String replayFile
+  ) {
+    CustomMultiResourcePartitioner partitioner = new CustomMultiResourcePartitioner();
+    partitioner.setResources(resources(replayDir, "*-errors.csv", replayFile, "'replay.dir' or 'replay.file'"));
+    // not matched by the replay pattern, renamed to the replayed file when the partition completes
+    partitioner.setErrorFileSuffix("-remaining.csv");
     return partitioner;
   }
 
+  /**
+   * Exports the people table to files delimited by ';', with the {@code @Column} headers: one partition per range of
+   * person_id, exported by its own thread, and a manifest of the files. Parameters: export.dir (mandatory) and
+   * export.compression (gzip or none).
+   */
+  @Bean
+  public Job exportJob() {
+    return jobBuilderFactory.get("exportJob")
+      .incrementer(new RunIdIncrementer())
+      .start(exportPartitionStep())
+      .next(exportManifestStep())
+      .build();
+  }
+
+  @Bean
+  public Step exportPartitionStep() {
+    return stepBuilderFactory.get("exportPartitionStep")
+      .partitioner("exportStep", exportPartitioner(SHOULD_BE_OVERRIDDEN, SHOULD_BE_OVERRIDDEN))
+      .step(exportStep())
+      .gridSize(exportThreads())
+      .taskExecutor(exportExecutor())
+      .build();
+  }
+
+  @Bean
+  public Step exportStep() {
+    return stepBuilderFactory.get("exportStep")
+      .tasklet(exportTasklet(SHOULD_BE_OVERRIDDEN))
+      .build();
+  }
+
+  @Bean
+  public Step exportManifestStep() {
+    return stepBuilderFactory.get("exportManifestStep")
+      .tasklet(exportManifestTasklet(SHOULD_BE_OVERRIDDEN))
+      .build();
+  }
+
+  @Bean
+  @JobScope
+  public KeysetRangePartitioner exportPartitioner(
+    @Value("#{jobParameters['export.dir']}") String exportDir,
+    @Value("#{jobParameters['export.compression']}") String compression
+  ) {
+    String extension = RangeExportTasklet.GZIP.equalsIgnoreCase(compression) ? ".csv.gz" : ".csv";
+    return new KeysetRangePartitioner(dataSource, "people", "person_id", exportDir(exportDir), extension);
+  }
+
+  @Bean
+  @StepScope
+  public RangeExportTasklet<Person> exportTasklet(@Value("#{jobParameters['export.compression']}") String compression) {
+    RangeExportTasklet<Person> tasklet = new RangeExportTasklet<>(dataSource, Person.class, "people", "person_id");
+    tasklet.setFetchSize(exportFetchSize);
+    tasklet.setCompression(compression);
+    return tasklet;
+  }
+
+  @Bean
+  @StepScope
+  public ExportManifestTasklet exportManifestTasklet(@Value("#{jobParameters['export.dir']}") String exportDir) {
+    return new ExportManifestTasklet(exportDir(exportDir), "exportStep");
+  }
+
+  private static Path exportDir(String exportDir) {
+    if (Strings.isBlank(exportDir)) {
+      throw new IllegalArgumentException("'export.dir' is mandatory");
+    }
+    return Paths.get(exportDir);
+  }
+
+  /**
+   * One thread per range, as many as the cores unless batch.export.threads is set: the database is the limit.
+   */
+  private int exportThreads() {
+    return exportThreads > 0 ? exportThreads : Runtime.getRuntime().availableProcessors();
+  }
+
+  @Bean
+  public TaskExecutor exportExecutor() {
+    ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+    taskExecutor.setCorePoolSize(exportThreads());
+    taskExecutor.setMaxPoolSize(exportThreads());
+    taskExecutor.setThreadNamePrefix("export-#");
+    taskExecutor.afterPropertiesSet();
+    return taskExecutor;
+  }
+
+  @Bean
+  public ReplayFileListener replayFileListener() {
+    return new ReplayFileListener();
+  }
+
   @Bean
   public ChunkListener chunkListener() {
     return new ChunkListener();
   }
 
+  @Bean
+  public PartitionListener partitionListener() {
+    return new PartitionListener();
+  }
+
   @Bean
   @StepScope
-  public SimpleSkipListener skipListener(@Value("#{stepExecutionContext['output.error.file']}") String errorFilename) {
+  public SimpleSkipListener<Person> skipListener(@Value("#{stepExecutionContext['output.error.file']}") String errorFilename) {
     return new SimpleSkipListener<>(Person.class, errorFilename);
   }
 
@@ -16,9 +16,16 @@ public class CustomMultiResourcePartitioner implements Partitioner {
 
   private static final String inputFileKey = "input.file";
   private static final String outputErrorFileKey = "output.error.file";
+  public static final String INPUT_FILE_SIZE_KEY = "input.file.size";
+  /**
+   * Identifies the content of the input file: its name and its last modification time. Saved with the partition,
+   * so a restarted partition keeps it.
+   */
+  public static final String INPUT_FILE_ID_KEY = "input.file.id";
   private static final String PARTITION_KEY = "partition";
 
   private Resource[] resources;
+  private String errorFileSuffix = "-errors.csv";
 
   @Override
   public Map<String, ExecutionContext> partition(int gridSize) {
@@ -32,9 +39,11 @@ public class CustomMultiResourcePartitioner implements Partitioner {
         String folder = resource.getFile().getParent();
         File inputFile = resource.getFile();
         String fileNameWithOutExt = Files.getNameWithoutExtension(inputFile.getName());
-        String errorFilename = String.format("%s-errors.csv", fileNameWithOutExt);
+        String errorFilename = fileNameWithOutExt + errorFileSuffix;
         String errorPathname = Paths.get(folder, errorFilename).toString();
         context.putString(inputFileKey, inputFile.getAbsolutePath());
+        context.putLong(INPUT_FILE_SIZE_KEY, inputFile.length());
+        context.putString(INPUT_FILE_ID_KEY, inputFile.getName() + "@" + inputFile.lastModified());
         context.putString(outputErrorFileKey, errorPathname);
       } catch (IOException e) {
         throw new RuntimeException(e);
@@ -48,4 +57,11 @@ public class CustomMultiResourcePartitioner implements Partitioner {
   public void setResources(Resource[] resources) {
     this.resources = resources;
   }
+
+  /**
+   * Suffix of the error file written next to each input file (default "-errors.csv").
+   */
+  public void setErrorFileSuffix(String errorFileSuffix) {
+    this.errorFileSuffix = errorFileSuffix;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package org.sample.batch.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.logging.log4j.util.Strings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The job database: an embedded HSQL database, or a shared database when 'batch.datasource.url' is set (remote
+ * partitioning), with a pool of 'batch.datasource.pool-size' connections (10). The schema of a shared database is
+ * created according to 'batch.datasource.initialize': 'missing' (default, created only if a table is missing, the
+ * existing tables and their data are kept: the manager and the workers can all start with it), true (the tables are
+ * dropped and created) or false.
+ */
+@Configuration
+public class DataSourceConfiguration {
+
+  private static final String SCHEMA = "schema-all.sql";
+  private static final String[] SCHEMA_TABLES = {"PEOPLE", "NATIONAL_DEFERRED_LOOKUP", "BATCH_PARTITION_LEASE"};
+  public static final String INITIALIZE_MISSING = "missing";
+
+  @Value("${batch.datasource.url:}")
+  private String url;
+
+  @Value("${batch.datasource.username:SA}")
+  private String username;
+
+  @Value("${batch.datasource.password:}")
+  private String password;
+
+  @Value("${batch.datasource.pool-size:10}")
+  private int poolSize;
+
+  @Value("${batch.datasource.initialize:" + INITIALIZE_MISSING + "}")
+  private String initialize;
+
+  @Bean
+  public DataSource dataSource() {
+    if (Strings.isBlank(url)) {
+      return new EmbeddedDatabaseBuilder()
+        .setType(EmbeddedDatabaseType.HSQL) //.H2 or .DERBY
+        .addScripts(SCHEMA)
+        .build();
+    }
+    // pooled: a connection to a HSQL server takes about 100 ms to open, the chunks would wait for it
+    HikariDataSource dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl(url);
+    dataSource.setUsername(username);
+    dataSource.setPassword(password);
+    dataSource.setMaximumPoolSize(poolSize);
+    initializeSchema(dataSource, initialize);
+    return dataSource;
+  }
+
+  /**
+   * @param mode true, false or {@value #INITIALIZE_MISSING}
+   * @return true if the schema script has been executed
+   */
+  public static boolean initializeSchema(DataSource dataSource, String mode) {
+    boolean execute = INITIALIZE_MISSING.equalsIgnoreCase(mode) ? !schemaExists(dataSource) : Boolean.parseBoolean(mode);
+    if (execute) {
+      DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)), dataSource);
+    }
+    return execute;
+  }
+
+  private static boolean schemaExists(DataSource dataSource) {
+    try (Connection connection = dataSource.getConnection()) {
+      DatabaseMetaData metaData = connection.getMetaData();
+      for (String table : SCHEMA_TABLES) {
+        try (ResultSet tables = metaData.getTables(null, null, table, new String[]{"TABLE"})) {
+          if (!tables.next()) {
+            return false;
+          }
+        }
+      }
+      return true;
+    } catch (SQLException e) {
+      throw new IllegalStateException("Failed to read the schema of " + dataSource, e);
+    }
+  }
+}
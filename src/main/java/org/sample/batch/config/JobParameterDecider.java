@@ -0,0 +1,26 @@
+package org.sample.batch.config;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
+
+/**
+ * Routes the job flow on the (upper case) value of a job parameter.
+ */
+class JobParameterDecider implements JobExecutionDecider {
+
+  private final String key;
+  private final String defaultValue;
+
+  JobParameterDecider(String key, String defaultValue) {
+    this.key = key;
+    this.defaultValue = defaultValue;
+  }
+
+  @Override
+  public FlowExecutionStatus decide(JobExecution jobExecution, StepExecution stepExecution) {
+    String value = jobExecution.getJobParameters().getString(key, defaultValue);
+    return new FlowExecutionStatus(value.toUpperCase());
+  }
+}
@@ -0,0 +1,85 @@
+package org.sample.batch.config;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.Lifecycle;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Makes the application beans lazy, so that only the beans used by the job are created.
+ * <p>
+ * Only the beans declared in the application packages are lazy: the auto-configured beans (e.g. the schema
+ * initializer of Spring Batch) are not. The beans whose initialization is a side effect (lifecycle, listeners,
+ * initializing singletons) and the beans with an explicit {@link Lazy} are left as declared. The jobs and the runners are still
+ * created at startup: they are looked up by type by the launcher.
+ * </p>
+ */
+public class LazyInitializationPostProcessor implements BeanFactoryPostProcessor {
+
+  private final String basePackage;
+
+  /**
+   * @param basePackage package of the application beans
+   */
+  public LazyInitializationPostProcessor(String basePackage) {
+    this.basePackage = basePackage + ".";
+  }
+
+  @Override
+  public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+    for (String name : beanFactory.getBeanDefinitionNames()) {
+      BeanDefinition definition = beanFactory.getBeanDefinition(name);
+      if (definition.getRole() != BeanDefinition.ROLE_APPLICATION || !definition.isSingleton()
+        || definition.isAbstract() || !isDeclaredIn(definition, basePackage) || hasExplicitLazy(definition)) {
+        continue;
+      }
+      Class<?> type = declaredType(definition, beanFactory.getBeanClassLoader());
+      if (type == null || SmartInitializingSingleton.class.isAssignableFrom(type)
+        || Lifecycle.class.isAssignableFrom(type) || ApplicationListener.class.isAssignableFrom(type)) {
+        continue;
+      }
+      definition.setLazyInit(true);
+    }
+  }
+
+  /**
+   * @return the declared type, without creating the bean (nor a factory bean), null if unknown
+   */
+  private static Class<?> declaredType(BeanDefinition definition, ClassLoader classLoader) {
+    String typeName = definition.getBeanClassName();
+    if (definition instanceof AnnotatedBeanDefinition
+      && ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata() != null) {
+      typeName = ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata().getReturnTypeName();
+    }
+    if (typeName == null || !ClassUtils.isPresent(typeName, classLoader)) {
+      return null;
+    }
+    return ClassUtils.resolveClassName(typeName, classLoader);
+  }
+
+  private static boolean isDeclaredIn(BeanDefinition definition, String basePackage) {
+    String declaringClass = definition.getBeanClassName();
+    if (definition instanceof AnnotatedBeanDefinition
+      && ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata() != null) {
+      declaringClass = ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata().getDeclaringClassName();
+    }
+    return declaringClass != null && declaringClass.startsWith(basePackage);
+  }
+
+  private static boolean hasExplicitLazy(BeanDefinition definition) {
+    if (!(definition instanceof AnnotatedBeanDefinition)) {
+      return false;
+    }
+    AnnotatedBeanDefinition annotated = (AnnotatedBeanDefinition) definition;
+    MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+    return factoryMethod != null ? factoryMethod.isAnnotated(Lazy.class.getName())
+      : annotated.getMetadata().hasAnnotation(Lazy.class.getName());
+  }
+}
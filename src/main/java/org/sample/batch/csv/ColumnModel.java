@@ -0,0 +1,149 @@
+package org.sample.batch.csv;
+
+import com.google.common.base.Strings;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The fields of a type annotated with {@link Column}, in the column order, computed once per type.
+ * <p>
+ * The model is read from the resource {@code META-INF/batch/columns/<type>.columns} when it has been generated by the
+ * build ({@link ColumnModelGenerator}): the annotations of the type are not parsed at startup.
+ * Otherwise it is built by reflection.
+ * </p>
+ */
+public final class ColumnModel {
+
+  static final String RESOURCE_PREFIX = "META-INF/batch/columns/";
+  static final String RESOURCE_SUFFIX = ".columns";
+  private static final String SEPARATOR = ";";
+
+  private static final ClassValue<ColumnModel> models = new ClassValue<ColumnModel>() {
+    @Override
+    protected ColumnModel computeValue(Class<?> type) {
+      ColumnModel model = load(type);
+      return model != null ? model : reflect(type);
+    }
+  };
+
+  private final List<Field> fields;
+  private final List<String> columnNames;
+  private final boolean[] optional;
+  private final boolean precomputed;
+
+  private ColumnModel(List<Field> fields, List<String> columnNames, boolean[] optional, boolean precomputed) {
+    for (Field field : fields) {
+      field.setAccessible(true);
+    }
+    this.fields = Collections.unmodifiableList(fields);
+    this.columnNames = Collections.unmodifiableList(columnNames);
+    this.optional = optional;
+    this.precomputed = precomputed;
+  }
+
+  public static ColumnModel of(Class<?> type) {
+    return models.get(type);
+  }
+
+  /**
+   * @return the fields, accessible, in the column order
+   */
+  public List<Field> getFields(boolean includeOptional) {
+    return includeOptional ? fields : withoutOptional(fields);
+  }
+
+  public List<String> getColumnNames(boolean includeOptional) {
+    return includeOptional ? columnNames : withoutOptional(columnNames);
+  }
+
+  /**
+   * @return true if the model has been read from the resource generated by the build
+   */
+  public boolean isPrecomputed() {
+    return precomputed;
+  }
+
+  private <E> List<E> withoutOptional(List<E> values) {
+    List<E> filtered = new ArrayList<>(values.size());
+    for (int idx = 0; idx < values.size(); idx++) {
+      if (!optional[idx]) {
+        filtered.add(values.get(idx));
+      }
+    }
+    return filtered;
+  }
+
+  private static ColumnModel reflect(Class<?> type) {
+    List<Field> fields = Arrays.stream(type.getDeclaredFields())
+      .filter(field -> field.getAnnotation(Column.class) != null)
+      .sorted(Comparator.comparingInt(field -> field.getAnnotation(Column.class).position()))
+      .collect(Collectors.toList());
+    List<String> columnNames = new ArrayList<>(fields.size());
+    boolean[] optional = new boolean[fields.size()];
+    for (int idx = 0; idx < fields.size(); idx++) {
+      Column column = fields.get(idx).getAnnotation(Column.class);
+      columnNames.add(Strings.isNullOrEmpty(column.value()) ? fields.get(idx).getName() : column.value());
+      optional[idx] = column.optional();
+    }
+    return new ColumnModel(fields, columnNames, optional, false);
+  }
+
+  private static ColumnModel load(Class<?> type) {
+    ClassLoader classLoader = type.getClassLoader() == null ? ClassLoader.getSystemClassLoader() : type.getClassLoader();
+    InputStream in = classLoader.getResourceAsStream(RESOURCE_PREFIX + type.getName() + RESOURCE_SUFFIX);
+    if (in == null) {
+      return null;
+    }
+    List<Field> fields = new ArrayList<>();
+    List<String> columnNames = new ArrayList<>();
+    List<Boolean> optional = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        // field;column;optional
+        String[] values = line.split(SEPARATOR, -1);
+        fields.add(type.getDeclaredField(values[0]));
+        columnNames.add(values[1]);
+        optional.add(Boolean.parseBoolean(values[2]));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (NoSuchFieldException e) {
+      // stale resource: the type has changed since the build
+      return null;
+    }
+    boolean[] optionalFlags = new boolean[optional.size()];
+    for (int idx = 0; idx < optionalFlags.length; idx++) {
+      optionalFlags[idx] = optional.get(idx);
+    }
+    return new ColumnModel(fields, columnNames, optionalFlags, true);
+  }
+
+  /**
+   * Writes the model built by reflection, in the format of the generated resource.
+   */
+  static void write(Class<?> type, Writer writer) throws IOException {
+    ColumnModel model = reflect(type);
+    writer.write("# generated from the @Column fields of " + type.getName() + "\n");
+    for (int idx = 0; idx < model.fields.size(); idx++) {
+      writer.write(model.fields.get(idx).getName() + SEPARATOR + model.columnNames.get(idx) + SEPARATOR
+        + model.optional[idx] + "\n");
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package org.sample.batch.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Generates the {@link ColumnModel} resources at build time (process-classes phase).
+ * Usage: {@code ColumnModelGenerator <classes directory> <type>...}.
+ */
+public class ColumnModelGenerator {
+
+  public static void main(String[] args) throws IOException, ClassNotFoundException {
+    if (args.length < 2) {
+      System.err.println("Usage: ColumnModelGenerator <classes directory> <type>...");
+      System.exit(1);
+    }
+    Path directory = Paths.get(args[0], ColumnModel.RESOURCE_PREFIX);
+    Files.createDirectories(directory);
+    for (int idx = 1; idx < args.length; idx++) {
+      Class<?> type = Class.forName(args[idx], false, ColumnModelGenerator.class.getClassLoader());
+      Path resource = directory.resolve(type.getName() + ColumnModel.RESOURCE_SUFFIX);
+      try (Writer writer = Files.newBufferedWriter(resource, StandardCharsets.UTF_8)) {
+        ColumnModel.write(type, writer);
+      }
+    }
+  }
+}
@@ -1,12 +1,15 @@
 package org.sample.batch.csv;
 
-import com.google.common.base.Strings;
+import org.springframework.batch.item.file.transform.FieldExtractor;
+import org.springframework.beans.SimpleTypeConverter;
+import org.springframework.beans.TypeMismatchException;
 
 import java.lang.reflect.Field;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -29,13 +32,7 @@ public class CsvNameExtractor<T> {
   }
 
   private static Stream<Field> getFieldStream(Class<?> type, boolean includeOptional) {
-    return Arrays.stream(type.getDeclaredFields())
-      .filter(e -> e.getAnnotation(Column.class) != null && (includeOptional || !e.getAnnotation(Column.class).optional()))
-      .sorted((f1, f2) -> {
-        Column c1 = f1.getAnnotation(Column.class);
-        Column c2 = f2.getAnnotation(Column.class);
-        return c1.position() - c2.position();
-      });
+    return ColumnModel.of(type).getFields(includeOptional).stream();
   }
 
   /**
@@ -48,13 +45,7 @@ public class CsvNameExtractor<T> {
   }
 
   public List<String> getColumnNames(boolean includeOptional) {
-    return getFieldStream(this.type, includeOptional)
-      .map(field -> {
-        final Column column = field.getAnnotation(Column.class);
-        return Strings.isNullOrEmpty(column.value()) ? field.getName() : column.value();
-      })
-      .collect(Collectors.toList())
-      ;
+    return new ArrayList<>(ColumnModel.of(this.type).getColumnNames(includeOptional));
   }
 
   /**
@@ -86,7 +77,6 @@ public class CsvNameExtractor<T> {
   public List<String> getValues(T item, boolean includeOptional) {
     return getFieldStream(this.type, includeOptional)
       .map(field -> {
-        field.setAccessible(true);
         Object value = null;
         try {
           value = field.get(item);
@@ -99,20 +89,55 @@ public class CsvNameExtractor<T> {
       ;
   }
 
+  /**
+   * Returns a field extractor of the values annotated with {@link Column}, for a {@code DelimitedLineAggregator}.
+   * The fields are looked up and sorted once, not for each item.
+   *
+   * @param includeOptional include the optional columns
+   * @param encoder         applied to each value (null values are empty)
+   */
+  public FieldExtractor<T> fieldExtractor(boolean includeOptional, UnaryOperator<String> encoder) {
+    Field[] fields = getFieldStream(this.type, includeOptional).toArray(Field[]::new);
+    return item -> {
+      Object[] values = new Object[fields.length];
+      for (int idx = 0; idx < fields.length; idx++) {
+        Object value;
+        try {
+          value = fields[idx].get(item);
+        } catch (IllegalAccessException e) {
+          throw new IllegalStateException(e);
+        }
+        values[idx] = encoder.apply(value == null ? "" : value.toString());
+      }
+      return values;
+    };
+  }
+
+  /**
+   * Builds a bean from the column values, in the {@link Column} order. The values are converted to the field types.
+   *
+   * @param columnValues the column values
+   * @return the bean
+   * @throws IllegalArgumentException if a value cannot be converted to the type of its field
+   */
   public T beanFrom(String[] columnValues) throws IllegalAccessException, InstantiationException {
     T bean = this.type.newInstance();
     List<Field> fields = getFieldStream(this.type, true).collect(Collectors.toList());
-    IntStream
-      .range(0, Math.min(columnValues.length, fields.size()))
-      .forEach(idx -> {
-        Field field = fields.get(idx);
-        field.setAccessible(true);
-        try {
-          field.set(bean, columnValues[idx]);
-        } catch (Exception ignore) {
-//                    throw new RuntimeException(e);
-        }
-      });
+    SimpleTypeConverter converter = new SimpleTypeConverter();
+    for (int idx = 0; idx < Math.min(columnValues.length, fields.size()); idx++) {
+      Field field = fields.get(idx);
+      String value = columnValues[idx];
+      Object converted;
+      try {
+        converted = field.getType() == String.class
+          ? value
+          : converter.convertIfNecessary(value == null ? null : value.trim(), field.getType());
+      } catch (TypeMismatchException e) {
+        throw new IllegalArgumentException(
+          String.format("Cannot convert '%s' to %s (field %s)", value, field.getType().getSimpleName(), field.getName()), e);
+      }
+      field.set(bean, converted);
+    }
     return bean;
   }
 
@@ -138,7 +163,6 @@ public class CsvNameExtractor<T> {
       .collect(Collectors.toMap(
         field -> field.getName(),
         field -> {
-          field.setAccessible(true);
           Object value = null;
           try {
             value = field.get(item);
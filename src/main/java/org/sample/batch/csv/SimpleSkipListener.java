@@ -1,5 +1,7 @@
 package org.sample.batch.csv;
 
+import org.sample.batch.jfr.BatchEvents;
+import org.sample.batch.model.InvalidDataException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.ExitStatus;
@@ -10,12 +12,13 @@ import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.file.FlatFileItemWriter;
 import org.springframework.batch.item.file.FlatFileParseException;
 import org.springframework.batch.item.file.transform.DelimitedLineAggregator;
-import org.springframework.batch.item.file.transform.PassThroughFieldExtractor;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +36,9 @@ import java.util.stream.Collectors;
  *     1452456;process;Value not allowed in this case<br>
  *     1257357;write;failed to send mail<br>
  * </p>
+ * <p>
+ *     The subject columns follow the {@link Column} layout of the item, so the file can be read back by the replay job.
+ * </p>
  *
  * @param <T> The type of item (read, processed and written).
  */
@@ -46,6 +52,9 @@ public class SimpleSkipListener<T> implements SkipListener<T, T>, StepExecutionL
   private final Class<T> type;
   private final CsvNameExtractor<T> csvNameExtractor;
   private ExecutionContext executionContext;
+  private String stepName;
+  private boolean transactional = true;
+  private final DelimitedLineTokenizer inputTokenizer = new DelimitedLineTokenizer(DELIMITER);
 
   private static final String keyPrefix = ClassUtils.getShortName(SimpleSkipListener.class);
   private static final Function<Throwable, String> messageFromException = t -> Optional.ofNullable(t.getMessage()).orElse(t.toString());
@@ -59,6 +68,14 @@ public class SimpleSkipListener<T> implements SkipListener<T, T>, StepExecutionL
     csvNameExtractor = new CsvNameExtractor<>(itemType);
   }
 
+  /**
+   * Whether the errors are written when the current transaction commits (default true).
+   * Set to false when errors must be kept even if the transaction is rolled back.
+   */
+  public void setTransactional(boolean transactional) {
+    this.transactional = transactional;
+  }
+
   @Override
   public void onSkipInRead(Throwable t) {
     logger.debug("Skipping read due to error:", t);
@@ -69,6 +86,7 @@ public class SimpleSkipListener<T> implements SkipListener<T, T>, StepExecutionL
 
     writeError(t, errorItem);
     counters.incReadError();
+    BatchEvents.skip(stepName, "read", lineNumberFrom(t), message);
   }
 
   @Override
@@ -79,6 +97,10 @@ public class SimpleSkipListener<T> implements SkipListener<T, T>, StepExecutionL
     ErrorItem errorItem = new ErrorItem(subjectFrom(item), "process", message);
     writeError(t, errorItem);
     counters.incProcessError();
+    BatchEvents.skip(stepName, "process", -1, message);
+    if (t instanceof InvalidDataException) {
+      ((InvalidDataException) t).getViolations().forEach(violation -> counters.incViolation(violation.getName()));
+    }
   }
 
   @Override
@@ -89,11 +111,13 @@ public class SimpleSkipListener<T> implements SkipListener<T, T>, StepExecutionL
     ErrorItem errorItem = new ErrorItem(subjectFrom(item), "write", message);
     writeError(t, errorItem);
     counters.incWriteError();
+    BatchEvents.skip(stepName, "write", -1, message);
   }
 
   @Override
   public void beforeStep(StepExecution stepExecution) {
     this.executionContext = stepExecution.getExecutionContext();
+    this.stepName = stepExecution.getStepName();
     this.errorItemWriter.open(executionContext);
   }
 
@@ -109,11 +133,12 @@ public class SimpleSkipListener<T> implements SkipListener<T, T>, StepExecutionL
 
     DelimitedLineAggregator<ErrorItem> aggregator = new DelimitedLineAggregator<>();
     aggregator.setDelimiter(DELIMITER);
-    aggregator.setFieldExtractor(new PassThroughFieldExtractor<>());
+    aggregator.setFieldExtractor(item -> item.getSubject().values().stream().map(SimpleSkipListener::escape).toArray());
 
     errorItemWriter = new FlatFileItemWriter<>();
     errorItemWriter.setResource(new FileSystemResource(this.errorOutputPath));
-    List<String> columnNames = csvNameExtractor.getColumnNames();
+    errorItemWriter.setEncoding(StandardCharsets.UTF_8.name());
+    List<String> columnNames = csvNameExtractor.getColumnNames(false);
     columnNames.add("type");
     columnNames.add("error");
     String header = columnNames.stream()
@@ -123,6 +148,7 @@ public class SimpleSkipListener<T> implements SkipListener<T, T>, StepExecutionL
     errorItemWriter.setLineAggregator(aggregator);
 
     errorItemWriter.setAppendAllowed(true);
+    errorItemWriter.setTransactional(transactional);
 
     Consumer.acceptWithRawException(errorItemWriter, FlatFileItemWriter::afterPropertiesSet);
 
@@ -142,6 +168,10 @@ public class SimpleSkipListener<T> implements SkipListener<T, T>, StepExecutionL
     }
   }
 
+  private static long lineNumberFrom(Throwable t) {
+    return t instanceof FlatFileParseException ? ((FlatFileParseException) t).getLineNumber() : -1;
+  }
+
   private Map<String, String> subjectFrom(T item) {
     return csvNameExtractor.from(item, false);
   }
@@ -149,13 +179,34 @@ public class SimpleSkipListener<T> implements SkipListener<T, T>, StepExecutionL
   private Map<String, String> subjectFrom(Throwable t) {
     if (FlatFileParseException.class.isAssignableFrom(t.getClass())) {
       final String input = ((FlatFileParseException)t).getInput();
-      String[] columns = input.split(DELIMITER);
-      return csvNameExtractor.from(columns, false);
+      String[] columns = inputTokenizer.tokenize(input).getValues();
+      // missing columns are left empty so that the error line keeps the layout of the header
+      Map<String, String> subject = csvNameExtractor.from(columns, false);
+      csvNameExtractor.getNames(false).forEach(name -> subject.putIfAbsent(name, ""));
+      return subject;
     }
     return csvNameExtractor.nonAvailable(false);
   }
 
-  private static class ErrorItem<T> {
+  /**
+   * Quotes the values containing the delimiter or a quote, line breaks are replaced by spaces
+   * (the error file is read back, one line per item).
+   */
+  public static String escape(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (!value.contains(DELIMITER) && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+      return value;
+    }
+    String escaped = value.replace("\r\n", " ").replace('\n', ' ').replace('\r', ' ');
+    if (escaped.contains(DELIMITER) || escaped.indexOf('"') >= 0) {
+      return '"' + escaped.replace("\"", "\"\"") + '"';
+    }
+    return escaped;
+  }
+
+  private static class ErrorItem {
     private final Map<String, String> subject;
 
     private ErrorItem(Map<String, String> subject, String type, String message) {
@@ -1,13 +1,21 @@
 package org.sample.batch.csv;
 
-import java.io.Serializable;
+import org.sample.batch.repository.Counters;
 
-public class SkipCounter implements Serializable {
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SkipCounter implements Counters {
+
+  private static final String VIOLATION_PREFIX = "violation.";
 
   private long errors = 0;
   private long readErrors = 0;
   private long writeError = 0;
   private long processError = 0;
+  // violations count by rule name
+  private Map<String, Long> violations = new HashMap<>();
 
   public SkipCounter() {
   }
@@ -44,6 +52,18 @@ public class SkipCounter implements Serializable {
     this.processError = processError;
   }
 
+  public Map<String, Long> getViolations() {
+    return violations;
+  }
+
+  public void setViolations(Map<String, Long> violations) {
+    this.violations = violations;
+  }
+
+  public void incViolation(String name) {
+    this.violations.merge(name, 1L, Long::sum);
+  }
+
   public void incReadError() {
     this.readErrors++;
     this.errors++;
@@ -59,6 +79,31 @@ public class SkipCounter implements Serializable {
     this.errors++;
   }
 
+  @Override
+  public Map<String, Long> toCounters() {
+    Map<String, Long> counters = new LinkedHashMap<>();
+    counters.put("errors", errors);
+    counters.put("readErrors", readErrors);
+    counters.put("writeError", writeError);
+    counters.put("processError", processError);
+    violations.forEach((name, count) -> counters.put(VIOLATION_PREFIX + name, count));
+    return counters;
+  }
+
+  @Override
+  public void fromCounters(Map<String, Long> counters) {
+    errors = counters.getOrDefault("errors", 0L);
+    readErrors = counters.getOrDefault("readErrors", 0L);
+    writeError = counters.getOrDefault("writeError", 0L);
+    processError = counters.getOrDefault("processError", 0L);
+    violations = new HashMap<>();
+    counters.forEach((name, count) -> {
+      if (name.startsWith(VIOLATION_PREFIX)) {
+        violations.put(name.substring(VIOLATION_PREFIX.length()), count);
+      }
+    });
+  }
+
   @Override
   public String toString() {
     return "SkipCounter{" +
@@ -66,6 +111,7 @@ public class SkipCounter implements Serializable {
         ", readErrors=" + readErrors +
         ", writeError=" + writeError +
         ", processError=" + processError +
+        ", violations=" + violations +
         '}';
   }
 }
\ No newline at end of file
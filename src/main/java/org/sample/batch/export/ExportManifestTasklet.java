@@ -0,0 +1,75 @@
+package org.sample.batch.export;
+
+import org.sample.batch.csv.SimpleSkipListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the manifest of an export, once all the ranges are exported: one line per file, with its key range, its
+ * number of rows and its size. The consumers read the files listed by the manifest only.
+ */
+public class ExportManifestTasklet implements Tasklet {
+
+  private static final Logger log = LoggerFactory.getLogger(ExportManifestTasklet.class);
+
+  public static final String MANIFEST_FILE = "manifest.csv";
+  private static final String[] HEADER = {"file", "first_key", "last_key", "rows", "bytes"};
+
+  private final Path outputDir;
+  private final String rangeStepName;
+
+  /**
+   * @param rangeStepName name of the step exporting the ranges
+   */
+  public ExportManifestTasklet(Path outputDir, String rangeStepName) {
+    this.outputDir = outputDir;
+    this.rangeStepName = rangeStepName;
+  }
+
+  @Override
+  public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+    List<ExecutionContext> ranges = chunkContext.getStepContext().getStepExecution().getJobExecution()
+      .getStepExecutions().stream()
+      .filter(stepExecution -> stepExecution.getStepName().startsWith(rangeStepName + ":"))
+      .filter(stepExecution -> stepExecution.getStatus() == BatchStatus.COMPLETED)
+      .map(StepExecution::getExecutionContext)
+      .sorted(Comparator.comparingLong(context -> context.getLong(KeysetRangePartitioner.FIRST_KEY)))
+      .collect(Collectors.toList());
+
+    List<String> lines = new ArrayList<>(ranges.size() + 1);
+    lines.add(String.join(SimpleSkipListener.DELIMITER, HEADER));
+    long rows = 0;
+    for (ExecutionContext range : ranges) {
+      lines.add(String.join(SimpleSkipListener.DELIMITER,
+        Paths.get(range.getString(KeysetRangePartitioner.OUTPUT_FILE_KEY)).getFileName().toString(),
+        String.valueOf(range.getLong(KeysetRangePartitioner.FIRST_KEY)),
+        String.valueOf(range.getLong(KeysetRangePartitioner.LAST_KEY)),
+        String.valueOf(range.getLong(RangeExportTasklet.ROWS_KEY)),
+        String.valueOf(range.getLong(RangeExportTasklet.BYTES_KEY))));
+      rows += range.getLong(RangeExportTasklet.ROWS_KEY);
+    }
+    Path manifest = outputDir.resolve(MANIFEST_FILE);
+    Path tempFile = outputDir.resolve(MANIFEST_FILE + ".tmp");
+    Files.write(tempFile, lines, StandardCharsets.UTF_8);
+    Files.move(tempFile, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    log.info("Export manifest {} written: {} files, {} rows", manifest, ranges.size(), rows);
+    return RepeatStatus.FINISHED;
+  }
+}
@@ -0,0 +1,79 @@
+package org.sample.batch.export;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a table into ranges of its numeric key, one partition per range, with about the same number of rows in each.
+ * <p>
+ * The boundaries are read once from the key index ({@code OFFSET ... FETCH NEXT 1 ROWS ONLY}), the partitions then
+ * only scan their own range: the rows inserted after the planning, with a greater key, are not exported.
+ * </p>
+ */
+public class KeysetRangePartitioner implements Partitioner {
+
+  public static final String FIRST_KEY = "export.first.key";
+  public static final String LAST_KEY = "export.last.key";
+  public static final String OUTPUT_FILE_KEY = "export.file";
+  private static final String PARTITION_KEY = "range";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String table;
+  private final String keyColumn;
+  private final Path outputDir;
+  private final String fileExtension;
+
+  /**
+   * @param fileExtension extension of the files of the ranges, e.g. ".csv.gz"
+   */
+  public KeysetRangePartitioner(DataSource dataSource, String table, String keyColumn, Path outputDir,
+                                String fileExtension) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.table = table;
+    this.keyColumn = keyColumn;
+    this.outputDir = outputDir;
+    this.fileExtension = fileExtension;
+  }
+
+  @Override
+  public Map<String, ExecutionContext> partition(int gridSize) {
+    Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+    try {
+      Files.createDirectories(outputDir);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    long rowCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    if (rowCount == 0) {
+      return partitions;
+    }
+    long lastKey = jdbcTemplate.queryForObject("SELECT MAX(" + keyColumn + ") FROM " + table, Long.class);
+    List<Long> firstKeys = new ArrayList<>();
+    int ranges = (int) Math.min(Math.max(gridSize, 1), rowCount);
+    String boundaryQuery = "SELECT " + keyColumn + " FROM " + table + " ORDER BY " + keyColumn
+      + " OFFSET ? ROWS FETCH NEXT 1 ROWS ONLY";
+    for (int range = 0; range < ranges; range++) {
+      firstKeys.add(jdbcTemplate.queryForObject(boundaryQuery, Long.class, rowCount * range / ranges));
+    }
+    for (int range = 0; range < ranges; range++) {
+      ExecutionContext context = new ExecutionContext();
+      context.putLong(FIRST_KEY, firstKeys.get(range));
+      context.putLong(LAST_KEY, range + 1 < ranges ? firstKeys.get(range + 1) - 1 : lastKey);
+      String fileName = String.format("%s-%04d%s", table.toLowerCase(), range, fileExtension);
+      context.putString(OUTPUT_FILE_KEY, outputDir.resolve(fileName).toAbsolutePath().toString());
+      partitions.put(PARTITION_KEY + range, context);
+    }
+    return partitions;
+  }
+}
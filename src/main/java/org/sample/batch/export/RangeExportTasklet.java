@@ -0,0 +1,210 @@
+package org.sample.batch.export;
+
+import org.sample.batch.csv.CsvNameExtractor;
+import org.sample.batch.csv.SimpleSkipListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the rows of a key range (set by the {@link KeysetRangePartitioner}) to a file delimited by ';', with the
+ * {@code @Column} names of the type as header and the columns in the {@code @Column} order.
+ * <p>
+ * The rows are streamed with a bounded fetch size and encoded straight into a buffer written to the file channel,
+ * gzipped if the compression is "gzip". The file is written under a temporary name and renamed when complete: a
+ * restarted range is exported again from its first key.
+ * </p>
+ *
+ * @param <T> the type whose {@code @Column} fields are exported, mapped to the snake case columns of the table
+ */
+public class RangeExportTasklet<T> implements Tasklet {
+
+  private static final Logger log = LoggerFactory.getLogger(RangeExportTasklet.class);
+
+  public static final String ROWS_KEY = "export.rows";
+  public static final String BYTES_KEY = "export.bytes";
+  public static final String GZIP = "gzip";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String header;
+  private final String query;
+  private final int columnCount;
+
+  private int bufferSize = 1 << 16;
+  private String compression;
+
+  public RangeExportTasklet(DataSource dataSource, Class<T> type, String table, String keyColumn) {
+    CsvNameExtractor<T> csvNameExtractor = new CsvNameExtractor<>(type);
+    List<String> columns = csvNameExtractor.getNames().stream()
+      .map(RangeExportTasklet::snakeCase)
+      .collect(Collectors.toList());
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.jdbcTemplate.setFetchSize(1000);
+    this.header = String.join(SimpleSkipListener.DELIMITER, csvNameExtractor.getColumnNames()) + '\n';
+    this.query = "SELECT " + String.join(", ", columns) + " FROM " + table
+      + " WHERE " + keyColumn + " BETWEEN ? AND ? ORDER BY " + keyColumn;
+    this.columnCount = columns.size();
+  }
+
+  /**
+   * Rows fetched per round trip (default 1000): bounds the memory of the result set of each range.
+   */
+  public void setFetchSize(int fetchSize) {
+    this.jdbcTemplate.setFetchSize(fetchSize);
+  }
+
+  public void setBufferSize(int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * "gzip" or none (default).
+   */
+  public void setCompression(String compression) {
+    this.compression = compression;
+  }
+
+  @Override
+  public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+    ExecutionContext context = chunkContext.getStepContext().getStepExecution().getExecutionContext();
+    long firstKey = context.getLong(KeysetRangePartitioner.FIRST_KEY);
+    long lastKey = context.getLong(KeysetRangePartitioner.LAST_KEY);
+    Path file = Paths.get(context.getString(KeysetRangePartitioner.OUTPUT_FILE_KEY));
+    Path tempFile = Paths.get(file + TEMP_SUFFIX);
+
+    long start = System.nanoTime();
+    long rows;
+    try (FileChannel fileChannel = FileChannel.open(tempFile,
+      StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+         RowEncoder encoder = new RowEncoder(channel(fileChannel), bufferSize)) {
+      encoder.append(header);
+      jdbcTemplate.query(query, (ResultSet resultSet) -> {
+        StringBuilder line = encoder.line();
+        for (int column = 1; column <= columnCount; column++) {
+          if (column > 1) {
+            line.append(SimpleSkipListener.DELIMITER);
+          }
+          line.append(SimpleSkipListener.escape(resultSet.getString(column)));
+        }
+        line.append('\n');
+        encoder.appendLine();
+        contribution.incrementReadCount();
+      }, firstKey, lastKey);
+      rows = contribution.getReadCount();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    long bytes = Files.size(file);
+    contribution.incrementWriteCount((int) rows);
+    context.putLong(ROWS_KEY, rows);
+    context.putLong(BYTES_KEY, bytes);
+    log.info("Keys {} to {} exported to {} in {} ms: {} rows, {} bytes", firstKey, lastKey, file,
+      (System.nanoTime() - start) / 1_000_000, rows, bytes);
+    return RepeatStatus.FINISHED;
+  }
+
+  private WritableByteChannel channel(FileChannel fileChannel) throws IOException {
+    if (GZIP.equalsIgnoreCase(compression)) {
+      OutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(fileChannel), bufferSize);
+      return Channels.newChannel(gzip);
+    }
+    return fileChannel;
+  }
+
+  static String snakeCase(String fieldName) {
+    StringBuilder column = new StringBuilder(fieldName.length() + 4);
+    for (char c : fieldName.toCharArray()) {
+      if (Character.isUpperCase(c)) {
+        column.append('_').append(Character.toLowerCase(c));
+      } else {
+        column.append(c);
+      }
+    }
+    return column.toString();
+  }
+
+  /**
+   * Encodes the lines in UTF-8 into a reused buffer, written to the channel when full.
+   */
+  private static class RowEncoder implements AutoCloseable {
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder line = new StringBuilder(256);
+
+    RowEncoder(WritableByteChannel channel, int bufferSize) {
+      this.channel = channel;
+      this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    StringBuilder line() {
+      line.setLength(0);
+      return line;
+    }
+
+    void appendLine() {
+      append(line);
+    }
+
+    void append(CharSequence chars) {
+      CharBuffer input = CharBuffer.wrap(chars);
+      CoderResult result = encoder.encode(input, buffer, false);
+      while (result.isOverflow()) {
+        flush();
+        result = encoder.encode(input, buffer, false);
+      }
+    }
+
+    private void flush() {
+      buffer.flip();
+      try {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+      // closes the gzip stream, which writes its trailer
+      channel.close();
+    }
+  }
+}
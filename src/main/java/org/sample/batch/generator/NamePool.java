@@ -0,0 +1,57 @@
+package org.sample.batch.generator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Names encoded once in UTF-8, picked at random by the generator.
+ * <p>
+ * The pools are the combinations of a list of common French names with a few suffixes, so the files have many
+ * distinct names without a dictionary lookup per row.
+ * </p>
+ */
+class NamePool {
+
+  private static final String[] FIRST_NAMES = {
+    "Jean", "Marie", "Pierre", "Anne", "Louis", "Camille", "Lucas", "Léa", "Hugo", "Chloé", "Jules", "Emma", "Arthur",
+    "Manon", "Nathan", "Inès", "Gabriel", "Zoé", "Raphaël", "Jade", "Paul", "Lina", "Thomas", "Alice", "Théo", "Sarah",
+    "Adam", "Louise", "Tom", "Juliette", "Mathis", "Eva", "Noah", "Lola", "Ethan", "Clara", "Maël", "Anaïs", "Victor",
+    "Margaux", "Antoine", "Elise", "Baptiste", "Agathe", "Simon", "Noémie", "Martin", "Céline", "Rémi", "Hélène"
+  };
+  private static final String[] LAST_NAMES = {
+    "Martin", "Bernard", "Dubois", "Thomas", "Robert", "Richard", "Petit", "Durand", "Leroy", "Moreau", "Simon",
+    "Laurent", "Lefèbvre", "Michel", "Garcia", "David", "Bertrand", "Roux", "Vincent", "Fournier", "Morel", "Girard",
+    "André", "Mercier", "Dupont", "Lambert", "Bonnet", "François", "Martinez", "Legrand", "Garnier", "Faure", "Rousseau",
+    "Blanc", "Guérin", "Muller", "Henry", "Roussel", "Nicolas", "Perrin", "Morin", "Mathieu", "Clément", "Gauthier",
+    "Dumont", "Lopez", "Fontaine", "Chevalier", "Robin", "Masson"
+  };
+  private static final String[] SUFFIXES = {"", "-Marie", "-Luc", "-Paul", "ne", "ot", "in", "et"};
+
+  private final byte[][] firstNames;
+  private final byte[][] lastNames;
+
+  NamePool() {
+    this.firstNames = combine(FIRST_NAMES);
+    this.lastNames = combine(LAST_NAMES);
+  }
+
+  private static byte[][] combine(String[] names) {
+    List<byte[]> pool = new ArrayList<>(names.length * SUFFIXES.length);
+    for (String name : names) {
+      for (String suffix : SUFFIXES) {
+        pool.add((name + suffix).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    return pool.toArray(new byte[0][]);
+  }
+
+  byte[] firstName(SplittableRandom random) {
+    return firstNames[random.nextInt(firstNames.length)];
+  }
+
+  byte[] lastName(SplittableRandom random) {
+    return lastNames[random.nextInt(lastNames.length)];
+  }
+}
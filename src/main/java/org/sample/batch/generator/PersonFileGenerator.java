@@ -0,0 +1,294 @@
+package org.sample.batch.generator;
+
+import org.sample.batch.csv.CsvNameExtractor;
+import org.sample.batch.model.Person;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates input files of the import job for load tests: {@code data-#NNNN.csv} files with the header and the
+ * columns of {@link Person}, delimited by ';'.
+ * <p>
+ * The files are generated in parallel, one per thread at a time, with the names picked in pre-encoded pools and the
+ * rows encoded directly into a direct buffer written to a {@link FileChannel}. The content only depends on the seed
+ * (one random generator per file), not on the number of threads.
+ * Some rows are corrupted on purpose:
+ * <ul>
+ * <li>parse errors (skipped as {@code FlatFileParseException}): missing column, extra column or age not a number</li>
+ * <li>invalid items (skipped as {@code InvalidDataException}): age 0, empty first name or last name too long</li>
+ * </ul>
+ * </p>
+ * Usage: {@code PersonFileGenerator dir=<output dir> files=4 rows=1000000 seed=42 threads=<cores>
+ * parse-error-rate=0.001 invalid-rate=0.001}.
+ */
+public class PersonFileGenerator {
+
+  private static final Logger log = LoggerFactory.getLogger(PersonFileGenerator.class);
+
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final byte DELIMITER = ';';
+  private static final byte NEW_LINE = '\n';
+  private static final byte[] NOT_A_NUMBER = "N/A".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] TOO_LONG = "Abcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.US_ASCII);
+
+  private final NamePool names = new NamePool();
+  private final byte[] header;
+
+  private int files = 1;
+  private long rowsPerFile = 1000;
+  private long seed = 42;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private double parseErrorRate;
+  private double invalidRate;
+
+  public PersonFileGenerator() {
+    String columns = String.join(String.valueOf((char) DELIMITER), new CsvNameExtractor<>(Person.class).getNames());
+    this.header = (columns + (char) NEW_LINE).getBytes(StandardCharsets.US_ASCII);
+  }
+
+  public static void main(String[] args) throws IOException {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator < 0) {
+        System.err.println("Usage: PersonFileGenerator dir=<output dir> [files=1] [rows=1000] [seed=42] "
+          + "[threads=<cores>] [parse-error-rate=0] [invalid-rate=0]");
+        System.exit(1);
+      }
+      options.put(arg.substring(0, separator), arg.substring(separator + 1));
+    }
+    PersonFileGenerator generator = new PersonFileGenerator();
+    generator.setFiles(Integer.parseInt(options.getOrDefault("files", "1")));
+    generator.setRowsPerFile(Long.parseLong(options.getOrDefault("rows", "1000")));
+    generator.setSeed(Long.parseLong(options.getOrDefault("seed", "42")));
+    generator.setThreads(Integer.parseInt(options.getOrDefault("threads", String.valueOf(generator.threads))));
+    generator.setParseErrorRate(Double.parseDouble(options.getOrDefault("parse-error-rate", "0")));
+    generator.setInvalidRate(Double.parseDouble(options.getOrDefault("invalid-rate", "0")));
+    generator.generate(Paths.get(options.getOrDefault("dir", ".")));
+  }
+
+  public void setFiles(int files) {
+    this.files = files;
+  }
+
+  public void setRowsPerFile(long rowsPerFile) {
+    this.rowsPerFile = rowsPerFile;
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  /**
+   * Rate of the rows that cannot be parsed.
+   */
+  public void setParseErrorRate(double parseErrorRate) {
+    this.parseErrorRate = parseErrorRate;
+  }
+
+  /**
+   * Rate of the rows rejected by the validation rules.
+   */
+  public void setInvalidRate(double invalidRate) {
+    this.invalidRate = invalidRate;
+  }
+
+  /**
+   * @return the counts of the generated files
+   */
+  public Report generate(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    long start = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Report>> reports = new ArrayList<>(files);
+      for (int file = 0; file < files; file++) {
+        Path path = directory.resolve(String.format("data-#%04d.csv", file));
+        long fileSeed = seed + file * 0x9E3779B97F4A7C15L;
+        reports.add(executor.submit(() -> generateFile(path, fileSeed)));
+      }
+      Report total = new Report();
+      for (Future<Report> report : reports) {
+        total.add(report.get());
+      }
+      total.nanos = System.nanoTime() - start;
+      log.info("{} files generated in {}: {}", files, directory, total);
+      return total;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Report generateFile(Path path, long fileSeed) {
+    SplittableRandom random = new SplittableRandom(fileSeed);
+    Report report = new Report();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    try (FileChannel channel = FileChannel.open(path,
+      StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      buffer.put(header);
+      for (long row = 0; row < rowsPerFile; row++) {
+        // a row is at most a few hundred bytes
+        if (buffer.remaining() < 512) {
+          report.bytes += flush(channel, buffer);
+        }
+        double draw = random.nextDouble();
+        if (draw < parseErrorRate) {
+          unparsableRow(buffer, random);
+          report.parseErrors++;
+        } else if (draw < parseErrorRate + invalidRate) {
+          invalidRow(buffer, random);
+          report.invalidRows++;
+        } else {
+          row(buffer, names.firstName(random), names.lastName(random), 1 + random.nextInt(99));
+        }
+        report.rows++;
+      }
+      report.bytes += flush(channel, buffer);
+      report.files++;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return report;
+  }
+
+  private static long flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    long written = 0;
+    while (buffer.hasRemaining()) {
+      written += channel.write(buffer);
+    }
+    buffer.clear();
+    return written;
+  }
+
+  private static void row(ByteBuffer buffer, byte[] firstName, byte[] lastName, int age) {
+    buffer.put(firstName).put(DELIMITER).put(lastName).put(DELIMITER);
+    putAge(buffer, age);
+    buffer.put(NEW_LINE);
+  }
+
+  private static void putAge(ByteBuffer buffer, int age) {
+    if (age >= 100) {
+      buffer.put((byte) ('0' + age / 100));
+    }
+    if (age >= 10) {
+      buffer.put((byte) ('0' + age / 10 % 10));
+    }
+    buffer.put((byte) ('0' + age % 10));
+  }
+
+  private void unparsableRow(ByteBuffer buffer, SplittableRandom random) {
+    switch (random.nextInt(3)) {
+      case 0:
+        // missing age
+        buffer.put(names.firstName(random)).put(DELIMITER).put(names.lastName(random)).put(NEW_LINE);
+        break;
+      case 1:
+        // extra column
+        buffer.put(names.firstName(random)).put(DELIMITER).put(names.lastName(random)).put(DELIMITER);
+        putAge(buffer, 1 + random.nextInt(99));
+        buffer.put(DELIMITER).put(names.lastName(random)).put(NEW_LINE);
+        break;
+      default:
+        buffer.put(names.firstName(random)).put(DELIMITER).put(names.lastName(random)).put(DELIMITER)
+          .put(NOT_A_NUMBER).put(NEW_LINE);
+    }
+  }
+
+  private void invalidRow(ByteBuffer buffer, SplittableRandom random) {
+    switch (random.nextInt(3)) {
+      case 0:
+        row(buffer, names.firstName(random), names.lastName(random), 0);
+        break;
+      case 1:
+        row(buffer, new byte[0], names.lastName(random), 1 + random.nextInt(99));
+        break;
+      default:
+        row(buffer, names.firstName(random), TOO_LONG, 1 + random.nextInt(99));
+    }
+  }
+
+  /**
+   * Counts of the generated files.
+   */
+  public static class Report {
+    private long files;
+    private long rows;
+    private long bytes;
+    private long parseErrors;
+    private long invalidRows;
+    private long nanos;
+
+    void add(Report report) {
+      files += report.files;
+      rows += report.rows;
+      bytes += report.bytes;
+      parseErrors += report.parseErrors;
+      invalidRows += report.invalidRows;
+    }
+
+    public long getFiles() {
+      return files;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public long getParseErrors() {
+      return parseErrors;
+    }
+
+    public long getInvalidRows() {
+      return invalidRows;
+    }
+
+    /**
+     * Throughput in MB/s.
+     */
+    public double getThroughput() {
+      return nanos == 0 ? 0 : bytes / 1e6 / (nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d rows, %d bytes, %d parse errors, %d invalid rows, %.0f MB/s", rows, bytes, parseErrors,
+        invalidRows, getThroughput());
+    }
+  }
+}
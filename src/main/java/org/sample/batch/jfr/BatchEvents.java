@@ -0,0 +1,185 @@
+package org.sample.batch.jfr;
+
+import org.sample.batch.partition.ConcurrencyController.Decision;
+import org.sample.batch.partition.ConcurrencyController.Signals;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+
+/**
+ * Emits the Java Flight Recorder events of the batch.
+ * <p>
+ * Every method returns immediately when its event type is not enabled in a running recording, so that the cost is a
+ * flag check when no recording is running. Chunk phases are timed per thread: a chunk is processed by a single thread.
+ * </p>
+ * <p>
+ * Record with {@code -XX:StartFlightRecording=filename=batch.jfr} and read with
+ * {@code jfr print --categories Batch batch.jfr}.
+ * </p>
+ */
+public final class BatchEvents {
+
+  private static final ThreadLocal<ChunkTiming> chunkTimings = new ThreadLocal<>();
+
+  private BatchEvents() {
+  }
+
+  public static void beginChunk(StepExecution stepExecution) {
+    if (!ChunkEvent.enabled()) {
+      return;
+    }
+    ChunkTiming timing = new ChunkTiming(stepExecution);
+    timing.event.begin();
+    chunkTimings.set(timing);
+  }
+
+  public static void endChunk(StepExecution stepExecution, boolean committed) {
+    ChunkTiming timing = chunkTimings.get();
+    if (timing == null) {
+      return;
+    }
+    chunkTimings.remove();
+    ChunkEvent event = timing.event;
+    event.end();
+    if (event.shouldCommit()) {
+      event.readCount = stepExecution.getReadCount() - timing.readCount;
+      event.writeCount = stepExecution.getWriteCount() - timing.writeCount;
+      event.skipCount = stepExecution.getSkipCount() - timing.skipCount;
+      event.committed = committed;
+      event.commit();
+    }
+  }
+
+  public static void beginPhase() {
+    ChunkTiming timing = chunkTimings.get();
+    if (timing != null) {
+      timing.phaseStart = System.nanoTime();
+    }
+  }
+
+  public static void endRead() {
+    ChunkTiming timing = chunkTimings.get();
+    if (timing != null) {
+      timing.event.readDuration += System.nanoTime() - timing.phaseStart;
+    }
+  }
+
+  public static void endProcess() {
+    ChunkTiming timing = chunkTimings.get();
+    if (timing != null) {
+      timing.event.processDuration += System.nanoTime() - timing.phaseStart;
+    }
+  }
+
+  public static void endWrite() {
+    ChunkTiming timing = chunkTimings.get();
+    if (timing != null) {
+      timing.event.writeDuration += System.nanoTime() - timing.phaseStart;
+    }
+  }
+
+  public static void skip(String partition, String phase, long lineNumber, String error) {
+    if (!SkipEvent.enabled()) {
+      return;
+    }
+    SkipEvent event = new SkipEvent();
+    event.partition = partition;
+    event.phase = phase;
+    event.lineNumber = lineNumber;
+    event.error = error;
+    event.commit();
+  }
+
+  /**
+   * Starts the event of a partition, to be ended by {@link #endPartition(PartitionEvent, StepExecution)}.
+   *
+   * @return the started event, null when not enabled
+   */
+  public static PartitionEvent beginPartition(StepExecution stepExecution, String inputFile, long inputSize) {
+    if (!PartitionEvent.enabled()) {
+      return null;
+    }
+    PartitionEvent event = new PartitionEvent();
+    event.partition = stepExecution.getStepName();
+    event.inputFile = inputFile;
+    event.inputSize = inputSize;
+    event.begin();
+    return event;
+  }
+
+  public static void endPartition(PartitionEvent event, StepExecution stepExecution) {
+    if (event == null) {
+      return;
+    }
+    event.end();
+    event.readCount = stepExecution.getReadCount();
+    event.writeCount = stepExecution.getWriteCount();
+    event.skipCount = stepExecution.getSkipCount();
+    event.commitCount = stepExecution.getCommitCount();
+    event.status = stepExecution.getStatus().toString();
+    event.commit();
+  }
+
+  /**
+   * Starts the event of a lookup, to be ended by {@link #endLookup(NationalLookupEvent, boolean, Throwable)}.
+   *
+   * @return the started event, null when not enabled
+   */
+  public static NationalLookupEvent beginLookup() {
+    if (!NationalLookupEvent.enabled()) {
+      return null;
+    }
+    NationalLookupEvent event = new NationalLookupEvent();
+    event.partition = currentPartition();
+    event.begin();
+    return event;
+  }
+
+  public static void endLookup(NationalLookupEvent event, boolean found, Throwable error) {
+    if (event == null) {
+      return;
+    }
+    event.end();
+    event.found = found;
+    event.error = error == null ? null : error.toString();
+    event.commit();
+  }
+
+  public static void resize(Decision decision) {
+    if (!ExecutorResizeEvent.enabled()) {
+      return;
+    }
+    Signals signals = decision.getSignals();
+    ExecutorResizeEvent event = new ExecutorResizeEvent();
+    event.previousSize = decision.getPreviousSize();
+    event.size = decision.getSize();
+    event.reason = decision.getReason();
+    event.throughput = signals.getThroughput();
+    event.cpuLoad = signals.getCpuLoad();
+    event.commitLatency = signals.getCommitLatencyNanos();
+    event.lookupLatency = signals.getLookupLatencyNanos();
+    event.backlog = signals.getBacklog();
+    event.commit();
+  }
+
+  private static String currentPartition() {
+    StepContext context = StepSynchronizationManager.getContext();
+    return context == null ? null : context.getStepName();
+  }
+
+  private static class ChunkTiming {
+    private final ChunkEvent event = new ChunkEvent();
+    private final int readCount;
+    private final int writeCount;
+    private final int skipCount;
+    private long phaseStart;
+
+    private ChunkTiming(StepExecution stepExecution) {
+      this.readCount = stepExecution.getReadCount();
+      this.writeCount = stepExecution.getWriteCount();
+      this.skipCount = stepExecution.getSkipCount();
+      event.partition = stepExecution.getStepName();
+      event.firstItem = (long) stepExecution.getReadCount() + stepExecution.getReadSkipCount();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package org.sample.batch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A chunk of a partition: the event duration is the whole chunk, the read, process and write durations are the time
+ * spent in each phase.
+ */
+@Name("org.sample.batch.Chunk")
+@Label("Chunk")
+@Category({"Batch"})
+@StackTrace(false)
+@Description("Read, process and write of a chunk")
+public class ChunkEvent extends Event {
+
+  private static final EventType TYPE = EventType.getEventType(ChunkEvent.class);
+
+  @Label("Partition")
+  String partition;
+
+  @Label("First Item")
+  @Description("Index of the first item of the chunk in the input (items already read by the partition)")
+  long firstItem;
+
+  @Label("Read Count")
+  int readCount;
+
+  @Label("Write Count")
+  int writeCount;
+
+  @Label("Skip Count")
+  int skipCount;
+
+  @Label("Read Duration")
+  @Timespan
+  long readDuration;
+
+  @Label("Process Duration")
+  @Timespan
+  long processDuration;
+
+  @Label("Write Duration")
+  @Timespan
+  long writeDuration;
+
+  @Label("Committed")
+  boolean committed;
+
+  static boolean enabled() {
+    return TYPE.isEnabled();
+  }
+}
@@ -0,0 +1,57 @@
+package org.sample.batch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A decision of the elastic partition executor, with the signals of the last interval.
+ */
+@Name("org.sample.batch.ExecutorResize")
+@Label("Executor Resize")
+@Category({"Batch"})
+@StackTrace(false)
+@Description("Pool size of the partition executor chosen from the throughput, CPU load and latencies")
+public class ExecutorResizeEvent extends Event {
+
+  private static final EventType TYPE = EventType.getEventType(ExecutorResizeEvent.class);
+
+  @Label("Previous Size")
+  int previousSize;
+
+  @Label("Size")
+  int size;
+
+  @Label("Reason")
+  String reason;
+
+  @Label("Throughput")
+  @Description("Items written per second")
+  double throughput;
+
+  @Label("CPU Load")
+  @Percentage
+  double cpuLoad;
+
+  @Label("Commit Latency")
+  @Timespan
+  long commitLatency;
+
+  @Label("Lookup Latency")
+  @Timespan
+  long lookupLatency;
+
+  @Label("Backlog")
+  @Description("Partitions waiting for a thread")
+  int backlog;
+
+  static boolean enabled() {
+    return TYPE.isEnabled();
+  }
+}
@@ -0,0 +1,33 @@
+package org.sample.batch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A call to the national registry.
+ */
+@Name("org.sample.batch.NationalLookup")
+@Label("National Lookup")
+@Category({"Batch"})
+@StackTrace(false)
+public class NationalLookupEvent extends Event {
+
+  private static final EventType TYPE = EventType.getEventType(NationalLookupEvent.class);
+
+  @Label("Partition")
+  String partition;
+
+  @Label("Found")
+  boolean found;
+
+  @Label("Error")
+  String error;
+
+  static boolean enabled() {
+    return TYPE.isEnabled();
+  }
+}
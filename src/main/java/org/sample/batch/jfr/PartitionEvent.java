@@ -0,0 +1,50 @@
+package org.sample.batch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The execution of a partition, from its start to its end.
+ */
+@Name("org.sample.batch.Partition")
+@Label("Partition")
+@Category({"Batch"})
+@StackTrace(false)
+public class PartitionEvent extends Event {
+
+  private static final EventType TYPE = EventType.getEventType(PartitionEvent.class);
+
+  @Label("Partition")
+  String partition;
+
+  @Label("Input File")
+  String inputFile;
+
+  @Label("Input Size")
+  @DataAmount
+  long inputSize;
+
+  @Label("Read Count")
+  int readCount;
+
+  @Label("Write Count")
+  int writeCount;
+
+  @Label("Skip Count")
+  int skipCount;
+
+  @Label("Commit Count")
+  int commitCount;
+
+  @Label("Status")
+  String status;
+
+  static boolean enabled() {
+    return TYPE.isEnabled();
+  }
+}
@@ -0,0 +1,30 @@
+package org.sample.batch.jfr;
+
+import org.sample.batch.service.NationalService;
+
+import java.util.Optional;
+
+/**
+ * Records a {@link NationalLookupEvent} around each lookup.
+ */
+public class RecordingNationalService implements NationalService {
+
+  private final NationalService delegate;
+
+  public RecordingNationalService(NationalService delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Optional<String> findNationalIdentifier(String firstName, String lastName) {
+    NationalLookupEvent event = BatchEvents.beginLookup();
+    try {
+      Optional<String> identifier = delegate.findNationalIdentifier(firstName, lastName);
+      BatchEvents.endLookup(event, identifier.isPresent(), null);
+      return identifier;
+    } catch (RuntimeException e) {
+      BatchEvents.endLookup(event, false, e);
+      throw e;
+    }
+  }
+}
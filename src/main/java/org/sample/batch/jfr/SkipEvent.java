@@ -0,0 +1,36 @@
+package org.sample.batch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An item skipped by a partition.
+ */
+@Name("org.sample.batch.Skip")
+@Label("Skip")
+@Category({"Batch"})
+@StackTrace(false)
+public class SkipEvent extends Event {
+
+  private static final EventType TYPE = EventType.getEventType(SkipEvent.class);
+
+  @Label("Partition")
+  String partition;
+
+  @Label("Phase")
+  String phase;
+
+  @Label("Line Number")
+  long lineNumber;
+
+  @Label("Error")
+  String error;
+
+  static boolean enabled() {
+    return TYPE.isEnabled();
+  }
+}
@@ -0,0 +1,125 @@
+package org.sample.batch.launch;
+
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Launches the jobs asynchronously, at most a number of jobs at once: the next ones wait in a bounded queue, by
+ * descending priority (job parameter {@value #PRIORITY_KEY}, 1 by default) then in the launch order. A job launched
+ * while the queue is full is rejected, its execution fails.
+ * <p>
+ * With a {@link FairShareTaskExecutor}, the running jobs share the partition threads by the same priority.
+ * </p>
+ */
+public class ConcurrentJobLauncher extends SimpleJobLauncher implements DisposableBean {
+
+  public static final String PRIORITY_KEY = "job.priority";
+
+  private final ThreadPoolExecutor executor;
+  private final int maxJobs;
+  private final int queueCapacity;
+  private final AtomicInteger admitted = new AtomicInteger();
+  private final AtomicLong sequence = new AtomicLong();
+  private final ThreadLocal<Long> launchPriority = new ThreadLocal<>();
+
+  /**
+   * @param maxJobs       jobs running at once
+   * @param queueCapacity jobs waiting to run
+   */
+  public ConcurrentJobLauncher(JobRepository jobRepository, int maxJobs, int queueCapacity) {
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(maxJobs, maxJobs, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+      runnable -> new Thread(runnable, "job-#" + threadCount.incrementAndGet()));
+    this.maxJobs = maxJobs;
+    this.queueCapacity = queueCapacity;
+    setJobRepository(jobRepository);
+    setTaskExecutor(this::admit);
+  }
+
+  /**
+   * @return the weight of a job, at least 1
+   */
+  public static long priority(JobParameters jobParameters) {
+    return Math.max(1, jobParameters.getLong(PRIORITY_KEY, 1L));
+  }
+
+  @Override
+  public JobExecution run(Job job, JobParameters jobParameters) throws JobExecutionAlreadyRunningException,
+    JobRestartException, JobInstanceAlreadyCompleteException, JobParametersInvalidException {
+    // read by admit(), called by the same thread
+    launchPriority.set(priority(jobParameters));
+    try {
+      return super.run(job, jobParameters);
+    } finally {
+      launchPriority.remove();
+    }
+  }
+
+  private synchronized void admit(Runnable job) {
+    if (admitted.get() >= maxJobs + queueCapacity) {
+      throw new TaskRejectedException("Too many jobs waiting: " + executor.getQueue().size());
+    }
+    Long priority = launchPriority.get();
+    admitted.incrementAndGet();
+    executor.execute(new Admission(() -> {
+      try {
+        job.run();
+      } finally {
+        admitted.decrementAndGet();
+      }
+    }, priority == null ? 1 : priority, sequence.incrementAndGet()));
+  }
+
+  /**
+   * @return the jobs waiting to run
+   */
+  public int getQueueSize() {
+    return executor.getQueue().size();
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * A job waiting for its admission.
+   */
+  private static class Admission implements Runnable, Comparable<Admission> {
+    private final Runnable job;
+    private final long priority;
+    private final long sequence;
+
+    private Admission(Runnable job, long priority, long sequence) {
+      this.job = job;
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public void run() {
+      job.run();
+    }
+
+    @Override
+    public int compareTo(Admission other) {
+      int order = Long.compare(other.priority, priority);
+      return order != 0 ? order : Long.compare(sequence, other.sequence);
+    }
+  }
+}
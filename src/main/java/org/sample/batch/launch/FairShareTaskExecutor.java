@@ -0,0 +1,273 @@
+package org.sample.batch.launch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Executor of the partitions of all the running jobs, sharing a bounded pool between them by weighted fair queuing.
+ * <p>
+ * Each job has a weight, its job parameter {@value ConcurrentJobLauncher#PRIORITY_KEY} (1 by default). The waiting
+ * partitions are started in the order of their virtual start time (start-time fair queuing): a job starting while
+ * another one has queued a hundred partitions gets the next free thread, and over time each job gets threads in
+ * proportion of its weight. As a chunk listener, it also limits the chunks executed at once (if the number of chunk
+ * permits is positive), granted in the same fair order: the jobs share the cores at chunk granularity even when the
+ * pool has more threads than cores.
+ * </p>
+ * <p>
+ * As a job listener, it registers the weight of the jobs and, after each job, logs and stores into its
+ * {@link ExecutionContext} (keys prefixed by {@value #KEY_PREFIX}) its admission delay, the time its partitions and
+ * chunks waited, and its throughput.
+ * </p>
+ */
+public class FairShareTaskExecutor extends ThreadPoolTaskExecutor implements JobExecutionListener, ChunkListener {
+
+  private static final Logger log = LoggerFactory.getLogger(FairShareTaskExecutor.class);
+
+  public static final String KEY_PREFIX = "fairShare.";
+
+  private final Map<Long, JobShare> shares = new ConcurrentHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final Object partitionLock = new Object();
+  private double partitionVirtualTime;
+
+  private final int chunkPermits;
+  private final ReentrantLock chunkLock = new ReentrantLock();
+  private final Condition chunkReleased = chunkLock.newCondition();
+  private final PriorityQueue<Ticket> chunkQueue = new PriorityQueue<>();
+  private double chunkVirtualTime;
+  private int chunksRunning;
+
+  /**
+   * @param threads      partitions executed at once
+   * @param chunkPermits chunks executed at once, not limited if 0
+   */
+  public FairShareTaskExecutor(int threads, int chunkPermits) {
+    this.chunkPermits = chunkPermits;
+    setCorePoolSize(threads);
+    setMaxPoolSize(threads);
+  }
+
+  @Override
+  protected BlockingQueue<Runnable> createQueue(int queueCapacity) {
+    // the tickets are ordered by their virtual start time
+    return new PriorityBlockingQueue<>();
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    JobShare share = currentShare();
+    double tag;
+    synchronized (partitionLock) {
+      tag = Math.max(partitionVirtualTime, share.partitionFinish);
+      share.partitionFinish = tag + 1.0 / share.weight;
+    }
+    super.execute(new Ticket(task, share, tag, sequence.incrementAndGet()));
+  }
+
+  private JobShare currentShare() {
+    StepContext context = StepSynchronizationManager.getContext();
+    if (context == null) {
+      // out of a job: shares the default weight
+      return shares.computeIfAbsent(-1L, id -> new JobShare("none", 1));
+    }
+    return share(context.getStepExecution().getJobExecution());
+  }
+
+  private JobShare share(JobExecution jobExecution) {
+    return shares.computeIfAbsent(jobExecution.getId(), id -> new JobShare(jobExecution.getJobInstance().getJobName(),
+      ConcurrentJobLauncher.priority(jobExecution.getJobParameters())));
+  }
+
+  @Override
+  public void beforeJob(JobExecution jobExecution) {
+    share(jobExecution);
+  }
+
+  @Override
+  public void afterJob(JobExecution jobExecution) {
+    JobShare share = shares.remove(jobExecution.getId());
+    if (share == null) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    long admissionMs = jobExecution.getStartTime().getTime() - jobExecution.getCreateTime().getTime();
+    long items = jobExecution.getStepExecutions().stream()
+      .filter(stepExecution -> stepExecution.getStepName().contains(":"))
+      .mapToLong(StepExecution::getWriteCount)
+      .sum();
+    double throughput = items * 1000.0 / Math.max(1, now - jobExecution.getStartTime().getTime());
+
+    long partitions;
+    long partitionWaitMs;
+    long partitionMaxWaitMs;
+    synchronized (partitionLock) {
+      partitions = share.partitions;
+      partitionWaitMs = millis(share.partitionWaitNanos);
+      partitionMaxWaitMs = millis(share.partitionMaxWaitNanos);
+    }
+    long chunks;
+    long chunkWaitMs;
+    long chunkMaxWaitMs;
+    chunkLock.lock();
+    try {
+      chunks = share.chunks;
+      chunkWaitMs = millis(share.chunkWaitNanos);
+      chunkMaxWaitMs = millis(share.chunkMaxWaitNanos);
+    } finally {
+      chunkLock.unlock();
+    }
+
+    ExecutionContext executionContext = jobExecution.getExecutionContext();
+    executionContext.putLong(KEY_PREFIX + "weight", share.weight);
+    executionContext.putLong(KEY_PREFIX + "admission.ms", admissionMs);
+    executionContext.putLong(KEY_PREFIX + "partition.wait.ms", partitionWaitMs);
+    executionContext.putLong(KEY_PREFIX + "partition.wait.max.ms", partitionMaxWaitMs);
+    executionContext.putLong(KEY_PREFIX + "chunk.wait.ms", chunkWaitMs);
+    executionContext.putLong(KEY_PREFIX + "chunk.wait.max.ms", chunkMaxWaitMs);
+    executionContext.putDouble(KEY_PREFIX + "throughput", throughput);
+    log.info("Job {} (weight {}): admitted after {} ms, {} partitions waited {} ms (max {} ms), {} chunks waited {} ms"
+        + " (max {} ms), {} items/s", share.jobName, share.weight, admissionMs, partitions, partitionWaitMs,
+      partitionMaxWaitMs, chunks, chunkWaitMs, chunkMaxWaitMs, String.format("%.0f", throughput));
+  }
+
+  @Override
+  public void beforeChunk(ChunkContext context) {
+    if (chunkPermits <= 0) {
+      return;
+    }
+    JobShare share = share(context.getStepContext().getStepExecution().getJobExecution());
+    long start = System.nanoTime();
+    chunkLock.lock();
+    try {
+      double tag = Math.max(chunkVirtualTime, share.chunkFinish);
+      share.chunkFinish = tag + 1.0 / share.weight;
+      Ticket ticket = new Ticket(null, share, tag, sequence.incrementAndGet());
+      chunkQueue.add(ticket);
+      while (chunkQueue.peek() != ticket || chunksRunning >= chunkPermits) {
+        chunkReleased.awaitUninterruptibly();
+      }
+      chunkQueue.poll();
+      chunksRunning++;
+      chunkVirtualTime = Math.max(chunkVirtualTime, tag);
+      share.chunkWaited(System.nanoTime() - start);
+      // the next ticket may be granted too
+      chunkReleased.signalAll();
+    } finally {
+      chunkLock.unlock();
+    }
+  }
+
+  @Override
+  public void afterChunk(ChunkContext context) {
+    releaseChunk();
+  }
+
+  @Override
+  public void afterChunkError(ChunkContext context) {
+    releaseChunk();
+  }
+
+  private void releaseChunk() {
+    if (chunkPermits <= 0) {
+      return;
+    }
+    chunkLock.lock();
+    try {
+      chunksRunning--;
+      chunkReleased.signalAll();
+    } finally {
+      chunkLock.unlock();
+    }
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  /**
+   * A partition waiting for a thread, or a chunk waiting for a permit.
+   */
+  private class Ticket implements Runnable, Comparable<Ticket> {
+    private final Runnable task;
+    private final JobShare share;
+    private final double tag;
+    private final long sequence;
+    private final long queued = System.nanoTime();
+
+    private Ticket(Runnable task, JobShare share, double tag, long sequence) {
+      this.task = task;
+      this.share = share;
+      this.tag = tag;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public void run() {
+      synchronized (partitionLock) {
+        partitionVirtualTime = Math.max(partitionVirtualTime, tag);
+        share.partitionWaited(System.nanoTime() - queued);
+      }
+      task.run();
+    }
+
+    @Override
+    public int compareTo(Ticket other) {
+      int order = Double.compare(tag, other.tag);
+      return order != 0 ? order : Long.compare(sequence, other.sequence);
+    }
+  }
+
+  /**
+   * The weight, virtual finish times and waits of a job.
+   */
+  private static class JobShare {
+    private final String jobName;
+    private final long weight;
+    private double partitionFinish;
+    private double chunkFinish;
+    private long partitions;
+    private long partitionWaitNanos;
+    private long partitionMaxWaitNanos;
+    private long chunks;
+    private long chunkWaitNanos;
+    private long chunkMaxWaitNanos;
+
+    private JobShare(String jobName, long weight) {
+      this.jobName = jobName;
+      this.weight = Math.max(1, weight);
+    }
+
+    // under the partition lock
+    private void partitionWaited(long nanos) {
+      partitions++;
+      partitionWaitNanos += nanos;
+      partitionMaxWaitNanos = Math.max(partitionMaxWaitNanos, nanos);
+    }
+
+    // under the chunk lock
+    private void chunkWaited(long nanos) {
+      chunks++;
+      chunkWaitNanos += nanos;
+      chunkMaxWaitNanos = Math.max(chunkMaxWaitNanos, nanos);
+    }
+  }
+}
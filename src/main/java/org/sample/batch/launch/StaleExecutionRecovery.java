@@ -0,0 +1,103 @@
+package org.sample.batch.launch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameter;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.converter.DefaultJobParametersConverter;
+import org.springframework.batch.core.converter.JobParametersConverter;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Marks FAILED the executions left running in the job repository by a JVM that died (killed, out of memory, power
+ * loss): the job launcher refuses to restart an execution that is still STARTED. Run at startup, before the job is
+ * launched: a launch with the identifying parameters of the failed execution (the run.id included) restarts it from
+ * its last saved state.
+ * <p>
+ * Every running execution of the repository is taken as stale: only for a JVM started when no other JVM runs jobs
+ * on the same repository, the remote workers included.
+ * </p>
+ */
+public class StaleExecutionRecovery implements ApplicationRunner, Ordered {
+
+  private static final Logger log = LoggerFactory.getLogger(StaleExecutionRecovery.class);
+
+  private static final String DESCRIPTION = "Stale execution, the JVM running it stopped";
+
+  private final JobExplorer jobExplorer;
+  private final JobRepository jobRepository;
+  private final JobParametersConverter jobParametersConverter = new DefaultJobParametersConverter();
+
+  public StaleExecutionRecovery(JobExplorer jobExplorer, JobRepository jobRepository) {
+    this.jobExplorer = jobExplorer;
+    this.jobRepository = jobRepository;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    failStaleExecutions();
+  }
+
+  /**
+   * Before the job launcher.
+   */
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+
+  /**
+   * @return the number of job executions marked FAILED
+   */
+  public int failStaleExecutions() {
+    int count = 0;
+    for (String jobName : jobExplorer.getJobNames()) {
+      for (JobExecution jobExecution : jobExplorer.findRunningJobExecutions(jobName)) {
+        fail(jobExecution);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void fail(JobExecution jobExecution) {
+    Date now = new Date();
+    for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+      if (stepExecution.getStatus().isRunning()) {
+        stepExecution.setStatus(BatchStatus.FAILED);
+        stepExecution.setExitStatus(ExitStatus.FAILED.addExitDescription(DESCRIPTION));
+        stepExecution.setEndTime(now);
+        jobRepository.update(stepExecution);
+      }
+    }
+    log.warn("Execution {} of {} left {}, marked FAILED, restarted by the parameters {}", jobExecution.getId(),
+      jobExecution.getJobInstance().getJobName(), jobExecution.getStatus(),
+      jobParametersConverter.getProperties(identifying(jobExecution.getJobParameters())));
+    jobExecution.setStatus(BatchStatus.FAILED);
+    jobExecution.setExitStatus(ExitStatus.FAILED.addExitDescription(DESCRIPTION));
+    jobExecution.setEndTime(now);
+    jobRepository.update(jobExecution);
+  }
+
+  private static JobParameters identifying(JobParameters parameters) {
+    Map<String, JobParameter> identifying = new LinkedHashMap<>();
+    parameters.getParameters().forEach((key, value) -> {
+      if (value.isIdentifying()) {
+        identifying.put(key, value);
+      }
+    });
+    return new JobParameters(identifying);
+  }
+}
@@ -1,30 +1,108 @@
 package org.sample.batch.listener;
 
+import org.sample.batch.jfr.BatchEvents;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.annotation.AfterChunk;
 import org.springframework.batch.core.annotation.AfterChunkError;
+import org.springframework.batch.core.annotation.AfterProcess;
+import org.springframework.batch.core.annotation.AfterRead;
+import org.springframework.batch.core.annotation.AfterWrite;
 import org.springframework.batch.core.annotation.BeforeChunk;
+import org.springframework.batch.core.annotation.BeforeProcess;
+import org.springframework.batch.core.annotation.BeforeRead;
+import org.springframework.batch.core.annotation.BeforeWrite;
+import org.springframework.batch.core.annotation.OnProcessError;
+import org.springframework.batch.core.annotation.OnReadError;
+import org.springframework.batch.core.annotation.OnWriteError;
 import org.springframework.batch.core.scope.context.ChunkContext;
 
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Logs the chunks and records their {@link org.sample.batch.jfr.ChunkEvent}.
+ * The time from the JVM start to the first committed chunk is saved in the job execution context
+ * ({@value #FIRST_CHUNK_KEY}), to follow the startup time of the short runs.
+ */
 public class ChunkListener  {
 
     private static final Logger log = LoggerFactory.getLogger(ChunkListener.class);
 
+    public static final String FIRST_CHUNK_KEY = "startup.first-chunk.ms";
+
+    private final AtomicBoolean firstChunk = new AtomicBoolean(true);
+
     @BeforeChunk
     public void beforeChunk(ChunkContext chunkContext) {
         log.info("beforeChunk -- chunk context: {}", chunkContext);
+        BatchEvents.beginChunk(chunkContext.getStepContext().getStepExecution());
     }
 
     @AfterChunk
     public void afterChunk(ChunkContext chunkContext) {
         log.info("afterChunk -- chunk context: {}", chunkContext);
+        StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+        BatchEvents.endChunk(stepExecution, true);
+        if (firstChunk.compareAndSet(true, false)) {
+            long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+            log.info("First chunk committed {} ms after the JVM start", uptime);
+            stepExecution.getJobExecution().getExecutionContext().putLong(FIRST_CHUNK_KEY, uptime);
+        }
     }
 
     @AfterChunkError
     public void afterChunkError(ChunkContext chunkContext) {
         log.error("afterChunkError -- chunk context: {}", chunkContext);
         log.error("afterChunkError -- step context: {}", chunkContext.getStepContext());
+        BatchEvents.endChunk(chunkContext.getStepContext().getStepExecution(), false);
+    }
+
+    @BeforeRead
+    public void beforeRead() {
+        BatchEvents.beginPhase();
+    }
+
+    @AfterRead
+    public void afterRead(Object item) {
+        BatchEvents.endRead();
+    }
+
+    @OnReadError
+    public void onReadError(Exception e) {
+        BatchEvents.endRead();
+    }
+
+    @BeforeProcess
+    public void beforeProcess(Object item) {
+        BatchEvents.beginPhase();
+    }
+
+    @AfterProcess
+    public void afterProcess(Object item, Object result) {
+        BatchEvents.endProcess();
+    }
+
+    @OnProcessError
+    public void onProcessError(Object item, Exception e) {
+        BatchEvents.endProcess();
+    }
+
+    @BeforeWrite
+    public void beforeWrite(List<?> items) {
+        BatchEvents.beginPhase();
+    }
+
+    @AfterWrite
+    public void afterWrite(List<?> items) {
+        BatchEvents.endWrite();
+    }
+
+    @OnWriteError
+    public void onWriteError(Exception e, List<?> items) {
+        BatchEvents.endWrite();
     }
 
-}
\ No newline at end of file
+}
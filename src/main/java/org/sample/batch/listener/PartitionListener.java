@@ -0,0 +1,39 @@
+package org.sample.batch.listener;
+
+import org.sample.batch.config.CustomMultiResourcePartitioner;
+import org.sample.batch.jfr.BatchEvents;
+import org.sample.batch.jfr.PartitionEvent;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Follows the lifecycle of the partitions (worker step executions) of a partitioned step.
+ */
+public class PartitionListener implements StepExecutionListener {
+
+  private static final String inputFileKey = "input.file";
+
+  private final Map<StepExecution, PartitionEvent> events = new ConcurrentHashMap<>();
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+    String inputFile = stepExecution.getExecutionContext().getString(inputFileKey, null);
+    long inputSize = inputFile == null ? 0 : stepExecution.getExecutionContext()
+      .getLong(CustomMultiResourcePartitioner.INPUT_FILE_SIZE_KEY, new File(inputFile).length());
+    PartitionEvent event = BatchEvents.beginPartition(stepExecution, inputFile, inputSize);
+    if (event != null) {
+      events.put(stepExecution, event);
+    }
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    BatchEvents.endPartition(events.remove(stepExecution), stepExecution);
+    return null;
+  }
+}
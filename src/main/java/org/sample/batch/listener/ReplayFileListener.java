@@ -0,0 +1,60 @@
+package org.sample.batch.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Rotates the error file of a replay partition once it has been replayed.
+ * <p>
+ * The replayed file is renamed {@code <name>.replayed} and the items that failed again (written to the partition
+ * error file) take its place, so the next replay only reads what is left to recover.
+ * Must be registered before the skip listener: it runs after the error file has been closed.
+ * </p>
+ */
+public class ReplayFileListener implements StepExecutionListener {
+
+  private static final Logger log = LoggerFactory.getLogger(ReplayFileListener.class);
+
+  private static final String inputFileKey = "input.file";
+  private static final String outputErrorFileKey = "output.error.file";
+  public static final String REPLAYED_SUFFIX = ".replayed";
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    if (stepExecution.getStatus() != BatchStatus.COMPLETED) {
+      // the file is kept for a restart
+      return null;
+    }
+    ExecutionContext context = stepExecution.getExecutionContext();
+    Path replayed = Paths.get(context.getString(inputFileKey));
+    Path remaining = Paths.get(context.getString(outputErrorFileKey));
+    try {
+      Files.move(replayed, Paths.get(replayed + REPLAYED_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+      if (stepExecution.getSkipCount() > 0) {
+        Files.move(remaining, replayed);
+      } else {
+        Files.deleteIfExists(remaining);
+      }
+    } catch (IOException e) {
+      log.warn("Failed to rotate the replayed file {}", replayed, e);
+    }
+    log.info("{} replayed: {} items written, {} left", replayed, stepExecution.getWriteCount(),
+      stepExecution.getSkipCount());
+    return null;
+  }
+}
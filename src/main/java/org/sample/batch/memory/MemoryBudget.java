@@ -0,0 +1,338 @@
+package org.sample.batch.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Estimated heap shared by the partitions: the components reserve the bytes of what they hold before growing and
+ * release them when it can be collected.
+ * <p>
+ * A partition {@link Account} waits when the budget is exhausted, unless it holds less than its fair share (the
+ * capacity divided by the open accounts): a partition can always complete its chunk, the partitions cannot block each
+ * other. A wait longer than the maximum wait is granted anyway and counted as an overdraft. The caches use
+ * {@link #tryReserve(String, long)}: they do not grow when the budget is exhausted.
+ * </p>
+ * <p>
+ * The usage is tracked per component (e.g. "chunk", "prefetch"), with its peak since {@link #resetPeaks()}.
+ * </p>
+ */
+public class MemoryBudget {
+
+  private static final Logger log = LoggerFactory.getLogger(MemoryBudget.class);
+
+  private final long capacity;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private final Set<Account> accounts = new HashSet<>();
+  private final Map<String, long[]> components = new TreeMap<>();
+  private long maxWaitNanos = TimeUnit.SECONDS.toNanos(30);
+
+  private long used;
+  private long peak;
+  private long waits;
+  private long waitNanos;
+  private long overdrafts;
+
+  /**
+   * @param capacity bytes, unlimited if not positive (the usage is still tracked)
+   */
+  public MemoryBudget(long capacity) {
+    this.capacity = capacity > 0 ? capacity : Long.MAX_VALUE;
+  }
+
+  public void setMaxWait(long maxWait, TimeUnit unit) {
+    this.maxWaitNanos = unit.toNanos(maxWait);
+  }
+
+  /**
+   * Opens the account of a partition, to be closed at its end.
+   */
+  public Account open(String owner) {
+    lock.lock();
+    try {
+      Account account = new Account(owner);
+      accounts.add(account);
+      return account;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Reserves the bytes if they fit in the budget, never waits.
+   *
+   * @return false if the budget is exhausted
+   */
+  public boolean tryReserve(String component, long bytes) {
+    lock.lock();
+    try {
+      if (!fits(bytes)) {
+        return false;
+      }
+      grant(null, component, bytes);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void release(String component, long bytes) {
+    lock.lock();
+    try {
+      free(null, component, bytes);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean fits(long bytes) {
+    return used + bytes <= capacity;
+  }
+
+  private void grant(Account account, String component, long bytes) {
+    used += bytes;
+    peak = Math.max(peak, used);
+    long[] usage = components.computeIfAbsent(component, name -> new long[2]);
+    usage[0] += bytes;
+    usage[1] = Math.max(usage[1], usage[0]);
+    if (account != null) {
+      account.used += bytes;
+    }
+  }
+
+  private void free(Account account, String component, long bytes) {
+    used -= bytes;
+    long[] usage = components.get(component);
+    if (usage != null) {
+      usage[0] -= bytes;
+    }
+    if (account != null) {
+      account.used -= bytes;
+    }
+    released.signalAll();
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public long getUsed() {
+    lock.lock();
+    try {
+      return used;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getPeak() {
+    lock.lock();
+    try {
+      return peak;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the current usage per component
+   */
+  public Map<String, Long> getUsage() {
+    return usage(0);
+  }
+
+  /**
+   * @return the peak usage per component
+   */
+  public Map<String, Long> getPeakUsage() {
+    return usage(1);
+  }
+
+  private Map<String, Long> usage(int index) {
+    lock.lock();
+    try {
+      Map<String, Long> usage = new TreeMap<>();
+      components.forEach((component, values) -> usage.put(component, values[index]));
+      return Collections.unmodifiableMap(usage);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the reservations that had to wait
+   */
+  public long getWaits() {
+    lock.lock();
+    try {
+      return waits;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getWaitNanos() {
+    lock.lock();
+    try {
+      return waitNanos;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the reservations granted beyond the capacity after the maximum wait
+   */
+  public long getOverdrafts() {
+    lock.lock();
+    try {
+      return overdrafts;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Starts the peaks and the wait counts from the current usage, e.g. before a job.
+   */
+  public void resetPeaks() {
+    lock.lock();
+    try {
+      peak = used;
+      components.values().forEach(usage -> usage[1] = usage[0]);
+      waits = 0;
+      waitNanos = 0;
+      overdrafts = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "MemoryBudget{" +
+      "capacity=" + (capacity == Long.MAX_VALUE ? "unlimited" : capacity) +
+      ", used=" + getUsed() +
+      ", peak=" + getPeak() +
+      ", peakUsage=" + getPeakUsage() +
+      ", waits=" + getWaits() +
+      ", waitMs=" + getWaitNanos() / 1_000_000 +
+      ", overdrafts=" + getOverdrafts() +
+      '}';
+  }
+
+  /**
+   * The reservations of a partition. Closing the account releases what it still holds.
+   */
+  public class Account implements AutoCloseable {
+    private final String owner;
+    private final Map<String, Long> held = new TreeMap<>();
+    private long used;
+    private boolean closed;
+
+    private Account(String owner) {
+      this.owner = owner;
+    }
+
+    /**
+     * Reserves the bytes, waits while the budget is exhausted and the account holds more than its fair share.
+     * Nothing is reserved once the account is closed.
+     */
+    public void reserve(String component, long bytes) {
+      lock.lock();
+      try {
+        if (closed) {
+          return;
+        }
+        long start = 0;
+        while (!closed && !fits(bytes) && used + bytes > capacity / Math.max(1, accounts.size())) {
+          long now = System.nanoTime();
+          if (start == 0) {
+            start = now;
+            waits++;
+          }
+          long remaining = start + maxWaitNanos - now;
+          if (remaining <= 0) {
+            overdrafts++;
+            log.warn("{} has waited {} ms for {} bytes of {}, granted beyond the budget: {}", owner,
+              TimeUnit.NANOSECONDS.toMillis(maxWaitNanos), bytes, component, MemoryBudget.this);
+            break;
+          }
+          try {
+            released.awaitNanos(remaining);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            break;
+          }
+        }
+        if (start != 0) {
+          waitNanos += System.nanoTime() - start;
+        }
+        if (closed) {
+          // closed while waiting
+          return;
+        }
+        grant(this, component, bytes);
+        held.merge(component, bytes, Long::sum);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    public void release(String component, long bytes) {
+      if (bytes == 0) {
+        return;
+      }
+      lock.lock();
+      try {
+        if (closed) {
+          return;
+        }
+        free(this, component, bytes);
+        held.merge(component, -bytes, Long::sum);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    public long getUsed() {
+      lock.lock();
+      try {
+        return used;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void close() {
+      lock.lock();
+      try {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        held.forEach((component, bytes) -> free(this, component, bytes));
+        held.clear();
+        accounts.remove(this);
+        released.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return owner;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package org.sample.batch.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.AfterChunk;
+import org.springframework.batch.core.annotation.AfterChunkError;
+import org.springframework.batch.core.annotation.AfterRead;
+import org.springframework.batch.core.annotation.AfterStep;
+import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.annotation.OnSkipInProcess;
+import org.springframework.batch.core.annotation.OnSkipInRead;
+import org.springframework.batch.core.annotation.OnSkipInWrite;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Charges the partitions to the {@link MemoryBudget}: each partition has its account, the items read (component
+ * {@value #CHUNK}) and skipped (component {@value #ERRORS}) are reserved until the end of their chunk. A partition
+ * reading while the budget is exhausted waits for the chunks of the others to complete. The items of a chunk processed
+ * again after a rollback are not read again, they are not charged again either.
+ * <p>
+ * As a job listener, it logs the usage of the budget after the job and stores its peaks into the job
+ * {@link ExecutionContext} (keys prefixed by {@value #KEY_PREFIX}).
+ * </p>
+ */
+public class MemoryBudgetListener implements JobExecutionListener {
+
+  private static final Logger log = LoggerFactory.getLogger(MemoryBudgetListener.class);
+
+  public static final String KEY_PREFIX = "memory.";
+  public static final String CHUNK = "chunk";
+  public static final String ERRORS = "errors";
+
+  private final MemoryBudget budget;
+  private final Map<Long, Partition> partitions = new ConcurrentHashMap<>();
+
+  public MemoryBudgetListener(MemoryBudget budget) {
+    this.budget = budget;
+  }
+
+  public MemoryBudget getBudget() {
+    return budget;
+  }
+
+  /**
+   * Returns the account of the partition, e.g. for its reader.
+   *
+   * @return null if the step is not listened
+   */
+  public MemoryBudget.Account account(StepExecution stepExecution) {
+    Partition partition = partitions.get(stepExecution.getId());
+    return partition == null ? null : partition.account;
+  }
+
+  @Override
+  public void beforeJob(JobExecution jobExecution) {
+    budget.resetPeaks();
+  }
+
+  @Override
+  public void afterJob(JobExecution jobExecution) {
+    log.info("Job {} memory: {}", jobExecution.getJobInstance().getJobName(), budget);
+    ExecutionContext executionContext = jobExecution.getExecutionContext();
+    executionContext.putLong(KEY_PREFIX + "peak", budget.getPeak());
+    budget.getPeakUsage()
+      .forEach((component, peak) -> executionContext.putLong(KEY_PREFIX + component + ".peak", peak));
+    executionContext.putLong(KEY_PREFIX + "waits", budget.getWaits());
+    executionContext.putLong(KEY_PREFIX + "wait.ms", budget.getWaitNanos() / 1_000_000);
+    executionContext.putLong(KEY_PREFIX + "overdrafts", budget.getOverdrafts());
+  }
+
+  @BeforeStep
+  public void beforeStep(StepExecution stepExecution) {
+    partitions.put(stepExecution.getId(), new Partition(budget.open(stepExecution.getStepName())));
+  }
+
+  @AfterStep
+  public void afterStep(StepExecution stepExecution) {
+    Partition partition = partitions.remove(stepExecution.getId());
+    if (partition != null) {
+      partition.account.close();
+    }
+  }
+
+  @AfterRead
+  public void afterRead(Object item) {
+    Partition partition = current();
+    if (partition != null) {
+      long bytes = MemoryEstimates.of(item);
+      partition.account.reserve(CHUNK, bytes);
+      partition.chunkBytes += bytes;
+    }
+  }
+
+  @OnSkipInRead
+  public void onSkipInRead(Throwable t) {
+    skipped(null, t);
+  }
+
+  @OnSkipInProcess
+  public void onSkipInProcess(Object item, Throwable t) {
+    skipped(item, t);
+  }
+
+  @OnSkipInWrite
+  public void onSkipInWrite(Object item, Throwable t) {
+    skipped(item, t);
+  }
+
+  private void skipped(Object item, Throwable t) {
+    Partition partition = current();
+    if (partition != null) {
+      long bytes = MemoryEstimates.ofSkip(item, t);
+      partition.account.reserve(ERRORS, bytes);
+      partition.errorBytes += bytes;
+    }
+  }
+
+  @AfterChunk
+  public void afterChunk(ChunkContext context) {
+    release(partitions.get(context.getStepContext().getStepExecution().getId()));
+  }
+
+  @AfterChunkError
+  public void afterChunkError(ChunkContext context) {
+    release(partitions.get(context.getStepContext().getStepExecution().getId()));
+  }
+
+  private void release(Partition partition) {
+    if (partition == null) {
+      return;
+    }
+    partition.account.release(CHUNK, partition.chunkBytes);
+    partition.account.release(ERRORS, partition.errorBytes);
+    partition.chunkBytes = 0;
+    partition.errorBytes = 0;
+  }
+
+  private Partition current() {
+    StepContext context = StepSynchronizationManager.getContext();
+    return context == null ? null : partitions.get(context.getStepExecution().getId());
+  }
+
+  /**
+   * The reservations of a partition, updated by its step thread only.
+   */
+  private static class Partition {
+    private final MemoryBudget.Account account;
+    private long chunkBytes;
+    private long errorBytes;
+
+    private Partition(MemoryBudget.Account account) {
+      this.account = account;
+    }
+  }
+}
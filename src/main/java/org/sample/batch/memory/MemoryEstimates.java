@@ -0,0 +1,49 @@
+package org.sample.batch.memory;
+
+import org.sample.batch.model.Person;
+import org.springframework.batch.item.file.FlatFileParseException;
+
+/**
+ * Estimated retained sizes, in bytes, of the objects held by the steps (64-bit JVM, UTF-16 strings).
+ * They are upper bounds rather than exact sizes: the budget must not be exceeded by a wrong guess.
+ */
+public final class MemoryEstimates {
+
+  // object header, fields and array header of a String
+  private static final int STRING_OVERHEAD = 40;
+  // header and fields of a Person, without its strings
+  private static final int PERSON_OVERHEAD = 80;
+  // ErrorItem, its subject map and the buffered line of the error file
+  private static final int ERROR_OVERHEAD = 256;
+  // unknown objects
+  private static final int DEFAULT_SIZE = 64;
+
+  private MemoryEstimates() {
+  }
+
+  public static long of(String value) {
+    return value == null ? 0 : STRING_OVERHEAD + 2L * value.length();
+  }
+
+  public static long of(Object item) {
+    if (item instanceof Person) {
+      Person person = (Person) item;
+      return PERSON_OVERHEAD + of(person.getFirstName()) + of(person.getLastName()) + of(person.getNationalId())
+        + of(person.getNaturalKey());
+    }
+    return DEFAULT_SIZE;
+  }
+
+  /**
+   * Size of a skipped item, held until the error file is flushed at the commit.
+   *
+   * @param item null for a read error
+   */
+  public static long ofSkip(Object item, Throwable t) {
+    long size = ERROR_OVERHEAD + of(t.getMessage());
+    if (t instanceof FlatFileParseException) {
+      size += of(((FlatFileParseException) t).getInput());
+    }
+    return item == null ? size : size + of(item);
+  }
+}
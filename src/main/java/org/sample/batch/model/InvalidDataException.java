@@ -1,12 +1,31 @@
 package org.sample.batch.model;
 
+import org.sample.batch.validation.Violation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
 public class InvalidDataException extends RuntimeException {
 
+    private final List<Violation> violations;
+
     public InvalidDataException() {
         super();
+        this.violations = Collections.emptyList();
     }
 
     public InvalidDataException(String message) {
         super(message);
+        this.violations = Collections.emptyList();
+    }
+
+    public InvalidDataException(List<Violation> violations) {
+        super(violations.stream().map(Violation::toString).collect(Collectors.joining(", ")));
+        this.violations = violations;
+    }
+
+    public List<Violation> getViolations() {
+        return violations;
     }
 }
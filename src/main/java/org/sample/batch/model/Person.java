@@ -1,18 +1,34 @@
 package org.sample.batch.model;
 
 import org.sample.batch.csv.Column;
+import org.sample.batch.validation.Length;
+import org.sample.batch.validation.Range;
+import org.sample.batch.validation.Required;
 
 public class Person {
 
   @Column(value = "NOM", position = 2)
+  @Required
+  @Length(max = 20)
   private String lastName;
   @Column(value = "PRENOM", position = 1)
+  @Required
+  @Length(max = 20)
   private String firstName;
   @Column(value = "AGE", position = 3)
+  @Range(min = 1, message = "must be born")
   private int age;
 
   private String nationalId;
 
+  // set by the upsert mode
+  private String naturalKey;
+  private long rowHash;
+
+  // position in the input file, the idempotency key of the idempotent mode
+  private String sourceId;
+  private long sourceLine;
+
   public Person() {
   }
 
@@ -54,6 +70,38 @@ public class Person {
     this.nationalId = nationalId;
   }
 
+  public String getNaturalKey() {
+    return naturalKey;
+  }
+
+  public void setNaturalKey(String naturalKey) {
+    this.naturalKey = naturalKey;
+  }
+
+  public long getRowHash() {
+    return rowHash;
+  }
+
+  public void setRowHash(long rowHash) {
+    this.rowHash = rowHash;
+  }
+
+  public String getSourceId() {
+    return sourceId;
+  }
+
+  public void setSourceId(String sourceId) {
+    this.sourceId = sourceId;
+  }
+
+  public long getSourceLine() {
+    return sourceLine;
+  }
+
+  public void setSourceLine(long sourceLine) {
+    this.sourceLine = sourceLine;
+  }
+
   @Override
   public String toString() {
     return "Person{" +
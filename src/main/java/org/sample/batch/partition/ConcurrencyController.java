@@ -0,0 +1,259 @@
+package org.sample.batch.partition;
+
+/**
+ * Chooses the number of partitions executed in parallel from the signals observed during the last interval.
+ * <p>
+ * Overload is handled first (multiplicative decrease): the size is reduced when the CPU is saturated or when the
+ * commit or lookup latency exceeds its best observed value by the tolerance factor (the database or the registry is
+ * queueing). Otherwise the size is found by hill climbing on the throughput: a thread is added while there are
+ * partitions waiting, the move is repeated while the throughput improves, reverted when it drops or does not improve,
+ * and the size is then held for a few intervals before probing again.
+ * </p>
+ * <p>
+ * The best latencies are slowly forgotten so that the baselines follow a database that becomes durably slower.
+ * Not thread safe: called by the timer of the executor only.
+ * </p>
+ */
+public class ConcurrencyController {
+
+  public static final String CPU = "cpu";
+  public static final String COMMIT_LATENCY = "commit latency";
+  public static final String LOOKUP_LATENCY = "lookup latency";
+  public static final String PROBE = "probe";
+  public static final String THROUGHPUT_UP = "throughput up";
+  public static final String THROUGHPUT_DOWN = "throughput down";
+  public static final String NO_GAIN = "no gain";
+  public static final String HOLD = "hold";
+  public static final String NO_BACKLOG = "no backlog";
+  public static final String BOUND = "bound";
+
+  private final int minSize;
+  private final int maxSize;
+  private double maxCpuLoad = 0.9;
+  private double latencyTolerance = 2.0;
+  private double backoffRatio = 0.75;
+  private double minGain = 0.05;
+  private int holdIntervals = 3;
+
+  private int size;
+  private int lastMove;
+  private int hold;
+  private double lastThroughput;
+  private long bestCommitNanos = Long.MAX_VALUE;
+  private long bestLookupNanos = Long.MAX_VALUE;
+
+  public ConcurrencyController(int minSize, int initialSize, int maxSize) {
+    if (minSize < 1 || initialSize < minSize || maxSize < initialSize) {
+      throw new IllegalArgumentException("expected 1 <= minSize <= initialSize <= maxSize");
+    }
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.size = initialSize;
+  }
+
+  /**
+   * System CPU load (0 to 1) above which the size is reduced (default 0.9).
+   */
+  public void setMaxCpuLoad(double maxCpuLoad) {
+    this.maxCpuLoad = maxCpuLoad;
+  }
+
+  /**
+   * Ratio of the latency to its best value above which the size is reduced (default 2).
+   */
+  public void setLatencyTolerance(double latencyTolerance) {
+    this.latencyTolerance = latencyTolerance;
+  }
+
+  /**
+   * Intervals without a move after a revert or an overload (default 3).
+   */
+  public void setHoldIntervals(int holdIntervals) {
+    this.holdIntervals = holdIntervals;
+  }
+
+  /**
+   * Relative throughput change below which a move is considered useless (default 0.05).
+   */
+  public void setMinGain(double minGain) {
+    this.minGain = minGain;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Forgets the last move, when the executor has been idle: the next throughput is not comparable.
+   */
+  public void reset() {
+    lastMove = 0;
+    hold = 0;
+    lastThroughput = 0;
+  }
+
+  public Decision decide(Signals signals) {
+    int previousSize = size;
+    String reason;
+    String overload = overload(signals);
+    if (overload != null) {
+      size = Math.max(minSize, Math.min(size - 1, (int) (size * backoffRatio)));
+      lastMove = 0;
+      hold = holdIntervals;
+      reason = overload;
+    } else if (hold > 0) {
+      hold--;
+      reason = HOLD;
+    } else if (lastMove == 0) {
+      if (signals.backlog == 0) {
+        reason = NO_BACKLOG;
+      } else if (size >= maxSize) {
+        reason = BOUND;
+      } else {
+        size++;
+        lastMove = 1;
+        reason = PROBE;
+      }
+    } else {
+      double gain = lastThroughput > 0 ? signals.throughput / lastThroughput - 1 : 0;
+      if (gain > minGain) {
+        int next = size + lastMove;
+        if (next < minSize || next > maxSize || (lastMove > 0 && signals.backlog == 0)) {
+          stop();
+          reason = BOUND;
+        } else {
+          size = next;
+          reason = THROUGHPUT_UP;
+        }
+      } else if (gain < -minGain) {
+        size = clamp(size - lastMove);
+        stop();
+        reason = THROUGHPUT_DOWN;
+      } else {
+        // a thread that does not add throughput only adds contention
+        if (lastMove > 0) {
+          size = clamp(size - 1);
+        }
+        stop();
+        reason = NO_GAIN;
+      }
+    }
+    lastThroughput = signals.throughput;
+    return new Decision(previousSize, size, reason, signals);
+  }
+
+  private String overload(Signals signals) {
+    bestCommitNanos = best(bestCommitNanos, signals.commitLatencyNanos);
+    bestLookupNanos = best(bestLookupNanos, signals.lookupLatencyNanos);
+    if (signals.cpuLoad > maxCpuLoad) {
+      return CPU;
+    }
+    if (signals.commitLatencyNanos > 0 && signals.commitLatencyNanos > bestCommitNanos * latencyTolerance) {
+      return COMMIT_LATENCY;
+    }
+    if (signals.lookupLatencyNanos > 0 && signals.lookupLatencyNanos > bestLookupNanos * latencyTolerance) {
+      return LOOKUP_LATENCY;
+    }
+    return null;
+  }
+
+  private static long best(long best, long latencyNanos) {
+    if (latencyNanos <= 0) {
+      return best;
+    }
+    // forget the best latency by 1% per interval
+    if (best != Long.MAX_VALUE) {
+      best += best / 100 + 1;
+    }
+    return Math.min(best, latencyNanos);
+  }
+
+  private void stop() {
+    lastMove = 0;
+    hold = holdIntervals;
+  }
+
+  private int clamp(int value) {
+    return Math.max(minSize, Math.min(maxSize, value));
+  }
+
+  /**
+   * What has been observed during an interval. Unknown values are negative.
+   */
+  public static class Signals {
+    private final double throughput;
+    private final double cpuLoad;
+    private final long commitLatencyNanos;
+    private final long lookupLatencyNanos;
+    private final int backlog;
+
+    /**
+     * @param throughput         items written per second
+     * @param cpuLoad            system CPU load, from 0 to 1
+     * @param commitLatencyNanos mean time from the write of a chunk to its commit
+     * @param lookupLatencyNanos mean time of a national registry lookup
+     * @param backlog            partitions waiting for a thread
+     */
+    public Signals(double throughput, double cpuLoad, long commitLatencyNanos, long lookupLatencyNanos, int backlog) {
+      this.throughput = throughput;
+      this.cpuLoad = cpuLoad;
+      this.commitLatencyNanos = commitLatencyNanos;
+      this.lookupLatencyNanos = lookupLatencyNanos;
+      this.backlog = backlog;
+    }
+
+    public double getThroughput() {
+      return throughput;
+    }
+
+    public double getCpuLoad() {
+      return cpuLoad;
+    }
+
+    public long getCommitLatencyNanos() {
+      return commitLatencyNanos;
+    }
+
+    public long getLookupLatencyNanos() {
+      return lookupLatencyNanos;
+    }
+
+    public int getBacklog() {
+      return backlog;
+    }
+  }
+
+  public static class Decision {
+    private final int previousSize;
+    private final int size;
+    private final String reason;
+    private final Signals signals;
+
+    private Decision(int previousSize, int size, String reason, Signals signals) {
+      this.previousSize = previousSize;
+      this.size = size;
+      this.reason = reason;
+      this.signals = signals;
+    }
+
+    public int getPreviousSize() {
+      return previousSize;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public String getReason() {
+      return reason;
+    }
+
+    public Signals getSignals() {
+      return signals;
+    }
+
+    public boolean isResize() {
+      return size != previousSize;
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package org.sample.batch.partition;
+
+import org.sample.batch.jfr.BatchEvents;
+import org.sample.batch.partition.ConcurrencyController.Decision;
+import org.sample.batch.partition.ConcurrencyController.Signals;
+import org.sample.batch.service.NationalService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor of the partitions whose pool size is set at runtime by a {@link ConcurrencyController}.
+ * <p>
+ * It is also a chunk and write listener of the partition step: every interval, the items written, the mean time from
+ * the write of a chunk to its commit, the mean lookup time (of the services wrapped by {@link #timed(NationalService)})
+ * and the system CPU load are given to the controller, and the pool is resized to its decision. Every decision is
+ * logged and recorded as a JFR event. A thread removed from the pool ends its partition first.
+ * </p>
+ */
+public class ElasticTaskExecutor extends ThreadPoolTaskExecutor implements ChunkListener, ItemWriteListener<Object> {
+
+  private static final Logger log = LoggerFactory.getLogger(ElasticTaskExecutor.class);
+
+  private final ConcurrencyController controller;
+  private final long intervalNanos;
+  private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+  private final ThreadLocal<ChunkTiming> chunkTimings = new ThreadLocal<>();
+  private final LongAdder written = new LongAdder();
+  private final LongAdder commitNanos = new LongAdder();
+  private final LongAdder commits = new LongAdder();
+  private final LongAdder lookupNanos = new LongAdder();
+  private final LongAdder lookups = new LongAdder();
+
+  private ScheduledExecutorService timer;
+  private long lastTick;
+  private boolean idle = true;
+
+  public ElasticTaskExecutor(ConcurrencyController controller, long interval, TimeUnit unit) {
+    this.controller = controller;
+    this.intervalNanos = unit.toNanos(interval);
+    setCorePoolSize(controller.getSize());
+    setMaxPoolSize(controller.getSize());
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    startTimer();
+    super.execute(task);
+  }
+
+  private synchronized void startTimer() {
+    if (timer != null) {
+      return;
+    }
+    timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, getThreadNamePrefix() + "controller");
+      thread.setDaemon(true);
+      return thread;
+    });
+    timer.scheduleWithFixedDelay(() -> {
+      try {
+        tick();
+      } catch (RuntimeException e) {
+        log.warn("Failed to resize the partition executor", e);
+      }
+    }, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  synchronized void tick() {
+    ThreadPoolExecutor pool = getThreadPoolExecutor();
+    int backlog = pool.getQueue().size();
+    long now = System.nanoTime();
+    long elapsed = now - lastTick;
+    lastTick = now;
+    Signals signals = new Signals(
+      written.sumThenReset() * 1e9 / Math.max(1, elapsed),
+      systemCpuLoad(),
+      mean(commitNanos, commits),
+      mean(lookupNanos, lookups),
+      backlog);
+    if (pool.getActiveCount() == 0 && backlog == 0) {
+      // between two jobs: nothing to measure
+      idle = true;
+      controller.reset();
+      return;
+    }
+    if (idle) {
+      // the first interval of a job is not comparable
+      idle = false;
+      return;
+    }
+    Decision decision = controller.decide(signals);
+    resize(decision.getSize());
+    BatchEvents.resize(decision);
+    if (decision.isResize()) {
+      log.info("Partition executor resized from {} to {} ({}): {}", decision.getPreviousSize(), decision.getSize(),
+        decision.getReason(), describe(signals));
+    } else if (log.isDebugEnabled()) {
+      log.debug("Partition executor kept at {} ({}): {}", decision.getSize(), decision.getReason(), describe(signals));
+    }
+  }
+
+  private void resize(int size) {
+    // the core size cannot exceed the maximum size
+    if (size > getMaxPoolSize()) {
+      setMaxPoolSize(size);
+      setCorePoolSize(size);
+    } else {
+      setCorePoolSize(size);
+      setMaxPoolSize(size);
+    }
+  }
+
+  /**
+   * Records the latency of the lookups of the service.
+   */
+  public NationalService timed(NationalService delegate) {
+    return (firstName, lastName) -> {
+      long start = System.nanoTime();
+      try {
+        return delegate.findNationalIdentifier(firstName, lastName);
+      } finally {
+        lookupNanos.add(System.nanoTime() - start);
+        lookups.increment();
+      }
+    };
+  }
+
+  @Override
+  public void beforeChunk(ChunkContext context) {
+    chunkTimings.set(new ChunkTiming(context.getStepContext().getStepExecution().getWriteCount()));
+  }
+
+  @Override
+  public void beforeWrite(List<?> items) {
+    ChunkTiming timing = chunkTimings.get();
+    if (timing != null && timing.writeStart == 0) {
+      timing.writeStart = System.nanoTime();
+    }
+  }
+
+  @Override
+  public void afterWrite(List<?> items) {
+  }
+
+  @Override
+  public void onWriteError(Exception exception, List<?> items) {
+  }
+
+  @Override
+  public void afterChunk(ChunkContext context) {
+    ChunkTiming timing = chunkTimings.get();
+    if (timing == null) {
+      return;
+    }
+    chunkTimings.remove();
+    written.add(context.getStepContext().getStepExecution().getWriteCount() - timing.writeCount);
+    // the streaming step has no write listener: its commits are not timed
+    if (timing.writeStart != 0) {
+      commitNanos.add(System.nanoTime() - timing.writeStart);
+      commits.increment();
+    }
+  }
+
+  @Override
+  public void afterChunkError(ChunkContext context) {
+    chunkTimings.remove();
+  }
+
+  @Override
+  public void shutdown() {
+    synchronized (this) {
+      if (timer != null) {
+        timer.shutdownNow();
+      }
+    }
+    super.shutdown();
+  }
+
+  // getSystemCpuLoad() is deprecated since Java 14 for getCpuLoad(), which does not exist in Java 8: both return the
+  // same value
+  @SuppressWarnings("deprecation")
+  private double systemCpuLoad() {
+    if (os instanceof com.sun.management.OperatingSystemMXBean) {
+      return ((com.sun.management.OperatingSystemMXBean) os).getSystemCpuLoad();
+    }
+    return -1;
+  }
+
+  private static long mean(LongAdder sum, LongAdder count) {
+    long n = count.sumThenReset();
+    long total = sum.sumThenReset();
+    return n == 0 ? -1 : total / n;
+  }
+
+  private static String describe(Signals signals) {
+    return String.format("%.0f items/s, cpu %s, commit %s, lookup %s, %d partitions waiting",
+      signals.getThroughput(),
+      signals.getCpuLoad() < 0 ? "n/a" : String.format("%.0f%%", signals.getCpuLoad() * 100),
+      millis(signals.getCommitLatencyNanos()), millis(signals.getLookupLatencyNanos()), signals.getBacklog());
+  }
+
+  private static String millis(long nanos) {
+    return nanos < 0 ? "n/a" : String.format("%.2f ms", nanos / 1e6);
+  }
+
+  private static class ChunkTiming {
+    private final int writeCount;
+    private long writeStart;
+
+    private ChunkTiming(int writeCount) {
+      this.writeCount = writeCount;
+    }
+  }
+}
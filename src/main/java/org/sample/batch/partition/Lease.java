@@ -0,0 +1,55 @@
+package org.sample.batch.partition;
+
+/**
+ * A partition (worker step execution) claimed by a worker.
+ */
+public class Lease {
+
+  private final long stepExecutionId;
+  private final long jobExecutionId;
+  private final String stepName;
+  private final String owner;
+  private final int claimCount;
+
+  public Lease(long stepExecutionId, long jobExecutionId, String stepName, String owner, int claimCount) {
+    this.stepExecutionId = stepExecutionId;
+    this.jobExecutionId = jobExecutionId;
+    this.stepName = stepName;
+    this.owner = owner;
+    this.claimCount = claimCount;
+  }
+
+  public long getStepExecutionId() {
+    return stepExecutionId;
+  }
+
+  public long getJobExecutionId() {
+    return jobExecutionId;
+  }
+
+  public String getStepName() {
+    return stepName;
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+
+  /**
+   * Number of times the partition has been claimed, more than one when it has been reclaimed from a dead worker.
+   */
+  public int getClaimCount() {
+    return claimCount;
+  }
+
+  @Override
+  public String toString() {
+    return "Lease{" +
+      "stepExecutionId=" + stepExecutionId +
+      ", jobExecutionId=" + jobExecutionId +
+      ", stepName='" + stepName + '\'' +
+      ", owner='" + owner + '\'' +
+      ", claimCount=" + claimCount +
+      '}';
+  }
+}
@@ -0,0 +1,112 @@
+package org.sample.batch.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobInterruptedException;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.partition.PartitionHandler;
+import org.springframework.batch.core.partition.StepExecutionSplitter;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Manager side of the remote partitioning: the partitions are stored as leases in the job database, claimed and
+ * executed by {@link LeaseWorker}s (in this JVM or others sharing the job database).
+ * <p>
+ * The handler waits until all the leases are completed or failed, then returns the worker step executions read
+ * from the job repository.
+ * </p>
+ */
+public class LeasePartitionHandler implements PartitionHandler {
+
+  private static final Logger log = LoggerFactory.getLogger(LeasePartitionHandler.class);
+
+  private final LeaseStore leaseStore;
+  private final JobExplorer jobExplorer;
+  private final Step step;
+
+  private int gridSize = 1;
+  private long pollIntervalMillis = 500;
+  private long timeoutMillis = -1;
+
+  /**
+   * @param leaseStore  the leases
+   * @param jobExplorer reads the worker step executions
+   * @param step        the worker step, its name is given to the workers
+   */
+  public LeasePartitionHandler(LeaseStore leaseStore, JobExplorer jobExplorer, Step step) {
+    this.leaseStore = leaseStore;
+    this.jobExplorer = jobExplorer;
+    this.step = step;
+  }
+
+  public void setGridSize(int gridSize) {
+    this.gridSize = gridSize;
+  }
+
+  public void setPollInterval(long pollInterval, TimeUnit unit) {
+    this.pollIntervalMillis = unit.toMillis(pollInterval);
+  }
+
+  /**
+   * Maximum time to wait for the partitions, no timeout by default.
+   */
+  public void setTimeout(long timeout, TimeUnit unit) {
+    this.timeoutMillis = unit.toMillis(timeout);
+  }
+
+  @Override
+  public Collection<StepExecution> handle(StepExecutionSplitter stepSplitter, StepExecution managerStepExecution)
+    throws Exception {
+
+    Set<StepExecution> partitions = stepSplitter.split(managerStepExecution, gridSize);
+    long jobExecutionId = managerStepExecution.getJobExecutionId();
+    leaseStore.createLeases(partitions, step.getName());
+    log.info("{} partitions of {} available to the workers", partitions.size(), managerStepExecution.getStepName());
+    try {
+      long start = System.currentTimeMillis();
+      int open;
+      while ((open = leaseStore.countOpen(jobExecutionId)) > 0) {
+        if (managerStepExecution.isTerminateOnly()) {
+          throw new JobInterruptedException("Stopped while waiting for " + open + " partitions");
+        }
+        if (timeoutMillis >= 0 && System.currentTimeMillis() - start > timeoutMillis) {
+          throw new TimeoutException("Timeout while waiting for " + open + " partitions");
+        }
+        Thread.sleep(pollIntervalMillis);
+      }
+    } finally {
+      leaseStore.delete(jobExecutionId);
+    }
+    for (StepExecution partition : partitions) {
+      refresh(partition, jobExplorer.getStepExecution(jobExecutionId, partition.getId()));
+    }
+    return partitions;
+  }
+
+  /**
+   * Copies the state saved by the worker into the step execution held by the job execution.
+   */
+  private static void refresh(StepExecution partition, StepExecution saved) {
+    partition.setStatus(saved.getStatus());
+    partition.setExitStatus(saved.getExitStatus());
+    partition.setStartTime(saved.getStartTime());
+    partition.setEndTime(saved.getEndTime());
+    partition.setLastUpdated(saved.getLastUpdated());
+    partition.setReadCount(saved.getReadCount());
+    partition.setWriteCount(saved.getWriteCount());
+    partition.setFilterCount(saved.getFilterCount());
+    partition.setCommitCount(saved.getCommitCount());
+    partition.setRollbackCount(saved.getRollbackCount());
+    partition.setReadSkipCount(saved.getReadSkipCount());
+    partition.setProcessSkipCount(saved.getProcessSkipCount());
+    partition.setWriteSkipCount(saved.getWriteSkipCount());
+    partition.setExecutionContext(saved.getExecutionContext());
+    partition.setVersion(saved.getVersion());
+  }
+}
@@ -0,0 +1,100 @@
+package org.sample.batch.partition;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Partition leases stored in the job database (table BATCH_PARTITION_LEASE).
+ * <p>
+ * A lease is AVAILABLE when created by the manager, CLAIMED by a worker until it expires, then COMPLETED or FAILED.
+ * A worker extends its lease while it runs the partition; an expired lease can be claimed by another worker.
+ * The expiry times come from the clocks of the workers, which must be synchronized.
+ * </p>
+ */
+public class LeaseStore {
+
+  public static final String AVAILABLE = "AVAILABLE";
+  public static final String CLAIMED = "CLAIMED";
+  public static final String COMPLETED = "COMPLETED";
+  public static final String FAILED = "FAILED";
+
+  private static final String INSERT = "INSERT INTO batch_partition_lease "
+    + "(step_execution_id, job_execution_id, step_name, status, claim_count) VALUES (?, ?, ?, 'AVAILABLE', 0)";
+  private static final String CLAIMABLE = "SELECT step_execution_id FROM batch_partition_lease "
+    + "WHERE status = 'AVAILABLE' OR (status = 'CLAIMED' AND lease_expiry < ?) ORDER BY step_execution_id";
+  private static final String CLAIM = "UPDATE batch_partition_lease "
+    + "SET status = 'CLAIMED', owner = ?, lease_expiry = ?, claim_count = claim_count + 1 "
+    + "WHERE step_execution_id = ? AND (status = 'AVAILABLE' OR (status = 'CLAIMED' AND lease_expiry < ?))";
+  private static final String SELECT = "SELECT step_execution_id, job_execution_id, step_name, owner, claim_count "
+    + "FROM batch_partition_lease WHERE step_execution_id = ?";
+  private static final String EXTEND = "UPDATE batch_partition_lease SET lease_expiry = ? "
+    + "WHERE step_execution_id = ? AND owner = ? AND status = 'CLAIMED'";
+  private static final String RELEASE = "UPDATE batch_partition_lease SET status = ?, lease_expiry = NULL "
+    + "WHERE step_execution_id = ? AND owner = ? AND status = 'CLAIMED'";
+  private static final String COUNT_OPEN = "SELECT COUNT(*) FROM batch_partition_lease "
+    + "WHERE job_execution_id = ? AND status IN ('AVAILABLE', 'CLAIMED')";
+  private static final String DELETE = "DELETE FROM batch_partition_lease WHERE job_execution_id = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public LeaseStore(DataSource dataSource) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  /**
+   * Makes the partitions available to the workers.
+   */
+  public void createLeases(Collection<StepExecution> stepExecutions, String stepName) {
+    for (StepExecution stepExecution : stepExecutions) {
+      jdbcTemplate.update(INSERT, stepExecution.getId(), stepExecution.getJobExecutionId(), stepName);
+    }
+  }
+
+  /**
+   * Claims an available partition, or a partition whose lease has expired.
+   *
+   * @param owner    worker identifier
+   * @param duration lease duration in milliseconds
+   */
+  public Optional<Lease> claim(String owner, long duration) {
+    long now = System.currentTimeMillis();
+    List<Long> candidates = jdbcTemplate.queryForList(CLAIMABLE, Long.class, now);
+    for (Long stepExecutionId : candidates) {
+      // another worker may have claimed it since the select
+      if (jdbcTemplate.update(CLAIM, owner, now + duration, stepExecutionId, now) == 1) {
+        return Optional.of(jdbcTemplate.queryForObject(SELECT, (rs, row) -> new Lease(
+          rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4), rs.getInt(5)), stepExecutionId));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Extends a lease (heartbeat).
+   *
+   * @return false if the lease is lost: expired and claimed by another worker
+   */
+  public boolean extend(Lease lease, long duration) {
+    return jdbcTemplate.update(EXTEND, System.currentTimeMillis() + duration, lease.getStepExecutionId(), lease.getOwner()) == 1;
+  }
+
+  public boolean complete(Lease lease, boolean success) {
+    return jdbcTemplate.update(RELEASE, success ? COMPLETED : FAILED, lease.getStepExecutionId(), lease.getOwner()) == 1;
+  }
+
+  /**
+   * Number of partitions of a job execution not completed or failed yet.
+   */
+  public int countOpen(long jobExecutionId) {
+    return jdbcTemplate.queryForObject(COUNT_OPEN, Integer.class, jobExecutionId);
+  }
+
+  public void delete(long jobExecutionId) {
+    jdbcTemplate.update(DELETE, jobExecutionId);
+  }
+}
@@ -0,0 +1,153 @@
+package org.sample.batch.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobInterruptedException;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker side of the remote partitioning: claims the partitions stored by a {@link LeasePartitionHandler} and
+ * executes them.
+ * <p>
+ * The lease of the running partition is extended every third of its duration. If it cannot be extended (the worker
+ * has been too slow and another one took the partition over), the step is stopped. A partition claimed from a dead
+ * worker restarts from the last state saved in its step execution.
+ * </p>
+ */
+public class LeaseWorker implements Runnable, AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(LeaseWorker.class);
+
+  private final LeaseStore leaseStore;
+  private final JobExplorer jobExplorer;
+  private final Map<String, Step> steps;
+  private final String owner;
+  private final ScheduledExecutorService heartbeats;
+
+  private long leaseDurationMillis = TimeUnit.SECONDS.toMillis(30);
+  private long pollIntervalMillis = 1000;
+  private long idleTimeoutMillis = -1;
+  private volatile boolean stopped;
+
+  /**
+   * @param leaseStore  the leases
+   * @param jobExplorer reads the step executions of the partitions
+   * @param steps       the worker steps by name
+   * @param owner       identifier of this worker
+   */
+  public LeaseWorker(LeaseStore leaseStore, JobExplorer jobExplorer, Map<String, Step> steps, String owner) {
+    this.leaseStore = leaseStore;
+    this.jobExplorer = jobExplorer;
+    this.steps = steps;
+    this.owner = owner;
+    this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, owner + "-heartbeat");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public void setLeaseDuration(long duration, TimeUnit unit) {
+    this.leaseDurationMillis = unit.toMillis(duration);
+  }
+
+  public void setPollInterval(long pollInterval, TimeUnit unit) {
+    this.pollIntervalMillis = unit.toMillis(pollInterval);
+  }
+
+  /**
+   * The worker stops after being idle for this time, never by default.
+   */
+  public void setIdleTimeout(long idleTimeout, TimeUnit unit) {
+    this.idleTimeoutMillis = unit.toMillis(idleTimeout);
+  }
+
+  /**
+   * Claims and executes partitions until stopped or idle for too long.
+   */
+  @Override
+  public void run() {
+    long idleSince = System.currentTimeMillis();
+    while (!stopped) {
+      if (runNext().isPresent()) {
+        idleSince = System.currentTimeMillis();
+      } else if (idleTimeoutMillis >= 0 && System.currentTimeMillis() - idleSince > idleTimeoutMillis) {
+        log.info("Worker {} idle, stopping", owner);
+        break;
+      } else {
+        try {
+          Thread.sleep(pollIntervalMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Claims and executes one partition.
+   *
+   * @return the executed lease, empty if no partition is available
+   */
+  public Optional<Lease> runNext() {
+    Optional<Lease> lease = leaseStore.claim(owner, leaseDurationMillis);
+    lease.ifPresent(this::execute);
+    return lease;
+  }
+
+  private void execute(Lease lease) {
+    StepExecution stepExecution = jobExplorer.getStepExecution(lease.getJobExecutionId(), lease.getStepExecutionId());
+    Step step = steps.get(lease.getStepName());
+    if (stepExecution == null || step == null) {
+      log.error("Cannot execute {}: unknown step execution or step", lease);
+      leaseStore.complete(lease, false);
+      return;
+    }
+    if (stepExecution.getStatus() == BatchStatus.COMPLETED) {
+      // executed by a worker which died before releasing the lease
+      leaseStore.complete(lease, true);
+      return;
+    }
+    log.info("Worker {} executes {} (claim #{})", owner, stepExecution.getStepName(), lease.getClaimCount());
+    long period = Math.max(1, leaseDurationMillis / 3);
+    ScheduledFuture<?> heartbeat = heartbeats.scheduleAtFixedRate(() -> {
+      if (!leaseStore.extend(lease, leaseDurationMillis)) {
+        log.warn("Worker {} lost the lease of {}, stopping it", owner, stepExecution.getStepName());
+        stepExecution.setTerminateOnly();
+      }
+    }, period, period, TimeUnit.MILLISECONDS);
+    try {
+      step.execute(stepExecution);
+    } catch (JobInterruptedException e) {
+      log.warn("Worker {} interrupted while executing {}", owner, stepExecution.getStepName());
+    } finally {
+      heartbeat.cancel(false);
+    }
+    leaseStore.complete(lease, stepExecution.getStatus() == BatchStatus.COMPLETED);
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+
+  public void stop() {
+    stopped = true;
+  }
+
+  @Override
+  public void close() {
+    stop();
+    heartbeats.shutdownNow();
+  }
+}
@@ -0,0 +1,90 @@
+package org.sample.batch.prescan;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a {@link PreScanner} run over one file.
+ */
+public class PreScanResult {
+
+  private final long lineCount;
+  private final long badLineCount;
+  private final List<BadLine> samples;
+
+  public PreScanResult(long lineCount, long badLineCount, List<BadLine> samples) {
+    this.lineCount = lineCount;
+    this.badLineCount = badLineCount;
+    this.samples = Collections.unmodifiableList(samples);
+  }
+
+  /**
+   * Number of data lines (header and comments excluded).
+   */
+  public long getLineCount() {
+    return lineCount;
+  }
+
+  public long getBadLineCount() {
+    return badLineCount;
+  }
+
+  /**
+   * Ratio of the lines that would be skipped.
+   */
+  public double getSkipRatio() {
+    return lineCount == 0 ? 0 : (double) badLineCount / lineCount;
+  }
+
+  /**
+   * The first bad lines found (bounded).
+   */
+  public List<BadLine> getSamples() {
+    return samples;
+  }
+
+  @Override
+  public String toString() {
+    return "PreScanResult{" +
+      "lineCount=" + lineCount +
+      ", badLineCount=" + badLineCount +
+      ", skipRatio=" + getSkipRatio() +
+      '}';
+  }
+
+  public static class BadLine {
+    private final long lineNumber;
+    private final String line;
+    private final String reason;
+
+    public BadLine(long lineNumber, String line, String reason) {
+      this.lineNumber = lineNumber;
+      this.line = line;
+      this.reason = reason;
+    }
+
+    /**
+     * Line number in the file (1 based, header included).
+     */
+    public long getLineNumber() {
+      return lineNumber;
+    }
+
+    public String getLine() {
+      return line;
+    }
+
+    public String getReason() {
+      return reason;
+    }
+
+    @Override
+    public String toString() {
+      return "BadLine{" +
+        "lineNumber=" + lineNumber +
+        ", line='" + line + '\'' +
+        ", reason='" + reason + '\'' +
+        '}';
+    }
+  }
+}
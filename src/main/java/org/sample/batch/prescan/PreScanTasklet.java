@@ -0,0 +1,84 @@
+package org.sample.batch.prescan;
+
+import org.sample.batch.csv.SimpleSkipListener;
+import org.sample.batch.prescan.PreScanResult.BadLine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.nio.file.Paths;
+
+/**
+ * Pre-flight step of a partition: rejects the input file before any DB work when it has more bad lines than the skip
+ * limit of the import step.
+ * <p>
+ * The rejection is recorded in the partition context ({@value #REJECTED_KEY}) and the step completes: the file is
+ * left out of the import by the {@link RejectedFilesPartitioner}, the other files are imported. The sampled bad lines
+ * are written to the error file, the same way the import step reports its read errors.
+ * </p>
+ */
+public class PreScanTasklet<T> implements Tasklet {
+
+  private static final Logger log = LoggerFactory.getLogger(PreScanTasklet.class);
+
+  public static final String SKIP_RATIO_KEY = "prescan.skip.ratio";
+  public static final String REJECTED_KEY = "prescan.rejected";
+
+  private final PreScanner scanner;
+  private final Class<T> itemType;
+  private final String inputFile;
+  private final String errorFile;
+  private final int skipLimit;
+
+  public PreScanTasklet(PreScanner scanner, Class<T> itemType, String inputFile, String errorFile, int skipLimit) {
+    this.scanner = scanner;
+    this.itemType = itemType;
+    this.inputFile = inputFile;
+    this.errorFile = errorFile;
+    this.skipLimit = skipLimit;
+  }
+
+  @Override
+  public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+    long start = System.nanoTime();
+    PreScanResult result = scanner.scan(Paths.get(inputFile));
+    log.info("Pre-scan of {} in {} ms: {}", inputFile, (System.nanoTime() - start) / 1_000_000, result);
+
+    StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+    ExecutionContext executionContext = stepExecution.getExecutionContext();
+    executionContext.putDouble(SKIP_RATIO_KEY, result.getSkipRatio());
+
+    if (result.getBadLineCount() > skipLimit) {
+      String reason = String.format("%s rejected: %d bad lines out of %d (skip limit is %d)",
+        inputFile, result.getBadLineCount(), result.getLineCount(), skipLimit);
+      log.warn(reason);
+      writeErrors(stepExecution, result);
+      executionContext.putString(REJECTED_KEY, reason);
+      contribution.setExitStatus(ExitStatus.COMPLETED.addExitDescription(reason));
+    }
+    return RepeatStatus.FINISHED;
+  }
+
+  private void writeErrors(StepExecution stepExecution, PreScanResult result) {
+    SimpleSkipListener<T> errorWriter = new SimpleSkipListener<>(itemType, errorFile);
+    // written at once, not at the commit of the step transaction
+    errorWriter.setTransactional(false);
+    errorWriter.afterPropertiesSet();
+    errorWriter.beforeStep(stepExecution);
+    try {
+      for (BadLine badLine : result.getSamples()) {
+        errorWriter.onSkipInRead(
+          new FlatFileParseException(badLine.getReason(), badLine.getLine(), (int) badLine.getLineNumber()));
+      }
+    } finally {
+      errorWriter.afterStep(stepExecution);
+    }
+  }
+}
@@ -0,0 +1,247 @@
+package org.sample.batch.prescan;
+
+import org.sample.batch.csv.CsvNameExtractor;
+import org.sample.batch.prescan.PreScanResult.BadLine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fast pre-flight check of a delimited file.
+ * <p>
+ * The file is split into byte ranges aligned on line ends, each range is memory-mapped and scanned in parallel. The
+ * checks are done on the bytes, nothing is decoded except the reported bad lines:
+ * <ul>
+ * <li>the number of columns (delimiters outside of quotes),</li>
+ * <li>the integer column must be a positive int.</li>
+ * </ul>
+ * Blank lines are bad (the strict tokenizer rejects them), lines starting with {@code #} are comments.
+ * </p>
+ */
+public class PreScanner {
+
+  private static final int MAX_RANGE_SIZE = 1 << 30;
+  private static final int MIN_RANGE_SIZE = 1 << 20;
+
+  private final byte delimiter;
+  private final int columnCount;
+  private final int intColumn;
+
+  private int linesToSkip = 1;
+  private int maxSamples = 100;
+  private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+  /**
+   * @param delimiter   the column delimiter
+   * @param columnCount the expected number of columns
+   * @param intColumn   index of the positive integer column, -1 if none
+   */
+  public PreScanner(char delimiter, int columnCount, int intColumn) {
+    this.delimiter = (byte) delimiter;
+    this.columnCount = columnCount;
+    this.intColumn = intColumn;
+  }
+
+  /**
+   * Pre-scanner of the {@link org.sample.batch.csv.Column} layout of a bean type.
+   *
+   * @param type      the bean type
+   * @param intField  name of the positive integer field
+   * @param delimiter the column delimiter
+   */
+  public static PreScanner forType(Class<?> type, String intField, char delimiter) {
+    List<String> names = new CsvNameExtractor<>(type).getNames();
+    return new PreScanner(delimiter, names.size(), names.indexOf(intField));
+  }
+
+  public void setLinesToSkip(int linesToSkip) {
+    this.linesToSkip = linesToSkip;
+  }
+
+  public void setMaxSamples(int maxSamples) {
+    this.maxSamples = maxSamples;
+  }
+
+  public void setPool(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  public PreScanResult scan(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long dataStart = 0;
+      for (int i = 0; i < linesToSkip && dataStart < size; i++) {
+        dataStart = nextLineStart(channel, dataStart, size);
+      }
+
+      List<RangeScan> scans = new ArrayList<>();
+      int ranges = (int) Math.max(1, Math.min(pool.getParallelism() * 4L, (size - dataStart) / MIN_RANGE_SIZE));
+      long rangeSize = Math.min(MAX_RANGE_SIZE, Math.max(1, (size - dataStart + ranges - 1) / ranges));
+      long start = dataStart;
+      while (start < size) {
+        long end = start + rangeSize >= size ? size : nextLineStart(channel, start + rangeSize - 1, size);
+        scans.add(new RangeScan(channel, start, end));
+        start = end;
+      }
+      pool.invoke(new ScanAll(scans));
+
+      // merge: line numbers are made absolute from the line counts of the previous ranges
+      long lineNumber = linesToSkip;
+      long lineCount = 0;
+      long badLineCount = 0;
+      List<BadLine> samples = new ArrayList<>();
+      for (RangeScan scan : scans) {
+        for (BadLine badLine : scan.samples) {
+          if (samples.size() < maxSamples) {
+            samples.add(new BadLine(lineNumber + badLine.getLineNumber(), badLine.getLine(), badLine.getReason()));
+          }
+        }
+        lineNumber += scan.physicalLines;
+        lineCount += scan.lines;
+        badLineCount += scan.badLines;
+      }
+      return new PreScanResult(lineCount, badLineCount, samples);
+    }
+  }
+
+  /**
+   * Returns the position following the end of the line containing {@code position}.
+   */
+  private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(8192);
+    long offset = position;
+    while (offset < size) {
+      buffer.clear();
+      int read = channel.read(buffer, offset);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          return offset + i + 1;
+        }
+      }
+      offset += read;
+    }
+    return size;
+  }
+
+  private static class ScanAll extends RecursiveTask<Void> {
+    private final List<RangeScan> scans;
+
+    ScanAll(List<RangeScan> scans) {
+      this.scans = scans;
+    }
+
+    @Override
+    protected Void compute() {
+      ForkJoinTask.invokeAll(scans);
+      return null;
+    }
+  }
+
+  private class RangeScan extends RecursiveTask<Void> {
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+
+    private long physicalLines;
+    private long lines;
+    private long badLines;
+    private final List<BadLine> samples = new ArrayList<>();
+
+    RangeScan(FileChannel channel, long start, long end) {
+      this.channel = channel;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected Void compute() {
+      MappedByteBuffer buffer;
+      try {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+      } catch (IOException e) {
+        throw new IllegalStateException("Cannot map " + start + "-" + end, e);
+      }
+      int limit = buffer.limit();
+      int lineStart = 0;
+      for (int i = 0; i < limit; i++) {
+        if (buffer.get(i) == '\n') {
+          checkLine(buffer, lineStart, i);
+          lineStart = i + 1;
+        }
+      }
+      if (lineStart < limit) {
+        checkLine(buffer, lineStart, limit);
+      }
+      return null;
+    }
+
+    private void checkLine(ByteBuffer buffer, int from, int to) {
+      physicalLines++;
+      int lineEnd = to > from && buffer.get(to - 1) == '\r' ? to - 1 : to;
+      if (lineEnd > from && buffer.get(from) == '#') {
+        return;
+      }
+      lines++;
+      String reason = check(buffer, from, lineEnd);
+      if (reason != null) {
+        badLines++;
+        if (samples.size() < maxSamples) {
+          byte[] bytes = new byte[lineEnd - from];
+          for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+          }
+          // local line number, made absolute when merging
+          samples.add(new BadLine(physicalLines, new String(bytes, StandardCharsets.UTF_8), reason));
+        }
+      }
+    }
+
+    private String check(ByteBuffer buffer, int from, int to) {
+      int column = 0;
+      boolean inQuotes = false;
+      boolean intSeen = false;
+      boolean intInvalid = false;
+      long value = 0;
+      for (int i = from; i < to; i++) {
+        byte b = buffer.get(i);
+        if (b == '"') {
+          inQuotes = !inQuotes;
+        } else if (b == delimiter && !inQuotes) {
+          column++;
+        } else if (column == intColumn) {
+          if (b >= '0' && b <= '9') {
+            intSeen = true;
+            value = Math.min(value * 10 + (b - '0'), (long) Integer.MAX_VALUE + 1);
+          } else if (b != ' ' && !(b == '+' && !intSeen)) {
+            intInvalid = true;
+          }
+        }
+      }
+      if (column + 1 != columnCount) {
+        return "Incorrect number of columns: expected " + columnCount + " actual " + (column + 1);
+      }
+      if (intColumn >= 0) {
+        if (intInvalid || !intSeen || value > Integer.MAX_VALUE) {
+          return "Column " + (intColumn + 1) + " is not an integer";
+        }
+        if (value == 0) {
+          return "Column " + (intColumn + 1) + " must be positive";
+        }
+      }
+      return null;
+    }
+  }
+}
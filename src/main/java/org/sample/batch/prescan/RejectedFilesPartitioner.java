@@ -0,0 +1,69 @@
+package org.sample.batch.prescan;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Partitions of the delegate, but the input files rejected by the pre-scan of the job ({@link PreScanTasklet}).
+ * <p>
+ * The rejected files are saved in the job execution context ({@value #REJECTED_FILES_KEY}, separated by new lines): a
+ * restarted job does not import them either.
+ * </p>
+ */
+public class RejectedFilesPartitioner implements Partitioner {
+
+  private static final Logger log = LoggerFactory.getLogger(RejectedFilesPartitioner.class);
+
+  public static final String REJECTED_FILES_KEY = "prescan.rejected.files";
+  private static final String inputFileKey = "input.file";
+
+  private final Partitioner delegate;
+
+  public RejectedFilesPartitioner(Partitioner delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Map<String, ExecutionContext> partition(int gridSize) {
+    Map<String, ExecutionContext> partitions = delegate.partition(gridSize);
+    StepContext stepContext = StepSynchronizationManager.getContext();
+    if (stepContext == null) {
+      return partitions;
+    }
+    JobExecution jobExecution = stepContext.getStepExecution().getJobExecution();
+    Set<String> rejectedFiles = rejectedFiles(jobExecution);
+    if (rejectedFiles.isEmpty()) {
+      return partitions;
+    }
+    jobExecution.getExecutionContext().putString(REJECTED_FILES_KEY, String.join("\n", rejectedFiles));
+    partitions.values().removeIf(context -> rejectedFiles.contains(context.getString(inputFileKey, null)));
+    log.warn("Not imported, rejected by the pre-scan: {}", rejectedFiles);
+    return partitions;
+  }
+
+  private static Set<String> rejectedFiles(JobExecution jobExecution) {
+    Set<String> rejectedFiles = new TreeSet<>();
+    String saved = jobExecution.getExecutionContext().getString(REJECTED_FILES_KEY, "");
+    if (!saved.isEmpty()) {
+      rejectedFiles.addAll(Arrays.asList(saved.split("\n")));
+    }
+    for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+      ExecutionContext context = stepExecution.getExecutionContext();
+      if (context.containsKey(PreScanTasklet.REJECTED_KEY)) {
+        rejectedFiles.add(context.getString(inputFileKey));
+      }
+    }
+    return rejectedFiles;
+  }
+}
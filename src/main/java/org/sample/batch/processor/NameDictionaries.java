@@ -0,0 +1,82 @@
+package org.sample.batch.processor;
+
+import org.sample.batch.memory.MemoryBudget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one {@link NameDictionary} per running job.
+ * <p>
+ * The dictionary is created before the job and dropped after it, its metrics are then stored into the job
+ * {@link ExecutionContext} (keys prefixed by {@value #KEY_PREFIX}).
+ * Partition threads are not registered in the job scope, so the dictionary of the current job is resolved from the
+ * step execution of the calling thread.
+ * </p>
+ */
+public class NameDictionaries implements JobExecutionListener {
+
+  private static final Logger log = LoggerFactory.getLogger(NameDictionaries.class);
+
+  public static final String KEY_PREFIX = "nameDictionary.";
+
+  private final long maximumSize;
+  private final MemoryBudget budget;
+  private final Map<Long, NameDictionary> dictionaries = new ConcurrentHashMap<>();
+  // used out of any job (tests, tools)
+  private final NameDictionary fallback;
+
+  public NameDictionaries(long maximumSize) {
+    this(maximumSize, null);
+  }
+
+  /**
+   * @param budget reserves the names of the job dictionaries, null if not reserved
+   */
+  public NameDictionaries(long maximumSize, MemoryBudget budget) {
+    this.maximumSize = maximumSize;
+    this.budget = budget;
+    this.fallback = new NameDictionary(maximumSize);
+  }
+
+  /**
+   * Returns the dictionary of the job executed by the current thread.
+   */
+  public NameDictionary current() {
+    StepContext context = StepSynchronizationManager.getContext();
+    if (context == null) {
+      return fallback;
+    }
+    StepExecution stepExecution = context.getStepExecution();
+    NameDictionary dictionary = dictionaries.get(stepExecution.getJobExecutionId());
+    return dictionary == null ? fallback : dictionary;
+  }
+
+  @Override
+  public void beforeJob(JobExecution jobExecution) {
+    dictionaries.put(jobExecution.getId(), new NameDictionary(maximumSize, budget));
+  }
+
+  @Override
+  public void afterJob(JobExecution jobExecution) {
+    NameDictionary dictionary = dictionaries.remove(jobExecution.getId());
+    if (dictionary == null) {
+      return;
+    }
+    log.info("Job {} names: {}", jobExecution.getJobInstance().getJobName(), dictionary);
+    ExecutionContext executionContext = jobExecution.getExecutionContext();
+    executionContext.putDouble(KEY_PREFIX + "hitRatio", dictionary.getHitRatio());
+    executionContext.putLong(KEY_PREFIX + "bytesSaved", dictionary.getBytesSaved());
+    executionContext.putLong(KEY_PREFIX + "evictions", dictionary.getStats().evictionCount());
+    executionContext.putLong(KEY_PREFIX + "size", dictionary.getSize());
+    dictionary.clear();
+  }
+}
@@ -0,0 +1,136 @@
+package org.sample.batch.processor;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import org.sample.batch.memory.MemoryBudget;
+import org.sample.batch.memory.MemoryEstimates;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded dictionary of normalized first and last names.
+ * <p>
+ * Maps a raw name (as read from the input) to its canonical normalized String, so that the normalization is computed
+ * once per distinct name and all the processed items share the same String instance.
+ * Least recently used names are evicted when the number of distinct names exceeds the maximum size.
+ * </p>
+ * <p>
+ * With a memory budget, the entries are reserved (component {@value #CACHE}) and released when evicted: a name is not
+ * cached when the budget is exhausted. {@link #clear()} releases them all.
+ * </p>
+ */
+public class NameDictionary {
+
+  public static final String CACHE = "names";
+
+  // estimated retained size of a String: object header, fields and char array header
+  private static final int STRING_OVERHEAD = 40;
+  // estimated retained size of a cache entry, without its strings
+  private static final int ENTRY_OVERHEAD = 64;
+
+  private final Cache<String, String> firstNames;
+  private final Cache<String, String> lastNames;
+  private final LongAdder bytesSaved = new LongAdder();
+  private final MemoryBudget budget;
+
+  public NameDictionary(long maximumSize) {
+    this(maximumSize, null);
+  }
+
+  /**
+   * @param budget null if the entries are not reserved
+   */
+  public NameDictionary(long maximumSize, MemoryBudget budget) {
+    this.budget = budget;
+    this.firstNames = newCache(maximumSize);
+    this.lastNames = newCache(maximumSize);
+  }
+
+  private Cache<String, String> newCache(long maximumSize) {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+      .maximumSize(maximumSize)
+      .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+      .recordStats();
+    if (budget == null) {
+      return builder.build();
+    }
+    RemovalListener<String, String> release = removal -> budget.release(CACHE, entrySize(removal.getKey(),
+      removal.getValue()));
+    return builder.removalListener(release).build();
+  }
+
+  private static long entrySize(String raw, String canonical) {
+    return ENTRY_OVERHEAD + MemoryEstimates.of(raw) + MemoryEstimates.of(canonical);
+  }
+
+  /**
+   * Returns the canonical capitalized first name.
+   */
+  public String firstName(String raw) {
+    return canonical(firstNames, raw, StringUtils::capitalize);
+  }
+
+  /**
+   * Returns the canonical upper case last name.
+   */
+  public String lastName(String raw) {
+    return canonical(lastNames, raw, String::toUpperCase);
+  }
+
+  private String canonical(Cache<String, String> names, String raw, Function<String, String> normalizer) {
+    if (raw == null) {
+      return null;
+    }
+    String canonical = names.getIfPresent(raw);
+    if (canonical != null) {
+      bytesSaved.add(STRING_OVERHEAD + 2L * canonical.length());
+      return canonical;
+    }
+    canonical = normalizer.apply(raw);
+    if (budget != null && !budget.tryReserve(CACHE, entrySize(raw, canonical))) {
+      return canonical;
+    }
+    // concurrent misses may normalize twice, the last one wins
+    names.put(raw, canonical);
+    return canonical;
+  }
+
+  /**
+   * Drops all the names.
+   */
+  public void clear() {
+    firstNames.invalidateAll();
+    lastNames.invalidateAll();
+  }
+
+  public CacheStats getStats() {
+    return firstNames.stats().plus(lastNames.stats());
+  }
+
+  public double getHitRatio() {
+    return getStats().hitRate();
+  }
+
+  public long getBytesSaved() {
+    return bytesSaved.sum();
+  }
+
+  public long getSize() {
+    return firstNames.size() + lastNames.size();
+  }
+
+  @Override
+  public String toString() {
+    CacheStats stats = getStats();
+    return "NameDictionary{" +
+      "size=" + getSize() +
+      ", hitRatio=" + stats.hitRate() +
+      ", evictions=" + stats.evictionCount() +
+      ", bytesSaved=" + getBytesSaved() +
+      '}';
+  }
+}
@@ -0,0 +1,140 @@
+package org.sample.batch.processor;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ItemProcessor;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Processes the items of a chunk in parallel: the items read by the partition are collected by the read listener, and
+ * at the first call of {@link #process(Object)} of the chunk they are all submitted to the shared executor. Each call
+ * then returns the result of its own item, in the order of the chunk, or throws its exception: the skip policy and the
+ * skip listeners of the step see a failure of this item only, like with the sequential processing.
+ * <p>
+ * The results are kept until the end of the chunk: a chunk processed again after a rollback (e.g. to skip an item)
+ * gets them without processing again. The delegate must be thread safe; it is called with the step execution
+ * registered, so that it can use the step scoped beans. It must be registered as a read, chunk and step listener of
+ * the steps using it.
+ * </p>
+ *
+ * @param <I> input type
+ * @param <O> output type
+ */
+public class ParallelItemProcessor<I, O> implements ItemProcessor<I, O>, ItemReadListener<I>, ChunkListener,
+  StepExecutionListener {
+
+  private final ItemProcessor<I, O> delegate;
+  private final Executor executor;
+  private final ThreadLocal<Chunk<I, O>> chunks = ThreadLocal.withInitial(Chunk::new);
+
+  public ParallelItemProcessor(ItemProcessor<I, O> delegate, Executor executor) {
+    this.delegate = delegate;
+    this.executor = executor;
+  }
+
+  @Override
+  public O process(I item) throws Exception {
+    Chunk<I, O> chunk = chunks.get();
+    if (!chunk.pending.isEmpty()) {
+      submit(chunk);
+    }
+    CompletableFuture<O> result = chunk.results.get(item);
+    if (result == null) {
+      // not read by the step, e.g. a direct call
+      return delegate.process(item);
+    }
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw (Error) cause;
+    }
+  }
+
+  private void submit(Chunk<I, O> chunk) {
+    StepContext context = StepSynchronizationManager.getContext();
+    StepExecution stepExecution = context == null ? null : context.getStepExecution();
+    for (I item : chunk.pending) {
+      chunk.results.put(item, CompletableFuture.supplyAsync(() -> processInStep(item, stepExecution), executor));
+    }
+    chunk.pending.clear();
+  }
+
+  private O processInStep(I item, StepExecution stepExecution) {
+    if (stepExecution != null) {
+      StepSynchronizationManager.register(stepExecution);
+    }
+    try {
+      return delegate.process(item);
+    } catch (Exception e) {
+      throw new CompletionException(e);
+    } finally {
+      if (stepExecution != null) {
+        // not release(): it would close the step scope of the partition
+        StepSynchronizationManager.close();
+      }
+    }
+  }
+
+  @Override
+  public void beforeRead() {
+  }
+
+  @Override
+  public void afterRead(I item) {
+    chunks.get().pending.add(item);
+  }
+
+  @Override
+  public void onReadError(Exception ex) {
+  }
+
+  @Override
+  public void beforeChunk(ChunkContext context) {
+  }
+
+  @Override
+  public void afterChunk(ChunkContext context) {
+    chunks.remove();
+  }
+
+  @Override
+  public void afterChunkError(ChunkContext context) {
+    // the chunk is processed again, or the step fails
+  }
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+    chunks.remove();
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    chunks.remove();
+    return null;
+  }
+
+  /**
+   * The items of the current chunk of a partition.
+   */
+  private static class Chunk<I, O> {
+    private final List<I> pending = new ArrayList<>();
+    private final Map<I, CompletableFuture<O>> results = new IdentityHashMap<>();
+  }
+}
@@ -3,11 +3,14 @@ package org.sample.batch.processor;
 import org.sample.batch.model.InvalidDataException;
 import org.sample.batch.model.Person;
 import org.sample.batch.service.NationalService;
+import org.sample.batch.validation.RuleEngine;
+import org.sample.batch.validation.Violation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.util.StringUtils;
 
+import java.util.List;
 import java.util.Optional;
 
 public class PersonItemProcessor implements ItemProcessor<Person, Person> {
@@ -15,20 +18,40 @@ public class PersonItemProcessor implements ItemProcessor<Person, Person> {
   private static final Logger log = LoggerFactory.getLogger(PersonItemProcessor.class);
 
   private final NationalService nationalService;
+  private final RuleEngine<Person> ruleEngine = RuleEngine.forClass(Person.class);
+  private NameDictionaries nameDictionaries;
 
   public PersonItemProcessor(NationalService nationalService) {
     this.nationalService = nationalService;
   }
 
+  /**
+   * Shares the normalized names among the items of a job (optional).
+   */
+  public void setNameDictionaries(NameDictionaries nameDictionaries) {
+    this.nameDictionaries = nameDictionaries;
+  }
+
   @Override
   public Person process(final Person person) throws Exception {
-    final String firstName = StringUtils.capitalize(person.getFirstName());
-    final String lastName = person.getLastName().toUpperCase();
-
-    if (person.getAge() <= 0) {
-      throw new InvalidDataException("must be born");
+    List<Violation> violations = ruleEngine.validate(person);
+    if (!violations.isEmpty()) {
+      throw new InvalidDataException(violations);
     }
+    final String firstName;
+    final String lastName;
+    if (nameDictionaries == null) {
+      firstName = StringUtils.capitalize(person.getFirstName());
+      lastName = person.getLastName().toUpperCase();
+    } else {
+      NameDictionary names = nameDictionaries.current();
+      firstName = names.firstName(person.getFirstName());
+      lastName = names.lastName(person.getLastName());
+    }
+
     final Person transformedPerson = new Person(firstName, lastName, person.getAge());
+    transformedPerson.setSourceId(person.getSourceId());
+    transformedPerson.setSourceLine(person.getSourceLine());
 
     // find national ID
     Optional<String> nationalIdentifier = nationalService.findNationalIdentifier(firstName, lastName);
@@ -0,0 +1,24 @@
+package org.sample.batch.processor;
+
+import org.sample.batch.model.Person;
+import org.springframework.batch.item.ItemProcessor;
+
+/**
+ * Sets the natural key and the content hash of the processed persons, used by the upsert writer to skip the
+ * unchanged rows.
+ */
+public class RowHashProcessor implements ItemProcessor<Person, Person> {
+
+  private final RowHasher<Person> rowHasher;
+
+  public RowHashProcessor(RowHasher<Person> rowHasher) {
+    this.rowHasher = rowHasher;
+  }
+
+  @Override
+  public Person process(Person person) {
+    person.setNaturalKey(rowHasher.naturalKey(person));
+    person.setRowHash(rowHasher.hash(person));
+    return person;
+  }
+}
@@ -0,0 +1,91 @@
+package org.sample.batch.processor;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.sample.batch.csv.Column;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Computes the natural key and a 64 bits content hash of beans.
+ * <p>
+ * The hash covers the fields annotated with {@link Column} (the persisted content), the natural key is made of the
+ * values of the key fields.
+ * </p>
+ *
+ * @param <T> Bean Type with fields annotated with {@link Column}
+ */
+public class RowHasher<T> {
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+  private static final char KEY_SEPARATOR = '|';
+
+  private final Field[] contentFields;
+  private final Field[] keyFields;
+
+  /**
+   * @param type      the bean type
+   * @param keyFields names of the fields of the natural key
+   */
+  public RowHasher(Class<T> type, List<String> keyFields) {
+    this.contentFields = Arrays.stream(type.getDeclaredFields())
+      .filter(field -> field.getAnnotation(Column.class) != null)
+      .sorted(Comparator.comparingInt(field -> field.getAnnotation(Column.class).position()))
+      .toArray(Field[]::new);
+    this.keyFields = keyFields.stream()
+      .map(name -> {
+        try {
+          return type.getDeclaredField(name.trim());
+        } catch (NoSuchFieldException e) {
+          throw new IllegalArgumentException("Unknown natural key field: " + name, e);
+        }
+      })
+      .toArray(Field[]::new);
+    for (Field field : contentFields) {
+      field.setAccessible(true);
+    }
+    for (Field field : this.keyFields) {
+      field.setAccessible(true);
+    }
+  }
+
+  public String naturalKey(T item) {
+    StringBuilder key = new StringBuilder();
+    for (int i = 0; i < keyFields.length; i++) {
+      if (i > 0) {
+        key.append(KEY_SEPARATOR);
+      }
+      key.append(get(keyFields[i], item));
+    }
+    return key.toString();
+  }
+
+  public long hash(T item) {
+    Hasher hasher = HASH_FUNCTION.newHasher();
+    for (Field field : contentFields) {
+      Object value = get(field, item);
+      if (value == null) {
+        hasher.putByte((byte) 0);
+      } else if (value instanceof Number) {
+        hasher.putByte((byte) 1).putLong(((Number) value).longValue());
+      } else {
+        String string = value.toString();
+        // the length avoids collisions between ("ab", "c") and ("a", "bc")
+        hasher.putByte((byte) 2).putInt(string.length()).putUnencodedChars(string);
+      }
+    }
+    return hasher.hash().asLong();
+  }
+
+  private static Object get(Field field, Object item) {
+    try {
+      return field.get(item);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package org.sample.batch.progress;
+
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * File resource reporting the bytes read from its input streams to a {@link PartitionProgress}.
+ * <p>
+ * The readers read by blocks (8 KB for a {@code BufferedReader}): the progress is updated once per block.
+ * </p>
+ */
+class CountingResource extends FileSystemResource {
+
+  private final PartitionProgress progress;
+
+  CountingResource(String path, PartitionProgress progress) {
+    super(path);
+    this.progress = progress;
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    // the stream is opened again on restart: the lines already read are read again
+    progress.reset();
+    return new FilterInputStream(super.getInputStream()) {
+      @Override
+      public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+          progress.add(1);
+        }
+        return b;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int count = super.read(b, off, len);
+        if (count > 0) {
+          progress.add(count);
+        }
+        return count;
+      }
+
+      @Override
+      public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        progress.add(skipped);
+        return skipped;
+      }
+    };
+  }
+}
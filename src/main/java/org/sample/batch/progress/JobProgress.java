@@ -0,0 +1,69 @@
+package org.sample.batch.progress;
+
+/**
+ * Snapshot of the progress of a job execution: all its partitions, started or not.
+ */
+public class JobProgress {
+
+  private final long jobExecutionId;
+  private final int partitions;
+  private final int startedPartitions;
+  private final int completedPartitions;
+  private final long bytesRead;
+  private final long size;
+  private final double bytesPerSecond;
+
+  JobProgress(long jobExecutionId, int partitions, int startedPartitions, int completedPartitions, long bytesRead,
+              long size, double bytesPerSecond) {
+    this.jobExecutionId = jobExecutionId;
+    this.partitions = partitions;
+    this.startedPartitions = startedPartitions;
+    this.completedPartitions = completedPartitions;
+    this.bytesRead = bytesRead;
+    this.size = size;
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  public long getJobExecutionId() {
+    return jobExecutionId;
+  }
+
+  public int getPartitions() {
+    return partitions;
+  }
+
+  public int getStartedPartitions() {
+    return startedPartitions;
+  }
+
+  public int getCompletedPartitions() {
+    return completedPartitions;
+  }
+
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public double getPercent() {
+    return size == 0 ? 100 : bytesRead * 100.0 / size;
+  }
+
+  /**
+   * Sum of the smoothed throughputs of the running partitions.
+   */
+  public double getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  /**
+   * @return the estimated time left in seconds, assuming the partitions not started yet will run at the current
+   * throughput, -1 if unknown
+   */
+  public long getEtaSeconds() {
+    return completedPartitions == partitions ? 0 : PartitionStatus.eta(size - bytesRead, bytesPerSecond);
+  }
+}
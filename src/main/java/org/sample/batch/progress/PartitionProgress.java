@@ -0,0 +1,110 @@
+package org.sample.batch.progress;
+
+/**
+ * Progress of a partition through its input file.
+ * <p>
+ * The bytes are counted by the reader thread only, the rate is smoothed by the sampling thread.
+ * </p>
+ */
+class PartitionProgress {
+
+  private final long jobExecutionId;
+  private final String name;
+  private final String inputFile;
+  private final long size;
+  private final long startNanos = System.nanoTime();
+
+  private volatile long bytesRead;
+  private volatile long endNanos;
+
+  // sampling state, guarded by this
+  private long lastSampleNanos = startNanos;
+  private long lastSampleBytes;
+  private double rate = Double.NaN;
+
+  PartitionProgress(long jobExecutionId, String name, String inputFile, long size) {
+    this.jobExecutionId = jobExecutionId;
+    this.name = name;
+    this.inputFile = inputFile;
+    this.size = size;
+  }
+
+  void add(long count) {
+    // single writer
+    bytesRead = bytesRead + count;
+  }
+
+  void reset() {
+    bytesRead = 0;
+  }
+
+  void complete() {
+    endNanos = System.nanoTime();
+  }
+
+  boolean isCompleted() {
+    return endNanos != 0;
+  }
+
+  long getJobExecutionId() {
+    return jobExecutionId;
+  }
+
+  String getInputFile() {
+    return inputFile;
+  }
+
+  long getSize() {
+    return size;
+  }
+
+  long getBytesRead() {
+    return bytesRead;
+  }
+
+  long getEndNanos() {
+    return endNanos;
+  }
+
+  /**
+   * Updates the exponentially weighted rate.
+   *
+   * @param tauNanos time constant of the smoothing
+   */
+  synchronized void sample(long nowNanos, double tauNanos) {
+    long elapsed = nowNanos - lastSampleNanos;
+    if (elapsed <= 0 || isCompleted()) {
+      return;
+    }
+    long bytes = bytesRead;
+    double instantRate = Math.max(0, bytes - lastSampleBytes) * 1e9 / elapsed;
+    if (Double.isNaN(rate)) {
+      rate = instantRate;
+    } else {
+      rate += (1 - Math.exp(-elapsed / tauNanos)) * (instantRate - rate);
+    }
+    lastSampleNanos = nowNanos;
+    lastSampleBytes = bytes;
+  }
+
+  /**
+   * @return the smoothed rate in bytes per second, the average rate until the first sample, 0 once completed
+   */
+  synchronized double getRate(long nowNanos) {
+    if (isCompleted()) {
+      return 0;
+    }
+    if (Double.isNaN(rate)) {
+      long elapsed = nowNanos - startNanos;
+      return elapsed <= 0 ? 0 : bytesRead * 1e9 / elapsed;
+    }
+    return rate;
+  }
+
+  PartitionStatus status(long nowNanos) {
+    long bytes = bytesRead;
+    long end = endNanos;
+    return new PartitionStatus(jobExecutionId, name, inputFile, bytes, size, getRate(nowNanos),
+      ((end == 0 ? nowNanos : end) - startNanos) / 1_000_000, end != 0);
+  }
+}
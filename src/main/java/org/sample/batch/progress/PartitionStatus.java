@@ -0,0 +1,81 @@
+package org.sample.batch.progress;
+
+/**
+ * Snapshot of the progress of a partition.
+ */
+public class PartitionStatus {
+
+  private final long jobExecutionId;
+  private final String partition;
+  private final String inputFile;
+  private final long bytesRead;
+  private final long size;
+  private final double bytesPerSecond;
+  private final long elapsedMillis;
+  private final boolean completed;
+
+  PartitionStatus(long jobExecutionId, String partition, String inputFile, long bytesRead, long size,
+                  double bytesPerSecond, long elapsedMillis, boolean completed) {
+    this.jobExecutionId = jobExecutionId;
+    this.partition = partition;
+    this.inputFile = inputFile;
+    this.bytesRead = completed ? size : Math.min(bytesRead, size);
+    this.size = size;
+    this.bytesPerSecond = bytesPerSecond;
+    this.elapsedMillis = elapsedMillis;
+    this.completed = completed;
+  }
+
+  public long getJobExecutionId() {
+    return jobExecutionId;
+  }
+
+  public String getPartition() {
+    return partition;
+  }
+
+  public String getInputFile() {
+    return inputFile;
+  }
+
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public double getPercent() {
+    return size == 0 ? 100 : bytesRead * 100.0 / size;
+  }
+
+  /**
+   * Smoothed throughput.
+   */
+  public double getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * @return the estimated time left in seconds, -1 if unknown
+   */
+  public long getEtaSeconds() {
+    return eta(size - bytesRead, completed ? 0 : bytesPerSecond);
+  }
+
+  public boolean isCompleted() {
+    return completed;
+  }
+
+  static long eta(long remaining, double bytesPerSecond) {
+    if (remaining <= 0) {
+      return 0;
+    }
+    return bytesPerSecond > 0 ? (long) Math.ceil(remaining / bytesPerSecond) : -1;
+  }
+}
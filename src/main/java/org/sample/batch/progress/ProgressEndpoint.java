@@ -0,0 +1,93 @@
+package org.sample.batch.progress;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the progress as JSON on the loopback interface: {@code GET /progress} (jobs and partitions),
+ * {@code /progress/jobs} and {@code /progress/partitions}.
+ */
+public class ProgressEndpoint implements DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(ProgressEndpoint.class);
+
+  private final ProgressTracker tracker;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "progress-http");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * @param port the port, any free port if 0
+   */
+  public ProgressEndpoint(ProgressTracker tracker, int port) throws IOException {
+    this.tracker = tracker;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/progress", this::handle);
+    server.setExecutor(executor);
+    server.start();
+    log.info("Progress served on http://{}:{}/progress", server.getAddress().getHostString(), getPort());
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      Object body;
+      switch (exchange.getRequestURI().getPath()) {
+        case "/progress":
+        case "/progress/":
+          Map<String, Object> progress = new LinkedHashMap<>();
+          progress.put("jobs", tracker.getJobs());
+          progress.put("partitions", tracker.getPartitions());
+          body = progress;
+          break;
+        case "/progress/jobs":
+          body = tracker.getJobs();
+          break;
+        case "/progress/partitions":
+          body = tracker.getPartitions();
+          break;
+        default:
+          exchange.sendResponseHeaders(404, -1);
+          return;
+      }
+      byte[] json = objectMapper.writeValueAsBytes(body);
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, json.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(json);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  @Override
+  public void destroy() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
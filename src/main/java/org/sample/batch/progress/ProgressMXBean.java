@@ -0,0 +1,13 @@
+package org.sample.batch.progress;
+
+import java.util.List;
+
+/**
+ * Progress of the running jobs, registered as {@value ProgressTracker#OBJECT_NAME}.
+ */
+public interface ProgressMXBean {
+
+  List<JobProgress> getJobs();
+
+  List<PartitionStatus> getPartitions();
+}
@@ -0,0 +1,244 @@
+package org.sample.batch.progress;
+
+import org.sample.batch.config.CustomMultiResourcePartitioner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.io.Resource;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress of the partitions through their input file, with a smoothed throughput and the estimated time left.
+ * <p>
+ * The partitions report the bytes read through the resource returned by {@link #resource(StepExecution, String)}:
+ * a counter per read block, nothing is read from the job repository. The rates are sampled by a background thread
+ * and smoothed with a time constant of {@code smoothing} (10 s by default).
+ * The job-wide progress covers the partitions not started yet when the partitioner is wrapped by
+ * {@link #planning(Partitioner)}.
+ * The progress of a job is dropped {@code retention} after its last partition ended.
+ * </p>
+ */
+public class ProgressTracker implements StepExecutionListener, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(ProgressTracker.class);
+
+  public static final String OBJECT_NAME = "org.sample.batch:type=Progress";
+  private static final String inputFileKey = "input.file";
+
+  private final Map<Long, PartitionProgress> partitions = new ConcurrentHashMap<>();
+  // job execution id -> input file -> size
+  private final Map<Long, Map<String, Long>> plans = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "progress-sampler");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final double tauNanos;
+  private final long retentionNanos;
+  private ObjectName registeredName;
+
+  /**
+   * @param samplePeriod period of the sampling of the rates
+   * @param smoothing    time constant of the smoothing of the rates
+   * @param retention    time the progress of a job is kept once ended
+   */
+  public ProgressTracker(long samplePeriod, long smoothing, long retention, TimeUnit unit) {
+    this.tauNanos = unit.toNanos(smoothing);
+    this.retentionNanos = unit.toNanos(retention);
+    sampler.scheduleAtFixedRate(this::sample, samplePeriod, samplePeriod, unit);
+  }
+
+  /**
+   * Wraps a partitioner to record the input files of all the partitions of the job, before they start.
+   * Must be called by a partition step.
+   */
+  public Partitioner planning(Partitioner partitioner) {
+    return gridSize -> {
+      Map<String, ExecutionContext> contexts = partitioner.partition(gridSize);
+      StepContext stepContext = StepSynchronizationManager.getContext();
+      if (stepContext != null) {
+        Map<String, Long> plan = new ConcurrentHashMap<>();
+        for (ExecutionContext context : contexts.values()) {
+          String inputFile = context.getString(inputFileKey, null);
+          if (inputFile != null) {
+            plan.put(inputFile, size(context, inputFile));
+          }
+        }
+        plans.put(stepContext.getStepExecution().getJobExecutionId(), plan);
+      }
+      return contexts;
+    };
+  }
+
+  /**
+   * @return the input file of a partition, its reads are counted
+   */
+  public Resource resource(StepExecution stepExecution, String inputFile) {
+    PartitionProgress progress = new PartitionProgress(stepExecution.getJobExecutionId(),
+      stepExecution.getStepName(), inputFile, size(stepExecution.getExecutionContext(), inputFile));
+    // a partition executed again by a new worker (remote partitioning) replaces the previous one
+    partitions.put(stepExecution.getId(), progress);
+    return new CountingResource(inputFile, progress);
+  }
+
+  private static long size(ExecutionContext context, String inputFile) {
+    return context.getLong(CustomMultiResourcePartitioner.INPUT_FILE_SIZE_KEY, new File(inputFile).length());
+  }
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    PartitionProgress progress = partitions.get(stepExecution.getId());
+    if (progress != null) {
+      progress.complete();
+    }
+    return null;
+  }
+
+  void sample() {
+    long now = System.nanoTime();
+    try {
+      for (PartitionProgress progress : partitions.values()) {
+        progress.sample(now, tauNanos);
+      }
+      for (Long jobExecutionId : plans.keySet()) {
+        JobProgress job = job(jobExecutionId, now);
+        if (job.getStartedPartitions() > 0 && job.getCompletedPartitions() == job.getPartitions()
+          && partitions.values().stream()
+          .filter(progress -> progress.getJobExecutionId() == jobExecutionId)
+          .allMatch(progress -> now - progress.getEndNanos() > retentionNanos)) {
+          forget(jobExecutionId);
+        }
+      }
+      partitions.values().removeIf(progress -> !plans.containsKey(progress.getJobExecutionId())
+        && progress.isCompleted() && now - progress.getEndNanos() > retentionNanos);
+    } catch (RuntimeException e) {
+      log.warn("Failed to sample the progress", e);
+    }
+  }
+
+  private void forget(long jobExecutionId) {
+    plans.remove(jobExecutionId);
+    partitions.values().removeIf(progress -> progress.getJobExecutionId() == jobExecutionId);
+  }
+
+  public List<JobProgress> getJobs() {
+    long now = System.nanoTime();
+    Set<Long> jobExecutionIds = new TreeSet<>(plans.keySet());
+    for (PartitionProgress progress : partitions.values()) {
+      jobExecutionIds.add(progress.getJobExecutionId());
+    }
+    List<JobProgress> jobs = new ArrayList<>(jobExecutionIds.size());
+    for (Long jobExecutionId : jobExecutionIds) {
+      jobs.add(job(jobExecutionId, now));
+    }
+    return jobs;
+  }
+
+  /**
+   * @return the progress of a job execution, from its plan if the partitioner has been wrapped
+   */
+  public JobProgress getJob(long jobExecutionId) {
+    return job(jobExecutionId, System.nanoTime());
+  }
+
+  private JobProgress job(long jobExecutionId, long now) {
+    Map<String, Long> plan = plans.get(jobExecutionId);
+    Map<String, PartitionStatus> started = new HashMap<>();
+    for (PartitionProgress progress : partitions.values()) {
+      if (progress.getJobExecutionId() == jobExecutionId) {
+        started.put(progress.getInputFile(), progress.status(now));
+      }
+    }
+    long size = plan == null ? 0 : plan.entrySet().stream()
+      .filter(entry -> !started.containsKey(entry.getKey()))
+      .mapToLong(Map.Entry::getValue)
+      .sum();
+    long bytesRead = 0;
+    double rate = 0;
+    int completed = 0;
+    for (PartitionStatus status : started.values()) {
+      size += status.getSize();
+      bytesRead += status.getBytesRead();
+      rate += status.getBytesPerSecond();
+      completed += status.isCompleted() ? 1 : 0;
+    }
+    int partitionCount = plan == null ? started.size() : Math.max(plan.size(), started.size());
+    return new JobProgress(jobExecutionId, partitionCount, started.size(), completed, bytesRead, size, rate);
+  }
+
+  public List<PartitionStatus> getPartitions() {
+    long now = System.nanoTime();
+    List<PartitionStatus> statuses = new ArrayList<>();
+    for (PartitionProgress progress : partitions.values()) {
+      statuses.add(progress.status(now));
+    }
+    statuses.sort((status1, status2) -> status1.getJobExecutionId() != status2.getJobExecutionId()
+      ? Long.compare(status1.getJobExecutionId(), status2.getJobExecutionId())
+      : status1.getPartition().compareTo(status2.getPartition()));
+    return statuses;
+  }
+
+  /**
+   * Registers the tracker in the platform MBean server, unless already registered by another application context.
+   * Not registered as an MXBean itself: it would also be exported by the JMX auto-configuration of Spring Boot.
+   */
+  public void registerMBean() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(name)) {
+        log.warn("{} is already registered", name);
+        return;
+      }
+      server.registerMBean(new ProgressMXBean() {
+        @Override
+        public List<JobProgress> getJobs() {
+          return ProgressTracker.this.getJobs();
+        }
+
+        @Override
+        public List<PartitionStatus> getPartitions() {
+          return ProgressTracker.this.getPartitions();
+        }
+      }, name);
+      registeredName = name;
+    } catch (JMException e) {
+      log.warn("Failed to register {}", OBJECT_NAME, e);
+    }
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    sampler.shutdownNow();
+    if (registeredName != null) {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+      registeredName = null;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package org.sample.batch.reader;
+
+import org.sample.batch.memory.MemoryBudget;
+import org.sample.batch.memory.MemoryEstimates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads ahead of the step: a background thread reads the delegate into a bounded buffer while the current chunk is
+ * processed and written, so the disk reads overlap the processing.
+ * <p>
+ * The read errors are returned in order, when the item in error is consumed, so the skip policy is unchanged.
+ * The saved read count is the count of consumed items: a restart does not lose the items that were prefetched but
+ * not processed. Not thread-safe, like the delegate.
+ * </p>
+ * <p>
+ * With a memory account, the prefetched items are reserved (component {@value #PREFETCH}) until they are consumed:
+ * the prefetch thread waits when the budget is exhausted.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class PrefetchingItemReader<T> implements ItemStreamReader<T> {
+
+  private static final Logger log = LoggerFactory.getLogger(PrefetchingItemReader.class);
+
+  public static final String PREFETCH = "prefetch";
+
+  private static final String READ_COUNT = "read.count";
+  private static final Object END = new Object();
+
+  private final AbstractItemCountingItemStreamItemReader<T> delegate;
+  private final String countKey;
+  private final BlockingQueue<Object> buffer;
+
+  private MemoryBudget.Account account;
+  private Thread prefetcher;
+  private volatile boolean closed;
+  private int consumed;
+  private boolean exhausted;
+
+  /**
+   * @param delegate   the reader, its read count is saved under its own key
+   * @param bufferSize number of items read ahead, typically twice the commit interval
+   */
+  public PrefetchingItemReader(AbstractItemCountingItemStreamItemReader<T> delegate, int bufferSize) {
+    this.delegate = delegate;
+    this.countKey = delegate.getExecutionContextKey(READ_COUNT);
+    this.buffer = new ArrayBlockingQueue<>(bufferSize);
+  }
+
+  /**
+   * @param account the account of the partition, null if the prefetched items are not reserved
+   */
+  public void setMemoryAccount(MemoryBudget.Account account) {
+    this.account = account;
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    delegate.open(executionContext);
+    consumed = executionContext.getInt(countKey, 0);
+    exhausted = false;
+    closed = false;
+    buffer.clear();
+    prefetcher = new Thread(this::prefetch, "prefetch-" + Thread.currentThread().getName());
+    prefetcher.setDaemon(true);
+    prefetcher.start();
+  }
+
+  private void prefetch() {
+    try {
+      while (!closed) {
+        Object entry;
+        try {
+          T item = delegate.read();
+          entry = item == null ? END : item;
+          if (item != null && account != null) {
+            account.reserve(PREFETCH, MemoryEstimates.of(item));
+          }
+        } catch (Exception e) {
+          entry = new Failure(e);
+        }
+        buffer.put(entry);
+        if (entry == END) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      // closed while the buffer is full
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T read() throws Exception {
+    if (exhausted) {
+      return null;
+    }
+    Object entry = buffer.take();
+    if (entry == END) {
+      exhausted = true;
+      return null;
+    }
+    consumed++;
+    if (entry instanceof Failure) {
+      throw ((Failure) entry).exception;
+    }
+    release(entry);
+    return (T) entry;
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    delegate.update(executionContext);
+    // the delegate is ahead of the step
+    executionContext.putInt(countKey, consumed);
+  }
+
+  @Override
+  public void close() throws ItemStreamException {
+    closed = true;
+    if (prefetcher != null) {
+      prefetcher.interrupt();
+      try {
+        prefetcher.join(TimeUnit.SECONDS.toMillis(10));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (prefetcher.isAlive()) {
+        log.warn("Prefetch thread {} still reading, closing the reader anyway", prefetcher.getName());
+      }
+      prefetcher = null;
+    }
+    buffer.forEach(this::release);
+    buffer.clear();
+    delegate.close();
+  }
+
+  private void release(Object entry) {
+    if (account != null && entry != END && !(entry instanceof Failure)) {
+      account.release(PREFETCH, MemoryEstimates.of(entry));
+    }
+  }
+
+  /**
+   * A read error, thrown when consumed.
+   */
+  private static class Failure {
+    private final Exception exception;
+
+    Failure(Exception exception) {
+      this.exception = exception;
+    }
+  }
+}
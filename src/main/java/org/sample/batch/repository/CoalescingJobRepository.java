@@ -0,0 +1,167 @@
+package org.sample.batch.repository;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JobRepository} persisting the progress of the running steps every N commits or T milliseconds instead of
+ * after each chunk.
+ * <p>
+ * The chunk commits of a running step update its execution context (reader positions...) and its counts. These
+ * updates are skipped until N commits have been made or T milliseconds have elapsed since the last persisted update.
+ * The other updates (step start and end, job executions) are persisted as usual.
+ * </p>
+ * <p>
+ * The progress is always persisted when the step ends, failed or not. Warn: if the JVM dies, a restart resumes from
+ * the last persisted update and up to N chunks are processed again. Use {@code flushCommits = 1} to keep the exact
+ * restart semantics, or an idempotent writer (upsert mode).
+ * A stop request is seen when the progress is persisted.
+ * </p>
+ */
+public class CoalescingJobRepository implements JobRepository {
+
+  private final JobRepository delegate;
+  private final int flushCommits;
+  private final long flushIntervalNanos;
+
+  // persisted progress of the running step executions
+  private final Map<Long, Progress> progress = new ConcurrentHashMap<>();
+
+  /**
+   * @param delegate      the repository persisting the updates
+   * @param flushCommits  number of commits between two persisted updates
+   * @param flushInterval maximum time between two persisted updates
+   * @param unit          unit of the flush interval
+   */
+  public CoalescingJobRepository(JobRepository delegate, int flushCommits, long flushInterval, TimeUnit unit) {
+    if (flushCommits < 1) {
+      throw new IllegalArgumentException("flushCommits must be positive");
+    }
+    this.delegate = delegate;
+    this.flushCommits = flushCommits;
+    this.flushIntervalNanos = unit.toNanos(flushInterval);
+  }
+
+  /**
+   * Called first on a chunk commit, decides if this commit is persisted.
+   */
+  @Override
+  public void updateExecutionContext(StepExecution stepExecution) {
+    if (!isRunning(stepExecution)) {
+      delegate.updateExecutionContext(stepExecution);
+      return;
+    }
+    Progress stepProgress = progress.computeIfAbsent(stepExecution.getId(), id -> new Progress());
+    long now = System.nanoTime();
+    if (stepExecution.getCommitCount() + 1 - stepProgress.commitCount >= flushCommits
+      || now - stepProgress.nanoTime >= flushIntervalNanos) {
+      stepProgress.pending = true;
+      delegate.updateExecutionContext(stepExecution);
+    }
+  }
+
+  @Override
+  public void update(StepExecution stepExecution) {
+    if (!isRunning(stepExecution)) {
+      progress.remove(stepExecution.getId());
+      delegate.update(stepExecution);
+      return;
+    }
+    Progress stepProgress = progress.get(stepExecution.getId());
+    if (stepProgress == null || stepProgress.pending) {
+      // first update of the step, or update of a persisted commit
+      stepProgress = stepProgress == null ? new Progress() : stepProgress;
+      delegate.update(stepExecution);
+      stepProgress.pending = false;
+      stepProgress.commitCount = stepExecution.getCommitCount();
+      stepProgress.nanoTime = System.nanoTime();
+      progress.put(stepExecution.getId(), stepProgress);
+    }
+  }
+
+  private static boolean isRunning(StepExecution stepExecution) {
+    return stepExecution.getId() != null && stepExecution.getStatus() == BatchStatus.STARTED
+      && !stepExecution.isTerminateOnly();
+  }
+
+  public int getFlushCommits() {
+    return flushCommits;
+  }
+
+  @Override
+  public boolean isJobInstanceExists(String jobName, JobParameters jobParameters) {
+    return delegate.isJobInstanceExists(jobName, jobParameters);
+  }
+
+  @Override
+  public JobInstance createJobInstance(String jobName, JobParameters jobParameters) {
+    return delegate.createJobInstance(jobName, jobParameters);
+  }
+
+  @Override
+  public JobExecution createJobExecution(JobInstance jobInstance, JobParameters jobParameters,
+                                         String jobConfigurationLocation) {
+    return delegate.createJobExecution(jobInstance, jobParameters, jobConfigurationLocation);
+  }
+
+  @Override
+  public JobExecution createJobExecution(String jobName, JobParameters jobParameters)
+    throws JobExecutionAlreadyRunningException, JobRestartException, JobInstanceAlreadyCompleteException {
+    return delegate.createJobExecution(jobName, jobParameters);
+  }
+
+  @Override
+  public void update(JobExecution jobExecution) {
+    delegate.update(jobExecution);
+  }
+
+  @Override
+  public void add(StepExecution stepExecution) {
+    delegate.add(stepExecution);
+  }
+
+  @Override
+  public void addAll(Collection<StepExecution> stepExecutions) {
+    delegate.addAll(stepExecutions);
+  }
+
+  @Override
+  public void updateExecutionContext(JobExecution jobExecution) {
+    delegate.updateExecutionContext(jobExecution);
+  }
+
+  @Override
+  public StepExecution getLastStepExecution(JobInstance jobInstance, String stepName) {
+    return delegate.getLastStepExecution(jobInstance, stepName);
+  }
+
+  @Override
+  public int getStepExecutionCount(JobInstance jobInstance, String stepName) {
+    return delegate.getStepExecutionCount(jobInstance, stepName);
+  }
+
+  @Override
+  public JobExecution getLastJobExecution(String jobName, JobParameters jobParameters) {
+    return delegate.getLastJobExecution(jobName, jobParameters);
+  }
+
+  private static class Progress {
+    // commit count of the last persisted update
+    private long commitCount;
+    private long nanoTime = System.nanoTime();
+    // the execution context of the current commit has been persisted, its update must be too
+    private volatile boolean pending;
+  }
+}
@@ -0,0 +1,60 @@
+package org.sample.batch.repository;
+
+import org.springframework.batch.core.configuration.annotation.DefaultBatchConfigurer;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Job repository with a low metadata overhead: the execution contexts are written by the
+ * {@link CompactExecutionContextSerializer} and the progress of the running steps is persisted by a
+ * {@link CoalescingJobRepository}.
+ */
+public class CompactBatchConfigurer extends DefaultBatchConfigurer {
+
+  private final DataSource dataSource;
+  private final int flushCommits;
+  private final long flushIntervalMillis;
+  private final ExecutionContextSerializer serializer = new CompactExecutionContextSerializer();
+
+  /**
+   * @param dataSource          the job repository data source
+   * @param flushCommits        number of commits between two persisted updates of a running step (1 to persist
+   *                            each commit)
+   * @param flushIntervalMillis maximum time between two persisted updates of a running step
+   */
+  public CompactBatchConfigurer(DataSource dataSource, int flushCommits, long flushIntervalMillis) {
+    super(dataSource);
+    this.dataSource = dataSource;
+    this.flushCommits = flushCommits;
+    this.flushIntervalMillis = flushIntervalMillis;
+  }
+
+  @Override
+  protected JobRepository createJobRepository() throws Exception {
+    JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+    factory.setDataSource(dataSource);
+    factory.setTransactionManager(getTransactionManager());
+    factory.setSerializer(serializer);
+    factory.afterPropertiesSet();
+    JobRepository jobRepository = factory.getObject();
+    if (flushCommits <= 1) {
+      return jobRepository;
+    }
+    return new CoalescingJobRepository(jobRepository, flushCommits, flushIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  protected JobExplorer createJobExplorer() throws Exception {
+    JobExplorerFactoryBean factory = new JobExplorerFactoryBean();
+    factory.setDataSource(dataSource);
+    factory.setSerializer(serializer);
+    factory.afterPropertiesSet();
+    return factory.getObject();
+  }
+}
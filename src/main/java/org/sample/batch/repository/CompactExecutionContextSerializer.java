@@ -0,0 +1,250 @@
+package org.sample.batch.repository;
+
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary {@link ExecutionContextSerializer}.
+ * <p>
+ * Strings, numbers, booleans, dates and {@link Counters} are written as tagged binary values (longs and sizes with
+ * a variable length), other values are Java-serialized. The job repository stores the contexts as strings: the
+ * binary payload is written in Base64, after the printable prefix {@value #PREFIX}. The contexts written by the
+ * default (JSON) serializer are still read, so the serializer can be switched on an existing job repository.
+ * </p>
+ */
+public class CompactExecutionContextSerializer implements ExecutionContextSerializer {
+
+  // never the start of a JSON context
+  private static final String PREFIX = "ctx:";
+  private static final byte[] PREFIX_BYTES = PREFIX.getBytes(StandardCharsets.US_ASCII);
+  private static final byte VERSION = 1;
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte LONG = 2;
+  private static final byte INTEGER = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte BOOLEAN = 5;
+  private static final byte DATE = 6;
+  private static final byte COUNTERS = 7;
+  private static final byte OBJECT = 8;
+
+  private final ExecutionContextSerializer fallback = new Jackson2ExecutionContextStringSerializer();
+
+  @Override
+  public void serialize(Map<String, Object> context, OutputStream outputStream) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(payload);
+    out.writeByte(VERSION);
+    writeSize(out, context.size());
+    for (Map.Entry<String, Object> entry : context.entrySet()) {
+      writeString(out, entry.getKey());
+      writeValue(out, entry.getValue());
+    }
+    out.flush();
+    outputStream.write(PREFIX_BYTES);
+    outputStream.write(Base64.getEncoder().encode(payload.toByteArray()));
+    outputStream.flush();
+  }
+
+  @Override
+  public Map<String, Object> deserialize(InputStream inputStream) throws IOException {
+    byte[] serialized = StreamUtils.copyToByteArray(inputStream);
+    if (!startsWithPrefix(serialized)) {
+      return fallback.deserialize(new ByteArrayInputStream(serialized));
+    }
+    byte[] payload;
+    try {
+      payload = Base64.getDecoder().decode(Arrays.copyOfRange(serialized, PREFIX_BYTES.length, serialized.length));
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Malformed execution context", e);
+    }
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported execution context version: " + version);
+    }
+    int size = readSize(in);
+    Map<String, Object> context = new HashMap<>(size * 2);
+    for (int i = 0; i < size; i++) {
+      String key = readString(in);
+      context.put(key, readValue(in));
+    }
+    return context;
+  }
+
+  private static boolean startsWithPrefix(byte[] serialized) {
+    if (serialized.length < PREFIX_BYTES.length) {
+      return false;
+    }
+    for (int i = 0; i < PREFIX_BYTES.length; i++) {
+      if (serialized[i] != PREFIX_BYTES[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeValue(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      writeString(out, (String) value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      writeLong(out, (Long) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value.getClass() == Date.class) {
+      out.writeByte(DATE);
+      out.writeLong(((Date) value).getTime());
+    } else if (value instanceof Counters) {
+      out.writeByte(COUNTERS);
+      writeString(out, value.getClass().getName());
+      Map<String, Long> counters = ((Counters) value).toCounters();
+      writeSize(out, counters.size());
+      for (Map.Entry<String, Long> counter : counters.entrySet()) {
+        writeString(out, counter.getKey());
+        writeLong(out, counter.getValue());
+      }
+    } else if (value instanceof Serializable) {
+      out.writeByte(OBJECT);
+      ObjectOutputStream objectOut = new ObjectOutputStream(out);
+      objectOut.writeObject(value);
+      objectOut.flush();
+    } else {
+      throw new IllegalArgumentException("Value of type " + value.getClass().getName() + " is not serializable");
+    }
+  }
+
+  private static Object readValue(DataInputStream in) throws IOException {
+    byte tag = in.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(in);
+      case LONG:
+        return readLong(in);
+      case INTEGER:
+        return in.readInt();
+      case DOUBLE:
+        return in.readDouble();
+      case BOOLEAN:
+        return in.readBoolean();
+      case DATE:
+        return new Date(in.readLong());
+      case COUNTERS:
+        return readCounters(in);
+      case OBJECT:
+        try {
+          return new ObjectInputStream(in).readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IOException(e);
+        }
+      default:
+        throw new IOException("Unknown value tag: " + tag);
+    }
+  }
+
+  private static Counters readCounters(DataInputStream in) throws IOException {
+    String type = readString(in);
+    int size = readSize(in);
+    Map<String, Long> counters = new HashMap<>(size * 2);
+    for (int i = 0; i < size; i++) {
+      String name = readString(in);
+      counters.put(name, readLong(in));
+    }
+    try {
+      Counters value = Class.forName(type).asSubclass(Counters.class).getDeclaredConstructor().newInstance();
+      value.fromCounters(counters);
+      return value;
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new IOException("Cannot create counters of type " + type, e);
+    }
+  }
+
+  // no 64KB limit as with writeUTF
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeSize(out, bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[readSize(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // counts and positions are small: zigzag encoded on 7 bits per byte
+  private static void writeLong(DataOutputStream out, long value) throws IOException {
+    long zigzag = (value << 1) ^ (value >> 63);
+    while ((zigzag & ~0x7FL) != 0) {
+      out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+      zigzag >>>= 7;
+    }
+    out.writeByte((int) zigzag);
+  }
+
+  private static long readLong(DataInputStream in) throws IOException {
+    long zigzag = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      zigzag |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+      }
+    }
+    throw new IOException("Malformed long");
+  }
+
+  // sizes are written on 7 bits per byte, one byte for most of them
+  private static void writeSize(DataOutputStream out, int size) throws IOException {
+    int value = size;
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readSize(DataInputStream in) throws IOException {
+    int size = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.readUnsignedByte();
+      size |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return size;
+      }
+    }
+    throw new IOException("Malformed size");
+  }
+
+}
@@ -0,0 +1,16 @@
+package org.sample.batch.repository;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Execution context value made of named long counters, written as such by the
+ * {@link CompactExecutionContextSerializer} instead of being Java-serialized.
+ * Implementations must have a public no-arg constructor.
+ */
+public interface Counters extends Serializable {
+
+  Map<String, Long> toCounters();
+
+  void fromCounters(Map<String, Long> counters);
+}
@@ -0,0 +1,88 @@
+package org.sample.batch.service.index;
+
+import org.sample.batch.service.NationalService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * National identifiers looked up in a local {@link NationalIndex}.
+ * <p>
+ * Before each job, the index is reloaded if the file has been replaced (by the {@link NationalIndexBuilder}).
+ * The lookups in progress complete with the previous index, its mapping is released by the garbage collector.
+ * If the new file cannot be opened, the previous index is kept.
+ * </p>
+ */
+public class MappedNationalService implements NationalService, JobExecutionListener {
+
+  private static final Logger log = LoggerFactory.getLogger(MappedNationalService.class);
+
+  private final Path file;
+  private volatile NationalIndex index;
+  private volatile List<Object> version;
+
+  public MappedNationalService(Path file) {
+    this.file = file;
+    try {
+      this.version = version(file);
+      this.index = NationalIndex.open(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open the national index " + file, e);
+    }
+    log.info("{} loaded", index);
+  }
+
+  @Override
+  public Optional<String> findNationalIdentifier(String firstName, String lastName) {
+    return index.find(firstName, lastName);
+  }
+
+  /**
+   * Swaps the index if the file has changed.
+   *
+   * @return true if a new index is loaded
+   */
+  public synchronized boolean reloadIfChanged() {
+    try {
+      List<Object> current = version(file);
+      if (current.equals(version)) {
+        return false;
+      }
+      index = NationalIndex.open(file);
+      version = current;
+      log.info("{} reloaded", index);
+      return true;
+    } catch (IOException e) {
+      log.error("Cannot reload the national index {}, keeping the previous one", file, e);
+      return false;
+    }
+  }
+
+  private static List<Object> version(Path file) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    return Arrays.asList(attributes.fileKey(), attributes.lastModifiedTime(), attributes.size());
+  }
+
+  public int size() {
+    return index.size();
+  }
+
+  @Override
+  public void beforeJob(JobExecution jobExecution) {
+    reloadIfChanged();
+  }
+
+  @Override
+  public void afterJob(JobExecution jobExecution) {
+  }
+}
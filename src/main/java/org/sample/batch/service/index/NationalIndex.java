@@ -0,0 +1,197 @@
+package org.sample.batch.service.index;
+
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Read-only index of the national identifiers by name, memory-mapped: the index is not loaded on the heap and its
+ * pages are shared by the threads and by the JVMs reading the same file.
+ * <p>
+ * File layout (built by {@link NationalIndexBuilder}), big endian:
+ * <ul>
+ * <li>header: magic, version, bucket bits, chunk bits (ints), entry count, entries offset, data offset (longs)</li>
+ * <li>buckets: 2^bucketBits + 1 ints, the first entry of each bucket (top bits of the hash)</li>
+ * <li>entries: (hash, data offset) longs, sorted by unsigned hash then by offset</li>
+ * <li>data: records (key length, key, value length, value), UTF-8 with unsigned short lengths; a record never
+ * crosses a 2^chunkBits boundary, so the data can be mapped in chunks</li>
+ * </ul>
+ * A lookup hashes the normalized name, then binary searches the entries of its bucket (a few dozen entries) and
+ * compares the keys with the same hash. Thread-safe.
+ * </p>
+ */
+public class NationalIndex {
+
+  static final int MAGIC = 0x4E494458;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 40;
+  static final int ENTRY_SIZE = 16;
+
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+  private static final Pattern SPACES = Pattern.compile("\\s+");
+
+  private final Path file;
+  private final int bucketBits;
+  private final int chunkBits;
+  private final int count;
+  private final int[] buckets;
+  private final ByteBuffer entries;
+  private final ByteBuffer[] chunks;
+
+  private NationalIndex(Path file, int bucketBits, int chunkBits, int count, int[] buckets, ByteBuffer entries,
+                        ByteBuffer[] chunks) {
+    this.file = file;
+    this.bucketBits = bucketBits;
+    this.chunkBits = chunkBits;
+    this.count = count;
+    this.buckets = buckets;
+    this.entries = entries;
+    this.chunks = chunks;
+  }
+
+  /**
+   * Maps an index file. The mapping stays valid after the file has been replaced (renamed over), the file must not
+   * be rewritten in place.
+   */
+  public static NationalIndex open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_SIZE) {
+        throw new IOException(file + " is not a national index");
+      }
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      if (header.getInt(0) != MAGIC) {
+        throw new IOException(file + " is not a national index");
+      }
+      if (header.getInt(4) != VERSION) {
+        throw new IOException("Unsupported version " + header.getInt(4) + " of " + file);
+      }
+      int bucketBits = header.getInt(8);
+      int chunkBits = header.getInt(12);
+      long count = header.getLong(16);
+      long entriesOffset = header.getLong(24);
+      long dataOffset = header.getLong(32);
+
+      // small enough to be read on the heap
+      int[] buckets = new int[(1 << bucketBits) + 1];
+      channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, buckets.length * 4L).asIntBuffer().get(buckets);
+      ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, entriesOffset, count * ENTRY_SIZE);
+
+      long dataSize = channel.size() - dataOffset;
+      long chunkSize = 1L << chunkBits;
+      ByteBuffer[] chunks = new ByteBuffer[(int) ((dataSize + chunkSize - 1) / chunkSize)];
+      for (int i = 0; i < chunks.length; i++) {
+        long position = i * chunkSize;
+        chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + position,
+          Math.min(chunkSize, dataSize - position));
+      }
+      return new NationalIndex(file, bucketBits, chunkBits, (int) count, buckets, entries, chunks);
+    }
+  }
+
+  public Optional<String> find(String firstName, String lastName) {
+    byte[] key = key(firstName, lastName);
+    long hash = hash(key);
+    int bucket = bucket(hash, bucketBits);
+    int low = buckets[bucket];
+    int high = buckets[bucket + 1];
+    // first entry with this hash
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (Long.compareUnsigned(entries.getLong(middle * ENTRY_SIZE), hash) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    for (int i = low; i < buckets[bucket + 1] && entries.getLong(i * ENTRY_SIZE) == hash; i++) {
+      Optional<String> value = valueIfKey(entries.getLong(i * ENTRY_SIZE + 8), key);
+      if (value.isPresent()) {
+        return value;
+      }
+    }
+    return Optional.empty();
+  }
+
+  private Optional<String> valueIfKey(long offset, byte[] key) {
+    ByteBuffer chunk = chunks[(int) (offset >>> chunkBits)];
+    int position = (int) (offset & ((1L << chunkBits) - 1));
+    int keyLength = Short.toUnsignedInt(chunk.getShort(position));
+    if (keyLength != key.length) {
+      return Optional.empty();
+    }
+    position += 2;
+    for (int i = 0; i < keyLength; i++) {
+      if (chunk.get(position + i) != key[i]) {
+        return Optional.empty();
+      }
+    }
+    position += keyLength;
+    byte[] value = new byte[Short.toUnsignedInt(chunk.getShort(position))];
+    for (int i = 0; i < value.length; i++) {
+      value[i] = chunk.get(position + 2 + i);
+    }
+    return Optional.of(new String(value, StandardCharsets.UTF_8));
+  }
+
+  public int size() {
+    return count;
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * The indexed key: case, accents and spaces of the names are ignored.
+   */
+  static byte[] key(String firstName, String lastName) {
+    return (normalize(firstName) + '\u001F' + normalize(lastName)).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String normalize(String name) {
+    if (name == null) {
+      return "";
+    }
+    String unaccented = isAscii(name)
+      ? name
+      : MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+    String trimmed = unaccented.trim();
+    if (trimmed.indexOf(' ') >= 0 || trimmed.indexOf('\t') >= 0) {
+      trimmed = SPACES.matcher(trimmed).replaceAll(" ");
+    }
+    return trimmed.toLowerCase(Locale.ROOT);
+  }
+
+  private static boolean isAscii(String name) {
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static long hash(byte[] key) {
+    return Hashing.murmur3_128().hashBytes(key).asLong();
+  }
+
+  static int bucket(long hash, int bucketBits) {
+    return bucketBits == 0 ? 0 : (int) (hash >>> (64 - bucketBits));
+  }
+
+  @Override
+  public String toString() {
+    return "NationalIndex{file=" + file + ", entries=" + count + ", buckets=" + (buckets.length - 1)
+      + ", chunks=" + chunks.length + '}';
+  }
+}
@@ -0,0 +1,236 @@
+package org.sample.batch.service.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Builds a {@link NationalIndex} from a reference extract: a CSV file with a header line and the columns
+ * firstName;lastName;nationalId.
+ * <p>
+ * The index is written to a temporary file, then renamed: the readers see the previous index or the new one.
+ * The entries are sorted in memory (16 bytes per row), the records are written to a temporary file.
+ * When a name appears several times, the first identifier of the extract is found.
+ * </p>
+ * Usage: {@code NationalIndexBuilder <extract.csv> <index file>}.
+ */
+public class NationalIndexBuilder {
+
+  private static final Logger log = LoggerFactory.getLogger(NationalIndexBuilder.class);
+
+  private static final String DELIMITER = ";";
+  private static final int DEFAULT_CHUNK_BITS = 30;
+  /**
+   * Average number of entries per bucket.
+   */
+  private static final int BUCKET_ENTRIES = 16;
+
+  private final int chunkBits;
+
+  public NationalIndexBuilder() {
+    this(DEFAULT_CHUNK_BITS);
+  }
+
+  /**
+   * @param chunkBits the data is mapped in chunks of 2^chunkBits bytes (1 GB by default)
+   */
+  public NationalIndexBuilder(int chunkBits) {
+    this.chunkBits = chunkBits;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: NationalIndexBuilder <extract.csv> <index file>");
+      System.exit(1);
+    }
+    new NationalIndexBuilder().build(Paths.get(args[0]), Paths.get(args[1]));
+  }
+
+  /**
+   * @return the number of indexed rows
+   */
+  public int build(Path extract, Path indexFile) throws IOException {
+    long start = System.currentTimeMillis();
+    Path dataFile = Files.createTempFile(indexFile.toAbsolutePath().getParent(), indexFile.getFileName().toString(), ".data");
+    Path tempFile = Paths.get(indexFile + ".tmp");
+    try {
+      Entries entries = writeData(extract, dataFile);
+      entries.sort();
+      writeIndex(entries, dataFile, tempFile);
+      Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      log.info("{} built from {}: {} entries, {} rows rejected, in {} ms", indexFile, extract, entries.size,
+        entries.rejected, System.currentTimeMillis() - start);
+      return entries.size;
+    } finally {
+      Files.deleteIfExists(dataFile);
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  private Entries writeData(Path extract, Path dataFile) throws IOException {
+    Entries entries = new Entries();
+    long chunkSize = 1L << chunkBits;
+    try (BufferedReader reader = Files.newBufferedReader(extract, StandardCharsets.UTF_8);
+         DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dataFile)))) {
+      long position = 0;
+      // header
+      String line = reader.readLine();
+      while ((line = reader.readLine()) != null) {
+        String[] columns = line.split(DELIMITER, -1);
+        if (columns.length != 3 || columns[2].trim().isEmpty()) {
+          entries.rejected++;
+          continue;
+        }
+        byte[] key = NationalIndex.key(columns[0], columns[1]);
+        byte[] value = columns[2].trim().getBytes(StandardCharsets.UTF_8);
+        int recordSize = 2 + key.length + 2 + value.length;
+        if (key.length > 0xFFFF || value.length > 0xFFFF || recordSize > chunkSize) {
+          entries.rejected++;
+          continue;
+        }
+        // a record does not cross a chunk boundary
+        long remaining = chunkSize - (position & (chunkSize - 1));
+        if (recordSize > remaining) {
+          data.write(new byte[(int) remaining]);
+          position += remaining;
+        }
+        entries.add(NationalIndex.hash(key), position);
+        data.writeShort(key.length);
+        data.write(key);
+        data.writeShort(value.length);
+        data.write(value);
+        position += recordSize;
+      }
+    }
+    return entries;
+  }
+
+  private void writeIndex(Entries entries, Path dataFile, Path tempFile) throws IOException {
+    int bucketBits = 0;
+    while (bucketBits < 24 && (entries.size >>> bucketBits) > BUCKET_ENTRIES) {
+      bucketBits++;
+    }
+    int[] buckets = new int[(1 << bucketBits) + 1];
+    for (int i = 0; i < entries.size; i++) {
+      buckets[NationalIndex.bucket(entries.hashes[i], bucketBits) + 1]++;
+    }
+    for (int i = 1; i < buckets.length; i++) {
+      buckets[i] += buckets[i - 1];
+    }
+    long entriesOffset = NationalIndex.HEADER_SIZE + buckets.length * 4L;
+    entriesOffset = (entriesOffset + 7) & ~7L;
+    long dataOffset = entriesOffset + (long) entries.size * NationalIndex.ENTRY_SIZE;
+
+    try (OutputStream file = Files.newOutputStream(tempFile);
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+      out.writeInt(NationalIndex.MAGIC);
+      out.writeInt(NationalIndex.VERSION);
+      out.writeInt(bucketBits);
+      out.writeInt(chunkBits);
+      out.writeLong(entries.size);
+      out.writeLong(entriesOffset);
+      out.writeLong(dataOffset);
+      for (int bucket : buckets) {
+        out.writeInt(bucket);
+      }
+      while (out.size() < entriesOffset) {
+        out.writeByte(0);
+      }
+      for (int i = 0; i < entries.size; i++) {
+        out.writeLong(entries.hashes[i]);
+        out.writeLong(entries.offsets[i]);
+      }
+      Files.copy(dataFile, out);
+    }
+  }
+
+  /**
+   * (hash, data offset) pairs, in primitive arrays.
+   */
+  private static class Entries {
+    private long[] hashes = new long[1024];
+    private long[] offsets = new long[1024];
+    private int size;
+    private long rejected;
+
+    void add(long hash, long offset) {
+      if (size == hashes.length) {
+        if (size == Integer.MAX_VALUE / NationalIndex.ENTRY_SIZE) {
+          throw new IllegalStateException("Too many entries");
+        }
+        int capacity = (int) Math.min((long) size * 2, Integer.MAX_VALUE / NationalIndex.ENTRY_SIZE);
+        hashes = Arrays.copyOf(hashes, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+      }
+      hashes[size] = hash;
+      offsets[size] = offset;
+      size++;
+    }
+
+    /**
+     * Sorts by unsigned hash, then by offset (the extract order).
+     */
+    void sort() {
+      quickSort(0, size - 1);
+    }
+
+    private void quickSort(int low, int high) {
+      while (high - low > 16) {
+        int middle = (low + high) >>> 1;
+        long pivotHash = hashes[middle];
+        long pivotOffset = offsets[middle];
+        int i = low;
+        int j = high;
+        while (i <= j) {
+          while (compare(i, pivotHash, pivotOffset) < 0) {
+            i++;
+          }
+          while (compare(j, pivotHash, pivotOffset) > 0) {
+            j--;
+          }
+          if (i <= j) {
+            swap(i++, j--);
+          }
+        }
+        // recurse on the smaller part
+        if (j - low < high - i) {
+          quickSort(low, j);
+          low = i;
+        } else {
+          quickSort(i, high);
+          high = j;
+        }
+      }
+      for (int i = low + 1; i <= high; i++) {
+        for (int j = i; j > low && compare(j - 1, hashes[j], offsets[j]) > 0; j--) {
+          swap(j - 1, j);
+        }
+      }
+    }
+
+    private int compare(int index, long hash, long offset) {
+      int comparison = Long.compareUnsigned(hashes[index], hash);
+      return comparison != 0 ? comparison : Long.compare(offsets[index], offset);
+    }
+
+    private void swap(int i, int j) {
+      long hash = hashes[i];
+      hashes[i] = hashes[j];
+      hashes[j] = hash;
+      long offset = offsets[i];
+      offsets[i] = offsets[j];
+      offsets[j] = offset;
+    }
+  }
+}
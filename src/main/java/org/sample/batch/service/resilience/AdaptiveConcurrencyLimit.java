@@ -0,0 +1,113 @@
+package org.sample.batch.service.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limit adjusted from the observed latency (AIMD, with a Vegas-like latency gradient).
+ * <p>
+ * The limit grows by one when the calls are as fast as the best observed latency and the limit is used, and is
+ * multiplied by the backoff ratio when a call is dropped (error, timeout) or when its latency exceeds the best one by
+ * the tolerance factor: the registry is queueing, adding threads would only make it slower.
+ * </p>
+ * <p>
+ * The best latency is slowly forgotten so that the limit follows a registry that becomes durably slower.
+ * </p>
+ */
+public class AdaptiveConcurrencyLimit {
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double backoffRatio;
+  private final double tolerance;
+
+  private double limit;
+  private int inFlight;
+  private long minRttNanos = Long.MAX_VALUE;
+  private long samples;
+
+  public AdaptiveConcurrencyLimit(int minLimit, int initialLimit, int maxLimit) {
+    this(minLimit, initialLimit, maxLimit, 0.9, 2.0);
+  }
+
+  public AdaptiveConcurrencyLimit(int minLimit, int initialLimit, int maxLimit, double backoffRatio, double tolerance) {
+    if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+      throw new IllegalArgumentException("expected 1 <= minLimit <= initialLimit <= maxLimit");
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = initialLimit;
+    this.backoffRatio = backoffRatio;
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Waits for a slot.
+   *
+   * @return false if no slot has been available during the timeout
+   */
+  public synchronized boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+    long remaining = unit.toNanos(timeout);
+    long deadline = System.nanoTime() + remaining;
+    while (inFlight >= (int) limit) {
+      if (remaining <= 0) {
+        return false;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      remaining = deadline - System.nanoTime();
+    }
+    inFlight++;
+    return true;
+  }
+
+  /**
+   * Takes a slot if one is free, without waiting.
+   */
+  public synchronized boolean tryAcquire() {
+    if (inFlight >= (int) limit) {
+      return false;
+    }
+    inFlight++;
+    return true;
+  }
+
+  /**
+   * Releases a slot and adjusts the limit.
+   *
+   * @param rttNanos latency of the call
+   * @param dropped  true if the call failed or timed out
+   */
+  public synchronized void release(long rttNanos, boolean dropped) {
+    boolean saturated = inFlight >= (int) limit;
+    inFlight--;
+    samples++;
+    if (!dropped) {
+      // forget the best latency by 1% every 100 samples
+      if (samples % 100 == 0 && minRttNanos != Long.MAX_VALUE) {
+        minRttNanos += minRttNanos / 100 + 1;
+      }
+      minRttNanos = Math.min(minRttNanos, rttNanos);
+    }
+    if (dropped || rttNanos > minRttNanos * tolerance) {
+      limit = Math.max(minLimit, limit * backoffRatio);
+    } else if (saturated) {
+      limit = Math.min(maxLimit, limit + 1);
+    }
+    notifyAll();
+  }
+
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  public synchronized long getMinRttNanos() {
+    return minRttNanos;
+  }
+}
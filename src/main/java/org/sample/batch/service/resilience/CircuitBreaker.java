@@ -0,0 +1,68 @@
+package org.sample.batch.service.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calling a failing service.
+ * <p>
+ * The circuit opens after {@code failureThreshold} consecutive failures. While open, no call is allowed. After the open
+ * duration a single trial call is allowed (half open): its success closes the circuit, its failure opens it again.
+ * </p>
+ */
+public class CircuitBreaker {
+
+  public enum State {CLOSED, OPEN, HALF_OPEN}
+
+  private final int failureThreshold;
+  private final long openNanos;
+
+  private State state = State.CLOSED;
+  private int failures;
+  private long openedAt;
+  private boolean trialInProgress;
+
+  public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+    this.failureThreshold = failureThreshold;
+    this.openNanos = unit.toNanos(openDuration);
+  }
+
+  public synchronized boolean allowRequest() {
+    switch (state) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        if (System.nanoTime() - openedAt < openNanos) {
+          return false;
+        }
+        state = State.HALF_OPEN;
+        trialInProgress = true;
+        return true;
+      default:
+        // half open: one trial at a time
+        if (trialInProgress) {
+          return false;
+        }
+        trialInProgress = true;
+        return true;
+    }
+  }
+
+  public synchronized void onSuccess() {
+    failures = 0;
+    trialInProgress = false;
+    state = State.CLOSED;
+  }
+
+  public synchronized void onFailure() {
+    trialInProgress = false;
+    failures++;
+    if (state == State.HALF_OPEN || failures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = System.nanoTime();
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+}
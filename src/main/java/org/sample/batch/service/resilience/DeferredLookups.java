@@ -0,0 +1,52 @@
+package org.sample.batch.service.resilience;
+
+import java.util.function.Consumer;
+
+/**
+ * Lookups not done because the service was unavailable, to be done by a later enrichment pass
+ * ({@link EnrichmentTasklet}).
+ */
+public interface DeferredLookups {
+
+  void defer(String firstName, String lastName);
+
+  /**
+   * Removes at most {@code max} lookups, the oldest first, and gives them to the enrichment pass. The lookups deferred
+   * again by the consumer are not drained by this call.
+   *
+   * @return the number of lookups drained
+   */
+  int drainTo(Consumer<Lookup> consumer, int max);
+
+  default int drainTo(Consumer<Lookup> consumer) {
+    return drainTo(consumer, Integer.MAX_VALUE);
+  }
+
+  int size();
+
+  class Lookup {
+    private final String firstName;
+    private final String lastName;
+
+    public Lookup(String firstName, String lastName) {
+      this.firstName = firstName;
+      this.lastName = lastName;
+    }
+
+    public String getFirstName() {
+      return firstName;
+    }
+
+    public String getLastName() {
+      return lastName;
+    }
+
+    @Override
+    public String toString() {
+      return "Lookup{" +
+        "firstName='" + firstName + '\'' +
+        ", lastName='" + lastName + '\'' +
+        '}';
+    }
+  }
+}
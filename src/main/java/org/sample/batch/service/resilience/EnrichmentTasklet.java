@@ -0,0 +1,78 @@
+package org.sample.batch.service.resilience;
+
+import org.sample.batch.service.NationalService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Optional;
+
+/**
+ * Enrichment pass of the {@link DeferredLookups}: the national identifiers not looked up while the registry was
+ * unavailable are looked up again and set on the stored persons with these names ({@code people.national_id}).
+ * <p>
+ * The lookups deferred when the step starts are drained by {@code batchSize}, one transaction each. A lookup deferred
+ * again (the registry is still unavailable) is left for the next pass. The read count of the step is the number of
+ * lookups drained, its write count the number of persons updated.
+ * </p>
+ */
+public class EnrichmentTasklet implements Tasklet {
+
+  private static final Logger log = LoggerFactory.getLogger(EnrichmentTasklet.class);
+
+  public static final String REMAINING_KEY = "enrichment.remaining";
+
+  private static final String UPDATE =
+    "UPDATE people SET national_id = ? WHERE first_name = ? AND last_name = ? AND national_id IS NULL";
+
+  private final DeferredLookups deferredLookups;
+  private final NationalService nationalService;
+  private final JdbcTemplate jdbcTemplate;
+  private int batchSize = 100;
+
+  public EnrichmentTasklet(DeferredLookups deferredLookups, NationalService nationalService, DataSource dataSource) {
+    this.deferredLookups = deferredLookups;
+    this.nationalService = nationalService;
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+    StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+    ExecutionContext executionContext = stepExecution.getExecutionContext();
+    if (!executionContext.containsKey(REMAINING_KEY)) {
+      // not the lookups deferred again by this pass
+      executionContext.putInt(REMAINING_KEY, deferredLookups.size());
+    }
+    int remaining = executionContext.getInt(REMAINING_KEY);
+    int drained = deferredLookups.drainTo(lookup -> {
+      contribution.incrementReadCount();
+      Optional<String> identifier =
+        nationalService.findNationalIdentifier(lookup.getFirstName(), lookup.getLastName());
+      if (identifier.isPresent()) {
+        contribution.incrementWriteCount(
+          jdbcTemplate.update(UPDATE, identifier.get(), lookup.getFirstName(), lookup.getLastName()));
+      }
+    }, Math.min(batchSize, remaining));
+    remaining -= drained;
+    executionContext.putInt(REMAINING_KEY, remaining);
+    if (remaining > 0 && drained > 0) {
+      return RepeatStatus.CONTINUABLE;
+    }
+    log.info("Enrichment: {} persons updated from {} deferred lookups, {} lookups deferred",
+      stepExecution.getWriteCount() + contribution.getWriteCount(),
+      stepExecution.getReadCount() + contribution.getReadCount(), deferredLookups.size());
+    return RepeatStatus.FINISHED;
+  }
+}
@@ -0,0 +1,61 @@
+package org.sample.batch.service.resilience;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Deferred lookups stored in the table {@code national_deferred_lookup} of the job database: they are kept until an
+ * enrichment pass drains them, by this job or a later one.
+ * <p>
+ * A lookup is stored once while it is not drained. Deferred in a chunk transaction, it is rolled back with the chunk.
+ * </p>
+ */
+public class JdbcDeferredLookups implements DeferredLookups {
+
+  private static final String INSERT = "INSERT INTO national_deferred_lookup (first_name, last_name) " +
+    "SELECT CAST(? AS VARCHAR(20)), CAST(? AS VARCHAR(20)) FROM (VALUES (0)) WHERE NOT EXISTS " +
+    "(SELECT 1 FROM national_deferred_lookup WHERE first_name = ? AND last_name = ?)";
+  private static final String SELECT_OLDEST =
+    "SELECT lookup_id, first_name, last_name FROM national_deferred_lookup ORDER BY lookup_id LIMIT ?";
+  private static final String DELETE = "DELETE FROM national_deferred_lookup WHERE lookup_id = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public JdbcDeferredLookups(DataSource dataSource) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  @Override
+  public void defer(String firstName, String lastName) {
+    jdbcTemplate.update(INSERT, firstName, lastName, firstName, lastName);
+  }
+
+  @Override
+  public int drainTo(Consumer<Lookup> consumer, int max) {
+    // read before the consumer defers again
+    List<StoredLookup> lookups = jdbcTemplate.query(SELECT_OLDEST,
+      (rs, rowNum) -> new StoredLookup(rs.getLong(1), rs.getString(2), rs.getString(3)), max);
+    for (StoredLookup lookup : lookups) {
+      jdbcTemplate.update(DELETE, lookup.id);
+      consumer.accept(lookup);
+    }
+    return lookups.size();
+  }
+
+  @Override
+  public int size() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM national_deferred_lookup", Integer.class);
+  }
+
+  private static class StoredLookup extends Lookup {
+    private final long id;
+
+    private StoredLookup(long id, String firstName, String lastName) {
+      super(firstName, lastName);
+      this.id = id;
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package org.sample.batch.service.resilience;
+
+import java.util.Arrays;
+
+/**
+ * Percentile of the latest latencies.
+ * <p>
+ * Samples are kept in a ring buffer, the percentile is recomputed (sort of a copy) every {@code refreshEvery} samples
+ * so that reading it is cheap.
+ * </p>
+ */
+public class LatencyPercentile {
+
+  private final double percentile;
+  private final long[] samples;
+  private final int refreshEvery;
+  private long count;
+  private volatile long valueNanos;
+
+  public LatencyPercentile(double percentile, int size, int refreshEvery, long initialValueNanos) {
+    this.percentile = percentile;
+    this.samples = new long[size];
+    this.refreshEvery = refreshEvery;
+    this.valueNanos = initialValueNanos;
+  }
+
+  public synchronized void record(long latencyNanos) {
+    samples[(int) (count % samples.length)] = latencyNanos;
+    count++;
+    if (count % refreshEvery == 0) {
+      int size = (int) Math.min(count, samples.length);
+      long[] sorted = Arrays.copyOf(samples, size);
+      Arrays.sort(sorted);
+      valueNanos = sorted[Math.min(size - 1, (int) Math.ceil(percentile * size) - 1)];
+    }
+  }
+
+  public long getValueNanos() {
+    return valueNanos;
+  }
+}
@@ -0,0 +1,56 @@
+package org.sample.batch.service.resilience;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Deferred lookups kept in memory, lost when the JVM exits.
+ * <p>Bounded: when full, the new lookups are only counted as lost.</p>
+ */
+public class MemoryDeferredLookups implements DeferredLookups {
+
+  private final int capacity;
+  private final Queue<Lookup> lookups = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong lost = new AtomicLong();
+
+  public MemoryDeferredLookups(int capacity) {
+    this.capacity = capacity;
+  }
+
+  @Override
+  public void defer(String firstName, String lastName) {
+    if (size.incrementAndGet() > capacity) {
+      size.decrementAndGet();
+      lost.incrementAndGet();
+      return;
+    }
+    lookups.add(new Lookup(firstName, lastName));
+  }
+
+  @Override
+  public int drainTo(Consumer<Lookup> consumer, int max) {
+    // not the lookups deferred again by the consumer
+    int count = Math.min(max, size.get());
+    int drained = 0;
+    Lookup lookup;
+    while (drained < count && (lookup = lookups.poll()) != null) {
+      size.decrementAndGet();
+      consumer.accept(lookup);
+      drained++;
+    }
+    return drained;
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  public long getLost() {
+    return lost.get();
+  }
+}
@@ -0,0 +1,211 @@
+package org.sample.batch.service.resilience;
+
+import org.sample.batch.service.NationalService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side protection of a remote {@link NationalService}.
+ * <ul>
+ * <li>the number of concurrent calls follows an {@link AdaptiveConcurrencyLimit}: partition threads wait for a slot
+ * instead of overloading the registry. A call holds its slot until the registry answers, even when its caller has
+ * stopped waiting for it,</li>
+ * <li>a call slower than the observed p95 latency is hedged if a slot is free: a duplicate request is sent and the
+ * first response wins (hedges are limited to a fraction of the calls),</li>
+ * <li>a {@link CircuitBreaker} stops calling a failing registry, the lookups are then recorded in
+ * {@link DeferredLookups} for a later enrichment pass and an empty identifier is returned.</li>
+ * </ul>
+ */
+public class ResilientNationalService implements NationalService, AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(ResilientNationalService.class);
+
+  private final NationalService delegate;
+  private final AdaptiveConcurrencyLimit limit;
+  private final CircuitBreaker circuitBreaker;
+  private final DeferredLookups deferredLookups;
+  private final LatencyPercentile p95;
+  private final ExecutorService executor;
+
+  private long callTimeoutNanos = TimeUnit.SECONDS.toNanos(5);
+  private long minHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(5);
+  private double hedgeBudget = 0.1;
+
+  private final AtomicLong calls = new AtomicLong();
+  private final AtomicLong hedges = new AtomicLong();
+
+  public ResilientNationalService(NationalService delegate, AdaptiveConcurrencyLimit limit,
+                                  CircuitBreaker circuitBreaker, DeferredLookups deferredLookups) {
+    this.delegate = delegate;
+    this.limit = limit;
+    this.circuitBreaker = circuitBreaker;
+    this.deferredLookups = deferredLookups;
+    this.p95 = new LatencyPercentile(0.95, 1024, 64, callTimeoutNanos);
+    // one thread per slot: the calls never wait for a thread
+    this.executor = Executors.newFixedThreadPool(limit.getMaxLimit(), daemonThreads());
+  }
+
+  private static ThreadFactory daemonThreads() {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, "national-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  @Override
+  public Optional<String> findNationalIdentifier(String firstName, String lastName) {
+    if (!circuitBreaker.allowRequest()) {
+      deferredLookups.defer(firstName, lastName);
+      return Optional.empty();
+    }
+    try {
+      if (!limit.acquire(callTimeoutNanos, TimeUnit.NANOSECONDS)) {
+        // not a failure of the registry, but it is too slow to be waited for
+        deferredLookups.defer(firstName, lastName);
+        return Optional.empty();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+
+    try {
+      Optional<String> identifier = hedgedCall(firstName, lastName, System.nanoTime());
+      circuitBreaker.onSuccess();
+      return identifier;
+    } catch (TimeoutException | ExecutionException e) {
+      log.debug("Lookup of {} {} failed, deferred", firstName, lastName, e);
+      circuitBreaker.onFailure();
+      deferredLookups.defer(firstName, lastName);
+      return Optional.empty();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Optional<String> hedgedCall(String firstName, String lastName, long start)
+    throws InterruptedException, ExecutionException, TimeoutException {
+
+    long callNumber = calls.incrementAndGet();
+    CompletableFuture<Optional<String>> primary = call(firstName, lastName);
+    long hedgeDelay = Math.max(minHedgeDelayNanos, p95.getValueNanos());
+    if (hedgeDelay >= callTimeoutNanos) {
+      return primary.get(callTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+    try {
+      return primary.get(hedgeDelay, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException slow) {
+      // the hedge needs its own slot, it is not waited for
+      if (hedges.get() >= callNumber * hedgeBudget || !limit.tryAcquire()) {
+        return primary.get(remaining(start), TimeUnit.NANOSECONDS);
+      }
+      hedges.incrementAndGet();
+      CompletableFuture<Optional<String>> hedge = call(firstName, lastName);
+      return firstSuccess(primary, hedge).get(remaining(start), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Calls the registry in a slot already acquired. The slot is released when the call returns, even if the caller has
+   * given up waiting for it (timeout, the other call of a hedge has answered first).
+   */
+  private CompletableFuture<Optional<String>> call(String firstName, String lastName) {
+    CompletableFuture<Optional<String>> result = new CompletableFuture<>();
+    long start = System.nanoTime();
+    try {
+      executor.execute(() -> {
+        boolean dropped = true;
+        try {
+          result.complete(delegate.findNationalIdentifier(firstName, lastName));
+          dropped = false;
+        } catch (RuntimeException e) {
+          result.completeExceptionally(e);
+        } finally {
+          long latency = System.nanoTime() - start;
+          limit.release(latency, dropped);
+          if (!dropped) {
+            p95.record(latency);
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      limit.release(0, true);
+      throw e;
+    }
+    return result;
+  }
+
+  /**
+   * Completes with the first successful result, or with the last failure if both fail.
+   */
+  private static <T> CompletableFuture<T> firstSuccess(CompletableFuture<T> first, CompletableFuture<T> second) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    AtomicInteger failures = new AtomicInteger();
+    for (CompletableFuture<T> future : Arrays.asList(first, second)) {
+      future.whenComplete((value, error) -> {
+        if (error == null) {
+          result.complete(value);
+        } else if (failures.incrementAndGet() == 2) {
+          result.completeExceptionally(error);
+        }
+      });
+    }
+    return result;
+  }
+
+  private long remaining(long start) {
+    return callTimeoutNanos - (System.nanoTime() - start);
+  }
+
+  public void setCallTimeout(long timeout, TimeUnit unit) {
+    this.callTimeoutNanos = unit.toNanos(timeout);
+  }
+
+  public void setMinHedgeDelay(long delay, TimeUnit unit) {
+    this.minHedgeDelayNanos = unit.toNanos(delay);
+  }
+
+  /**
+   * Maximum fraction of the calls that can be hedged (default 0.1).
+   */
+  public void setHedgeBudget(double hedgeBudget) {
+    this.hedgeBudget = hedgeBudget;
+  }
+
+  public AdaptiveConcurrencyLimit getLimit() {
+    return limit;
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  public DeferredLookups getDeferredLookups() {
+    return deferredLookups;
+  }
+
+  public long getHedgeCount() {
+    return hedges.get();
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,50 @@
+package org.sample.batch.spill;
+
+import org.sample.batch.model.Person;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The fields of a parsed {@link Person}: its columns and line. The source id is not stored, the same content may be
+ * read from files with other names.
+ */
+public class PersonSpillCodec implements SpillCodec<Person> {
+
+  private final String sourceId;
+
+  /**
+   * @param sourceId set on each person read
+   */
+  public PersonSpillCodec(String sourceId) {
+    this.sourceId = sourceId;
+  }
+
+  @Override
+  public void write(Person person, DataOutput out) throws IOException {
+    writeString(person.getFirstName(), out);
+    writeString(person.getLastName(), out);
+    out.writeInt(person.getAge());
+    out.writeLong(person.getSourceLine());
+  }
+
+  @Override
+  public Person read(DataInput in) throws IOException {
+    Person person = new Person(readString(in), readString(in), in.readInt());
+    person.setSourceLine(in.readLong());
+    person.setSourceId(sourceId);
+    return person;
+  }
+
+  private static void writeString(String value, DataOutput out) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+}
@@ -0,0 +1,121 @@
+package org.sample.batch.spill;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A directory of spill files, named by the content hash of their input file, bounded in size: when a spill is
+ * published, the least recently used ones are deleted until the directory fits its maximum size. A spill is used
+ * when its modification time is updated.
+ * <p>
+ * The spills are written under a temporary name and renamed when complete: a spill with its final name is complete.
+ * Several caches may share a directory.
+ * </p>
+ */
+public class SpillCache {
+
+  private static final Logger log = LoggerFactory.getLogger(SpillCache.class);
+
+  static final String SUFFIX = ".spill";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final Path directory;
+  private final long maxBytes;
+
+  /**
+   * @param maxBytes size of the directory, not bounded if 0
+   */
+  public SpillCache(Path directory, long maxBytes) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return the spill of the content, null if none
+   */
+  public Path lookup(String contentHash) {
+    Path spill = directory.resolve(contentHash + SUFFIX);
+    try {
+      Files.setLastModifiedTime(spill, FileTime.fromMillis(System.currentTimeMillis()));
+      return spill;
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @return a new file, to write the spill of the content and then publish it
+   */
+  public Path newTempFile(String contentHash) throws IOException {
+    Files.createDirectories(directory);
+    return Files.createTempFile(directory, contentHash + SUFFIX + ".", TEMP_SUFFIX);
+  }
+
+  public void publish(Path tempFile, String contentHash) throws IOException {
+    Path spill = directory.resolve(contentHash + SUFFIX);
+    Files.move(tempFile, spill, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    evict(spill);
+  }
+
+  private void evict(Path published) throws IOException {
+    if (maxBytes <= 0) {
+      return;
+    }
+    List<Spill> spills = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+        .collect(Collectors.toList())) {
+        try {
+          spills.add(new Spill(file, Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+        } catch (NoSuchFileException e) {
+          // evicted by another cache
+        }
+      }
+    }
+    long size = spills.stream().mapToLong(spill -> spill.size).sum();
+    spills.sort(Comparator.comparingLong(spill -> spill.lastUsed));
+    for (Spill spill : spills) {
+      if (size <= maxBytes) {
+        break;
+      }
+      if (spill.file.equals(published)) {
+        continue;
+      }
+      if (Files.deleteIfExists(spill.file)) {
+        log.info("Evicted the spill {} ({} bytes)", spill.file, spill.size);
+      }
+      size -= spill.size;
+    }
+  }
+
+  private static class Spill {
+    private final Path file;
+    private final long size;
+    private final long lastUsed;
+
+    private Spill(Path file, long size, long lastUsed) {
+      this.file = file;
+      this.size = size;
+      this.lastUsed = lastUsed;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package org.sample.batch.spill;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary form of the items in a spill file.
+ *
+ * @param <T> item type
+ */
+public interface SpillCodec<T> {
+
+  void write(T item, DataOutput out) throws IOException;
+
+  /**
+   * @return the item, as returned by the parsing reader
+   */
+  T read(DataInput in) throws IOException;
+}
@@ -0,0 +1,244 @@
+package org.sample.batch.spill;
+
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.util.ClassUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads the parsed records of an input file from its spill, written by a previous run: the file is not parsed again
+ * when a partition is restarted or a file is imported again. The spill is found by the content hash of the file.
+ * <p>
+ * Without a spill, the file is read by the delegate and its records are written to a new spill, published when the
+ * end of the file is reached. The parse errors are spilled too, with their line: they are thrown again by the
+ * following runs, so the skips and the error file are the same. A partition restarted without spill does not write
+ * one (its first records have not been read).
+ * </p>
+ * <p>
+ * Spill format: a header, then for each record its length, its type (item or parse error) and its content.
+ * The read count is saved under the key of this reader, with {@code hit} (true if read from the spill); the state of
+ * the delegate is not saved, it is positioned from this count.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class SpillingItemReader<T> extends AbstractItemCountingItemStreamItemReader<T> {
+
+  private static final Logger log = LoggerFactory.getLogger(SpillingItemReader.class);
+
+  private static final byte[] MAGIC = "SPIL".getBytes(StandardCharsets.US_ASCII);
+  private static final String READ_COUNT = "read.count";
+  private static final String HIT = "hit";
+  private static final byte ITEM = 0;
+  private static final byte PARSE_ERROR = 1;
+
+  private final AbstractItemCountingItemStreamItemReader<T> delegate;
+  private final Path inputFile;
+  private final SpillCache cache;
+  private final SpillCodec<T> codec;
+  private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+  private final DataOutputStream recordOutput = new DataOutputStream(record);
+
+  private int restartCount;
+  private String contentHash;
+  private DataInputStream spillInput;
+  private Path tempFile;
+  private DataOutputStream spillOutput;
+  private boolean hit;
+
+  /**
+   * @param delegate  parses the input file
+   * @param inputFile read by the delegate
+   */
+  public SpillingItemReader(AbstractItemCountingItemStreamItemReader<T> delegate, Path inputFile, SpillCache cache,
+                            SpillCodec<T> codec) {
+    this.delegate = delegate;
+    this.inputFile = inputFile;
+    this.cache = cache;
+    this.codec = codec;
+    setName(ClassUtils.getShortName(SpillingItemReader.class));
+  }
+
+  /**
+   * @return true if the last opened file has been read from its spill
+   */
+  public boolean isHit() {
+    return hit;
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    restartCount = executionContext.getInt(getExecutionContextKey(READ_COUNT), 0);
+    super.open(executionContext);
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    super.update(executionContext);
+    executionContext.put(getExecutionContextKey(HIT), hit);
+  }
+
+  @Override
+  protected void doOpen() throws Exception {
+    contentHash = com.google.common.io.Files.asByteSource(inputFile.toFile()).hash(Hashing.murmur3_128()).toString();
+    Path spill = cache.lookup(contentHash);
+    if (spill != null) {
+      spillInput = openSpill(spill);
+    }
+    hit = spillInput != null;
+    if (hit) {
+      log.info("Reading {} from the spill {}", inputFile, spill);
+      return;
+    }
+    // positioned without parsing the lines already read
+    delegate.setCurrentItemCount(restartCount);
+    delegate.open(new ExecutionContext());
+    if (restartCount == 0) {
+      tempFile = cache.newTempFile(contentHash);
+      spillOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)));
+      spillOutput.write(MAGIC);
+    }
+  }
+
+  private static DataInputStream openSpill(Path spill) {
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spill)));
+      byte[] magic = new byte[MAGIC.length];
+      in.readFully(magic);
+      if (Arrays.equals(MAGIC, magic)) {
+        return in;
+      }
+      in.close();
+      log.warn("Ignoring the spill {}: not a spill file", spill);
+    } catch (IOException e) {
+      // evicted meanwhile
+      log.warn("Ignoring the spill {}: {}", spill, e.toString());
+    }
+    return null;
+  }
+
+  @Override
+  protected void jumpToItem(int itemIndex) throws Exception {
+    if (spillInput == null) {
+      // the delegate is already positioned
+      return;
+    }
+    for (int idx = 0; idx < itemIndex; idx++) {
+      spillInput.skipBytes(spillInput.readInt());
+    }
+  }
+
+  @Override
+  protected T doRead() throws Exception {
+    return hit ? readSpill() : readInput();
+  }
+
+  private T readSpill() throws IOException {
+    try {
+      spillInput.readInt();
+    } catch (EOFException e) {
+      return null;
+    }
+    if (spillInput.readByte() == ITEM) {
+      return codec.read(spillInput);
+    }
+    int lineNumber = spillInput.readInt();
+    String input = readString(spillInput);
+    throw new FlatFileParseException(readString(spillInput), input, lineNumber);
+  }
+
+  private T readInput() throws Exception {
+    T item;
+    try {
+      item = delegate.read();
+    } catch (FlatFileParseException e) {
+      if (spillOutput != null) {
+        record.reset();
+        recordOutput.writeByte(PARSE_ERROR);
+        recordOutput.writeInt(e.getLineNumber());
+        writeString(e.getInput(), recordOutput);
+        writeString(e.getMessage(), recordOutput);
+        spill();
+      }
+      throw e;
+    } catch (Exception e) {
+      // the spill would not have all the records
+      discardSpill();
+      throw e;
+    }
+    if (spillOutput != null) {
+      if (item == null) {
+        publishSpill();
+      } else {
+        record.reset();
+        recordOutput.writeByte(ITEM);
+        codec.write(item, recordOutput);
+        spill();
+      }
+    }
+    return item;
+  }
+
+  private void spill() throws IOException {
+    spillOutput.writeInt(record.size());
+    record.writeTo(spillOutput);
+  }
+
+  private void publishSpill() throws IOException {
+    spillOutput.close();
+    spillOutput = null;
+    cache.publish(tempFile, contentHash);
+    log.info("Spilled the records of {} to {}", inputFile, cache.getDirectory().resolve(contentHash
+      + SpillCache.SUFFIX));
+    tempFile = null;
+  }
+
+  private void discardSpill() throws IOException {
+    if (spillOutput != null) {
+      spillOutput.close();
+      spillOutput = null;
+      Files.deleteIfExists(tempFile);
+      tempFile = null;
+    }
+  }
+
+  private static void writeString(String value, DataOutputStream out) throws IOException {
+    byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  protected void doClose() throws Exception {
+    // not read to the end
+    discardSpill();
+    if (spillInput != null) {
+      spillInput.close();
+      spillInput = null;
+    } else {
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,356 @@
+package org.sample.batch.stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobInterruptedException;
+import org.springframework.batch.core.SkipListener;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.skip.SkipLimitExceededException;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streaming alternative to a chunk-oriented step: the items flow through a pipeline of three stages with their own
+ * concurrency, and every call to the tasklet commits a window of items.
+ * <ul>
+ * <li>a reader thread parses the file (a flat file is read sequentially)</li>
+ * <li>{@code processConcurrency} threads process the items, in parallel but written in the read order</li>
+ * <li>the step thread writes the processed items of a window and returns: the window is committed by the step,
+ * with the step execution context</li>
+ * </ul>
+ * The stages are linked by a buffer of {@code bufferSize} items: the reader blocks when the processing or the
+ * writing lags behind. A window is closed after {@code windowSize} items or {@code windowTime}, whichever comes first.
+ * <p>
+ * The read and process errors of the skippable exceptions are sent to the skip listener by the step thread, in the
+ * window transaction, up to the skip limit. The write errors fail the step.
+ * The checkpoint is the count of the items read and committed, saved under the read count key of the reader: a
+ * restart reads again the items of the window that was rolled back, not more.
+ * </p>
+ * <p>
+ * The process threads run in the step scope of the step execution that opened the tasklet. The step thread waits for
+ * the first item of a window while the reader thread is alive and the step is not stopped.
+ * </p>
+ *
+ * @param <I> read item type
+ * @param <O> written item type
+ */
+public class StreamingTasklet<I, O> implements Tasklet, ItemStream {
+
+  private static final Logger log = LoggerFactory.getLogger(StreamingTasklet.class);
+
+  private static final String READ_COUNT = "read.count";
+  private static final Future<?> END = CompletableFuture.completedFuture(null);
+  private static final long POLL_MILLIS = 500;
+
+  private final AbstractItemCountingItemStreamItemReader<I> reader;
+  private final ItemProcessor<? super I, ? extends O> processor;
+  private final ItemWriter<? super O> writer;
+  private final String countKey;
+
+  private SkipListener<? super I, ? super O> skipListener;
+  private Collection<Class<? extends Throwable>> skippableExceptions = Collections.emptyList();
+  private int skipLimit;
+  private int processConcurrency = 4;
+  private int bufferSize = 256;
+  private int windowSize = 1000;
+  private long windowNanos = TimeUnit.SECONDS.toNanos(1);
+
+  private BlockingQueue<Future<?>> pipeline;
+  private ExecutorService processExecutor;
+  private Thread readerThread;
+  private StepExecution stepExecution;
+  private volatile boolean closed;
+  private int committed;
+  private int skipped;
+  private boolean exhausted;
+
+  /**
+   * @param reader    read by a dedicated thread, must not be a step scoped proxy
+   * @param processor thread-safe, must not be a step scoped proxy
+   * @param writer    written by the step thread
+   */
+  public StreamingTasklet(AbstractItemCountingItemStreamItemReader<I> reader,
+                          ItemProcessor<? super I, ? extends O> processor, ItemWriter<? super O> writer) {
+    this.reader = reader;
+    this.processor = processor;
+    this.writer = writer;
+    this.countKey = reader.getExecutionContextKey(READ_COUNT);
+  }
+
+  /**
+   * Notified of the skipped items, by the step thread.
+   */
+  public void setSkipListener(SkipListener<? super I, ? super O> skipListener) {
+    this.skipListener = skipListener;
+  }
+
+  public void setSkippableExceptions(Collection<Class<? extends Throwable>> skippableExceptions) {
+    this.skippableExceptions = skippableExceptions;
+  }
+
+  public void setSkipLimit(int skipLimit) {
+    this.skipLimit = skipLimit;
+  }
+
+  public void setProcessConcurrency(int processConcurrency) {
+    this.processConcurrency = processConcurrency;
+  }
+
+  /**
+   * Number of items between the reader and the writer.
+   */
+  public void setBufferSize(int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * A window is committed after {@code size} items or {@code time}, whichever comes first.
+   */
+  public void setWindow(int size, long time, TimeUnit unit) {
+    this.windowSize = size;
+    this.windowNanos = unit.toNanos(time);
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    // the reader skips the committed items
+    reader.open(executionContext);
+    committed = executionContext.getInt(countKey, 0);
+    skipped = executionContext.getInt(getClass().getSimpleName() + ".skip.count", 0);
+    if (writer instanceof ItemStream) {
+      ((ItemStream) writer).open(executionContext);
+    }
+    exhausted = false;
+    closed = false;
+    // opened by the step thread, in the step scope
+    StepContext stepContext = StepSynchronizationManager.getContext();
+    stepExecution = stepContext == null ? null : stepContext.getStepExecution();
+    pipeline = new ArrayBlockingQueue<>(bufferSize);
+    AtomicInteger threadCount = new AtomicInteger();
+    String name = Thread.currentThread().getName();
+    processExecutor = Executors.newFixedThreadPool(processConcurrency, runnable -> {
+      Thread thread = new Thread(runnable, "process-" + name + "-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    readerThread = new Thread(this::read, "read-" + name);
+    readerThread.setDaemon(true);
+    readerThread.start();
+  }
+
+  private void read() {
+    try {
+      while (!closed) {
+        Future<?> result;
+        try {
+          I item = reader.read();
+          if (item == null) {
+            pipeline.put(END);
+            return;
+          }
+          result = CompletableFuture.supplyAsync(() -> process(item), processExecutor);
+        } catch (Exception e) {
+          result = CompletableFuture.completedFuture(new Failure<>(null, e, true));
+        }
+        pipeline.put(result);
+      }
+    } catch (InterruptedException e) {
+      // closed while the pipeline is full
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      // an error of the reader: the step fails when it takes it, or when it finds the reader thread stopped if the
+      // pipeline is full
+      log.error("Reader stopped", e);
+      CompletableFuture<?> failure = new CompletableFuture<>();
+      failure.completeExceptionally(e);
+      pipeline.offer(failure);
+    }
+  }
+
+  private Object process(I item) {
+    if (stepExecution != null) {
+      StepSynchronizationManager.register(stepExecution);
+    }
+    try {
+      return new Processed<>(processor.process(item));
+    } catch (Exception e) {
+      return new Failure<>(item, e, false);
+    } finally {
+      if (stepExecution != null) {
+        // not release(): it would close the step scope of the step thread
+        StepSynchronizationManager.close();
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+    if (exhausted) {
+      return RepeatStatus.FINISHED;
+    }
+    List<O> items = new ArrayList<>();
+    int taken = 0;
+    long deadline = System.nanoTime() + windowNanos;
+    while (taken < windowSize) {
+      long timeout = deadline - System.nanoTime();
+      Future<?> future = taken == 0
+        ? first(chunkContext.getStepContext().getStepExecution())
+        : pipeline.poll(Math.max(0, timeout), TimeUnit.NANOSECONDS);
+      if (future == null) {
+        break;
+      }
+      if (future == END) {
+        exhausted = true;
+        break;
+      }
+      taken++;
+      Object result = get(future);
+      if (result instanceof Failure) {
+        skip((Failure<I>) result, contribution);
+        continue;
+      }
+      contribution.incrementReadCount();
+      O item = ((Processed<O>) result).item;
+      if (item == null) {
+        contribution.incrementFilterCount(1);
+      } else {
+        items.add(item);
+      }
+    }
+    if (!items.isEmpty()) {
+      writer.write(items);
+      contribution.incrementWriteCount(items.size());
+    }
+    committed += taken;
+    return exhausted ? RepeatStatus.FINISHED : RepeatStatus.CONTINUABLE;
+  }
+
+  /**
+   * Waits for the first item of a window, unless the reader thread stopped without the end of the input or the step
+   * is stopped.
+   */
+  private Future<?> first(StepExecution stepExecution) throws Exception {
+    while (true) {
+      Future<?> future = pipeline.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      if (future != null) {
+        return future;
+      }
+      if (closed || stepExecution.isTerminateOnly()) {
+        throw new JobInterruptedException("Step stopped while waiting for the reader");
+      }
+      if (!readerThread.isAlive()) {
+        // the reader may have put its last item just before it stopped
+        future = pipeline.poll();
+        if (future == null) {
+          throw new IllegalStateException("Reader stopped before the end of the input");
+        }
+        return future;
+      }
+    }
+  }
+
+  private static Object get(Future<?> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  private void skip(Failure<I> failure, StepContribution contribution) throws Exception {
+    boolean skippable = skippableExceptions.stream().anyMatch(type -> type.isInstance(failure.exception));
+    if (!skippable) {
+      throw failure.exception;
+    }
+    if (++skipped > skipLimit) {
+      throw new SkipLimitExceededException(skipLimit, failure.exception);
+    }
+    if (failure.read) {
+      contribution.incrementReadSkipCount();
+      if (skipListener != null) {
+        skipListener.onSkipInRead(failure.exception);
+      }
+    } else {
+      contribution.incrementReadCount();
+      contribution.incrementProcessSkipCount();
+      if (skipListener != null) {
+        skipListener.onSkipInProcess(failure.item, failure.exception);
+      }
+    }
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    if (writer instanceof ItemStream) {
+      ((ItemStream) writer).update(executionContext);
+    }
+    // the items taken are committed with this update, the items in the pipeline are not
+    executionContext.putInt(countKey, committed);
+    executionContext.putInt(getClass().getSimpleName() + ".skip.count", skipped);
+  }
+
+  @Override
+  public void close() throws ItemStreamException {
+    closed = true;
+    if (readerThread != null) {
+      readerThread.interrupt();
+      try {
+        readerThread.join(TimeUnit.SECONDS.toMillis(10));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (processExecutor != null) {
+      processExecutor.shutdownNow();
+    }
+    reader.close();
+    if (writer instanceof ItemStream) {
+      ((ItemStream) writer).close();
+    }
+  }
+
+  private static class Processed<O> {
+    private final O item;
+
+    private Processed(O item) {
+      this.item = item;
+    }
+  }
+
+  private static class Failure<I> {
+    private final I item;
+    private final Exception exception;
+    private final boolean read;
+
+    private Failure(I item, Exception exception, boolean read) {
+      this.item = item;
+      this.exception = exception;
+      this.read = read;
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package org.sample.batch.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.function.Predicate;
+
+/**
+ * Cross-field check: the predicate is given the whole bean.
+ * <p>The predicate class must have a no-arg constructor and be thread-safe (one instance per bean type).</p>
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(Checks.class)
+public @interface Check {
+  Class<? extends Predicate<?>> value();
+  String name();
+  String message() default "inconsistent values";
+}
@@ -0,0 +1,18 @@
+package org.sample.batch.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The length of the annotated {@link CharSequence} field must be between {@link #min()} and {@link #max()}.
+ * <p>A null value is valid, combine with {@link Required} if needed.</p>
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Length {
+  int min() default 0;
+  int max() default Integer.MAX_VALUE;
+  String message() default "invalid length";
+}
@@ -0,0 +1,17 @@
+package org.sample.batch.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated {@link CharSequence} field must match the regular expression.
+ * <p>A null value is valid, combine with {@link Required} if needed.</p>
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Pattern {
+  String value();
+  String message() default "invalid format";
+}
@@ -0,0 +1,17 @@
+package org.sample.batch.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated numeric field must be between {@link #min()} and {@link #max()} (inclusive).
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Range {
+  long min() default Long.MIN_VALUE;
+  long max() default Long.MAX_VALUE;
+  String message() default "out of range";
+}
@@ -0,0 +1,254 @@
+package org.sample.batch.validation;
+
+import org.sample.batch.csv.Column;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+
+/**
+ * Validates beans against the constraint annotations of their fields ({@link Required}, {@link Range},
+ * {@link Length}, {@link Pattern}) and type ({@link Check}).
+ * <p>
+ * The annotations are read once per class and compiled into a flat array of predicates. Fields are accessed through
+ * method handles and primitive values are never boxed, so validating a valid bean does not allocate.
+ * </p>
+ * <p>
+ * Warn: does not handle inheritance (same as {@link org.sample.batch.csv.CsvNameExtractor}).
+ * </p>
+ *
+ * @param <T> Bean Type with fields annotated with constraints
+ */
+public final class RuleEngine<T> {
+
+  private static final ClassValue<RuleEngine<?>> ENGINES = new ClassValue<RuleEngine<?>>() {
+    @Override
+    protected RuleEngine<?> computeValue(Class<?> type) {
+      return new RuleEngine<>(type);
+    }
+  };
+
+  private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType LONG_GETTER = MethodType.methodType(long.class, Object.class);
+
+  private final Class<T> type;
+  private final Predicate<Object>[] rules;
+  private final String[] names;
+  private final String[] messages;
+
+  @SuppressWarnings("unchecked")
+  private RuleEngine(Class<T> type) {
+    this.type = type;
+    List<Predicate<Object>> compiledRules = new ArrayList<>();
+    List<String> ruleNames = new ArrayList<>();
+    List<String> ruleMessages = new ArrayList<>();
+
+    Field[] fields = type.getDeclaredFields();
+    Arrays.sort(fields, Comparator.comparingInt(RuleEngine::position));
+    for (Field field : fields) {
+      if (Modifier.isStatic(field.getModifiers())) {
+        continue;
+      }
+      Required required = field.getAnnotation(Required.class);
+      if (required != null) {
+        compiledRules.add(required(objectGetter(field)));
+        ruleNames.add(field.getName());
+        ruleMessages.add(required.message());
+      }
+      Range range = field.getAnnotation(Range.class);
+      if (range != null) {
+        compiledRules.add(range(field, range.min(), range.max()));
+        ruleNames.add(field.getName());
+        ruleMessages.add(range.message());
+      }
+      Length length = field.getAnnotation(Length.class);
+      if (length != null) {
+        compiledRules.add(length(objectGetter(field), length.min(), length.max()));
+        ruleNames.add(field.getName());
+        ruleMessages.add(length.message());
+      }
+      Pattern pattern = field.getAnnotation(Pattern.class);
+      if (pattern != null) {
+        compiledRules.add(pattern(objectGetter(field), pattern.value()));
+        ruleNames.add(field.getName());
+        ruleMessages.add(pattern.message());
+      }
+    }
+    for (Check check : type.getAnnotationsByType(Check.class)) {
+      compiledRules.add(check(check.value()));
+      ruleNames.add(check.name());
+      ruleMessages.add(check.message());
+    }
+
+    this.rules = compiledRules.toArray(new Predicate[0]);
+    this.names = ruleNames.toArray(new String[0]);
+    this.messages = ruleMessages.toArray(new String[0]);
+  }
+
+  /**
+   * Returns the (cached) rule engine of a bean type.
+   *
+   * @param type the bean type
+   * @param <T>  the bean type
+   * @return the rule engine compiled for this type
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> RuleEngine<T> forClass(Class<T> type) {
+    return (RuleEngine<T>) ENGINES.get(type);
+  }
+
+  /**
+   * Evaluates all the rules against the item.
+   *
+   * @param item the bean to validate
+   * @return the violations, an empty (shared) list when the item is valid
+   */
+  public List<Violation> validate(T item) {
+    List<Violation> violations = null;
+    for (int i = 0; i < rules.length; i++) {
+      if (!rules[i].test(item)) {
+        if (violations == null) {
+          violations = new ArrayList<>(2);
+        }
+        violations.add(new Violation(names[i], messages[i]));
+      }
+    }
+    return violations == null ? Collections.emptyList() : violations;
+  }
+
+  public boolean isValid(T item) {
+    for (Predicate<Object> rule : rules) {
+      if (!rule.test(item)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int getRuleCount() {
+    return rules.length;
+  }
+
+  public Class<T> getType() {
+    return type;
+  }
+
+  private static int position(Field field) {
+    Column column = field.getAnnotation(Column.class);
+    return column == null ? Integer.MAX_VALUE : column.position();
+  }
+
+  private static Predicate<Object> required(MethodHandle getter) {
+    return item -> {
+      Object value = get(getter, item);
+      return value != null && !(value instanceof CharSequence && isBlank((CharSequence) value));
+    };
+  }
+
+  private static Predicate<Object> range(Field field, long min, long max) {
+    if (field.getType().isPrimitive()) {
+      MethodHandle getter = longGetter(field);
+      return item -> {
+        long value = getLong(getter, item);
+        return value >= min && value <= max;
+      };
+    }
+    MethodHandle getter = objectGetter(field);
+    return item -> {
+      Object value = get(getter, item);
+      if (value == null) {
+        return true;
+      }
+      if (!(value instanceof Number)) {
+        return false;
+      }
+      long number = ((Number) value).longValue();
+      return number >= min && number <= max;
+    };
+  }
+
+  private static Predicate<Object> length(MethodHandle getter, int min, int max) {
+    return item -> {
+      Object value = get(getter, item);
+      if (value == null) {
+        return true;
+      }
+      int length = ((CharSequence) value).length();
+      return length >= min && length <= max;
+    };
+  }
+
+  private static Predicate<Object> pattern(MethodHandle getter, String regex) {
+    final java.util.regex.Pattern compiled = java.util.regex.Pattern.compile(regex);
+    // one matcher per thread, reset for each value
+    final ThreadLocal<Matcher> matchers = ThreadLocal.withInitial(() -> compiled.matcher(""));
+    return item -> {
+      Object value = get(getter, item);
+      return value == null || matchers.get().reset((CharSequence) value).matches();
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Predicate<Object> check(Class<? extends Predicate<?>> checkType) {
+    try {
+      return (Predicate<Object>) checkType.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot create the check " + checkType.getName(), e);
+    }
+  }
+
+  private static MethodHandle objectGetter(Field field) {
+    return unreflect(field).asType(OBJECT_GETTER);
+  }
+
+  private static MethodHandle longGetter(Field field) {
+    Class<?> fieldType = field.getType();
+    if (fieldType == boolean.class || fieldType == float.class || fieldType == double.class) {
+      throw new IllegalStateException("Range is not supported on " + fieldType + " field: " + field);
+    }
+    return unreflect(field).asType(LONG_GETTER);
+  }
+
+  private static MethodHandle unreflect(Field field) {
+    field.setAccessible(true);
+    try {
+      return MethodHandles.lookup().unreflectGetter(field);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Object get(MethodHandle getter, Object item) {
+    try {
+      return (Object) getter.invokeExact(item);
+    } catch (Throwable t) {
+      throw new IllegalStateException(t);
+    }
+  }
+
+  private static long getLong(MethodHandle getter, Object item) {
+    try {
+      return (long) getter.invokeExact(item);
+    } catch (Throwable t) {
+      throw new IllegalStateException(t);
+    }
+  }
+
+  private static boolean isBlank(CharSequence value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (!Character.isWhitespace(value.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,30 @@
+package org.sample.batch.validation;
+
+import java.io.Serializable;
+
+/**
+ * A failed rule: the field (or check) name and the message of the constraint.
+ */
+public class Violation implements Serializable {
+
+  private final String name;
+  private final String message;
+
+  public Violation(String name, String message) {
+    this.name = name;
+    this.message = message;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public String toString() {
+    return name + ": " + message;
+  }
+}
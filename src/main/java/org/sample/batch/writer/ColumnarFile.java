@@ -0,0 +1,115 @@
+package org.sample.batch.writer;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.DictionaryEncoder;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.apache.arrow.vector.util.Text;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A columnar file written by the {@link ColumnarItemWriter}, read entirely in memory.
+ * <p>
+ * The file is an Arrow IPC stream, read by any Arrow implementation (e.g. {@code pyarrow.ipc.open_stream}): the
+ * schema, then for each row group the dictionaries of the dictionary encoded columns (replacing the ones of the
+ * previous row group) and a record batch, then the end of stream marker.
+ * </p>
+ */
+public final class ColumnarFile {
+
+  public static final byte PLAIN = 0;
+  public static final byte DICTIONARY = 1;
+
+  private final List<String> columnNames;
+  private final List<Integer> rowGroupSizes;
+  private final byte[] encodings;
+  private final List<List<Object>> rows;
+
+  private ColumnarFile(List<String> columnNames, List<Integer> rowGroupSizes, byte[] encodings,
+                       List<List<Object>> rows) {
+    this.columnNames = Collections.unmodifiableList(columnNames);
+    this.rowGroupSizes = Collections.unmodifiableList(rowGroupSizes);
+    this.encodings = encodings;
+    this.rows = Collections.unmodifiableList(rows);
+  }
+
+  public static ColumnarFile read(Path file) throws IOException {
+    try (BufferAllocator allocator = new RootAllocator();
+         ArrowStreamReader reader = new ArrowStreamReader(Files.newInputStream(file), allocator)) {
+      Schema schema = reader.getVectorSchemaRoot().getSchema();
+      int columnCount = schema.getFields().size();
+      List<String> columnNames = new ArrayList<>(columnCount);
+      byte[] encodings = new byte[columnCount];
+      for (int column = 0; column < columnCount; column++) {
+        Field field = schema.getFields().get(column);
+        columnNames.add(field.getName());
+        encodings[column] = field.getDictionary() == null ? PLAIN : DICTIONARY;
+      }
+      List<Integer> rowGroupSizes = new ArrayList<>();
+      List<List<Object>> rows = new ArrayList<>();
+      while (reader.loadNextBatch()) {
+        VectorSchemaRoot root = reader.getVectorSchemaRoot();
+        int firstRow = rows.size();
+        for (int row = 0; row < root.getRowCount(); row++) {
+          rows.add(Arrays.asList(new Object[columnCount]));
+        }
+        for (int column = 0; column < columnCount; column++) {
+          Field field = schema.getFields().get(column);
+          FieldVector vector = root.getVector(column);
+          if (field.getDictionary() == null) {
+            readColumn(vector, rows.subList(firstRow, rows.size()), column);
+          } else {
+            // the dictionary of the row group
+            try (ValueVector decoded = DictionaryEncoder.decode(vector,
+              reader.getDictionaryVectors().get(field.getDictionary().getId()))) {
+              readColumn(decoded, rows.subList(firstRow, rows.size()), column);
+            }
+          }
+        }
+        rowGroupSizes.add(root.getRowCount());
+      }
+      return new ColumnarFile(columnNames, rowGroupSizes, encodings, rows);
+    }
+  }
+
+  private static void readColumn(ValueVector vector, List<List<Object>> rows, int column) {
+    for (int row = 0; row < rows.size(); row++) {
+      Object value = vector.getObject(row);
+      rows.get(row).set(column, value instanceof Text ? value.toString() : value);
+    }
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  public List<Integer> getRowGroupSizes() {
+    return rowGroupSizes;
+  }
+
+  /**
+   * @return {@link #PLAIN} or {@link #DICTIONARY}, the same in all the row groups
+   */
+  public byte getEncoding(String columnName) {
+    return encodings[columnNames.indexOf(columnName)];
+  }
+
+  /**
+   * @return the values of each row, strings or longs, in the column order
+   */
+  public List<List<Object>> getRows() {
+    return rows;
+  }
+}
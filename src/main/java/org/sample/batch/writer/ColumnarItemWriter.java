@@ -0,0 +1,523 @@
+package org.sample.batch.writer;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.VectorUnloader;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.ipc.ReadChannel;
+import org.apache.arrow.vector.ipc.WriteChannel;
+import org.apache.arrow.vector.ipc.message.ArrowDictionaryBatch;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.ipc.message.IpcOption;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.sample.batch.csv.Column;
+import org.sample.batch.csv.ColumnModel;
+import org.sample.batch.memory.MemoryBudget;
+import org.sample.batch.memory.MemoryEstimates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Writes the items to an Arrow IPC stream (a {@link ColumnarFile}), with the {@link Column} fields of the type as
+ * columns: the integers are 64 bits integers, the strings UTF-8, dictionary encoded when their values repeat in the
+ * first row group (names).
+ * <p>
+ * The rows of the chunks are buffered until they reach the row group size, then written as one record batch at the end
+ * of the chunk, after the dictionaries of the batch: a row group has at least this number of rows, but the last one.
+ * The schema is written with the first row group. The file is written under a temporary name, ended and renamed when
+ * the step completes: a file with the final name is always complete.
+ * </p>
+ * <p>
+ * Restart: the rows of the open row group are also appended to a journal, at the end of each chunk (in its
+ * transaction: the rows of a rolled back chunk are discarded). The step context holds the length of the temporary file
+ * and of the journal (keys prefixed by {@value #KEY_PREFIX}); a restarted step truncates them to these lengths and
+ * reads the open row group back from the journal. Two journals are used in turn: the journal of the previous row group
+ * is kept until the context of the chunk that has written the row group is committed.
+ * </p>
+ * <p>
+ * The file is renamed when the writer is closed by a step that has completed, or out of a step.
+ * </p>
+ * <p>
+ * With a memory account, the buffered rows are reserved (component {@value #COLUMNAR}) until their row group is
+ * written.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class ColumnarItemWriter<T> implements ItemStreamWriter<T> {
+
+  private static final Logger log = LoggerFactory.getLogger(ColumnarItemWriter.class);
+
+  public static final String KEY_PREFIX = "columnar.";
+  public static final String FILE_SUFFIX = ".arrows";
+  public static final String COLUMNAR = "columnar";
+  private static final String OFFSET_KEY = KEY_PREFIX + "offset";
+  private static final String JOURNAL_KEY = KEY_PREFIX + "journal";
+  private static final String JOURNAL_OFFSET_KEY = KEY_PREFIX + "journal.offset";
+  private static final String ROWS_KEY = KEY_PREFIX + "rows";
+  private static final String ROW_GROUPS_KEY = KEY_PREFIX + "row.groups";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String JOURNAL_SUFFIX = ".journal";
+  private static final byte STRING = 0;
+  private static final byte LONG = 1;
+
+  private final Path file;
+  private final Path tempFile;
+  private final Path[] journals;
+  private final List<Field> fields;
+  private final List<String> columnNames;
+  private final byte[] types;
+  private final int rowGroupSize;
+
+  private final List<List<Object>> columns = new ArrayList<>();
+  private final List<Batch> pending = new ArrayList<>();
+  private BufferAllocator allocator;
+  private Schema schema;
+  private long writtenRows;
+  private int rowGroupCount;
+  private FileChannel output;
+  private WriteChannel outputChannel;
+  private FileChannel journalChannel;
+  private DataOutputStream journalOutput;
+  private int journal;
+  private int bufferedRows;
+  private long bufferedBytes;
+  private MemoryBudget.Account account;
+
+  /**
+   * @param file         written when the step completes
+   * @param rowGroupSize rows of a row group
+   */
+  public ColumnarItemWriter(Class<T> type, Path file, int rowGroupSize) {
+    ColumnModel model = ColumnModel.of(type);
+    this.file = file;
+    this.tempFile = Paths.get(file + TEMP_SUFFIX);
+    this.journals = new Path[]{Paths.get(file + JOURNAL_SUFFIX + 0), Paths.get(file + JOURNAL_SUFFIX + 1)};
+    this.fields = model.getFields(true);
+    this.columnNames = model.getColumnNames(true);
+    this.types = new byte[fields.size()];
+    for (int column = 0; column < types.length; column++) {
+      types[column] = type(fields.get(column).getType());
+      columns.add(new ArrayList<>());
+    }
+    this.rowGroupSize = Math.max(1, rowGroupSize);
+  }
+
+  /**
+   * @param account the account of the partition, null if the buffered rows are not reserved
+   */
+  public void setMemoryAccount(MemoryBudget.Account account) {
+    this.account = account;
+  }
+
+  private static byte type(Class<?> type) {
+    return type == int.class || type == long.class || type == short.class || type == Integer.class
+      || type == Long.class || type == Short.class ? LONG : STRING;
+  }
+
+  @Override
+  public synchronized void write(List<? extends T> items) throws Exception {
+    Batch batch = new Batch(items);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      apply(batch);
+      return;
+    }
+    // applied at the end of the chunk, by update()
+    pending.add(batch);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCompletion(int status) {
+        completed(batch, status == TransactionSynchronization.STATUS_COMMITTED);
+      }
+    });
+  }
+
+  private synchronized void completed(Batch batch, boolean committed) {
+    if (pending.remove(batch) && committed) {
+      // committed without update(), e.g. out of a step
+      try {
+        apply(batch);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  private void apply(Batch batch) throws IOException {
+    for (Object[] row : batch.rows) {
+      for (int column = 0; column < row.length; column++) {
+        writeValue(journalOutput, types[column], row[column]);
+        columns.get(column).add(row[column]);
+      }
+      buffered(row);
+    }
+    journalOutput.flush();
+  }
+
+  private void buffered(Object[] row) {
+    bufferedRows++;
+    long bytes = 0;
+    for (Object value : row) {
+      if (value != null) {
+        bytes += value instanceof String ? MemoryEstimates.of((String) value) : MemoryEstimates.of(value);
+      }
+    }
+    if (account != null) {
+      account.reserve(COLUMNAR, bytes);
+    }
+    bufferedBytes += bytes;
+  }
+
+  private void releaseBuffer() {
+    if (account != null) {
+      account.release(COLUMNAR, bufferedBytes);
+    }
+    bufferedRows = 0;
+    bufferedBytes = 0;
+  }
+
+  @Override
+  public synchronized void open(ExecutionContext executionContext) throws ItemStreamException {
+    allocator = new RootAllocator();
+    try {
+      if (executionContext.containsKey(OFFSET_KEY)) {
+        restart(executionContext);
+        return;
+      }
+      Files.createDirectories(tempFile.toAbsolutePath().getParent());
+      for (Path journalFile : journals) {
+        Files.deleteIfExists(journalFile);
+      }
+      output = FileChannel.open(tempFile,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+      outputChannel = new WriteChannel(output);
+      openJournal(0, 0);
+    } catch (IOException e) {
+      throw new ItemStreamException("Cannot open " + tempFile, e);
+    }
+  }
+
+  private void restart(ExecutionContext executionContext) throws IOException {
+    long offset = executionContext.getLong(OFFSET_KEY);
+    int journalIndex = executionContext.getInt(JOURNAL_KEY);
+    output = FileChannel.open(tempFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    // drops the row group written by a chunk that has not been committed
+    output.truncate(offset);
+    if (offset > 0) {
+      // written with the first row group
+      schema = MessageSerializer.deserializeSchema(new ReadChannel(output));
+    }
+    output.position(offset);
+    outputChannel = new WriteChannel(output);
+    rowGroupCount = executionContext.getInt(ROW_GROUPS_KEY);
+    openJournal(journalIndex, executionContext.getLong(JOURNAL_OFFSET_KEY));
+    try (InputStream in = Files.newInputStream(journals[journalIndex])) {
+      DataInputStream journalInput = new DataInputStream(new BufferedInputStream(in));
+      while (true) {
+        Object[] row = new Object[types.length];
+        try {
+          for (int column = 0; column < row.length; column++) {
+            row[column] = readValue(journalInput, types[column]);
+          }
+        } catch (EOFException e) {
+          break;
+        }
+        for (int column = 0; column < row.length; column++) {
+          columns.get(column).add(row[column]);
+        }
+        buffered(row);
+      }
+    }
+    writtenRows = executionContext.getLong(ROWS_KEY) - bufferedRows;
+    log.info("Restarting {} from {} row groups and {} buffered rows", file, rowGroupCount, bufferedRows);
+  }
+
+  private void openJournal(int journalIndex, long journalOffset) throws IOException {
+    if (journalChannel != null) {
+      journalOutput.close();
+    }
+    journal = journalIndex;
+    journalChannel = FileChannel.open(journals[journalIndex], StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    // drops the rows of a chunk that has not been committed
+    journalChannel.truncate(journalOffset);
+    journalChannel.position(journalOffset);
+    journalOutput = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(journalChannel)));
+  }
+
+  @Override
+  public synchronized void update(ExecutionContext executionContext) throws ItemStreamException {
+    try {
+      // the chunk has not failed: its rows are written with its context
+      for (Batch batch : pending) {
+        apply(batch);
+      }
+      pending.clear();
+      if (bufferedRows >= rowGroupSize) {
+        writeRowGroup();
+        // the journal of the previous row group is no longer needed
+        openJournal(1 - journal, 0);
+      }
+      executionContext.putLong(OFFSET_KEY, output.position());
+      executionContext.putInt(JOURNAL_KEY, journal);
+      executionContext.putLong(JOURNAL_OFFSET_KEY, journalChannel.position());
+      executionContext.putLong(ROWS_KEY, writtenRows + bufferedRows);
+      executionContext.putInt(ROW_GROUPS_KEY, rowGroupCount);
+    } catch (IOException e) {
+      throw new ItemStreamException("Cannot write " + tempFile, e);
+    }
+  }
+
+  private void writeRowGroup() throws IOException {
+    if (schema == null) {
+      writeSchema();
+    }
+    List<FieldVector> vectors = new ArrayList<>(types.length);
+    try {
+      for (int column = 0; column < types.length; column++) {
+        org.apache.arrow.vector.types.pojo.Field field = schema.getFields().get(column);
+        List<Object> values = columns.get(column);
+        if (field.getDictionary() != null) {
+          vectors.add(writeDictionary(field, values));
+        } else if (types[column] == LONG) {
+          vectors.add(longVector(field.getName(), values));
+        } else {
+          vectors.add(stringVector(field.getName(), values));
+        }
+        values.clear();
+      }
+      VectorSchemaRoot root = new VectorSchemaRoot(schema.getFields(), vectors, bufferedRows);
+      try (ArrowRecordBatch batch = new VectorUnloader(root).getRecordBatch()) {
+        MessageSerializer.serialize(outputChannel, batch);
+      }
+    } finally {
+      vectors.forEach(FieldVector::close);
+    }
+    output.force(false);
+    writtenRows += bufferedRows;
+    rowGroupCount++;
+    releaseBuffer();
+  }
+
+  /**
+   * The string columns whose values repeat in the first row group are dictionary encoded, in all the row groups.
+   */
+  private void writeSchema() throws IOException {
+    List<org.apache.arrow.vector.types.pojo.Field> schemaFields = new ArrayList<>(types.length);
+    for (int column = 0; column < types.length; column++) {
+      String name = columnNames.get(column);
+      FieldType fieldType;
+      if (types[column] == LONG) {
+        fieldType = FieldType.nullable(new ArrowType.Int(64, true));
+      } else if (repeats(columns.get(column))) {
+        fieldType = new FieldType(true, ArrowType.Utf8.INSTANCE,
+          new DictionaryEncoding(column, false, new ArrowType.Int(32, true)));
+      } else {
+        fieldType = FieldType.nullable(ArrowType.Utf8.INSTANCE);
+      }
+      schemaFields.add(new org.apache.arrow.vector.types.pojo.Field(name, fieldType, null));
+    }
+    schema = new Schema(schemaFields);
+    MessageSerializer.serialize(outputChannel, schema);
+  }
+
+  private static boolean repeats(List<Object> values) {
+    long nonNull = values.stream().filter(Objects::nonNull).count();
+    return nonNull > 0 && values.stream().filter(Objects::nonNull).distinct().count() <= nonNull / 2;
+  }
+
+  /**
+   * Writes the dictionary of the values in the row group, replacing the one of the previous row group.
+   *
+   * @return the indexes of the values in the dictionary
+   */
+  private IntVector writeDictionary(org.apache.arrow.vector.types.pojo.Field field, List<Object> values)
+    throws IOException {
+    Map<String, Integer> dictionary = new LinkedHashMap<>();
+    IntVector indexes = new IntVector(field.getName(), allocator);
+    indexes.allocateNew(values.size());
+    for (int row = 0; row < values.size(); row++) {
+      Object value = values.get(row);
+      if (value == null) {
+        indexes.setNull(row);
+      } else {
+        indexes.set(row, dictionary.computeIfAbsent((String) value, key -> dictionary.size()));
+      }
+    }
+    indexes.setValueCount(values.size());
+    try (VarCharVector dictionaryVector = stringVector(field.getName(), new ArrayList<>(dictionary.keySet()));
+         ArrowDictionaryBatch batch = new ArrowDictionaryBatch(field.getDictionary().getId(),
+           new VectorUnloader(VectorSchemaRoot.of(dictionaryVector)).getRecordBatch(), false)) {
+      MessageSerializer.serialize(outputChannel, batch);
+    }
+    return indexes;
+  }
+
+  private VarCharVector stringVector(String name, List<?> values) {
+    VarCharVector vector = new VarCharVector(name, allocator);
+    vector.allocateNew(values.size());
+    for (int row = 0; row < values.size(); row++) {
+      Object value = values.get(row);
+      if (value == null) {
+        vector.setNull(row);
+      } else {
+        vector.setSafe(row, ((String) value).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    vector.setValueCount(values.size());
+    return vector;
+  }
+
+  private BigIntVector longVector(String name, List<Object> values) {
+    BigIntVector vector = new BigIntVector(name, allocator);
+    vector.allocateNew(values.size());
+    for (int row = 0; row < values.size(); row++) {
+      Object value = values.get(row);
+      if (value == null) {
+        vector.setNull(row);
+      } else {
+        vector.set(row, (Long) value);
+      }
+    }
+    vector.setValueCount(values.size());
+    return vector;
+  }
+
+  private static void writeValue(DataOutputStream out, byte type, Object value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value == null) {
+      return;
+    }
+    if (type == LONG) {
+      out.writeLong((Long) value);
+    } else {
+      out.writeUTF((String) value);
+    }
+  }
+
+  private static Object readValue(DataInputStream in, byte type) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    return type == LONG ? (Object) in.readLong() : in.readUTF();
+  }
+
+  @Override
+  public synchronized void close() throws ItemStreamException {
+    if (output == null) {
+      return;
+    }
+    try {
+      if (isStepCompleted()) {
+        commit();
+      } else {
+        // kept for the restart
+        log.info("Keeping {} and its journal: the step has not completed", tempFile);
+      }
+    } catch (IOException e) {
+      throw new ItemStreamException("Cannot write " + file, e);
+    } finally {
+      try {
+        journalOutput.close();
+        output.close();
+      } catch (IOException e) {
+        log.warn("Cannot close {}", tempFile, e);
+      }
+      allocator.close();
+      output = null;
+      journalChannel = null;
+      schema = null;
+      writtenRows = 0;
+      rowGroupCount = 0;
+      columns.forEach(List::clear);
+      releaseBuffer();
+    }
+  }
+
+  private static boolean isStepCompleted() {
+    StepContext context = StepSynchronizationManager.getContext();
+    return context == null || context.getStepExecution().getStatus() == BatchStatus.COMPLETED;
+  }
+
+  private void commit() throws IOException {
+    for (Batch batch : pending) {
+      apply(batch);
+    }
+    pending.clear();
+    if (bufferedRows > 0) {
+      writeRowGroup();
+    } else if (schema == null) {
+      // no rows
+      writeSchema();
+    }
+    ArrowStreamWriter.writeEndOfStream(outputChannel, IpcOption.DEFAULT);
+    output.force(true);
+    Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    for (Path journalFile : journals) {
+      Files.deleteIfExists(journalFile);
+    }
+    log.info("Written {}: {} rows in {} row groups", file, writtenRows, rowGroupCount);
+  }
+
+  /**
+   * The rows of a chunk, applied when the chunk completes.
+   */
+  private class Batch {
+    private final List<Object[]> rows;
+
+    private Batch(List<? extends T> items) throws IllegalAccessException {
+      rows = new ArrayList<>(items.size());
+      for (T item : items) {
+        Object[] row = new Object[fields.size()];
+        for (int column = 0; column < row.length; column++) {
+          Object value = fields.get(column).get(item);
+          if (value != null) {
+            row[column] = types[column] == LONG ? (Object) ((Number) value).longValue()
+              : value.toString();
+          }
+        }
+        rows.add(row);
+      }
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package org.sample.batch.writer;
+
+import org.sample.batch.service.resilience.LatencyPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes each chunk to a primary writer and to secondary sinks (archives) in parallel, and returns when all of them
+ * have written the chunk.
+ * <p>
+ * The primary writer runs on the chunk thread, in the chunk transaction (database). The sinks run on a bounded
+ * executor; the transaction synchronizations they register (buffers of the transactional file writers) are moved
+ * to the chunk thread, so they are flushed or discarded with the chunk.
+ * The delegates that are {@link ItemStream}s are opened, updated and closed by this writer. The write latency of each
+ * writer is saved in the step context: {@code fanout.<name>.write.count}, {@code .total.ms} and {@code .p99.us}
+ * (refreshed every 10 chunks).
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class FanOutItemWriter<T> implements ItemStreamWriter<T> {
+
+  private static final Logger log = LoggerFactory.getLogger(FanOutItemWriter.class);
+
+  public static final String PRIMARY = "primary";
+
+  private final ItemWriter<? super T> primary;
+  private final Map<String, ItemWriter<? super T>> sinks;
+  private final Executor executor;
+  private final Map<String, Latency> latencies = new LinkedHashMap<>();
+
+  /**
+   * @param primary  written on the chunk thread
+   * @param sinks    written in parallel, by name
+   * @param executor runs the sinks, should be bounded
+   */
+  public FanOutItemWriter(ItemWriter<? super T> primary, Map<String, ItemWriter<? super T>> sinks, Executor executor) {
+    this.primary = primary;
+    this.sinks = new LinkedHashMap<>(sinks);
+    this.executor = executor;
+    latencies.put(PRIMARY, new Latency());
+    sinks.keySet().forEach(name -> latencies.put(name, new Latency()));
+  }
+
+  @Override
+  public void write(List<? extends T> items) throws Exception {
+    boolean transactional = TransactionSynchronizationManager.isSynchronizationActive();
+    List<CompletableFuture<TransactionState>> sinkWrites = new ArrayList<>(sinks.size());
+    sinks.forEach((name, sink) -> sinkWrites.add(
+      CompletableFuture.supplyAsync(() -> writeSink(name, sink, items, transactional), executor)));
+
+    Exception failure = null;
+    try {
+      timed(PRIMARY, primary, items);
+    } catch (Exception e) {
+      failure = e;
+    }
+    // the sinks are always awaited: none of them is still writing when the chunk is rolled back
+    for (CompletableFuture<TransactionState> sinkWrite : sinkWrites) {
+      try {
+        TransactionState state = sinkWrite.join();
+        if (failure == null && transactional) {
+          state.moveToCurrentThread();
+        } else {
+          state.discard();
+        }
+      } catch (CompletionException e) {
+        if (failure == null) {
+          failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Runs in a thread of the executor, within a transaction synchronization scope if the chunk is transactional.
+   */
+  private TransactionState writeSink(String name, ItemWriter<? super T> sink, List<? extends T> items,
+                                     boolean transactional) {
+    // run by the chunk thread (caller runs policy of a saturated executor): registered in the chunk transaction
+    if (!transactional || TransactionSynchronizationManager.isSynchronizationActive()) {
+      try {
+        timed(name, sink, items);
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
+      return TransactionState.NONE;
+    }
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    try {
+      timed(name, sink, items);
+      return new TransactionState(
+        new HashMap<>(TransactionSynchronizationManager.getResourceMap()),
+        TransactionSynchronizationManager.getSynchronizations());
+    } catch (Exception e) {
+      throw new CompletionException(e);
+    } finally {
+      new ArrayList<>(TransactionSynchronizationManager.getResourceMap().keySet())
+        .forEach(TransactionSynchronizationManager::unbindResource);
+      TransactionSynchronizationManager.clear();
+    }
+  }
+
+  private void timed(String name, ItemWriter<? super T> writer, List<? extends T> items) throws Exception {
+    long start = System.nanoTime();
+    writer.write(items);
+    latencies.get(name).record(System.nanoTime() - start);
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    for (ItemWriter<? super T> writer : writers()) {
+      if (writer instanceof ItemStream) {
+        ((ItemStream) writer).open(executionContext);
+      }
+    }
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    for (ItemWriter<? super T> writer : writers()) {
+      if (writer instanceof ItemStream) {
+        ((ItemStream) writer).update(executionContext);
+      }
+    }
+    latencies.forEach((name, latency) -> {
+      String prefix = "fanout." + name + ".write.";
+      executionContext.putLong(prefix + "count", latency.count.get());
+      executionContext.putLong(prefix + "total.ms", TimeUnit.NANOSECONDS.toMillis(latency.totalNanos.get()));
+      executionContext.putLong(prefix + "p99.us", TimeUnit.NANOSECONDS.toMicros(latency.p99.getValueNanos()));
+    });
+  }
+
+  @Override
+  public void close() throws ItemStreamException {
+    latencies.forEach((name, latency) -> log.info("{} writer: {} chunks, {} ms, p99 {} us", name, latency.count.get(),
+      TimeUnit.NANOSECONDS.toMillis(latency.totalNanos.get()),
+      TimeUnit.NANOSECONDS.toMicros(latency.p99.getValueNanos())));
+    for (ItemWriter<? super T> writer : writers()) {
+      if (writer instanceof ItemStream) {
+        ((ItemStream) writer).close();
+      }
+    }
+  }
+
+  private List<ItemWriter<? super T>> writers() {
+    List<ItemWriter<? super T>> writers = new ArrayList<>(sinks.size() + 1);
+    writers.add(primary);
+    writers.addAll(sinks.values());
+    return writers;
+  }
+
+  private static class Latency {
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final LatencyPercentile p99 = new LatencyPercentile(0.99, 1000, 10, 0);
+
+    void record(long nanos) {
+      count.incrementAndGet();
+      totalNanos.addAndGet(nanos);
+      p99.record(nanos);
+    }
+  }
+
+  /**
+   * Transaction resources and synchronizations registered by a sink in another thread.
+   */
+  private static class TransactionState {
+    static final TransactionState NONE = new TransactionState(Collections.emptyMap(), Collections.emptyList());
+
+    private final Map<Object, Object> resources;
+    private final List<TransactionSynchronization> synchronizations;
+
+    TransactionState(Map<Object, Object> resources, List<TransactionSynchronization> synchronizations) {
+      this.resources = resources;
+      this.synchronizations = synchronizations;
+    }
+
+    void moveToCurrentThread() {
+      resources.forEach((key, value) -> {
+        if (TransactionSynchronizationManager.hasResource(key)) {
+          // one write per chunk transaction is expected
+          throw new IllegalStateException("Transaction resource already bound: " + key);
+        }
+        TransactionSynchronizationManager.bindResource(key, value);
+      });
+      synchronizations.forEach(TransactionSynchronizationManager::registerSynchronization);
+    }
+
+    /**
+     * The chunk has failed: the synchronizations are not registered in its transaction, they are rolled back now.
+     */
+    void discard() {
+      synchronizations.forEach(synchronization -> {
+        try {
+          synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } catch (RuntimeException e) {
+          log.warn("Rollback of a sink failed", e);
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package org.sample.batch.writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writer shared by the partitions: the chunks are queued and written by a single thread, the chunks waiting in the
+ * queue are written together by the delegate in one transaction.
+ * <p>
+ * The partitions do not compete for the table locks, and there is one commit for several chunks. A partition
+ * waits until its chunk is committed. If a group fails, its chunks are written again one transaction each, so only
+ * the partition of the faulty chunk gets the error and its skip and rollback accounting is unchanged.
+ * The rows are committed before the chunk of the partition: a chunk rolled back afterwards (failure of another
+ * writer or while saving the step execution) leaves its rows, and is written again by the retry or the restart of
+ * the partition. The delegate must be idempotent, e.g. the {@link IdempotentItemWriter}.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class GroupCommitItemWriter<T> implements ItemWriter<T>, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(GroupCommitItemWriter.class);
+
+  private final ItemWriter<T> delegate;
+  private final TransactionTemplate transactionTemplate;
+  private final BlockingQueue<Request<T>> queue;
+  private final int maxGroupItems;
+  private final Thread writerThread;
+  private final AtomicLong transactionCount = new AtomicLong();
+  private final AtomicLong itemCount = new AtomicLong();
+  private volatile boolean closed;
+
+  /**
+   * @param delegate           the writer of the groups, using the transaction manager: writing again the same
+   *                           items must have no effect
+   * @param transactionManager transactions of the writer thread
+   * @param queueCapacity      maximum number of chunks waiting to be written
+   * @param maxGroupItems      maximum number of items written in one transaction (a larger chunk is not split)
+   */
+  public GroupCommitItemWriter(ItemWriter<T> delegate, PlatformTransactionManager transactionManager,
+                               int queueCapacity, int maxGroupItems) {
+    this.delegate = delegate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.maxGroupItems = maxGroupItems;
+    this.writerThread = new Thread(this::writeGroups, "group-commit-writer");
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  @Override
+  public void write(List<? extends T> items) throws Exception {
+    Request<T> request = new Request<>(items);
+    while (!queue.offer(request, 1, TimeUnit.SECONDS)) {
+      checkRunning();
+    }
+    while (true) {
+      try {
+        request.committed.get(1, TimeUnit.SECONDS);
+        return;
+      } catch (TimeoutException e) {
+        checkRunning();
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof Exception) {
+          throw (Exception) e.getCause();
+        }
+        throw e;
+      }
+    }
+  }
+
+  private void checkRunning() {
+    if (!writerThread.isAlive()) {
+      throw new IllegalStateException("Writer closed");
+    }
+  }
+
+  private void writeGroups() {
+    while (!closed || !queue.isEmpty()) {
+      Request<T> first;
+      try {
+        first = queue.poll(100, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        break;
+      }
+      if (first == null) {
+        continue;
+      }
+      List<Request<T>> group = new ArrayList<>();
+      group.add(first);
+      int size = first.items.size();
+      Request<T> next;
+      // single consumer: the peeked request is the one polled
+      while ((next = queue.peek()) != null && size + next.items.size() <= maxGroupItems) {
+        group.add(queue.poll());
+        size += next.items.size();
+      }
+      write(group, size);
+    }
+    for (Request<T> request : queue) {
+      request.committed.completeExceptionally(new IllegalStateException("Writer closed"));
+    }
+  }
+
+  private void write(List<Request<T>> group, int size) {
+    List<T> items = new ArrayList<>(size);
+    for (Request<T> request : group) {
+      items.addAll(request.items);
+    }
+    try {
+      commit(items);
+      group.forEach(request -> request.committed.complete(null));
+      log.debug("{} chunks, {} items committed", group.size(), size);
+    } catch (Exception e) {
+      if (group.size() == 1) {
+        group.get(0).committed.completeExceptionally(e);
+        return;
+      }
+      log.debug("Group of {} chunks failed, writing them one by one", group.size(), e);
+      for (Request<T> request : group) {
+        try {
+          commit(new ArrayList<>(request.items));
+          request.committed.complete(null);
+        } catch (Exception chunkError) {
+          request.committed.completeExceptionally(chunkError);
+        }
+      }
+    }
+  }
+
+  private void commit(List<T> items) throws Exception {
+    try {
+      transactionTemplate.execute(status -> {
+        try {
+          delegate.write(items);
+        } catch (Exception e) {
+          throw new WriteFailure(e);
+        }
+        return null;
+      });
+    } catch (WriteFailure failure) {
+      throw (Exception) failure.getCause();
+    }
+    transactionCount.incrementAndGet();
+    itemCount.addAndGet(items.size());
+  }
+
+  /**
+   * Number of transactions committed.
+   */
+  public long getTransactionCount() {
+    return transactionCount.get();
+  }
+
+  /**
+   * Number of items committed.
+   */
+  public long getItemCount() {
+    return itemCount.get();
+  }
+
+  /**
+   * Writes the queued chunks and stops the writer thread.
+   */
+  @Override
+  public void destroy() throws InterruptedException {
+    closed = true;
+    writerThread.join(TimeUnit.SECONDS.toMillis(30));
+    log.info("{} items written in {} transactions", itemCount.get(), transactionCount.get());
+  }
+
+  private static class Request<T> {
+    private final List<? extends T> items;
+    private final CompletableFuture<Void> committed = new CompletableFuture<>();
+
+    Request(List<? extends T> items) {
+      this.items = items;
+    }
+  }
+
+  /**
+   * Carries the checked exception of the delegate out of the transaction callback.
+   */
+  private static class WriteFailure extends RuntimeException {
+    WriteFailure(Exception cause) {
+      super(cause);
+    }
+  }
+}
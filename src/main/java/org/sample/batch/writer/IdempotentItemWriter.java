@@ -0,0 +1,70 @@
+package org.sample.batch.writer;
+
+import org.sample.batch.model.Person;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Inserts the persons that are not stored yet, keyed by their position in the input file (source id and line).
+ * <p>
+ * Writing the same items again has no effect: the writes do not have to be rolled back, the step can run without a
+ * transaction and a restarted partition may write again the items of its last chunk. The counts are stored in the
+ * step {@link ExecutionContext} (they include the chunks that failed).
+ * </p>
+ */
+public class IdempotentItemWriter implements ItemWriter<Person> {
+
+  public static final String INSERTED_COUNT_KEY = "idempotent.inserted.count";
+  public static final String DUPLICATE_COUNT_KEY = "idempotent.duplicate.count";
+
+  private static final String MERGE =
+    "MERGE INTO people p USING (VALUES (CAST(:sourceId AS VARCHAR(255)), CAST(:sourceLine AS BIGINT), " +
+      "CAST(:firstName AS VARCHAR(20)), CAST(:lastName AS VARCHAR(20)), CAST(:age AS INTEGER), " +
+      "CAST(:nationalId AS VARCHAR(50)))) " +
+      "AS v (source_id, source_line, first_name, last_name, age, national_id) " +
+      "ON p.source_id = v.source_id AND p.source_line = v.source_line " +
+      "WHEN NOT MATCHED THEN INSERT (source_id, source_line, first_name, last_name, age, national_id) " +
+      "VALUES (v.source_id, v.source_line, v.first_name, v.last_name, v.age, v.national_id)";
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+
+  public IdempotentItemWriter(DataSource dataSource) {
+    this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+  }
+
+  @Override
+  public void write(List<? extends Person> items) throws Exception {
+    SqlParameterSource[] parameters = new SqlParameterSource[items.size()];
+    for (int idx = 0; idx < parameters.length; idx++) {
+      Person item = items.get(idx);
+      Assert.state(item.getSourceId() != null, "No source position: " + item);
+      parameters[idx] = new BeanPropertySqlParameterSource(item);
+    }
+    int inserted = 0;
+    for (int count : jdbcTemplate.batchUpdate(MERGE, parameters)) {
+      // the driver may not report the count of each statement
+      inserted += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+    }
+    count(inserted, items.size() - inserted);
+  }
+
+  private static void count(int inserted, int duplicates) {
+    StepContext context = StepSynchronizationManager.getContext();
+    if (context == null) {
+      return;
+    }
+    ExecutionContext executionContext = context.getStepExecution().getExecutionContext();
+    executionContext.putLong(INSERTED_COUNT_KEY, executionContext.getLong(INSERTED_COUNT_KEY, 0) + inserted);
+    executionContext.putLong(DUPLICATE_COUNT_KEY, executionContext.getLong(DUPLICATE_COUNT_KEY, 0) + duplicates);
+  }
+}
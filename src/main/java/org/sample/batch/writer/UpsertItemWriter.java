@@ -0,0 +1,93 @@
+package org.sample.batch.writer;
+
+import org.sample.batch.model.Person;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the persons of a full snapshot, only the new or changed rows are written.
+ * <p>
+ * The stored content hashes of the chunk keys are read with one query, the persons with the same hash are dropped
+ * and the others are written with a batched {@code MERGE} on the natural key. The items must have been through the
+ * {@link org.sample.batch.processor.RowHashProcessor}.
+ * The counts are stored in the step {@link ExecutionContext} (they include the chunks rolled back).
+ * </p>
+ */
+public class UpsertItemWriter implements ItemWriter<Person> {
+
+  public static final String UNCHANGED_COUNT_KEY = "upsert.unchanged.count";
+  public static final String MERGED_COUNT_KEY = "upsert.merged.count";
+
+  private static final String SELECT_HASHES = "SELECT natural_key, row_hash FROM people WHERE natural_key IN (:keys)";
+  private static final String MERGE =
+    "MERGE INTO people p USING (VALUES (CAST(:naturalKey AS VARCHAR(100)), CAST(:firstName AS VARCHAR(20)), " +
+      "CAST(:lastName AS VARCHAR(20)), CAST(:age AS INTEGER), CAST(:nationalId AS VARCHAR(50)), " +
+      "CAST(:rowHash AS BIGINT))) " +
+      "AS v (natural_key, first_name, last_name, age, national_id, row_hash) ON p.natural_key = v.natural_key " +
+      "WHEN MATCHED THEN UPDATE SET p.first_name = v.first_name, p.last_name = v.last_name, p.age = v.age, " +
+      "p.national_id = COALESCE(v.national_id, p.national_id), p.row_hash = v.row_hash " +
+      "WHEN NOT MATCHED THEN INSERT (natural_key, first_name, last_name, age, national_id, row_hash) " +
+      "VALUES (v.natural_key, v.first_name, v.last_name, v.age, v.national_id, v.row_hash)";
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final JdbcBatchItemWriter<Person> mergeWriter;
+
+  public UpsertItemWriter(DataSource dataSource) {
+    this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    this.mergeWriter = new JdbcBatchItemWriterBuilder<Person>()
+      .beanMapped()
+      .sql(MERGE)
+      .dataSource(dataSource)
+      .build();
+    this.mergeWriter.afterPropertiesSet();
+  }
+
+  @Override
+  public void write(List<? extends Person> items) throws Exception {
+    Set<String> keys = new LinkedHashSet<>(items.size());
+    for (Person item : items) {
+      keys.add(item.getNaturalKey());
+    }
+    Map<String, Long> storedHashes = new HashMap<>(keys.size());
+    jdbcTemplate.query(SELECT_HASHES, new MapSqlParameterSource("keys", keys),
+      rs -> {
+        storedHashes.put(rs.getString(1), rs.getLong(2));
+      });
+
+    List<Person> changed = new ArrayList<>(items.size());
+    for (Person item : items) {
+      Long storedHash = storedHashes.get(item.getNaturalKey());
+      if (storedHash == null || storedHash != item.getRowHash()) {
+        changed.add(item);
+      }
+    }
+    if (!changed.isEmpty()) {
+      mergeWriter.write(changed);
+    }
+    count(items.size() - changed.size(), changed.size());
+  }
+
+  private static void count(int unchanged, int merged) {
+    StepContext context = StepSynchronizationManager.getContext();
+    if (context == null) {
+      return;
+    }
+    ExecutionContext executionContext = context.getStepExecution().getExecutionContext();
+    executionContext.putLong(UNCHANGED_COUNT_KEY, executionContext.getLong(UNCHANGED_COUNT_KEY, 0) + unchanged);
+    executionContext.putLong(MERGED_COUNT_KEY, executionContext.getLong(MERGED_COUNT_KEY, 0) + merged);
+  }
+}
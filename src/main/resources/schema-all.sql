@@ -4,5 +4,32 @@ CREATE TABLE people  (
     person_id BIGINT IDENTITY NOT NULL PRIMARY KEY,
     first_name VARCHAR(20),
     last_name VARCHAR(20),
-    age INTEGER
+    age INTEGER,
+    national_id VARCHAR(50),
+    natural_key VARCHAR(100),
+    row_hash BIGINT,
+    source_id VARCHAR(255),
+    source_line BIGINT,
+    CONSTRAINT people_natural_key UNIQUE (natural_key),
+    CONSTRAINT people_source UNIQUE (source_id, source_line)
+);
+
+DROP TABLE national_deferred_lookup IF EXISTS;
+
+CREATE TABLE national_deferred_lookup  (
+    lookup_id BIGINT IDENTITY NOT NULL PRIMARY KEY,
+    first_name VARCHAR(20),
+    last_name VARCHAR(20)
+);
+
+DROP TABLE batch_partition_lease IF EXISTS;
+
+CREATE TABLE batch_partition_lease  (
+    step_execution_id BIGINT NOT NULL PRIMARY KEY,
+    job_execution_id BIGINT NOT NULL,
+    step_name VARCHAR(100) NOT NULL,
+    status VARCHAR(10) NOT NULL,
+    owner VARCHAR(100),
+    lease_expiry BIGINT,
+    claim_count INTEGER NOT NULL
 );
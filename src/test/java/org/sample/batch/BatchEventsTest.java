@@ -0,0 +1,90 @@
+package org.sample.batch;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class})
+public class BatchEventsTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+
+  @Before
+  public void cleanUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void recordsBatchEvents() throws Exception {
+    File dataFile = folder.newFile("data.csv");
+    PersonFaker personFaker = new PersonFaker();
+    List<Person> persons = personFaker.buildPersons(10, new Integer[]{3, 7});
+    personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), persons);
+    File recordingFile = new File(folder.getRoot(), "batch.jfr");
+
+    try (Recording recording = new Recording()) {
+      recording.enable("org.sample.batch.Chunk");
+      recording.enable("org.sample.batch.Skip");
+      recording.enable("org.sample.batch.NationalLookup");
+      recording.enable("org.sample.batch.Partition");
+      recording.start();
+
+      JobParameters params =
+        new JobParametersBuilder().addString("input.file", dataFile.getAbsolutePath()).toJobParameters();
+      assertThat(jobLauncherTestUtils.launchJob(params).getStatus()).isEqualTo(BatchStatus.COMPLETED);
+
+      recording.stop();
+      recording.dump(recordingFile.toPath());
+    }
+
+    Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(recordingFile.toPath()).stream()
+      .collect(Collectors.groupingBy(e -> e.getEventType().getName()));
+
+    List<RecordedEvent> chunks = events.get("org.sample.batch.Chunk");
+    assertThat(chunks).isNotEmpty();
+    assertThat(chunks.stream().mapToInt(e -> e.getInt("writeCount")).sum()).isEqualTo(8);
+    assertThat(chunks).allMatch(e -> e.getString("partition").startsWith("step1:"));
+
+    List<RecordedEvent> skips = events.get("org.sample.batch.Skip");
+    assertThat(skips).hasSize(2);
+    assertThat(skips).allMatch(e -> "process".equals(e.getString("phase")));
+
+    // the chunks with a skipped item are processed again
+    assertThat(events.get("org.sample.batch.NationalLookup").size()).isGreaterThanOrEqualTo(8);
+
+    List<RecordedEvent> partitions = events.get("org.sample.batch.Partition");
+    assertThat(partitions).hasSize(1);
+    RecordedEvent partition = partitions.get(0);
+    assertThat(partition.getInt("readCount")).isEqualTo(10);
+    assertThat(partition.getLong("inputSize")).isEqualTo(dataFile.length());
+    assertThat(partition.getString("status")).isEqualTo("COMPLETED");
+  }
+}
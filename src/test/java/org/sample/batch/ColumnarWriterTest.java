@@ -0,0 +1,244 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.memory.MemoryBudget;
+import org.sample.batch.model.Person;
+import org.sample.batch.writer.ColumnarFile;
+import org.sample.batch.writer.ColumnarItemWriter;
+import org.sample.batch.writer.FanOutItemWriter;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(
+  classes = {BatchConfiguration.class, TestConfig.class},
+  properties = {
+    "batch.columnar.dir=target/columnar",
+    "batch.columnar.row-group-size=2"
+  })
+public class ColumnarWriterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+
+  @Before
+  public void cleanUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void writesDictionaryEncodedRowGroups() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("people.arrows");
+    ColumnarItemWriter<Person> writer = new ColumnarItemWriter<>(Person.class, file, 4);
+    ExecutionContext executionContext = new ExecutionContext();
+    List<Person> persons = persons(0, 10);
+    writer.open(executionContext);
+    for (int first = 0; first < persons.size(); first += 3) {
+      writer.write(persons.subList(first, Math.min(first + 3, persons.size())));
+      writer.update(executionContext);
+    }
+    writer.close();
+
+    ColumnarFile columnarFile = ColumnarFile.read(file);
+    assertThat(columnarFile.getColumnNames()).containsExactly("PRENOM", "NOM", "AGE");
+    // a row group is written at the end of the chunk that fills it
+    assertThat(columnarFile.getRowGroupSizes()).containsExactly(6, 4);
+    assertThat(columnarFile.getEncoding("NOM")).isEqualTo(ColumnarFile.DICTIONARY);
+    assertThat(columnarFile.getEncoding("PRENOM")).isEqualTo(ColumnarFile.PLAIN);
+    assertThat(columnarFile.getRows()).isEqualTo(rows(persons));
+    assertThat(folder.getRoot().list()).containsExactly("people.arrows");
+  }
+
+  @Test
+  public void bufferedRowsAreReserved() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("people.arrows");
+    MemoryBudget budget = new MemoryBudget(0);
+    MemoryBudget.Account account = budget.open("partition");
+    ColumnarItemWriter<Person> writer = new ColumnarItemWriter<>(Person.class, file, 4);
+    writer.setMemoryAccount(account);
+    ExecutionContext executionContext = new ExecutionContext();
+    List<Person> persons = persons(0, 10);
+    writer.open(executionContext);
+
+    writer.write(persons.subList(0, 3));
+    writer.update(executionContext);
+    long threeRows = account.getUsed();
+    assertThat(threeRows).isPositive();
+    assertThat(budget.getUsage()).containsEntry(ColumnarItemWriter.COLUMNAR, threeRows);
+    // the row group is written and released
+    writer.write(persons.subList(3, 6));
+    writer.update(executionContext);
+    assertThat(account.getUsed()).isZero();
+    writer.write(persons.subList(6, 8));
+    writer.update(executionContext);
+    assertThat(account.getUsed()).isPositive();
+    writer.close();
+
+    assertThat(account.getUsed()).isZero();
+    assertThat(budget.getPeakUsage().get(ColumnarItemWriter.COLUMNAR)).isGreaterThan(threeRows);
+    account.close();
+  }
+
+  @Test
+  public void rowsOfARolledBackChunkAreNotWritten() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("people.arrows");
+    ColumnarItemWriter<Person> columnarWriter = new ColumnarItemWriter<>(Person.class, file, 100);
+    ItemWriter<Person> database = items -> {
+      if (items.stream().anyMatch(person -> person.getAge() == 0)) {
+        throw new IllegalStateException("constraint violation");
+      }
+    };
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    FanOutItemWriter<Person> writer = new FanOutItemWriter<>(database,
+      Collections.singletonMap("columnar", columnarWriter), executor);
+    TransactionTemplate transactionTemplate = new TransactionTemplate(new ResourcelessTransactionManager());
+    ExecutionContext executionContext = new ExecutionContext();
+    List<Person> persons = persons(0, 6);
+    persons.get(3).setAge(0);
+    writer.open(executionContext);
+
+    transactionTemplate.execute(status -> write(writer, persons.subList(0, 2), executionContext));
+    Throwable failure = catchThrowable(() -> transactionTemplate.execute(status ->
+      write(writer, persons.subList(2, 4), executionContext)));
+    transactionTemplate.execute(status -> write(writer, persons.subList(4, 6), executionContext));
+    writer.close();
+    executor.shutdown();
+
+    assertThat(failure).hasRootCauseInstanceOf(IllegalStateException.class);
+    List<Person> written = new ArrayList<>(persons.subList(0, 2));
+    written.addAll(persons.subList(4, 6));
+    assertThat(ColumnarFile.read(file).getRows()).isEqualTo(rows(written));
+  }
+
+  @Test
+  public void restartsFromTheLastCommittedChunk() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("people.arrows");
+    List<Person> persons = persons(0, 12);
+    ExecutionContext executionContext = new ExecutionContext();
+    ColumnarItemWriter<Person> writer = new ColumnarItemWriter<>(Person.class, file, 3);
+    writer.open(executionContext);
+    writer.write(persons.subList(0, 4));
+    writer.update(executionContext);
+    writer.write(persons.subList(4, 6));
+    writer.update(executionContext);
+    // written, but the chunk fails before its context is saved
+    writer.write(persons.subList(6, 9));
+    ExecutionContext savedContext = new ExecutionContext(executionContext);
+    writer.update(executionContext);
+    StepExecution failed = MetaDataInstanceFactory.createStepExecution();
+    failed.setStatus(BatchStatus.FAILED);
+    StepSynchronizationManager.register(failed);
+    try {
+      writer.close();
+    } finally {
+      StepSynchronizationManager.close();
+    }
+    assertThat(file).doesNotExist();
+
+    ColumnarItemWriter<Person> restarted = new ColumnarItemWriter<>(Person.class, file, 3);
+    restarted.open(savedContext);
+    restarted.write(persons.subList(6, 12));
+    restarted.update(savedContext);
+    restarted.close();
+
+    ColumnarFile columnarFile = ColumnarFile.read(file);
+    assertThat(columnarFile.getRows()).isEqualTo(rows(persons));
+    assertThat(columnarFile.getRowGroupSizes()).containsExactly(4, 8);
+    assertThat(folder.getRoot().list()).containsExactly("people.arrows");
+  }
+
+  @Test
+  public void acceptedPersonsAreWrittenByPartition() throws Exception {
+    File dataFile = folder.newFile("data.csv");
+    Files.write(dataFile.toPath(), (
+      "firstName;lastName;age\n" +
+      "zoé;dupont;23\n" +
+      "jane;doe;0\n" +
+      "john;doe;45\n" +
+      "jack;doe;52\n").getBytes(StandardCharsets.UTF_8));
+
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jobExecution.getExecutionContext().getLong("memory." + ColumnarItemWriter.COLUMNAR + ".peak"))
+      .isPositive();
+    ColumnarFile columnarFile = ColumnarFile.read(new File("target/columnar/data.arrows").toPath());
+    assertThat(columnarFile.getRows()).containsExactly(
+      Arrays.asList("Zoé", "DUPONT", 23L),
+      Arrays.asList("John", "DOE", 45L),
+      Arrays.asList("Jack", "DOE", 52L));
+    assertThat(new File("target/columnar").list()).containsOnly("data.arrows");
+  }
+
+  @Test
+  public void compactRepositoryIsRefused() {
+    Throwable failure = catchThrowable(() -> BatchConfiguration.compactBatchConfigurer(null, 10, 1000,
+      "target/columnar"));
+
+    assertThat(failure).isInstanceOf(IllegalStateException.class).hasMessageContaining("batch.columnar.dir");
+  }
+
+  private static Object write(ItemWriter<Person> writer, List<Person> items, ExecutionContext executionContext) {
+    try {
+      writer.write(items);
+      ((FanOutItemWriter<Person>) writer).update(executionContext);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+    return null;
+  }
+
+  private static List<Person> persons(int first, int count) {
+    List<Person> persons = new ArrayList<>(count);
+    for (int idx = first; idx < first + count; idx++) {
+      persons.add(new Person("first" + idx, idx % 3 == 0 ? "MARTIN" : "DURAND", 20 + idx));
+    }
+    return persons;
+  }
+
+  private static List<List<Object>> rows(List<Person> persons) {
+    List<List<Object>> rows = new ArrayList<>(persons.size());
+    for (Person person : persons) {
+      rows.add(Arrays.asList(person.getFirstName(), person.getLastName(), (long) person.getAge()));
+    }
+    return rows;
+  }
+}
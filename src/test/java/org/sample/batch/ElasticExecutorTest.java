@@ -0,0 +1,120 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.sample.batch.partition.ConcurrencyController;
+import org.sample.batch.partition.ConcurrencyController.Decision;
+import org.sample.batch.partition.ConcurrencyController.Signals;
+import org.sample.batch.partition.ElasticTaskExecutor;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class}, properties = {
+  "batch.partition.elastic=true",
+  "batch.partition.max-threads=4",
+  "batch.partition.elastic.interval-ms=20"
+})
+public class ElasticExecutorTest {
+
+  @Rule
+  public TemporaryFolder dataFolder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+  @Autowired
+  private ElasticTaskExecutor partitionExecutor;
+
+  @Before
+  public void cleanUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void climbsToTheThroughputOptimum() {
+    ConcurrencyController controller = new ConcurrencyController(1, 2, 16);
+    // the throughput does not grow beyond 5 threads
+    IntToDoubleFunction throughput = size -> 100.0 * Math.min(size, 5);
+    int[] intervalsAtSize = new int[17];
+    for (int interval = 0; interval < 60; interval++) {
+      int size = controller.getSize();
+      controller.decide(new Signals(throughput.applyAsDouble(size), 0.2, 1_000_000, 100_000, 10));
+      if (interval >= 10) {
+        intervalsAtSize[size]++;
+      }
+    }
+    assertThat(controller.getSize()).isBetween(5, 6);
+    assertThat(intervalsAtSize[5]).isGreaterThan(intervalsAtSize[6]);
+    assertThat(intervalsAtSize[5] + intervalsAtSize[6]).isEqualTo(50);
+  }
+
+  @Test
+  public void backsOffWhenOverloaded() {
+    ConcurrencyController controller = new ConcurrencyController(1, 8, 16);
+    controller.decide(new Signals(800, 0.5, 1_000_000, 100_000, 10));
+
+    Decision cpu = controller.decide(new Signals(800, 0.95, 1_000_000, 100_000, 10));
+    assertThat(cpu.getReason()).isEqualTo(ConcurrencyController.CPU);
+    assertThat(cpu.getSize()).isEqualTo(6);
+
+    Decision commit = controller.decide(new Signals(800, 0.5, 3_000_000, 100_000, 10));
+    assertThat(commit.getReason()).isEqualTo(ConcurrencyController.COMMIT_LATENCY);
+    assertThat(commit.getSize()).isEqualTo(4);
+
+    Decision lookup = controller.decide(new Signals(800, 0.5, 1_000_000, 500_000, 10));
+    assertThat(lookup.getReason()).isEqualTo(ConcurrencyController.LOOKUP_LATENCY);
+    assertThat(lookup.getSize()).isEqualTo(3);
+
+    // held, then probes again
+    for (int interval = 0; interval < 3; interval++) {
+      assertThat(controller.decide(new Signals(800, 0.5, 1_000_000, 100_000, 10)).getReason())
+        .isEqualTo(ConcurrencyController.HOLD);
+    }
+    assertThat(controller.decide(new Signals(800, 0.5, 1_000_000, 100_000, 10)).getSize()).isEqualTo(4);
+  }
+
+  @Test
+  public void doesNotGrowWithoutBacklog() {
+    ConcurrencyController controller = new ConcurrencyController(1, 2, 16);
+    Decision decision = controller.decide(new Signals(200, 0.2, 1_000_000, -1, 0));
+    assertThat(decision.getReason()).isEqualTo(ConcurrencyController.NO_BACKLOG);
+    assertThat(decision.isResize()).isFalse();
+  }
+
+  @Test
+  public void executesThePartitions() throws Exception {
+    PersonFaker personFaker = new PersonFaker();
+    for (int file = 0; file < 6; file++) {
+      File dataFile = dataFolder.newFile(String.format("data-#%02d.csv", file));
+      List<Person> persons = personFaker.buildPersons(50, new Integer[0]);
+      personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), persons);
+    }
+
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.dir", dataFolder.getRoot().getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM people", Long.class)).isEqualTo(300);
+    assertThat(partitionExecutor.getThreadPoolExecutor().getTaskCount()).isEqualTo(6);
+    assertThat(partitionExecutor.getCorePoolSize()).isBetween(1, 4);
+  }
+}
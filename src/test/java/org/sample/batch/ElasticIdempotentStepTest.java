@@ -0,0 +1,83 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.sample.batch.partition.ElasticTaskExecutor;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The elastic executor of the idempotent partitions is given their throughput and commit latency: without them, the
+ * controller sees no throughput gain and gives back every thread it probes.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class}, properties = {
+  "batch.execution.mode=idempotent",
+  "batch.idempotent.chunk-size=20",
+  "batch.partition.elastic=true",
+  "batch.partition.max-threads=4",
+  "batch.partition.elastic.interval-ms=20",
+  // the shared machine of the build: only the throughput moves the pool
+  "batch.partition.elastic.max-cpu=1.1",
+  "batch.partition.elastic.latency-tolerance=1000"
+})
+public class ElasticIdempotentStepTest {
+
+  @Rule
+  public TemporaryFolder dataFolder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+  @SpyBean
+  private ElasticTaskExecutor partitionExecutor;
+
+  @Before
+  public void cleanUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void measuresTheIdempotentChunks() throws Exception {
+    PersonFaker personFaker = new PersonFaker();
+    for (int file = 0; file < 6; file++) {
+      File dataFile = dataFolder.newFile(String.format("data-#%02d.csv", file));
+      List<Person> persons = personFaker.buildPersons(100, new Integer[0]);
+      personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), persons);
+    }
+
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.dir", dataFolder.getRoot().getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM people", Long.class)).isEqualTo(600);
+    verify(partitionExecutor, atLeastOnce()).beforeWrite(anyList());
+    verify(partitionExecutor, atLeastOnce()).afterChunk(argThat((ChunkContext context) ->
+      context.getStepContext().getStepName().startsWith("idempotentStep:")));
+    // the pool is not shrunk to batch.partition.min-threads
+    assertThat(partitionExecutor.getCorePoolSize()).isBetween(2, 4);
+  }
+}
@@ -0,0 +1,133 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.export.ExportManifestTasklet;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class}, properties = "batch.export.threads=3")
+public class ExportJobTest {
+
+  private static final int ROWS = 1000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncher jobLauncher;
+  @Autowired
+  private JobRepository jobRepository;
+  @Autowired
+  @Qualifier("exportJob")
+  private Job exportJob;
+
+  private JobLauncherTestUtils exportLauncherTestUtils;
+  private List<String> expectedRows;
+
+  @Before
+  public void setUp() {
+    jdbcTemplate.update("delete from people");
+    List<Object[]> people = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) {
+      // some values must be quoted
+      people.add(new Object[]{"First" + i, i % 100 == 0 ? "Last;" + i : "Last" + i, 1 + i % 99});
+    }
+    jdbcTemplate.batchUpdate("INSERT INTO people (first_name, last_name, age) VALUES (?, ?, ?)", people);
+    expectedRows = jdbcTemplate.query("SELECT first_name, last_name, age FROM people ORDER BY person_id",
+      (resultSet, rowNum) -> {
+        String lastName = resultSet.getString(2);
+        return resultSet.getString(1) + ";" + (lastName.contains(";") ? '"' + lastName + '"' : lastName) + ";"
+          + resultSet.getInt(3);
+      });
+    exportLauncherTestUtils = new JobLauncherTestUtils();
+    exportLauncherTestUtils.setJobLauncher(jobLauncher);
+    exportLauncherTestUtils.setJobRepository(jobRepository);
+    exportLauncherTestUtils.setJob(exportJob);
+  }
+
+  @Test
+  public void exportsOneFilePerKeyRange() throws Exception {
+    File exportDir = new File(folder.getRoot(), "export");
+    JobExecution jobExecution = exportLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("export.dir", exportDir.getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    List<String> manifest = Files.readAllLines(new File(exportDir, ExportManifestTasklet.MANIFEST_FILE).toPath());
+    assertThat(manifest).hasSize(1 + 3);
+    assertThat(manifest.get(0)).isEqualTo("file;first_key;last_key;rows;bytes");
+    List<String> rows = new ArrayList<>();
+    long rowCount = 0;
+    for (String entry : manifest.subList(1, manifest.size())) {
+      String[] columns = entry.split(";");
+      File file = new File(exportDir, columns[0]);
+      assertThat(file.length()).isEqualTo(Long.parseLong(columns[4]));
+      List<String> lines = Files.readAllLines(file.toPath());
+      assertThat(lines.get(0)).isEqualTo("PRENOM;NOM;AGE");
+      assertThat(lines).hasSize(1 + Integer.parseInt(columns[3]));
+      rows.addAll(lines.subList(1, lines.size()));
+      rowCount += Long.parseLong(columns[3]);
+    }
+    assertThat(rowCount).isEqualTo(ROWS);
+    assertThat(rows).isEqualTo(expectedRows);
+    assertThat(exportDir.list((dir, name) -> name.endsWith(".tmp"))).isEmpty();
+  }
+
+  @Test
+  public void compressesTheFiles() throws Exception {
+    File exportDir = new File(folder.getRoot(), "export");
+    JobExecution jobExecution = exportLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("export.dir", exportDir.getAbsolutePath())
+      .addString("export.compression", "gzip")
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    List<String> rows = new ArrayList<>();
+    List<String> manifest = Files.readAllLines(new File(exportDir, ExportManifestTasklet.MANIFEST_FILE).toPath());
+    for (String entry : manifest.subList(1, manifest.size())) {
+      String fileName = entry.split(";")[0];
+      assertThat(fileName).endsWith(".csv.gz");
+      List<String> lines = gunzip(new File(exportDir, fileName));
+      rows.addAll(lines.subList(1, lines.size()));
+    }
+    assertThat(rows).isEqualTo(expectedRows);
+  }
+
+  private static List<String> gunzip(File file) throws IOException {
+    try (InputStream input = new GZIPInputStream(Files.newInputStream(file.toPath()));
+         BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+      return reader.lines().collect(Collectors.toList());
+    }
+  }
+}
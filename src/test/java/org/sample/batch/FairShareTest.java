@@ -0,0 +1,189 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.launch.ConcurrentJobLauncher;
+import org.sample.batch.launch.FairShareTaskExecutor;
+import org.sample.batch.model.Person;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(
+  classes = {BatchConfiguration.class, TestConfig.class},
+  properties = {
+    "batch.launcher.fair-share=true",
+    "batch.launcher.threads=2",
+    "batch.launcher.chunk-permits=1",
+    "batch.launcher.max-jobs=2",
+    "batch.launcher.queue-capacity=1"
+  })
+public class FairShareTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private Job importUserJob;
+  @Autowired
+  private ConcurrentJobLauncher concurrentJobLauncher;
+  @Autowired
+  private JobBuilderFactory jobBuilderFactory;
+  @Autowired
+  private StepBuilderFactory stepBuilderFactory;
+
+  @Before
+  public void setUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void startsTheSmallJobBeforeTheQueuedPartitionsOfTheBigOne() throws Exception {
+    FairShareTaskExecutor executor = new FairShareTaskExecutor(1, 0);
+    executor.afterPropertiesSet();
+    JobExecution big = MetaDataInstanceFactory.createJobExecution("big", 1L, 1L, new JobParameters());
+    JobExecution small = MetaDataInstanceFactory.createJobExecution("small", 2L, 2L, new JobParametersBuilder()
+      .addLong(ConcurrentJobLauncher.PRIORITY_KEY, 2L)
+      .toJobParameters());
+    List<String> started = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch busy = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(9);
+    try {
+      submit(executor, big, () -> {
+        try {
+          busy.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      for (int partition = 0; partition < 6; partition++) {
+        submit(executor, big, () -> {
+          started.add("big");
+          done.countDown();
+        });
+      }
+      for (int partition = 0; partition < 3; partition++) {
+        submit(executor, small, () -> {
+          started.add("small");
+          done.countDown();
+        });
+      }
+      busy.countDown();
+
+      assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+      // twice the weight of the big job, which has a partition running
+      assertThat(started).containsExactly("small", "small", "big", "small", "big", "big", "big", "big", "big");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void submit(FairShareTaskExecutor executor, JobExecution jobExecution, Runnable task) {
+    StepSynchronizationManager.register(jobExecution.createStepExecution("partitionStep"));
+    try {
+      executor.execute(task);
+    } finally {
+      StepSynchronizationManager.close();
+    }
+  }
+
+  @Test
+  public void runsTheImportsConcurrently() throws Exception {
+    JobExecution big = concurrentJobLauncher.run(importUserJob, parameters("big", 4, 1));
+    JobExecution small = concurrentJobLauncher.run(importUserJob, parameters("small", 1, 3));
+    JobExecution queued = concurrentJobLauncher.run(importUserJob, parameters("queued", 1, 1));
+
+    for (JobExecution jobExecution : new JobExecution[]{big, small, queued}) {
+      awaitEnd(jobExecution);
+      assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+      assertThat(jobExecution.getExecutionContext().getLong(FairShareTaskExecutor.KEY_PREFIX + "admission.ms"))
+        .isNotNegative();
+      assertThat(jobExecution.getExecutionContext().getDouble(FairShareTaskExecutor.KEY_PREFIX + "throughput"))
+        .isPositive();
+      assertThat(jobExecution.getExecutionContext().containsKey(FairShareTaskExecutor.KEY_PREFIX + "chunk.wait.ms"))
+        .isTrue();
+    }
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM people", Long.class)).isEqualTo(6 * 20);
+    assertThat(small.getExecutionContext().getLong(FairShareTaskExecutor.KEY_PREFIX + "weight")).isEqualTo(3);
+    assertThat(big.getExecutionContext().getLong(FairShareTaskExecutor.KEY_PREFIX + "weight")).isEqualTo(1);
+  }
+
+  @Test
+  public void rejectsTheJobsBeyondTheQueue() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Job blockingJob = jobBuilderFactory.get("blockingJob")
+      .start(stepBuilderFactory.get("blockingStep")
+        .tasklet((contribution, chunkContext) -> {
+          release.await(10, TimeUnit.SECONDS);
+          return RepeatStatus.FINISHED;
+        })
+        .build())
+      .build();
+    List<JobExecution> admitted = new ArrayList<>();
+    // two running, one waiting
+    for (long run = 0; run < 3; run++) {
+      admitted.add(concurrentJobLauncher.run(blockingJob, new JobParametersBuilder()
+        .addLong("run", run)
+        .toJobParameters()));
+    }
+    JobExecution rejected = concurrentJobLauncher.run(blockingJob, new JobParametersBuilder()
+      .addLong("run", 3L)
+      .toJobParameters());
+
+    assertThat(rejected.getStatus()).isEqualTo(BatchStatus.FAILED);
+    assertThat(concurrentJobLauncher.getQueueSize()).isEqualTo(1);
+    release.countDown();
+    for (JobExecution jobExecution : admitted) {
+      awaitEnd(jobExecution);
+      assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    }
+  }
+
+  private static void awaitEnd(JobExecution jobExecution) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+    // a queued job is not running yet: it has no start time
+    while ((jobExecution.getStatus().isRunning() || jobExecution.isRunning()) && System.nanoTime() < deadline) {
+      Thread.sleep(50);
+    }
+  }
+
+  private JobParameters parameters(String name, int files, long priority) throws Exception {
+    File inputDir = folder.newFolder(name);
+    PersonFaker personFaker = new PersonFaker();
+    for (int file = 0; file < files; file++) {
+      List<Person> persons = personFaker.buildPersons(20, new Integer[0]);
+      personFaker.writeCsvOfPerson(new File(inputDir, String.format("data-#%02d.csv", file)).getAbsolutePath(),
+        persons);
+    }
+    return new JobParametersBuilder()
+      .addString("input.dir", inputDir.getAbsolutePath())
+      .addLong(ConcurrentJobLauncher.PRIORITY_KEY, priority)
+      .toJobParameters();
+  }
+}
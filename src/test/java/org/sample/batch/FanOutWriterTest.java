@@ -0,0 +1,139 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.sample.batch.writer.FanOutItemWriter;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.file.FlatFileItemWriter;
+import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class}, properties = "batch.archive.dir=target/archive")
+public class FanOutWriterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+
+  @Before
+  public void cleanUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void sinksAreWrittenInParallel() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    ItemWriter<String> slow = items -> Thread.sleep(200);
+    FanOutItemWriter<String> writer = new FanOutItemWriter<>(slow, Collections.singletonMap("archive", slow), executor);
+    ExecutionContext executionContext = new ExecutionContext();
+    writer.open(executionContext);
+
+    long start = System.nanoTime();
+    writer.write(Arrays.asList("a", "b"));
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    writer.update(executionContext);
+    writer.close();
+    executor.shutdown();
+
+    assertThat(elapsedMillis).isLessThan(2 * 200 - 50);
+    assertThat(executionContext.getLong("fanout.primary.write.count")).isEqualTo(1);
+    assertThat(executionContext.getLong("fanout.archive.write.total.ms")).isGreaterThanOrEqualTo(200);
+  }
+
+  @Test
+  public void archiveLinesAreRolledBackWithTheChunk() throws Exception {
+    File archive = new File(folder.getRoot(), "archive.csv");
+    FlatFileItemWriter<String> archiveWriter = new FlatFileItemWriterBuilder<String>()
+      .name("archive")
+      .resource(new FileSystemResource(archive))
+      .lineAggregator(item -> item)
+      .build();
+    ItemWriter<String> database = items -> {
+      if (items.contains("bad")) {
+        throw new IllegalStateException("constraint violation");
+      }
+    };
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    FanOutItemWriter<String> writer = new FanOutItemWriter<>(database, Collections.singletonMap("archive", archiveWriter),
+      executor);
+    TransactionTemplate transactionTemplate = new TransactionTemplate(new ResourcelessTransactionManager());
+    ExecutionContext executionContext = new ExecutionContext();
+    writer.open(executionContext);
+
+    transactionTemplate.execute(status -> write(writer, Arrays.asList("a", "b")));
+    Throwable failure = catchThrowable(() -> transactionTemplate.execute(status -> write(writer, Arrays.asList("c", "bad"))));
+    transactionTemplate.execute(status -> write(writer, Collections.singletonList("d")));
+    writer.close();
+    executor.shutdown();
+
+    assertThat(failure).hasRootCauseInstanceOf(IllegalStateException.class);
+    assertThat(Files.readAllLines(archive.toPath())).containsExactly("a", "b", "d");
+  }
+
+  @Test
+  public void acceptedPersonsAreArchived() throws Exception {
+    File dataFile = folder.newFile("data.csv");
+    Files.write(dataFile.toPath(), (
+      "firstName;lastName;age\n" +
+      "zoé;dupont;23\n" +
+      "jane;doe;0\n" +
+      "john;doe;45\n").getBytes(StandardCharsets.UTF_8));
+
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    List<String> archived = Files.readAllLines(new File("target/archive/data.csv").toPath(), StandardCharsets.UTF_8);
+    assertThat(archived).containsExactly("PRENOM;NOM;AGE", "Zoé;DUPONT;23", "John;DOE;45");
+    assertThat(jobExecution.getStepExecutions())
+      .filteredOn(stepExecution -> stepExecution.getStepName().startsWith("step1:"))
+      .extracting(StepExecution::getExecutionContext)
+      .allSatisfy(context -> {
+        assertThat(context.getLong("fanout.primary.write.count")).isEqualTo(2);
+        assertThat(context.containsKey("fanout.archive.write.p99.us")).isTrue();
+      });
+  }
+
+  private static Object write(ItemWriter<String> writer, List<String> items) {
+    try {
+      writer.write(items);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+    return null;
+  }
+}
@@ -0,0 +1,127 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.generator.PersonFileGenerator;
+import org.sample.batch.model.Person;
+import org.sample.batch.validation.RuleEngine;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class})
+public class GeneratorTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+
+  @Before
+  public void cleanUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void sameSeedSameFiles() throws Exception {
+    File single = folder.newFolder("single");
+    File parallel = folder.newFolder("parallel");
+    generator(1, 0.01, 0.01).generate(single.toPath());
+    PersonFileGenerator.Report report = generator(4, 0.01, 0.01).generate(parallel.toPath());
+
+    assertThat(report.getFiles()).isEqualTo(3);
+    assertThat(report.getRows()).isEqualTo(3 * 1000);
+    for (String name : single.list()) {
+      assertThat(Files.readAllBytes(parallel.toPath().resolve(name)))
+        .isEqualTo(Files.readAllBytes(single.toPath().resolve(name)));
+    }
+  }
+
+  @Test
+  public void corruptsTheRequestedRows() throws Exception {
+    PersonFileGenerator.Report report = generator(2, 0.02, 0.05).generate(folder.getRoot().toPath());
+    assertThat(report.getParseErrors()).isBetween(30L, 90L);
+    assertThat(report.getInvalidRows()).isBetween(100L, 200L);
+
+    // the rows are classified as the import step does
+    DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer(";");
+    tokenizer.setStrict(true);
+    tokenizer.setNames("firstName", "lastName", "age");
+    BeanWrapperFieldSetMapper<Person> mapper = new BeanWrapperFieldSetMapper<>();
+    mapper.setTargetType(Person.class);
+    RuleEngine<Person> ruleEngine = RuleEngine.forClass(Person.class);
+    long parseErrors = 0;
+    long invalidRows = 0;
+    long bytes = 0;
+    try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        bytes += Files.size(file);
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(lines.get(0)).isEqualTo("firstName;lastName;age");
+        for (String line : lines.subList(1, lines.size())) {
+          Person person;
+          try {
+            person = mapper.mapFieldSet(tokenizer.tokenize(line));
+          } catch (Exception e) {
+            parseErrors++;
+            continue;
+          }
+          if (!ruleEngine.validate(person).isEmpty()) {
+            invalidRows++;
+          }
+        }
+      }
+    }
+    assertThat(parseErrors).isEqualTo(report.getParseErrors());
+    assertThat(invalidRows).isEqualTo(report.getInvalidRows());
+    assertThat(bytes).isEqualTo(report.getBytes());
+  }
+
+  @Test
+  public void generatedFileIsImported() throws Exception {
+    PersonFileGenerator generator = new PersonFileGenerator();
+    generator.setRowsPerFile(200);
+    generator.generate(folder.getRoot().toPath());
+
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.file", new File(folder.getRoot(), "data-#0000.csv").getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PEOPLE", Long.class)).isEqualTo(200);
+  }
+
+  private static PersonFileGenerator generator(int threads, double parseErrorRate, double invalidRate) {
+    PersonFileGenerator generator = new PersonFileGenerator();
+    generator.setFiles(3);
+    generator.setRowsPerFile(1000);
+    generator.setSeed(7);
+    generator.setThreads(threads);
+    generator.setParseErrorRate(parseErrorRate);
+    generator.setInvalidRate(invalidRate);
+    return generator;
+  }
+}
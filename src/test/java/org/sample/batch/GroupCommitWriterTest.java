@@ -0,0 +1,171 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.sample.batch.writer.GroupCommitItemWriter;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class})
+public class GroupCommitWriterTest {
+
+  private static final String COUNT_PEOPLE = "SELECT COUNT(*) FROM PEOPLE";
+
+  @Rule
+  public TemporaryFolder dataFolder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+  @Autowired
+  private GroupCommitItemWriter<Person> groupCommitWriter;
+
+  @Before
+  public void cleanUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void waitingChunksAreWrittenTogether() throws Exception {
+    CountDownLatch firstWrite = new CountDownLatch(1);
+    CountDownLatch queued = new CountDownLatch(1);
+    List<List<String>> groups = Collections.synchronizedList(new ArrayList<>());
+    GroupCommitItemWriter<String> writer = new GroupCommitItemWriter<>(items -> {
+      groups.add(new ArrayList<>(items));
+      firstWrite.countDown();
+      // the other chunks are queued while the first one is written
+      queued.await(5, TimeUnit.SECONDS);
+    }, new ResourcelessTransactionManager(), 10, 100);
+
+    CompletableFuture<Void> first = write(writer, "a1", "a2");
+    firstWrite.await(5, TimeUnit.SECONDS);
+    List<CompletableFuture<Void>> others = new ArrayList<>();
+    for (String partition : Arrays.asList("b", "c", "d")) {
+      others.add(write(writer, partition + "1", partition + "2"));
+    }
+    Thread.sleep(200);
+    queued.countDown();
+    first.get(5, TimeUnit.SECONDS);
+    for (CompletableFuture<Void> other : others) {
+      other.get(5, TimeUnit.SECONDS);
+    }
+    writer.destroy();
+
+    assertThat(groups).hasSize(2);
+    assertThat(groups.get(1)).hasSize(6).contains("b1", "c2", "d1");
+    assertThat(writer.getTransactionCount()).isEqualTo(2);
+    assertThat(writer.getItemCount()).isEqualTo(8);
+  }
+
+  @Test
+  public void onlyTheFaultyChunkFails() throws Exception {
+    CountDownLatch firstWrite = new CountDownLatch(1);
+    CountDownLatch queued = new CountDownLatch(1);
+    List<List<String>> written = Collections.synchronizedList(new ArrayList<>());
+    GroupCommitItemWriter<String> writer = new GroupCommitItemWriter<>(items -> {
+      firstWrite.countDown();
+      queued.await(5, TimeUnit.SECONDS);
+      if (items.contains("bad")) {
+        throw new IllegalArgumentException("bad item");
+      }
+      written.add(new ArrayList<>(items));
+    }, new ResourcelessTransactionManager(), 10, 100);
+
+    CompletableFuture<Void> first = write(writer, "a1");
+    firstWrite.await(5, TimeUnit.SECONDS);
+    CompletableFuture<Void> good = write(writer, "b1");
+    CompletableFuture<Void> bad = write(writer, "c1", "bad");
+    Thread.sleep(200);
+    queued.countDown();
+
+    first.get(5, TimeUnit.SECONDS);
+    good.get(5, TimeUnit.SECONDS);
+    Throwable failure = catchThrowable(() -> bad.get(5, TimeUnit.SECONDS));
+    writer.destroy();
+
+    assertThat(failure).isInstanceOf(ExecutionException.class).hasRootCauseInstanceOf(IllegalArgumentException.class);
+    assertThat(written).containsExactly(Collections.singletonList("a1"), Collections.singletonList("b1"));
+  }
+
+  @Test
+  public void partitionsShareTheWriter() throws Exception {
+    PersonFaker personFaker = new PersonFaker();
+    for (int file = 0; file < 4; file++) {
+      File dataFile = dataFolder.newFile(String.format("data-#%02d.csv", file));
+      personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), personFaker.buildPersons(20, new Integer[]{5}));
+    }
+    long transactionsBefore = groupCommitWriter.getTransactionCount();
+
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.dir", dataFolder.getRoot().getAbsolutePath())
+      .addString("write.mode", "group")
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(4 * 19);
+    // at most one transaction per chunk
+    assertThat(groupCommitWriter.getTransactionCount() - transactionsBefore).isLessThanOrEqualTo(4 * 10);
+  }
+
+  @Test
+  public void chunkWrittenAgainIsNotInsertedTwice() throws Exception {
+    List<Person> chunk = Arrays.asList(person(1), person(2));
+    groupCommitWriter.write(chunk);
+    // the chunk of the partition is rolled back after the commit of its group: written again by the restart
+    groupCommitWriter.write(chunk);
+
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(2);
+  }
+
+  @Test
+  public void itemsWithoutPositionAreRefused() {
+    Throwable failure = catchThrowable(() -> groupCommitWriter.write(Collections.singletonList(
+      new Person("John", "DOE", 34))));
+
+    assertThat(failure).isInstanceOf(IllegalStateException.class).hasMessageStartingWith("No source position");
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isZero();
+  }
+
+  private static Person person(int line) {
+    Person person = new Person("First" + line, "LAST" + line, 20 + line);
+    person.setSourceId("data.csv@1");
+    person.setSourceLine(line);
+    return person;
+  }
+
+  private static CompletableFuture<Void> write(GroupCommitItemWriter<String> writer, String... items) {
+    return CompletableFuture.runAsync(() -> {
+      try {
+        writer.write(Arrays.asList(items));
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }, runnable -> new Thread(runnable).start());
+  }
+}
@@ -0,0 +1,151 @@
+package org.sample.batch;
+
+import org.hsqldb.Database;
+import org.hsqldb.server.Server;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sample.batch.generator.PersonFileGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kills the JVM of an idempotent import in the middle of a partition, then starts the import again with
+ * batch.restart.fail-stale = true: every line must be stored exactly once. The imports run in forked JVMs, on a HSQL
+ * server started by the test.
+ */
+public class IdempotentCrashTest {
+
+  private static final int FILES = 3;
+  private static final long ROWS = 3000;
+  private static final String COUNT_PEOPLE = "SELECT COUNT(*) FROM people";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final String javaCommand = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+  // not the test classes: the test configuration would be scanned by the application
+  private final String classPath = Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+    .filter(entry -> !entry.endsWith("test-classes"))
+    .collect(Collectors.joining(File.pathSeparator));
+
+  private Server server;
+  private String url;
+  private JdbcTemplate jdbcTemplate;
+  private Path inbound;
+  private final List<Process> processes = new ArrayList<>();
+
+  @Before
+  public void setUp() throws IOException {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    server = new Server();
+    server.setSilent(true);
+    server.setLogWriter(null);
+    server.setNoSystemExit(true);
+    server.setPort(port);
+    server.setDatabaseName(0, "crash");
+    server.setDatabasePath(0, "mem:crash");
+    server.start();
+    url = "jdbc:hsqldb:hsql://localhost:" + port + "/crash";
+    jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url, "SA", ""));
+    inbound = folder.newFolder("inbound").toPath();
+    PersonFileGenerator generator = new PersonFileGenerator();
+    generator.setFiles(FILES);
+    generator.setRowsPerFile(ROWS);
+    generator.generate(inbound);
+  }
+
+  @After
+  public void tearDown() {
+    processes.forEach(Process::destroyForcibly);
+    server.shutdownWithCatalogs(Database.CLOSEMODE_IMMEDIATELY);
+  }
+
+  @Test
+  public void restartsTheKilledImportExactlyOnce() throws Exception {
+    Process killed = fork("killed.log", "--spring.batch.initialize-schema=always");
+    awaitCommittedChunk(killed);
+    assertThat(killed.destroyForcibly().waitFor(30, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isBetween(1L, FILES * ROWS - 1);
+    assertThat(jdbcTemplate.queryForList("SELECT status FROM batch_job_execution", String.class))
+      .containsExactly("STARTED");
+
+    Process restarted = fork("restarted.log", "--spring.batch.initialize-schema=never",
+      "--batch.restart.fail-stale=true", "run.id(long)=1");
+    assertThat(restarted.waitFor(2, TimeUnit.MINUTES)).isTrue();
+    assertThat(restarted.exitValue()).describedAs(log("restarted.log")).isZero();
+
+    // the execution of the killed JVM is restarted
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM batch_job_instance", Long.class)).isEqualTo(1);
+    assertThat(jdbcTemplate.queryForList(
+      "SELECT status FROM batch_job_execution ORDER BY job_execution_id", String.class))
+      .containsExactly("FAILED", "COMPLETED");
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(FILES * ROWS);
+    assertThat(jdbcTemplate.queryForList(
+      "SELECT COUNT(DISTINCT source_line) FROM people GROUP BY source_id", Long.class))
+      .hasSize(FILES)
+      .containsOnly(ROWS);
+  }
+
+  private Process fork(String log, String... args) throws IOException {
+    List<String> command = new ArrayList<>(Arrays.asList(javaCommand, "-Xmx256m", "-cp", classPath,
+      Application.class.getName(), "--batch.execution.mode=idempotent", "--batch.idempotent.chunk-size=100",
+      "--batch.datasource.url=" + url, "--logging.level.org.sample.batch=WARN",
+      "--logging.level.org.springframework=WARN"));
+    command.addAll(Arrays.asList(args));
+    command.add("input.dir=" + inbound);
+    Process process = new ProcessBuilder(command)
+      .redirectErrorStream(true)
+      .redirectOutput(new File(folder.getRoot(), log))
+      .start();
+    processes.add(process);
+    return process;
+  }
+
+  /**
+   * Until a partition has committed a chunk and is still running.
+   */
+  private void awaitCommittedChunk(Process process) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+    while (System.currentTimeMillis() < deadline && process.isAlive()) {
+      try {
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM batch_step_execution "
+          + "WHERE step_name LIKE 'idempotentStep:%' AND status = 'STARTED' AND commit_count > 0", Long.class) > 0) {
+          return;
+        }
+      } catch (RuntimeException e) {
+        // the schema is not created yet
+      }
+      Thread.sleep(20);
+    }
+    throw new IllegalStateException("No chunk committed: " + log("killed.log"));
+  }
+
+  private String log(String name) {
+    try {
+      return new String(Files.readAllBytes(new File(folder.getRoot(), name).toPath()), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      return e.toString();
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package org.sample.batch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.sample.batch.writer.IdempotentItemWriter;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(
+  classes = {BatchConfiguration.class, TestConfig.class, IdempotentWriteTest.CrashConfig.class},
+  properties = {
+    "batch.execution.mode=idempotent",
+    "batch.idempotent.chunk-size=20",
+    "spring.main.allow-bean-definition-overriding=true"
+  })
+public class IdempotentWriteTest {
+
+  private static final String COUNT_PEOPLE = "SELECT COUNT(*) FROM people";
+  private static final String COUNT_POSITIONS = "SELECT COUNT(DISTINCT source_line) FROM people";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+
+  private JobParameters parameters;
+
+  @Before
+  public void setUp() throws Exception {
+    jdbcTemplate.update("delete from people");
+    File dataFile = folder.newFile("data.csv");
+    PersonFaker personFaker = new PersonFaker();
+    List<Person> persons = personFaker.buildPersons(100, new Integer[0]);
+    personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), persons);
+    parameters = new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .toJobParameters();
+  }
+
+  @After
+  public void noCrash() {
+    CrashingWriter.crashAt = -1;
+    CrashingWriter.written = 0;
+  }
+
+  @Test
+  public void writesEachLineOnce() throws Exception {
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(parameters);
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(100);
+    assertThat(jdbcTemplate.queryForObject(COUNT_POSITIONS, Long.class)).isEqualTo(100);
+    assertThat(jdbcTemplate.queryForObject("SELECT MIN(source_line) FROM people", Long.class)).isEqualTo(2);
+    assertThat(counter(jobExecution, IdempotentItemWriter.INSERTED_COUNT_KEY)).isEqualTo(100);
+
+    // the same file again: nothing is inserted
+    JobExecution again = jobLauncherTestUtils.launchJob(new JobParametersBuilder(parameters)
+      .addLong("run", 2L)
+      .toJobParameters());
+    assertThat(again.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(counter(again, IdempotentItemWriter.DUPLICATE_COUNT_KEY)).isEqualTo(100);
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(100);
+  }
+
+  @Test
+  public void restartAfterACrashInTheMiddleOfAChunk() throws Exception {
+    // the third chunk (items 41 to 60) is half written
+    CrashingWriter.crashAt = 50;
+    JobExecution crashed = jobLauncherTestUtils.launchJob(parameters);
+    assertThat(crashed.getStatus()).isEqualTo(BatchStatus.FAILED);
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(50);
+
+    CrashingWriter.crashAt = -1;
+    JobExecution restarted = jobLauncherTestUtils.launchJob(parameters);
+
+    assertThat(restarted.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(100);
+    assertThat(jdbcTemplate.queryForObject(COUNT_POSITIONS, Long.class)).isEqualTo(100);
+    // the partition restarts at the last saved position, before the crashed chunk
+    assertThat(counter(restarted, IdempotentItemWriter.DUPLICATE_COUNT_KEY)).isEqualTo(10);
+  }
+
+  @Test
+  public void restartAfterACrashBeforeTheSavedPosition() throws Exception {
+    // the third chunk is written, the position is not saved
+    CrashingWriter.crashAt = 60;
+    JobExecution crashed = jobLauncherTestUtils.launchJob(parameters);
+    assertThat(crashed.getStatus()).isEqualTo(BatchStatus.FAILED);
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(60);
+
+    CrashingWriter.crashAt = -1;
+    JobExecution restarted = jobLauncherTestUtils.launchJob(parameters);
+
+    assertThat(restarted.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(100);
+    assertThat(jdbcTemplate.queryForObject(COUNT_POSITIONS, Long.class)).isEqualTo(100);
+    assertThat(counter(restarted, IdempotentItemWriter.DUPLICATE_COUNT_KEY)).isEqualTo(20);
+  }
+
+  private static long counter(JobExecution jobExecution, String key) {
+    return jobExecution.getStepExecutions().stream()
+      .filter(stepExecution -> stepExecution.getStepName().startsWith("idempotentStep:"))
+      .map(StepExecution::getExecutionContext)
+      .mapToLong(context -> context.getLong(key, 0))
+      .sum();
+  }
+
+  @Configuration
+  static class CrashConfig {
+
+    @Bean
+    public IdempotentItemWriter idempotentWriter(DataSource dataSource) {
+      return new CrashingWriter(dataSource);
+    }
+  }
+
+  /**
+   * Writes the items up to the crash position, then dies like a killed process (not an exception the step can
+   * skip or retry).
+   */
+  static class CrashingWriter extends IdempotentItemWriter {
+    static volatile int crashAt = -1;
+    static int written;
+
+    CrashingWriter(DataSource dataSource) {
+      super(dataSource);
+    }
+
+    @Override
+    public void write(List<? extends Person> items) throws Exception {
+      if (crashAt < 0 || written + items.size() < crashAt) {
+        super.write(items);
+        written += items.size();
+        return;
+      }
+      super.write(items.subList(0, crashAt - written));
+      written = crashAt;
+      crashAt = -1;
+      throw new Crash();
+    }
+  }
+
+  static class Crash extends Error {
+  }
+}
@@ -0,0 +1,193 @@
+package org.sample.batch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sample.batch.csv.SkipCounter;
+import org.sample.batch.repository.CompactBatchConfigurer;
+import org.sample.batch.repository.CompactExecutionContextSerializer;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.DefaultBatchConfigurer;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobRepositoryModeTest {
+
+  private static final String STEP_VERSION = "SELECT VERSION FROM BATCH_STEP_EXECUTION WHERE STEP_EXECUTION_ID = ?";
+
+  private EmbeddedDatabase dataSource;
+
+  @Before
+  public void createRepositoryDatabase() {
+    dataSource = new EmbeddedDatabaseBuilder()
+      .generateUniqueName(true)
+      .setType(EmbeddedDatabaseType.HSQL)
+      .addScript("org/springframework/batch/core/schema-hsqldb.sql")
+      .build();
+  }
+
+  @After
+  public void shutdown() {
+    dataSource.shutdown();
+  }
+
+  @Test
+  public void serializesCompactValues() throws Exception {
+    SkipCounter counter = new SkipCounter();
+    counter.incReadError();
+    counter.incProcessError();
+    counter.incViolation("age");
+    Map<String, Object> context = new HashMap<>();
+    context.put("reader.read.count", 12345L);
+    context.put("negative", -1L);
+    context.put("max", Long.MAX_VALUE);
+    context.put("file", "/data/input-é.csv");
+    context.put("int", 3);
+    context.put("ratio", 0.25);
+    context.put("done", true);
+    context.put("date", new Date(1000));
+    context.put("list", new ArrayList<>(Arrays.asList("a", "b")));
+    context.put("SimpleSkipListener.counters", counter);
+
+    CompactExecutionContextSerializer serializer = new CompactExecutionContextSerializer();
+    ByteArrayOutputStream compact = new ByteArrayOutputStream();
+    serializer.serialize(context, compact);
+    // stored as a string by the job repository: printable
+    assertThat(compact.toString("ISO-8859-1")).matches("ctx:[A-Za-z0-9+/=]+");
+    Map<String, Object> restored = serializer.deserialize(new ByteArrayInputStream(compact.toByteArray()));
+
+    SkipCounter restoredCounter = (SkipCounter) restored.remove("SimpleSkipListener.counters");
+    context.remove("SimpleSkipListener.counters");
+    assertThat(restored).isEqualTo(context);
+    assertThat(restoredCounter.getErrors()).isEqualTo(2);
+    assertThat(restoredCounter.getViolations()).containsEntry("age", 1L);
+
+    context.remove("list");
+    context.put("SimpleSkipListener.counters", counter);
+    compact.reset();
+    serializer.serialize(context, compact);
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    new Jackson2ExecutionContextStringSerializer().serialize(context, json);
+    // the Base64 encoding takes a third more than the binary payload
+    assertThat(compact.size()).isLessThan(json.size() * 9 / 10);
+    // contexts written by the default serializer are still read
+    assertThat(serializer.deserialize(new ByteArrayInputStream(json.toByteArray())))
+      .containsEntry("reader.read.count", 12345L);
+  }
+
+  @Test
+  public void coalescesStepUpdates() throws Exception {
+    DefaultBatchConfigurer defaultConfigurer = new DefaultBatchConfigurer(dataSource);
+    defaultConfigurer.initialize();
+    StepExecution defaultStep = run(defaultConfigurer, 100, -1, "default").getStepExecutions().iterator().next();
+
+    CompactBatchConfigurer compactConfigurer = new CompactBatchConfigurer(dataSource, 10, 60_000);
+    compactConfigurer.initialize();
+    JobExecution compactExecution = run(compactConfigurer, 100, -1, "compact");
+    StepExecution compactStep = compactExecution.getStepExecutions().iterator().next();
+
+    assertThat(compactExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    int defaultUpdates = jdbcTemplate.queryForObject(STEP_VERSION, Integer.class, defaultStep.getId());
+    int compactUpdates = jdbcTemplate.queryForObject(STEP_VERSION, Integer.class, compactStep.getId());
+    assertThat(defaultUpdates).isGreaterThan(100);
+    assertThat(compactUpdates).isLessThanOrEqualTo(100 / 10 + 3);
+
+    // the final state is always persisted
+    StepExecution persisted = compactConfigurer.getJobExplorer()
+      .getStepExecution(compactExecution.getId(), compactStep.getId());
+    assertThat(persisted.getWriteCount()).isEqualTo(100);
+    assertThat(persisted.getExecutionContext().getInt("reader.position")).isEqualTo(100);
+  }
+
+  @Test
+  public void failedStepKeepsItsPosition() throws Exception {
+    CompactBatchConfigurer configurer = new CompactBatchConfigurer(dataSource, 10, 60_000);
+    configurer.initialize();
+
+    JobExecution failed = run(configurer, 100, 55, "restart");
+    assertThat(failed.getStatus()).isEqualTo(BatchStatus.FAILED);
+    StepExecution failedStep = configurer.getJobExplorer()
+      .getStepExecution(failed.getId(), failed.getStepExecutions().iterator().next().getId());
+    // the progress is persisted at the end of the step, even if the last commits were not
+    assertThat(failedStep.getExecutionContext().getInt("reader.position")).isEqualTo(55);
+
+    JobExecution restarted = run(configurer, 100, -1, "restart");
+    StepExecution restartedStep = restarted.getStepExecutions().iterator().next();
+    assertThat(restarted.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(restartedStep.getReadCount()).isEqualTo(45);
+  }
+
+  private static JobExecution run(DefaultBatchConfigurer configurer, int itemCount, int failAt, String name)
+    throws Exception {
+    StepBuilder stepBuilder = new StepBuilder("step");
+    stepBuilder.repository(configurer.getJobRepository());
+    stepBuilder.transactionManager(configurer.getTransactionManager());
+    Job job = new JobBuilder("job")
+      .repository(configurer.getJobRepository())
+      .start(stepBuilder.<Integer, Integer>chunk(1)
+        .reader(new PositionReader(itemCount))
+        .writer(items -> {
+          if (items.contains(failAt)) {
+            throw new IllegalStateException("failed at " + failAt);
+          }
+        })
+        .build())
+      .build();
+    JobParameters parameters = new JobParametersBuilder().addString("name", name).toJobParameters();
+    return configurer.getJobLauncher().run(job, parameters);
+  }
+
+  /**
+   * Reads 0..count-1, restarts from the position saved in the execution context.
+   */
+  private static class PositionReader implements ItemStreamReader<Integer> {
+    private final int count;
+    private int position;
+
+    PositionReader(int count) {
+      this.count = count;
+    }
+
+    @Override
+    public Integer read() {
+      return position < count ? position++ : null;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+      position = executionContext.getInt("reader.position", 0);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+      executionContext.putInt("reader.position", position);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package org.sample.batch;
+
+import org.sample.batch.service.NationalService;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Local stub of the national registry answering after a latency drawn from a distribution.
+ */
+public class LatencyStubNationalService implements NationalService {
+
+  private final LongSupplier latencyMillis;
+  private final AtomicInteger calls = new AtomicInteger();
+  private final AtomicInteger concurrentCalls = new AtomicInteger();
+  private final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+  private volatile boolean failing;
+
+  public LatencyStubNationalService(LongSupplier latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  public static LongSupplier fixed(long millis) {
+    return () -> millis;
+  }
+
+  /**
+   * Fast most of the time, sometimes very slow.
+   */
+  public static LongSupplier bimodal(long fastMillis, long slowMillis, double slowRatio, long seed) {
+    Random random = new Random(seed);
+    return () -> {
+      synchronized (random) {
+        return random.nextDouble() < slowRatio ? slowMillis : fastMillis;
+      }
+    };
+  }
+
+  /**
+   * Every n-th call is slow (deterministic tail).
+   */
+  public static LongSupplier everyNth(int n, long fastMillis, long slowMillis) {
+    AtomicInteger count = new AtomicInteger();
+    return () -> count.incrementAndGet() % n == 0 ? slowMillis : fastMillis;
+  }
+
+  @Override
+  public Optional<String> findNationalIdentifier(String firstName, String lastName) {
+    calls.incrementAndGet();
+    maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+    try {
+      TimeUnit.MILLISECONDS.sleep(latencyMillis.getAsLong());
+      if (failing) {
+        throw new IllegalStateException("registry unavailable");
+      }
+      return Optional.of(firstName.charAt(0) + "-" + lastName);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Optional.empty();
+    } finally {
+      concurrentCalls.decrementAndGet();
+    }
+  }
+
+  public void setFailing(boolean failing) {
+    this.failing = failing;
+  }
+
+  public int getCalls() {
+    return calls.get();
+  }
+
+  public int getMaxConcurrentCalls() {
+    return maxConcurrentCalls.get();
+  }
+}
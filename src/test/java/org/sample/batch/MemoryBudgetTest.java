@@ -0,0 +1,139 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.memory.MemoryBudget;
+import org.sample.batch.memory.MemoryBudgetListener;
+import org.sample.batch.model.Person;
+import org.sample.batch.processor.NameDictionary;
+import org.sample.batch.reader.PrefetchingItemReader;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(
+  classes = {BatchConfiguration.class, TestConfig.class},
+  properties = {
+    "batch.memory.budget-mb=1",
+    "batch.execution.mode=idempotent",
+    "batch.idempotent.chunk-size=50",
+    "batch.reader.prefetch-size=50"
+  })
+public class MemoryBudgetTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+  @Autowired
+  private MemoryBudget memoryBudget;
+
+  @Before
+  public void setUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void waitsUntilAnotherPartitionReleases() throws Exception {
+    MemoryBudget budget = new MemoryBudget(1000);
+    MemoryBudget.Account first = budget.open("first");
+    MemoryBudget.Account second = budget.open("second");
+    first.reserve("chunk", 800);
+    // the second partition holds less than its share: it never waits
+    second.reserve("chunk", 300);
+    assertThat(budget.getUsed()).isEqualTo(1100);
+
+    CountDownLatch reserved = new CountDownLatch(1);
+    Thread thread = new Thread(() -> {
+      first.reserve("prefetch", 100);
+      reserved.countDown();
+    });
+    thread.start();
+    assertThat(reserved.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+    second.release("chunk", 300);
+    assertThat(reserved.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(budget.getUsed()).isEqualTo(900);
+    assertThat(budget.getWaits()).isEqualTo(1);
+    assertThat(budget.getOverdrafts()).isZero();
+    assertThat(budget.getPeak()).isEqualTo(1100);
+    assertThat(budget.getPeakUsage()).containsEntry("chunk", 1100L).containsEntry("prefetch", 100L);
+
+    first.close();
+    second.close();
+    assertThat(budget.getUsed()).isZero();
+    assertThat(budget.getUsage()).containsEntry("chunk", 0L).containsEntry("prefetch", 0L);
+  }
+
+  @Test
+  public void exceedsTheBudgetAfterTheMaximumWait() {
+    MemoryBudget budget = new MemoryBudget(1000);
+    budget.setMaxWait(50, TimeUnit.MILLISECONDS);
+    MemoryBudget.Account account = budget.open("alone");
+    account.reserve("chunk", 900);
+    account.reserve("chunk", 200);
+
+    assertThat(budget.getUsed()).isEqualTo(1100);
+    assertThat(budget.getOverdrafts()).isEqualTo(1);
+    assertThat(budget.getWaitNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+  }
+
+  @Test
+  public void cachesDoNotGrowBeyondTheBudget() {
+    MemoryBudget budget = new MemoryBudget(1000);
+    NameDictionary dictionary = new NameDictionary(100, budget);
+    for (int i = 0; i < 20; i++) {
+      assertThat(dictionary.lastName("name" + i)).isEqualTo("NAME" + i);
+    }
+
+    assertThat(dictionary.getSize()).isBetween(1L, 19L);
+    assertThat(budget.getUsed()).isLessThanOrEqualTo(1000).isEqualTo(budget.getUsage().get(NameDictionary.CACHE));
+
+    dictionary.clear();
+    assertThat(budget.getUsed()).isZero();
+  }
+
+  @Test
+  public void jobReportsItsPeakUsage() throws Exception {
+    File dataFile = folder.newFile("data.csv");
+    PersonFaker personFaker = new PersonFaker();
+    List<Person> persons = personFaker.buildPersons(200, new Integer[]{10});
+    personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), persons);
+
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    ExecutionContext context = jobExecution.getExecutionContext();
+    String prefix = MemoryBudgetListener.KEY_PREFIX;
+    assertThat(context.getLong(prefix + "peak")).isPositive().isLessThanOrEqualTo(1024 * 1024);
+    assertThat(context.getLong(prefix + MemoryBudgetListener.CHUNK + ".peak")).isPositive();
+    assertThat(context.getLong(prefix + MemoryBudgetListener.ERRORS + ".peak")).isPositive();
+    assertThat(context.getLong(prefix + PrefetchingItemReader.PREFETCH + ".peak")).isPositive();
+    assertThat(context.getLong(prefix + NameDictionary.CACHE + ".peak")).isPositive();
+    assertThat(context.getLong(prefix + "overdrafts")).isZero();
+    // everything is released with the job
+    assertThat(memoryBudget.getUsed()).isZero();
+  }
+}
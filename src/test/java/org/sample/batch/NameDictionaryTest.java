@@ -0,0 +1,66 @@
+package org.sample.batch;
+
+import org.junit.Test;
+import org.sample.batch.processor.NameDictionaries;
+import org.sample.batch.processor.NameDictionary;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NameDictionaryTest {
+
+  @Test
+  public void normalizesOncePerDistinctName() {
+    NameDictionary dictionary = new NameDictionary(100);
+
+    String first = dictionary.lastName(new String("doe"));
+    String second = dictionary.lastName(new String("doe"));
+
+    assertThat(first).isEqualTo("DOE");
+    assertThat(second).isSameAs(first);
+    assertThat(dictionary.firstName("john")).isEqualTo("John");
+    assertThat(dictionary.getStats().hitCount()).isEqualTo(1);
+    assertThat(dictionary.getStats().missCount()).isEqualTo(2);
+    assertThat(dictionary.getHitRatio()).isEqualTo(1.0 / 3);
+    assertThat(dictionary.getBytesSaved()).isGreaterThan(0);
+  }
+
+  @Test
+  public void evictsWhenCardinalityIsHigh() {
+    NameDictionary dictionary = new NameDictionary(10);
+
+    for (int i = 0; i < 1000; i++) {
+      dictionary.lastName("name" + i);
+    }
+
+    assertThat(dictionary.getSize()).isLessThanOrEqualTo(10);
+    assertThat(dictionary.getStats().evictionCount()).isGreaterThanOrEqualTo(990);
+  }
+
+  @Test
+  public void oneDictionaryPerJob() {
+    NameDictionaries dictionaries = new NameDictionaries(100);
+    JobExecution jobExecution = MetaDataInstanceFactory.createJobExecution("job", 1L, 10L);
+    StepExecution stepExecution = jobExecution.createStepExecution("step");
+
+    NameDictionary fallback = dictionaries.current();
+    dictionaries.beforeJob(jobExecution);
+    StepSynchronizationManager.register(stepExecution);
+    try {
+      NameDictionary current = dictionaries.current();
+      assertThat(current).isNotSameAs(fallback);
+      current.lastName("doe");
+      current.lastName("doe");
+    } finally {
+      StepSynchronizationManager.close();
+    }
+    dictionaries.afterJob(jobExecution);
+
+    assertThat(jobExecution.getExecutionContext().getDouble(NameDictionaries.KEY_PREFIX + "hitRatio")).isEqualTo(0.5);
+    assertThat(jobExecution.getExecutionContext().getLong(NameDictionaries.KEY_PREFIX + "size")).isEqualTo(1);
+    assertThat(fallback.getSize()).isEqualTo(0);
+  }
+}
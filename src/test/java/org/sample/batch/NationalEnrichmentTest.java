@@ -0,0 +1,115 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.service.NationalService;
+import org.sample.batch.service.resilience.AdaptiveConcurrencyLimit;
+import org.sample.batch.service.resilience.CircuitBreaker;
+import org.sample.batch.service.resilience.DeferredLookups;
+import org.sample.batch.service.resilience.ResilientNationalService;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class, NationalEnrichmentTest.StubConfig.class},
+  properties = "national.resilience.enabled=true")
+public class NationalEnrichmentTest {
+
+  private static final String MISSING_IDS = "SELECT COUNT(*) FROM people WHERE national_id IS NULL";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+  @Autowired
+  private LatencyStubNationalService stub;
+  @Autowired
+  private DeferredLookups deferredLookups;
+
+  @Configuration
+  static class StubConfig {
+
+    @Bean
+    public LatencyStubNationalService stub() {
+      return new LatencyStubNationalService(LatencyStubNationalService.fixed(0));
+    }
+
+    @Bean
+    public NationalService nationalService(DeferredLookups deferredLookups) {
+      return new ResilientNationalService(stub(), new AdaptiveConcurrencyLimit(1, 2, 4),
+        new CircuitBreaker(3, 100, TimeUnit.MILLISECONDS), deferredLookups);
+    }
+  }
+
+  @Before
+  public void setUp() {
+    jdbcTemplate.update("delete from people");
+    jdbcTemplate.update("delete from national_deferred_lookup");
+    stub.setFailing(false);
+  }
+
+  @Test
+  public void deferredLookupsAreEnrichedByALaterJob() throws Exception {
+    File unavailableFile = dataFile("unavailable.csv", 10);
+    File availableFile = dataFile("available.csv", 5);
+
+    // registry down during the whole job: the lookups stay deferred
+    stub.setFailing(true);
+    JobExecution firstRun = launch(unavailableFile);
+    assertThat(firstRun.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject(MISSING_IDS, Long.class)).isEqualTo(10);
+    assertThat(deferredLookups.size()).isEqualTo(10);
+    assertThat(enrichStep(firstRun).getWriteCount()).isEqualTo(0);
+
+    // back: the next job enriches the persons of the first one
+    stub.setFailing(false);
+    TimeUnit.MILLISECONDS.sleep(150);
+    JobExecution secondRun = launch(availableFile);
+
+    assertThat(secondRun.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject(MISSING_IDS, Long.class)).isEqualTo(0);
+    assertThat(jdbcTemplate.queryForList("SELECT national_id FROM people", String.class))
+      .hasSize(15).allMatch(id -> id.matches(".-.+"));
+    assertThat(deferredLookups.size()).isEqualTo(0);
+    assertThat(enrichStep(secondRun).getWriteCount()).isEqualTo(10);
+  }
+
+  private File dataFile(String name, int count) throws Exception {
+    File dataFile = folder.newFile(name);
+    PersonFaker personFaker = new PersonFaker();
+    personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), personFaker.buildPersons(count, new Integer[0]));
+    return dataFile;
+  }
+
+  private JobExecution launch(File dataFile) throws Exception {
+    return jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .toJobParameters());
+  }
+
+  private static StepExecution enrichStep(JobExecution jobExecution) {
+    return jobExecution.getStepExecutions().stream()
+      .filter(stepExecution -> stepExecution.getStepName().equals("enrichStep"))
+      .findFirst().get();
+  }
+}
@@ -0,0 +1,92 @@
+package org.sample.batch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sample.batch.service.index.MappedNationalService;
+import org.sample.batch.service.index.NationalIndex;
+import org.sample.batch.service.index.NationalIndexBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NationalIndexTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void findsTheIdentifiersOfNormalizedNames() throws Exception {
+    Path extract = extract(Arrays.asList(
+      "Zoé;Dupont;123",
+      "Jean;Martin;456",
+      "jean ; MARTIN;999",
+      "not a row",
+      "Paul;Durand;"));
+    Path indexFile = folder.getRoot().toPath().resolve("national.idx");
+
+    assertThat(new NationalIndexBuilder().build(extract, indexFile)).isEqualTo(3);
+
+    NationalIndex index = NationalIndex.open(indexFile);
+    assertThat(index.find("ZOE", "dupont")).contains("123");
+    // the first identifier of the extract
+    assertThat(index.find("Jean", "MARTIN")).contains("456");
+    assertThat(index.find("Paul", "DURAND")).isEmpty();
+    assertThat(index.find("Zoé", "Martin")).isEmpty();
+    assertThat(folder.getRoot().list()).containsExactly("extract.csv", "national.idx");
+  }
+
+  @Test
+  public void findsAllTheEntriesOfALargeIndex() throws Exception {
+    List<String> rows = new ArrayList<>();
+    for (int i = 0; i < 20_000; i++) {
+      rows.add("first" + i + ";last" + i + ";ID" + i);
+    }
+    Path indexFile = folder.getRoot().toPath().resolve("national.idx");
+    // 4 KB data chunks: many records are moved to the next chunk
+    new NationalIndexBuilder(12).build(extract(rows), indexFile);
+
+    NationalIndex index = NationalIndex.open(indexFile);
+    assertThat(index.size()).isEqualTo(20_000);
+    for (int i = 0; i < 20_000; i++) {
+      assertThat(index.find("FIRST" + i, "LAST" + i)).contains("ID" + i);
+    }
+    assertThat(index.find("first20000", "last20000")).isEmpty();
+  }
+
+  @Test
+  public void swapsARebuiltIndex() throws Exception {
+    Path indexFile = folder.getRoot().toPath().resolve("national.idx");
+    new NationalIndexBuilder().build(extract(Arrays.asList("Jean;Martin;1")), indexFile);
+    MappedNationalService service = new MappedNationalService(indexFile);
+    assertThat(service.findNationalIdentifier("Jean", "MARTIN")).contains("1");
+    assertThat(service.reloadIfChanged()).isFalse();
+
+    new NationalIndexBuilder().build(extract(Arrays.asList("Jean;Martin;2", "Zoé;Dupont;3")), indexFile);
+    assertThat(service.reloadIfChanged()).isTrue();
+    assertThat(service.findNationalIdentifier("Jean", "MARTIN")).contains("2");
+    assertThat(service.size()).isEqualTo(2);
+
+    // a broken file is not loaded
+    Path broken = Files.write(folder.newFile().toPath(), "garbage".getBytes(StandardCharsets.UTF_8));
+    Files.move(broken, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    assertThat(service.reloadIfChanged()).isFalse();
+    assertThat(service.findNationalIdentifier("Zoé", "DUPONT")).contains("3");
+  }
+
+  private Path extract(List<String> rows) throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add("firstName;lastName;nationalId");
+    lines.addAll(rows);
+    Path extract = folder.getRoot().toPath().resolve("extract.csv");
+    return Files.write(extract, lines, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,124 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.InvalidDataException;
+import org.sample.batch.model.Person;
+import org.sample.batch.processor.ParallelItemProcessor;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(
+  classes = {BatchConfiguration.class, TestConfig.class},
+  properties = {
+    "batch.process.parallel=true",
+    "batch.process.threads=4",
+    "batch.execution.mode=idempotent",
+    "batch.idempotent.chunk-size=20"
+  })
+public class ParallelProcessingTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+
+  @Before
+  public void setUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void returnsTheResultOfEachItemInOrder() throws Exception {
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    Set<Long> stepExecutions = ConcurrentHashMap.newKeySet();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    ParallelItemProcessor<Integer, String> processor = new ParallelItemProcessor<>(item -> {
+      threads.add(Thread.currentThread().getName());
+      stepExecutions.add(StepSynchronizationManager.getContext().getStepExecution().getId());
+      // the first items complete last
+      Thread.sleep(10L * (10 - item));
+      if (item == 3) {
+        throw new InvalidDataException(Collections.emptyList());
+      }
+      return item % 2 == 0 ? "item" + item : null;
+    }, executor);
+    StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+    StepSynchronizationManager.register(stepExecution);
+    try {
+      for (int item = 0; item < 10; item++) {
+        processor.afterRead(item);
+      }
+      List<String> results = new ArrayList<>();
+      for (int item = 0; item < 10; item++) {
+        if (item == 3) {
+          int failed = item;
+          assertThat(catchThrowable(() -> processor.process(failed))).isInstanceOf(InvalidDataException.class);
+        } else {
+          results.add(processor.process(item));
+        }
+      }
+      processor.afterChunk(null);
+
+      assertThat(results).containsExactly("item0", null, "item2", "item4", null, "item6", null, "item8", null);
+      assertThat(threads).hasSize(4).allMatch(name -> !name.equals(Thread.currentThread().getName()));
+      assertThat(stepExecutions).containsOnly(stepExecution.getId());
+    } finally {
+      StepSynchronizationManager.close();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void skipsTheInvalidItems() throws Exception {
+    File dataFile = folder.newFile("data.csv");
+    PersonFaker personFaker = new PersonFaker();
+    List<Person> persons = personFaker.buildPersons(100, new Integer[]{7, 45});
+    personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), persons);
+
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM people", Long.class)).isEqualTo(98);
+    // the lines are written in the order of the file
+    List<Long> lines = jdbcTemplate.queryForList("SELECT source_line FROM people ORDER BY person_id", Long.class);
+    assertThat(lines).isSorted().doesNotContain(9L, 47L);
+    StepExecution partition = jobExecution.getStepExecutions().stream()
+      .filter(stepExecution -> stepExecution.getStepName().startsWith("idempotentStep:"))
+      .findFirst().get();
+    assertThat(partition.getProcessSkipCount()).isEqualTo(2);
+    // header and the two skipped items
+    assertThat(Files.readAllLines(new File(folder.getRoot(), "data-errors.csv").toPath())).hasSize(3);
+  }
+}
@@ -0,0 +1,142 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.sample.batch.prescan.PreScanResult;
+import org.sample.batch.prescan.PreScanner;
+import org.sample.batch.prescan.RejectedFilesPartitioner;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class})
+public class PreScanTest {
+
+  private static final String COUNT_PEOPLE = "SELECT COUNT(*) FROM PEOPLE";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+
+  @Before
+  public void cleanUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void detectsBadLines() throws Exception {
+    File dataFile = folder.newFile("data.csv");
+    Files.write(dataFile.toPath(), (
+      "firstName;lastName;age\n" +
+      "john;doe;23\n" +
+      "# comment\n" +
+      "jane;doe;0\r\n" +
+      "donald;duck;xx\n" +
+      "\"mc;coy\";bones;40\n" +
+      "too;many;columns;1\n" +
+      "\n" +
+      "mickey;mouse;+90").getBytes(StandardCharsets.UTF_8));
+
+    PreScanResult result = PreScanner.forType(Person.class, "age", ';').scan(dataFile.toPath());
+
+    assertThat(result.getLineCount()).isEqualTo(7);
+    assertThat(result.getBadLineCount()).isEqualTo(4);
+    assertThat(result.getSamples())
+      .extracting("lineNumber", "line")
+      .containsExactly(
+        org.assertj.core.api.Assertions.tuple(4L, "jane;doe;0"),
+        org.assertj.core.api.Assertions.tuple(5L, "donald;duck;xx"),
+        org.assertj.core.api.Assertions.tuple(7L, "too;many;columns;1"),
+        org.assertj.core.api.Assertions.tuple(8L, ""));
+  }
+
+  @Test
+  public void scansLargeFilesInParallelRanges() throws Exception {
+    File dataFile = folder.newFile("large.csv");
+    int lines = 300_000;
+    try (BufferedWriter writer = Files.newBufferedWriter(dataFile.toPath())) {
+      writer.write("firstName;lastName;age\n");
+      for (int i = 1; i <= lines; i++) {
+        writer.write(i % 1000 == 0 ? "bad;line\n" : "firstname" + i + ";lastname;" + (i % 90 + 1) + "\n");
+      }
+    }
+    assertThat(dataFile.length()).isGreaterThan(4L << 20);
+
+    PreScanResult result = PreScanner.forType(Person.class, "age", ';').scan(dataFile.toPath());
+
+    assertThat(result.getLineCount()).isEqualTo(lines);
+    assertThat(result.getBadLineCount()).isEqualTo(lines / 1000);
+    assertThat(result.getSkipRatio()).isEqualTo(0.001);
+    assertThat(result.getSamples()).extracting("lineNumber").startsWith(1001L, 2001L, 3001L);
+  }
+
+  @Test
+  public void rejectsDirtyFileBeforeImport() throws Exception {
+    PersonFaker personFaker = new PersonFaker();
+    File dirtyFile = folder.newFile("dirty.csv");
+    personFaker.writeCsvOfPerson(dirtyFile.getAbsolutePath(), personFaker.buildPersons(10, new Integer[]{3, 7, 9}));
+    File cleanFile = folder.newFile("clean.csv");
+    personFaker.writeCsvOfPerson(cleanFile.getAbsolutePath(), personFaker.buildPersons(10, new Integer[]{3, 7}));
+
+    JobParameters params = new JobParametersBuilder()
+      .addString("input.dir", folder.getRoot().getAbsolutePath())
+      .addString("prescan", "true")
+      .toJobParameters();
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(params);
+
+    // the clean file is imported
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jobExecution.getStepExecutions())
+      .filteredOn(stepExecution -> stepExecution.getStepName().startsWith("step1:"))
+      .extracting(stepExecution -> stepExecution.getExecutionContext().getString("input.file"))
+      .containsExactly(cleanFile.getAbsolutePath());
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(8);
+    assertThat(jobExecution.getExecutionContext().getString(RejectedFilesPartitioner.REJECTED_FILES_KEY))
+      .isEqualTo(dirtyFile.getAbsolutePath());
+    List<String> errors = Files.readAllLines(new File(folder.getRoot(), "dirty-errors.csv").toPath());
+    assertThat(errors).hasSize(1 + 3);
+  }
+
+  @Test
+  public void importsCleanFileAfterPreScan() throws Exception {
+    File dataFile = folder.newFile("data.csv");
+    PersonFaker personFaker = new PersonFaker();
+    List<Person> persons = personFaker.buildPersons(10, new Integer[]{3, 7});
+    personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), persons);
+
+    JobParameters params = new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .addString("prescan", "true")
+      .toJobParameters();
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(params);
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jobExecution.getStepExecutions())
+      .extracting("stepName")
+      .contains("preScanStep", "partitionStep");
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(8);
+  }
+}
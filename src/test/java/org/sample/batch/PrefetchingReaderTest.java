@@ -0,0 +1,132 @@
+package org.sample.batch;
+
+import org.junit.Test;
+import org.sample.batch.reader.PrefetchingItemReader;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ParseException;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrefetchingReaderTest {
+
+  @Test
+  public void readErrorsAreReturnedInOrder() throws Exception {
+    PrefetchingItemReader<Integer> reader = new PrefetchingItemReader<>(new SlowReader(6, 3, 0), 4);
+    reader.open(new ExecutionContext());
+    List<Object> read = new ArrayList<>();
+    while (true) {
+      try {
+        Integer item = reader.read();
+        if (item == null) {
+          break;
+        }
+        read.add(item);
+      } catch (ParseException e) {
+        read.add(e.getMessage());
+      }
+    }
+    reader.close();
+
+    assertThat(read).containsExactly(0, 1, 2, "bad item 3", 4, 5);
+    assertThat(reader.read()).isNull();
+  }
+
+  @Test
+  public void restartsAfterTheConsumedItems() throws Exception {
+    SlowReader delegate = new SlowReader(100, -1, 0);
+    PrefetchingItemReader<Integer> reader = new PrefetchingItemReader<>(delegate, 10);
+    ExecutionContext executionContext = new ExecutionContext();
+    reader.open(executionContext);
+    for (int i = 0; i < 3; i++) {
+      reader.read();
+    }
+    // wait for the read ahead
+    long deadline = System.currentTimeMillis() + 5000;
+    while (delegate.position() < 3 + 10 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    reader.update(executionContext);
+    reader.close();
+    assertThat(delegate.position()).isGreaterThan(3);
+    assertThat(executionContext.getInt("slow.read.count")).isEqualTo(3);
+
+    PrefetchingItemReader<Integer> restarted = new PrefetchingItemReader<>(new SlowReader(100, -1, 0), 10);
+    restarted.open(executionContext);
+    assertThat(restarted.read()).isEqualTo(3);
+    restarted.update(executionContext);
+    restarted.close();
+    assertThat(executionContext.getInt("slow.read.count")).isEqualTo(4);
+  }
+
+  @Test
+  public void readsOverlapTheProcessing() throws Exception {
+    int count = 30;
+    long delay = 10;
+    PrefetchingItemReader<Integer> reader = new PrefetchingItemReader<>(new SlowReader(count, -1, delay), 4);
+    long start = System.nanoTime();
+    reader.open(new ExecutionContext());
+    while (reader.read() != null) {
+      // processing as slow as the reading
+      Thread.sleep(delay);
+    }
+    reader.close();
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    // about max(read, process) instead of read + process
+    assertThat(elapsedMillis).isLessThan(count * delay * 2 * 5 / 6);
+  }
+
+  /**
+   * Returns 0..count-1, slowly, with a parse error at failAt.
+   */
+  private static class SlowReader extends AbstractItemCountingItemStreamItemReader<Integer> {
+    private final int count;
+    private final int failAt;
+    private final long delayMillis;
+    private volatile int position;
+
+    SlowReader(int count, int failAt, long delayMillis) {
+      this.count = count;
+      this.failAt = failAt;
+      this.delayMillis = delayMillis;
+      setName("slow");
+    }
+
+    int position() {
+      return position;
+    }
+
+    @Override
+    protected Integer doRead() throws Exception {
+      if (delayMillis > 0) {
+        Thread.sleep(delayMillis);
+      }
+      int item = getCurrentItemCount() - 1;
+      position = item + 1;
+      if (item >= count) {
+        return null;
+      }
+      if (item == failAt) {
+        throw new ParseException("bad item " + item);
+      }
+      return item;
+    }
+
+    @Override
+    protected void jumpToItem(int itemIndex) {
+      position = itemIndex;
+    }
+
+    @Override
+    protected void doOpen() {
+    }
+
+    @Override
+    protected void doClose() {
+    }
+  }
+}
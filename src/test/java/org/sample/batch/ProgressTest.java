@@ -0,0 +1,122 @@
+package org.sample.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.config.CustomMultiResourcePartitioner;
+import org.sample.batch.generator.PersonFileGenerator;
+import org.sample.batch.progress.JobProgress;
+import org.sample.batch.progress.PartitionStatus;
+import org.sample.batch.progress.ProgressEndpoint;
+import org.sample.batch.progress.ProgressTracker;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class}, properties = "batch.progress.http-port=0")
+public class ProgressTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+  @Autowired
+  private ProgressTracker progressTracker;
+  @Autowired
+  private ProgressEndpoint progressEndpoint;
+
+  @Before
+  public void cleanUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void partitionReportsItsPosition() throws Exception {
+    File inputFile = folder.newFile("data.csv");
+    Files.write(inputFile.toPath(), new byte[100_000]);
+    StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution("step1:partition0", 1L);
+    stepExecution.getExecutionContext().putLong(CustomMultiResourcePartitioner.INPUT_FILE_SIZE_KEY, 100_000);
+    ProgressTracker tracker = new ProgressTracker(10, 100, 60_000, TimeUnit.MILLISECONDS);
+    try {
+      try (InputStream in = tracker.resource(stepExecution, inputFile.getAbsolutePath()).getInputStream()) {
+        byte[] buffer = new byte[1000];
+        for (int i = 0; i < 25; i++) {
+          in.read(buffer);
+          Thread.sleep(2);
+        }
+        Thread.sleep(50);
+
+        PartitionStatus partition = tracker.getPartitions().get(0);
+        assertThat(partition.getPercent()).isEqualTo(25.0);
+        assertThat(partition.getBytesPerSecond()).isGreaterThan(0);
+        JobProgress job = tracker.getJob(stepExecution.getJobExecutionId());
+        assertThat(job.getBytesRead()).isEqualTo(25_000);
+        assertThat(job.getCompletedPartitions()).isEqualTo(0);
+      }
+      // the rate decays while the partition is stalled: the ETA grows
+      long eta = tracker.getPartitions().get(0).getEtaSeconds();
+      Thread.sleep(300);
+      assertThat(tracker.getPartitions().get(0).getEtaSeconds()).isGreaterThan(eta);
+
+      tracker.afterStep(stepExecution);
+      PartitionStatus completed = tracker.getPartitions().get(0);
+      assertThat(completed.isCompleted()).isTrue();
+      assertThat(completed.getPercent()).isEqualTo(100.0);
+      assertThat(completed.getEtaSeconds()).isEqualTo(0);
+    } finally {
+      tracker.destroy();
+    }
+  }
+
+  @Test
+  public void jobProgressIsServed() throws Exception {
+    PersonFileGenerator generator = new PersonFileGenerator();
+    generator.setFiles(3);
+    generator.setRowsPerFile(50);
+    generator.generate(folder.getRoot().toPath());
+
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.dir", folder.getRoot().getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    JobProgress job = progressTracker.getJob(jobExecution.getId());
+    assertThat(job.getPartitions()).isEqualTo(3);
+    assertThat(job.getCompletedPartitions()).isEqualTo(3);
+    assertThat(job.getPercent()).isEqualTo(100.0);
+    assertThat(job.getEtaSeconds()).isEqualTo(0);
+
+    JsonNode progress = new ObjectMapper()
+      .readTree(new URL("http://localhost:" + progressEndpoint.getPort() + "/progress"));
+    assertThat(progress.get("jobs").findValuesAsText("jobExecutionId")).contains(jobExecution.getId().toString());
+    assertThat(progress.get("partitions").findValuesAsText("inputFile"))
+      .contains(new File(folder.getRoot(), "data-#0002.csv").getAbsolutePath());
+    assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(ProgressTracker.OBJECT_NAME)))
+      .isTrue();
+  }
+}
@@ -0,0 +1,118 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.sample.batch.partition.Lease;
+import org.sample.batch.partition.LeaseStore;
+import org.sample.batch.partition.LeaseWorker;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class}, properties = {
+  "batch.partition.mode=remote",
+  "batch.partition.lease-ms=500",
+  "batch.partition.poll-interval-ms=50"
+})
+public class RemotePartitionTest {
+
+  private static final String COUNT_PEOPLE = "SELECT COUNT(*) FROM PEOPLE";
+
+  @Rule
+  public TemporaryFolder dataFolder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+  @Autowired
+  private BatchConfiguration batchConfiguration;
+  @Autowired
+  private LeaseStore leaseStore;
+
+  @Before
+  public void cleanUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void partitionsOfADeadWorkerAreTakenOver() throws Exception {
+    PersonFaker personFaker = new PersonFaker();
+    for (int file = 0; file < 4; file++) {
+      File dataFile = dataFolder.newFile(String.format("data-#%02d.csv", file));
+      personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), personFaker.buildPersons(10, new Integer[]{3}));
+    }
+    CompletableFuture<JobExecution> launch = CompletableFuture.supplyAsync(() -> {
+      try {
+        return jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+          .addString("input.dir", dataFolder.getRoot().getAbsolutePath())
+          .toJobParameters());
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    // a worker claims a partition and dies
+    Optional<Lease> abandoned = Optional.empty();
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!abandoned.isPresent() && System.currentTimeMillis() < deadline) {
+      abandoned = leaseStore.claim("dead-worker", 500);
+      Thread.sleep(20);
+    }
+    assertThat(abandoned).isPresent();
+
+    List<Thread> workers = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      LeaseWorker worker = batchConfiguration.leaseWorker("worker-" + i);
+      worker.setIdleTimeout(2, TimeUnit.SECONDS);
+      Thread thread = new Thread(() -> {
+        try {
+          worker.run();
+        } finally {
+          worker.close();
+        }
+      });
+      thread.start();
+      workers.add(thread);
+    }
+    JobExecution jobExecution = launch.get(30, TimeUnit.SECONDS);
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jobExecution.getStepExecutions())
+      .filteredOn(stepExecution -> stepExecution.getStepName().startsWith("step1:"))
+      .hasSize(4)
+      .extracting(StepExecution::getWriteCount)
+      .containsOnly(9);
+    long abandonedId = abandoned.get().getStepExecutionId();
+    assertThat(jobExecution.getStepExecutions())
+      .filteredOn(stepExecution -> stepExecution.getId() == abandonedId)
+      .extracting(StepExecution::getStatus)
+      .containsExactly(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(4 * 9);
+    // the leases are removed with the job
+    assertThat(leaseStore.countOpen(jobExecution.getId())).isZero();
+  }
+}
@@ -0,0 +1,193 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class})
+public class ReplayJobTest {
+
+  private static final String COUNT_PEOPLE = "SELECT COUNT(*) FROM PEOPLE";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+  @Autowired
+  private JobLauncher jobLauncher;
+  @Autowired
+  private JobRepository jobRepository;
+  @Autowired
+  @Qualifier("replayJob")
+  private Job replayJob;
+
+  private JobLauncherTestUtils replayLauncherTestUtils;
+
+  @Before
+  public void setUp() {
+    jdbcTemplate.update("delete from people");
+    replayLauncherTestUtils = new JobLauncherTestUtils();
+    replayLauncherTestUtils.setJobLauncher(jobLauncher);
+    replayLauncherTestUtils.setJobRepository(jobRepository);
+    replayLauncherTestUtils.setJob(replayJob);
+  }
+
+  @Test
+  public void errorFileCanBeReadBack() throws Exception {
+    File dataFile = folder.newFile("data.csv");
+    Files.write(dataFile.toPath(), (
+      "firstName;lastName;age\n" +
+      "john;doe;23\n" +
+      "jane;doe;0\n" +
+      "donald;duck;xx\n").getBytes(StandardCharsets.UTF_8));
+
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(inputFile(dataFile));
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    List<String> errors = Files.readAllLines(new File(folder.getRoot(), "data-errors.csv").toPath());
+    assertThat(errors).hasSize(3);
+    assertThat(errors.get(0)).isEqualTo("PRENOM;NOM;AGE;type;error");
+    assertThat(errors).anySatisfy(line -> assertThat(line).startsWith("jane;doe;0;process;"));
+    // the parse error message contains the delimiter, it is quoted
+    assertThat(errors).anySatisfy(line -> assertThat(line).startsWith("donald;duck;xx;read;\"").endsWith("\""));
+  }
+
+  @Test
+  public void replaysOnlyTheFixedErrors() throws Exception {
+    File dataFile = folder.newFile("data.csv");
+    PersonFaker personFaker = new PersonFaker();
+    List<Person> persons = personFaker.buildPersons(10, new Integer[]{3, 7});
+    personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), persons);
+
+    jobLauncherTestUtils.launchJob(inputFile(dataFile));
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(8);
+
+    // fix one of the errors
+    File errorFile = new File(folder.getRoot(), "data-errors.csv");
+    List<String> errors = Files.readAllLines(errorFile.toPath());
+    assertThat(errors).hasSize(1 + 2);
+    errors.set(1, errors.get(1).replace(";0;process;", ";42;process;"));
+    Files.write(errorFile.toPath(), errors);
+
+    JobExecution replayExecution = replayLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("replay.dir", folder.getRoot().getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(replayExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(replayExecution.getStepExecutions())
+      .filteredOn(stepExecution -> stepExecution.getStepName().startsWith("replayStep:"))
+      .hasSize(1)
+      .allSatisfy(stepExecution -> {
+        assertThat(stepExecution.getReadCount()).isEqualTo(2);
+        assertThat(stepExecution.getWriteCount()).isEqualTo(1);
+      });
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(9);
+
+    // the error file only holds what is left to recover
+    List<String> remaining = Files.readAllLines(errorFile.toPath());
+    assertThat(remaining).hasSize(1 + 1);
+    assertThat(remaining.get(1)).isEqualTo(errors.get(2));
+    assertThat(new File(folder.getRoot(), "data-errors.csv.replayed")).exists();
+    assertThat(new File(folder.getRoot(), "data-errors-remaining.csv")).doesNotExist();
+  }
+
+  @Test
+  public void replaysWithTheWriteModeOfTheImport() throws Exception {
+    File dataFile = folder.newFile("data.csv");
+    Files.write(dataFile.toPath(), (
+      "firstName;lastName;age\n" +
+      "john;doe;23\n" +
+      "jane;doe;0\n").getBytes(StandardCharsets.UTF_8));
+    jobLauncherTestUtils.launchJob(new JobParametersBuilder(inputFile(dataFile))
+      .addString("write.mode", "upsert")
+      .toJobParameters());
+
+    File errorFile = new File(folder.getRoot(), "data-errors.csv");
+    List<String> errors = Files.readAllLines(errorFile.toPath());
+    errors.set(1, errors.get(1).replace(";0;process;", ";42;process;"));
+    Files.write(errorFile.toPath(), errors);
+    JobExecution replayExecution = replayLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("replay.file", errorFile.getAbsolutePath())
+      .addString("write.mode", "upsert")
+      .toJobParameters());
+    assertThat(replayExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject(
+      "SELECT COUNT(*) FROM people WHERE natural_key IS NOT NULL AND row_hash IS NOT NULL", Long.class))
+      .isEqualTo(2);
+
+    // the replayed person is part of the next snapshot: not inserted again
+    Files.write(dataFile.toPath(), (
+      "firstName;lastName;age\n" +
+      "john;doe;23\n" +
+      "jane;doe;42\n").getBytes(StandardCharsets.UTF_8));
+    jobLauncherTestUtils.launchJob(new JobParametersBuilder(inputFile(dataFile))
+      .addString("write.mode", "upsert")
+      .addLong("run", 2L)
+      .toJobParameters());
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(2);
+  }
+
+  @Test
+  public void unparsableErrorsAreKept() throws Exception {
+    File errorFile = folder.newFile("data-errors.csv");
+    Files.write(errorFile.toPath(), (
+      "PRENOM;NOM;AGE;type;error\n" +
+      "john;doe;N/A;read;\"Parsing error at line: 4, input=[john;doe]\"\n" +
+      "jane;doe;31;process;age: must be born\n").getBytes(StandardCharsets.UTF_8));
+
+    JobExecution replayExecution = replayLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("replay.file", errorFile.getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(replayExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForList("SELECT first_name FROM people", String.class)).containsExactly("Jane");
+    List<String> remaining = Files.readAllLines(errorFile.toPath());
+    assertThat(remaining).hasSize(1 + 1);
+    assertThat(remaining.get(1)).startsWith("john;doe;N/A;read;");
+
+    // nothing left to recover: a second replay reads the remaining line only
+    JobExecution secondExecution = replayLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("replay.file", errorFile.getAbsolutePath())
+      .addLong("run", 2L)
+      .toJobParameters());
+    assertThat(secondExecution.getStepExecutions().stream()
+      .filter(stepExecution -> stepExecution.getStepName().startsWith("replayStep:"))
+      .map(stepExecution -> stepExecution.getReadCount() + stepExecution.getReadSkipCount())
+      .collect(Collectors.toList()))
+      .containsExactly(1);
+  }
+
+  private static JobParameters inputFile(File dataFile) {
+    return new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .toJobParameters();
+  }
+}
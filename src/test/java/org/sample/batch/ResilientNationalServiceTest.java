@@ -0,0 +1,154 @@
+package org.sample.batch;
+
+import org.junit.After;
+import org.junit.Test;
+import org.sample.batch.service.resilience.AdaptiveConcurrencyLimit;
+import org.sample.batch.service.resilience.CircuitBreaker;
+import org.sample.batch.service.resilience.DeferredLookups;
+import org.sample.batch.service.resilience.MemoryDeferredLookups;
+import org.sample.batch.service.resilience.ResilientNationalService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResilientNationalServiceTest {
+
+  private ResilientNationalService service;
+
+  @After
+  public void close() {
+    if (service != null) {
+      service.close();
+    }
+  }
+
+  private ResilientNationalService resilientService(LatencyStubNationalService stub, int maxLimit) {
+    return resilientService(stub, new AdaptiveConcurrencyLimit(1, 1, maxLimit));
+  }
+
+  private ResilientNationalService resilientService(LatencyStubNationalService stub, AdaptiveConcurrencyLimit limit) {
+    service = new ResilientNationalService(
+      stub,
+      limit,
+      new CircuitBreaker(3, 200, TimeUnit.MILLISECONDS),
+      new MemoryDeferredLookups(100));
+    service.setCallTimeout(2, TimeUnit.SECONDS);
+    return service;
+  }
+
+  @Test
+  public void limitShrinksWhenLatencyGrows() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 10, 20);
+
+    for (int i = 0; i < 10; i++) {
+      limit.release(TimeUnit.MILLISECONDS.toNanos(10), false);
+    }
+    int limitWhenFast = limit.getLimit();
+    for (int i = 0; i < 10; i++) {
+      limit.release(TimeUnit.MILLISECONDS.toNanos(100), false);
+    }
+
+    assertThat(limit.getMinRttNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+    assertThat(limit.getLimit()).isLessThan(limitWhenFast);
+    for (int i = 0; i < 100; i++) {
+      limit.release(0, true);
+    }
+    assertThat(limit.getLimit()).isEqualTo(1);
+  }
+
+  @Test
+  public void concurrencyIsLimited() throws Exception {
+    // the slow calls are hedged, or abandoned
+    LatencyStubNationalService stub = new LatencyStubNationalService(LatencyStubNationalService.everyNth(10, 2, 50));
+    ResilientNationalService service = resilientService(stub, 3);
+    service.setHedgeBudget(0.5);
+    service.setCallTimeout(30, TimeUnit.MILLISECONDS);
+
+    runConcurrently(service, 8, 20);
+
+    assertThat(stub.getMaxConcurrentCalls()).isLessThanOrEqualTo(3);
+    // the calls still running hold their slot
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+    while (service.getLimit().getInFlight() > 0 && System.nanoTime() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertThat(service.getLimit().getInFlight()).isEqualTo(0);
+  }
+
+  @Test
+  public void slowCallsAreHedged() throws Exception {
+    // 4% of the calls take 1s
+    LatencyStubNationalService stub =
+      new LatencyStubNationalService(LatencyStubNationalService.everyNth(25, 2, 1000));
+    // the slow calls keep their slot for 1s after their hedge has answered
+    ResilientNationalService service = resilientService(stub, new AdaptiveConcurrencyLimit(32, 32, 32));
+    service.setHedgeBudget(0.2);
+
+    long maxLatency = 0;
+    for (int i = 0; i < 300; i++) {
+      long start = System.nanoTime();
+      Optional<String> identifier = service.findNationalIdentifier("John", "DOE");
+      long latency = System.nanoTime() - start;
+      assertThat(identifier).contains("J-DOE");
+      if (i >= 100) {
+        // p95 learnt: the slow calls are hedged
+        maxLatency = Math.max(maxLatency, latency);
+      }
+    }
+
+    assertThat(service.getHedgeCount()).isGreaterThan(0);
+    assertThat(stub.getCalls()).isGreaterThan(300);
+    assertThat(TimeUnit.NANOSECONDS.toMillis(maxLatency)).isLessThan(500);
+  }
+
+  @Test
+  public void lookupsAreDeferredWhenCircuitIsOpen() throws Exception {
+    LatencyStubNationalService stub = new LatencyStubNationalService(LatencyStubNationalService.fixed(0));
+    ResilientNationalService service = resilientService(stub, 2);
+    stub.setFailing(true);
+
+    for (int i = 0; i < 5; i++) {
+      assertThat(service.findNationalIdentifier("John", "DOE")).isEmpty();
+    }
+    assertThat(service.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(stub.getCalls()).isEqualTo(3);
+    assertThat(service.getDeferredLookups().size()).isEqualTo(5);
+
+    // registry is back
+    stub.setFailing(false);
+    TimeUnit.MILLISECONDS.sleep(250);
+    assertThat(service.findNationalIdentifier("John", "DOE")).contains("J-DOE");
+    assertThat(service.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+    List<DeferredLookups.Lookup> deferred = new ArrayList<>();
+    assertThat(service.getDeferredLookups().drainTo(deferred::add)).isEqualTo(5);
+    assertThat(deferred).extracting("lastName").containsOnly("DOE");
+  }
+
+  private static void runConcurrently(ResilientNationalService service, int threads, int callsPerThread)
+    throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < callsPerThread; i++) {
+            service.findNationalIdentifier("John", "DOE");
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
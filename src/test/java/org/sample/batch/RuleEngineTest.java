@@ -0,0 +1,86 @@
+package org.sample.batch;
+
+import org.junit.Test;
+import org.sample.batch.model.Person;
+import org.sample.batch.validation.Check;
+import org.sample.batch.validation.Pattern;
+import org.sample.batch.validation.Range;
+import org.sample.batch.validation.Required;
+import org.sample.batch.validation.RuleEngine;
+import org.sample.batch.validation.Violation;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RuleEngineTest {
+
+  private static Person personOf(String firstName, String lastName, int age) {
+    return new Person(firstName, lastName, age);
+  }
+
+  @Test
+  public void validPersonHasNoViolation() {
+    RuleEngine<Person> engine = RuleEngine.forClass(Person.class);
+
+    assertThat(engine.validate(personOf("john", "doe", 34))).isEmpty();
+    assertThat(engine.isValid(personOf("john", "doe", 34))).isTrue();
+  }
+
+  @Test
+  public void collectsAllViolations() {
+    RuleEngine<Person> engine = RuleEngine.forClass(Person.class);
+
+    List<Violation> violations = engine.validate(personOf(" ", "a-very-long-last-name-for-the-column", 0));
+
+    assertThat(violations)
+      .extracting("name", "message")
+      .containsExactly(
+        org.assertj.core.api.Assertions.tuple("firstName", "is required"),
+        org.assertj.core.api.Assertions.tuple("lastName", "invalid length"),
+        org.assertj.core.api.Assertions.tuple("age", "must be born"));
+  }
+
+  @Test
+  public void compilesOncePerClass() {
+    assertThat(RuleEngine.forClass(Person.class)).isSameAs(RuleEngine.forClass(Person.class));
+  }
+
+  @Test
+  public void evaluatesPatternsRangesAndChecks() {
+    RuleEngine<Order> engine = RuleEngine.forClass(Order.class);
+    assertThat(engine.getRuleCount()).isEqualTo(4);
+
+    assertThat(engine.validate(new Order("AB-12", 1, 5L))).isEmpty();
+    assertThat(engine.validate(new Order("12", 5, 1L)))
+      .extracting("name")
+      .containsExactly("reference", "quantity", "quantityBelowMax");
+    assertThat(engine.validate(new Order(null, 1, null)))
+      .extracting("name")
+      .containsExactly("reference");
+  }
+
+  @Check(value = Order.QuantityBelowMax.class, name = "quantityBelowMax")
+  static class Order {
+    @Required
+    @Pattern("[A-Z]{2}-\\d+")
+    private final String reference;
+    @Range(min = 1, max = 3)
+    private final int quantity;
+    private final Long max;
+
+    Order(String reference, int quantity, Long max) {
+      this.reference = reference;
+      this.quantity = quantity;
+      this.max = max;
+    }
+
+    public static class QuantityBelowMax implements Predicate<Order> {
+      @Override
+      public boolean test(Order order) {
+        return order.max == null || order.quantity <= order.max;
+      }
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.sample.batch.spill.PersonSpillCodec;
+import org.sample.batch.spill.SpillCache;
+import org.sample.batch.spill.SpillingItemReader;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class}, properties = "batch.spill.enabled=true")
+public class SpillCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+
+  @Before
+  public void setUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void rerunReadsTheSpill() throws Exception {
+    File dataFile = dataFile("data.csv", 50);
+    File errorFile = new File(folder.getRoot(), "data-errors.csv");
+
+    JobExecution firstRun = launch(dataFile, 1);
+    List<String> firstErrors = Files.readAllLines(errorFile.toPath());
+    Long firstCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM people", Long.class);
+    jdbcTemplate.update("delete from people");
+    JobExecution rerun = launch(dataFile, 2);
+
+    assertThat(firstRun.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(rerun.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(partition(firstRun).getExecutionContext().get("personSpillReader.hit")).isEqualTo(false);
+    assertThat(partition(rerun).getExecutionContext().get("personSpillReader.hit")).isEqualTo(true);
+    assertThat(new File(folder.getRoot(), ".spill").list()).hasSize(1).allMatch(name -> name.endsWith(".spill"));
+    // same rows, same skips
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM people", Long.class)).isEqualTo(firstCount)
+      .isEqualTo(50 - 1);
+    assertThat(partition(rerun).getReadSkipCount()).isEqualTo(partition(firstRun).getReadSkipCount()).isEqualTo(1);
+    // the error file is appended
+    List<String> errors = new ArrayList<>(firstErrors);
+    errors.addAll(firstErrors.subList(1, firstErrors.size()));
+    assertThat(firstErrors).hasSize(3);
+    assertThat(Files.readAllLines(errorFile.toPath())).isEqualTo(errors);
+  }
+
+  @Test
+  public void restartsInTheSpill() throws Exception {
+    File dataFile = dataFile("data.csv", 10);
+    SpillCache cache = new SpillCache(folder.getRoot().toPath().resolve(".spill"), 0);
+    List<Object> parsed = readAll(spillingReader(dataFile, cache), new ExecutionContext());
+
+    ExecutionContext restartContext = new ExecutionContext();
+    restartContext.putInt("personSpillReader.read.count", 4);
+    SpillingItemReader<Person> restarted = spillingReader(dataFile, cache);
+    List<Object> spilled = readAll(restarted, restartContext);
+
+    assertThat(restarted.isHit()).isTrue();
+    assertThat(spilled).isEqualTo(parsed.subList(4, parsed.size())).hasSize(10 + 1 - 4);
+  }
+
+  @Test
+  public void evictsTheLeastRecentlyUsedSpills() throws Exception {
+    Path directory = folder.getRoot().toPath().resolve(".spill");
+    SpillCache cache = new SpillCache(directory, 250);
+    for (String hash : new String[]{"a", "b", "c"}) {
+      Path tempFile = cache.newTempFile(hash);
+      Files.write(tempFile, new byte[100]);
+      cache.publish(tempFile, hash);
+      Files.setLastModifiedTime(directory.resolve(hash + ".spill"),
+        FileTime.fromMillis(System.currentTimeMillis() - 1000 * (3 - hash.charAt(0) + 'a')));
+      if (hash.equals("b")) {
+        // used after b
+        assertThat(cache.lookup("a")).isNotNull();
+      }
+    }
+
+    assertThat(directory.toFile().list()).containsExactlyInAnyOrder("a.spill", "c.spill");
+    assertThat(cache.lookup("b")).isNull();
+  }
+
+  private File dataFile(String name, int count) throws Exception {
+    File dataFile = folder.newFile(name);
+    PersonFaker personFaker = new PersonFaker();
+    personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), personFaker.buildPersons(count, new Integer[]{3}));
+    Files.write(dataFile.toPath(), "john;doe;old\n".getBytes(StandardCharsets.UTF_8),
+      StandardOpenOption.APPEND);
+    return dataFile;
+  }
+
+  private JobExecution launch(File dataFile, long run) throws Exception {
+    return jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .addLong("run", run)
+      .toJobParameters());
+  }
+
+  private static StepExecution partition(JobExecution jobExecution) {
+    return jobExecution.getStepExecutions().stream()
+      .filter(stepExecution -> stepExecution.getStepName().startsWith("step1:"))
+      .findFirst().get();
+  }
+
+  private static SpillingItemReader<Person> spillingReader(File dataFile, SpillCache cache) {
+    FlatFileItemReader<Person> reader = new BatchConfiguration().reader(dataFile.getAbsolutePath());
+    SpillingItemReader<Person> spillingReader = new SpillingItemReader<>(reader, dataFile.toPath(), cache,
+      new PersonSpillCodec(dataFile.getName()));
+    spillingReader.setName("personSpillReader");
+    return spillingReader;
+  }
+
+  private static String describe(Person person) {
+    return person == null ? null : person + "@" + person.getSourceId() + ":" + person.getSourceLine();
+  }
+
+  private static List<Object> readAll(SpillingItemReader<Person> reader, ExecutionContext executionContext)
+    throws Exception {
+    List<Object> records = new ArrayList<>();
+    reader.open(executionContext);
+    try {
+      while (true) {
+        Throwable failure = catchThrowable(() -> records.add(describe(reader.read())));
+        if (failure != null) {
+          assertThat(failure).isInstanceOf(FlatFileParseException.class);
+          records.add(((FlatFileParseException) failure).getInput());
+        } else if (records.get(records.size() - 1) == null) {
+          records.remove(records.size() - 1);
+          return records;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package org.sample.batch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.config.DataSourceConfiguration;
+import org.sample.batch.csv.ColumnModel;
+import org.sample.batch.csv.CsvNameExtractor;
+import org.sample.batch.listener.ChunkListener;
+import org.sample.batch.model.Person;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class}, properties = "batch.startup.lazy=true")
+public class StartupTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private ConfigurableListableBeanFactory beanFactory;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+
+  @Test
+  public void onlyTheUsedBeansAreCreated() throws Exception {
+    assertThat(beanFactory.getBeanDefinition("groupCommitWriter").isLazyInit()).isTrue();
+    assertThat(beanFactory.containsSingleton("groupCommitWriter")).isFalse();
+    assertThat(beanFactory.containsSingleton("leasePartitionHandler")).isFalse();
+
+    File dataFile = folder.newFile("data.csv");
+    PersonFaker personFaker = new PersonFaker();
+    personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), personFaker.buildPersons(4, new Integer[0]));
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jobExecution.getExecutionContext().getLong(ChunkListener.FIRST_CHUNK_KEY)).isPositive();
+  }
+
+  @Test
+  public void columnModelIsGeneratedByTheBuild() {
+    assertThat(ColumnModel.of(Person.class).isPrecomputed()).isTrue();
+    CsvNameExtractor<Person> csvNameExtractor = new CsvNameExtractor<>(Person.class);
+    assertThat(csvNameExtractor.getNames()).isEqualTo(Arrays.asList("firstName", "lastName", "age"));
+    assertThat(csvNameExtractor.getColumnNames()).isEqualTo(Arrays.asList("PRENOM", "NOM", "AGE"));
+  }
+
+  @Test
+  public void existingSchemaIsKept() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:startup", "SA", "");
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    try {
+      assertThat(DataSourceConfiguration.initializeSchema(dataSource, DataSourceConfiguration.INITIALIZE_MISSING))
+        .isTrue();
+      jdbcTemplate.update("INSERT INTO people (first_name, last_name, age) VALUES ('John', 'DOE', 34)");
+
+      assertThat(DataSourceConfiguration.initializeSchema(dataSource, DataSourceConfiguration.INITIALIZE_MISSING))
+        .isFalse();
+      assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM people", Long.class)).isEqualTo(1);
+
+      assertThat(DataSourceConfiguration.initializeSchema(dataSource, "true")).isTrue();
+      assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM people", Long.class)).isEqualTo(0);
+    } finally {
+      jdbcTemplate.execute("SHUTDOWN");
+    }
+  }
+}
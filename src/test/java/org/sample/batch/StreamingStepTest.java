@@ -0,0 +1,228 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.sample.batch.stream.StreamingTasklet;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.DefaultBatchConfigurer;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class},
+  properties = {"batch.execution.mode=streaming", "batch.stream.window-size=3"})
+public class StreamingStepTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+
+  @Before
+  public void cleanUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void streamsThePartitions() throws Exception {
+    File dataFile = folder.newFile("data.csv");
+    PersonFaker personFaker = new PersonFaker();
+    List<Person> persons = personFaker.buildPersons(10, new Integer[]{3, 7});
+    personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), persons);
+
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PEOPLE", Long.class)).isEqualTo(8);
+    StepExecution stepExecution = jobExecution.getStepExecutions().stream()
+      .filter(execution -> execution.getStepName().startsWith("streamStep"))
+      .findFirst()
+      .orElseThrow(IllegalStateException::new);
+    assertThat(stepExecution.getReadCount()).isEqualTo(10);
+    assertThat(stepExecution.getWriteCount()).isEqualTo(8);
+    assertThat(stepExecution.getProcessSkipCount()).isEqualTo(2);
+    // 10 items in windows of 3
+    assertThat(stepExecution.getCommitCount()).isEqualTo(4);
+    assertThat(Files.readAllLines(new File(folder.getRoot(), "data-errors.csv").toPath())).hasSize(1 + 2);
+  }
+
+  @Test
+  public void skipLimitFailsThePartition() throws Exception {
+    File dataFile = folder.newFile("data.csv");
+    PersonFaker personFaker = new PersonFaker();
+    personFaker.writeCsvOfPerson(dataFile.getAbsolutePath(), personFaker.buildPersons(10, new Integer[]{1, 3, 7}));
+
+    JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .toJobParameters());
+
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.FAILED);
+  }
+
+  @Test
+  public void restartsFromTheCommittedItems() throws Exception {
+    EmbeddedDatabase dataSource = newRepositoryDatabase();
+    try {
+      DefaultBatchConfigurer configurer = new DefaultBatchConfigurer(dataSource);
+      configurer.initialize();
+      List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+
+      JobExecution failed = run(configurer, written, 55);
+      assertThat(failed.getStatus()).isEqualTo(BatchStatus.FAILED);
+      assertThat(written).isNotEmpty().doesNotContain(55);
+
+      JobExecution restarted = run(configurer, written, -1);
+      assertThat(restarted.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+      // processed in parallel, written once and in order
+      assertThat(written).containsExactlyElementsOf(IntStream.range(0, 100).boxed().collect(Collectors.toList()));
+    } finally {
+      dataSource.shutdown();
+    }
+  }
+
+  @Test
+  public void processesInTheStepScope() throws Exception {
+    EmbeddedDatabase dataSource = newRepositoryDatabase();
+    try {
+      DefaultBatchConfigurer configurer = new DefaultBatchConfigurer(dataSource);
+      configurer.initialize();
+      List<String> stepNames = Collections.synchronizedList(new ArrayList<>());
+      StreamingTasklet<Integer, Integer> tasklet = new StreamingTasklet<>(new CountingReader(20), item -> {
+        stepNames.add(StepSynchronizationManager.getContext().getStepName());
+        return item;
+      }, items -> {
+      });
+
+      assertThat(run(configurer, tasklet).getStatus()).isEqualTo(BatchStatus.COMPLETED);
+      assertThat(stepNames).hasSize(20).containsOnly("step");
+    } finally {
+      dataSource.shutdown();
+    }
+  }
+
+  @Test
+  public void errorOfTheReaderFailsTheStep() throws Exception {
+    EmbeddedDatabase dataSource = newRepositoryDatabase();
+    try {
+      DefaultBatchConfigurer configurer = new DefaultBatchConfigurer(dataSource);
+      configurer.initialize();
+      StreamingTasklet<Integer, Integer> tasklet = new StreamingTasklet<>(new CountingReader(20) {
+        @Override
+        protected Integer doRead() {
+          Integer item = super.doRead();
+          if (item != null && item == 5) {
+            throw new AssertionError("broken reader");
+          }
+          return item;
+        }
+      }, item -> item, items -> {
+      });
+
+      JobExecution jobExecution = run(configurer, tasklet);
+
+      assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.FAILED);
+      assertThat(jobExecution.getAllFailureExceptions()).isNotEmpty();
+    } finally {
+      dataSource.shutdown();
+    }
+  }
+
+  private static EmbeddedDatabase newRepositoryDatabase() {
+    return new EmbeddedDatabaseBuilder()
+      .generateUniqueName(true)
+      .setType(EmbeddedDatabaseType.HSQL)
+      .addScript("org/springframework/batch/core/schema-hsqldb.sql")
+      .build();
+  }
+
+  private static JobExecution run(DefaultBatchConfigurer configurer, List<Integer> written, int failAt)
+    throws Exception {
+    StreamingTasklet<Integer, Integer> tasklet = new StreamingTasklet<>(new CountingReader(100), item -> {
+      Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+      return item;
+    }, items -> {
+      if (items.contains(failAt)) {
+        throw new IllegalStateException("failed at " + failAt);
+      }
+      written.addAll(items);
+    });
+    tasklet.setProcessConcurrency(4);
+    tasklet.setBufferSize(8);
+    tasklet.setWindow(10, 1, TimeUnit.SECONDS);
+    return run(configurer, tasklet);
+  }
+
+  private static JobExecution run(DefaultBatchConfigurer configurer, StreamingTasklet<Integer, Integer> tasklet)
+    throws Exception {
+    StepBuilder stepBuilder = new StepBuilder("step");
+    stepBuilder.repository(configurer.getJobRepository());
+    stepBuilder.transactionManager(configurer.getTransactionManager());
+    Job job = new JobBuilder("job")
+      .repository(configurer.getJobRepository())
+      .start(stepBuilder.tasklet(tasklet).stream(tasklet).build())
+      .build();
+    return configurer.getJobLauncher().run(job, new JobParametersBuilder().toJobParameters());
+  }
+
+  /**
+   * Reads 0..count-1.
+   */
+  private static class CountingReader extends AbstractItemCountingItemStreamItemReader<Integer> {
+    private final int count;
+    private int next;
+
+    CountingReader(int count) {
+      this.count = count;
+      setName("counting");
+    }
+
+    @Override
+    protected Integer doRead() {
+      return next < count ? next++ : null;
+    }
+
+    @Override
+    protected void doOpen() {
+      next = 0;
+    }
+
+    @Override
+    protected void doClose() {
+    }
+  }
+}
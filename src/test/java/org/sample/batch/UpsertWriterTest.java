@@ -0,0 +1,104 @@
+package org.sample.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.sample.batch.processor.RowHasher;
+import org.sample.batch.writer.UpsertItemWriter;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = {BatchConfiguration.class, TestConfig.class})
+public class UpsertWriterTest {
+
+  private static final String COUNT_PEOPLE = "SELECT COUNT(*) FROM PEOPLE";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private JobLauncherTestUtils jobLauncherTestUtils;
+
+  @Before
+  public void cleanUp() {
+    jdbcTemplate.update("delete from people");
+  }
+
+  @Test
+  public void hashCoversPersistedContentOnly() {
+    RowHasher<Person> hasher = new RowHasher<>(Person.class, Arrays.asList("firstName", "lastName"));
+    Person person = new Person("John", "DOE", 34);
+    Person sameContent = new Person("John", "DOE", 34);
+    sameContent.setNationalId("123");
+
+    assertThat(hasher.naturalKey(person)).isEqualTo("John|DOE");
+    assertThat(hasher.hash(sameContent)).isEqualTo(hasher.hash(person));
+    assertThat(hasher.hash(new Person("John", "DOE", 35))).isNotEqualTo(hasher.hash(person));
+    assertThat(hasher.hash(new Person("Joh", "nDOE", 34))).isNotEqualTo(hasher.hash(person));
+  }
+
+  @Test
+  public void writesOnlyNewOrChangedRows() throws Exception {
+    List<String> snapshot = new ArrayList<>();
+    for (int i = 1; i <= 10; i++) {
+      snapshot.add("first" + i + ";last" + i + ";" + (20 + i));
+    }
+    JobExecution firstLoad = load(snapshot, "day1.csv");
+    assertThat(firstLoad.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(10);
+    assertThat(counter(firstLoad, UpsertItemWriter.MERGED_COUNT_KEY)).isEqualTo(10);
+
+    // next snapshot: one changed row, one new row
+    snapshot.set(4, "first5;last5;99");
+    snapshot.add("first11;last11;31");
+    JobExecution secondLoad = load(snapshot, "day2.csv");
+
+    assertThat(secondLoad.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(counter(secondLoad, UpsertItemWriter.MERGED_COUNT_KEY)).isEqualTo(2);
+    assertThat(counter(secondLoad, UpsertItemWriter.UNCHANGED_COUNT_KEY)).isEqualTo(9);
+    assertThat(jdbcTemplate.queryForObject(COUNT_PEOPLE, Long.class)).isEqualTo(11);
+    assertThat(jdbcTemplate.queryForObject("SELECT age FROM people WHERE natural_key = 'First5|LAST5'", Integer.class))
+      .isEqualTo(99);
+  }
+
+  private JobExecution load(List<String> lines, String fileName) throws Exception {
+    File dataFile = folder.newFile(fileName);
+    List<String> content = new ArrayList<>();
+    content.add("firstName;lastName;age");
+    content.addAll(lines);
+    Files.write(dataFile.toPath(), content);
+    return jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+      .addString("input.file", dataFile.getAbsolutePath())
+      .addString("write.mode", "upsert")
+      .toJobParameters());
+  }
+
+  private static long counter(JobExecution jobExecution, String key) {
+    return jobExecution.getStepExecutions().stream()
+      .filter(stepExecution -> stepExecution.getStepName().startsWith("step1:"))
+      .map(StepExecution::getExecutionContext)
+      .mapToLong(context -> context.getLong(key, 0))
+      .sum();
+  }
+}
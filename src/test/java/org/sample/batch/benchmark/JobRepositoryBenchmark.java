@@ -0,0 +1,140 @@
+package org.sample.batch.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sample.batch.csv.SkipCounter;
+import org.sample.batch.repository.CompactBatchConfigurer;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.configuration.annotation.DefaultBatchConfigurer;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Commit overhead of the job repository: a step of {@value #COMMITS} chunks of one item, with a no-op writer, is run
+ * with the default JDBC repository and with the compact one. The score is the time per commit.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=org.sample.batch.benchmark.JobRepositoryBenchmark
+ * -Dexec.classpathScope=test}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JobRepositoryBenchmark {
+
+  private static final int COMMITS = 500;
+
+  /**
+   * default: JSON contexts, every commit persisted; compact-N: binary contexts, persisted every N commits.
+   */
+  @Param({"default", "compact-1", "compact-10", "compact-100"})
+  private String mode;
+
+  private EmbeddedDatabase dataSource;
+  private DefaultBatchConfigurer configurer;
+  private Job job;
+  private final AtomicLong run = new AtomicLong();
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(JobRepositoryBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dataSource = new EmbeddedDatabaseBuilder()
+      .generateUniqueName(true)
+      .setType(EmbeddedDatabaseType.HSQL)
+      .addScript("org/springframework/batch/core/schema-hsqldb.sql")
+      .build();
+    if (mode.startsWith("compact-")) {
+      configurer = new CompactBatchConfigurer(dataSource, Integer.parseInt(mode.substring("compact-".length())), 1000);
+    } else {
+      configurer = new DefaultBatchConfigurer(dataSource);
+    }
+    configurer.initialize();
+
+    StepBuilder stepBuilder = new StepBuilder("step");
+    stepBuilder.repository(configurer.getJobRepository());
+    stepBuilder.transactionManager(configurer.getTransactionManager());
+    job = new JobBuilder("job")
+      .repository(configurer.getJobRepository())
+      .start(stepBuilder.<Integer, Integer>chunk(1)
+        .reader(new PositionReader())
+        .writer(items -> {
+        })
+        .build())
+      .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.shutdown();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COMMITS)
+  public JobExecution commit() throws Exception {
+    JobExecution execution = configurer.getJobLauncher()
+      .run(job, new JobParametersBuilder().addLong("run", run.incrementAndGet()).toJobParameters());
+    if (execution.getStatus() != BatchStatus.COMPLETED) {
+      throw new IllegalStateException("Job failed: " + execution);
+    }
+    return execution;
+  }
+
+  /**
+   * Saves a position and skip counters, like the file reader and the skip listener.
+   */
+  private static class PositionReader implements ItemStreamReader<Integer> {
+    private int position;
+    private final SkipCounter counters = new SkipCounter();
+
+    @Override
+    public Integer read() {
+      return position < COMMITS ? position++ : null;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+      position = 0;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+      executionContext.putInt("reader.read.count", position);
+      executionContext.put("SimpleSkipListener.counters", counters);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package org.sample.batch.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sample.batch.service.index.NationalIndex;
+import org.sample.batch.service.index.NationalIndexBuilder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup time in a {@link NationalIndex} of one million entries, from 4 threads sharing the mapping.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=org.sample.batch.benchmark.NationalIndexBenchmark
+ * -Dexec.classpathScope=test}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class NationalIndexBenchmark {
+
+  @Param({"1000000"})
+  private int entries;
+
+  private Path directory;
+  private NationalIndex index;
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(NationalIndexBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("national-index");
+    Path extract = directory.resolve("extract.csv");
+    try (BufferedWriter writer = Files.newBufferedWriter(extract, StandardCharsets.UTF_8)) {
+      writer.write("firstName;lastName;nationalId\n");
+      for (int i = 0; i < entries; i++) {
+        writer.write("First" + i + ";LAST" + i + ";" + (1_000_000_000L + i) + "\n");
+      }
+    }
+    Path indexFile = directory.resolve("national.idx");
+    new NationalIndexBuilder().build(extract, indexFile);
+    index = NationalIndex.open(indexFile);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(directory.resolve("extract.csv"));
+    Files.deleteIfExists(directory.resolve("national.idx"));
+    Files.deleteIfExists(directory);
+  }
+
+  @Benchmark
+  public Optional<String> found() {
+    int i = ThreadLocalRandom.current().nextInt(entries);
+    return index.find("First" + i, "LAST" + i);
+  }
+
+  @Benchmark
+  public Optional<String> notFound() {
+    int i = ThreadLocalRandom.current().nextInt(entries);
+    return index.find("Other" + i, "LAST" + i);
+  }
+}
@@ -0,0 +1,99 @@
+package org.sample.batch.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sample.batch.reader.PrefetchingItemReader;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time to read and write {@value #ITEMS} items in chunks of {@value #CHUNK_SIZE}, with a slow reader
+ * ({@value #READ_MICROS} us per item) and a slow writer ({@value #WRITE_MICROS} us per chunk), without prefetch
+ * (prefetchSize = 0) and with buffers of several sizes.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=org.sample.batch.benchmark.PrefetchBenchmark
+ * -Dexec.classpathScope=test}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrefetchBenchmark {
+
+  private static final int ITEMS = 2000;
+  private static final int CHUNK_SIZE = 100;
+  private static final long READ_MICROS = 50;
+  private static final long WRITE_MICROS = 5000;
+
+  @Param({"0", "4", "100", "200"})
+  private int prefetchSize;
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(PrefetchBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Benchmark
+  public int readAndWrite() throws Exception {
+    ItemStreamReader<Integer> reader = prefetchSize > 0
+      ? new PrefetchingItemReader<>(new SlowReader(), prefetchSize)
+      : new SlowReader();
+    reader.open(new ExecutionContext());
+    int count = 0;
+    try {
+      boolean exhausted = false;
+      while (!exhausted) {
+        int chunk = 0;
+        while (chunk < CHUNK_SIZE && !(exhausted = reader.read() == null)) {
+          chunk++;
+        }
+        count += chunk;
+        // the write of the chunk
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(WRITE_MICROS));
+      }
+    } finally {
+      reader.close();
+    }
+    return count;
+  }
+
+  private static class SlowReader extends AbstractItemCountingItemStreamItemReader<Integer> {
+
+    SlowReader() {
+      setName("slow");
+    }
+
+    @Override
+    protected Integer doRead() {
+      if (getCurrentItemCount() > ITEMS) {
+        return null;
+      }
+      LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(READ_MICROS));
+      return getCurrentItemCount();
+    }
+
+    @Override
+    protected void doOpen() {
+    }
+
+    @Override
+    protected void doClose() {
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package org.sample.batch.benchmark;
+
+import org.hsqldb.Database;
+import org.hsqldb.server.Server;
+import org.sample.batch.Application;
+import org.sample.batch.generator.PersonFileGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of the remote partitioning with 1, 2 and 4 worker JVMs: a HSQL server is started for each run, the
+ * manager and the workers (one thread each) are forked with the class path of the benchmark. The throughput is the
+ * number of people imported divided by the time from the start of the first partition to the end of the last one,
+ * the startup of the JVMs is not counted.
+ * <p>
+ * Run with (in its own JVM, the class path is given to the forked JVMs): {@code mvn test-compile exec:exec
+ * -Dexec.executable=java -Dexec.classpathScope=test -Dexec.args="-cp %classpath
+ * org.sample.batch.benchmark.RemotePartitionBenchmark files=8 rows=20000 workers=1,2,4"}.
+ * </p>
+ */
+public class RemotePartitionBenchmark {
+
+  private static final long TIMEOUT_MINUTES = 10;
+
+  private final String javaCommand = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+  // not the test classes: the test configuration would be scanned by the application
+  private final String classPath = Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+    .filter(entry -> !entry.endsWith("test-classes"))
+    .collect(Collectors.joining(File.pathSeparator));
+
+  public static void main(String[] args) throws Exception {
+    int files = 8;
+    long rows = 20_000;
+    int[] workerCounts = {1, 2, 4};
+    for (String arg : args) {
+      String[] option = arg.split("=", 2);
+      if ("files".equals(option[0])) {
+        files = Integer.parseInt(option[1]);
+      } else if ("rows".equals(option[0])) {
+        rows = Long.parseLong(option[1]);
+      } else if ("workers".equals(option[0])) {
+        workerCounts = Arrays.stream(option[1].split(",")).mapToInt(Integer::parseInt).toArray();
+      } else {
+        throw new IllegalArgumentException("Usage: RemotePartitionBenchmark [files=8] [rows=20000] [workers=1,2,4]");
+      }
+    }
+    // kept if a run fails, with the logs of the JVMs
+    Path directory = Files.createTempDirectory("remote-partition");
+    PersonFileGenerator generator = new PersonFileGenerator();
+    generator.setFiles(files);
+    generator.setRowsPerFile(rows);
+    generator.generate(directory.resolve("inbound"));
+    RemotePartitionBenchmark benchmark = new RemotePartitionBenchmark();
+    List<String> results = new ArrayList<>();
+    for (int workers : workerCounts) {
+      results.add(benchmark.run(directory, workers));
+    }
+    results.forEach(System.out::println);
+    delete(directory);
+  }
+
+  private String run(Path directory, int workers) throws Exception {
+    String database = "bench" + workers;
+    int port = freePort();
+    Server server = new Server();
+    server.setSilent(true);
+    server.setLogWriter(null);
+    server.setNoSystemExit(true);
+    server.setPort(port);
+    server.setDatabaseName(0, database);
+    server.setDatabasePath(0, "mem:" + database);
+    server.start();
+    List<Process> processes = new ArrayList<>();
+    try {
+      String url = "jdbc:hsqldb:hsql://localhost:" + port + "/" + database;
+      JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url, "SA", ""));
+      Process manager = fork(directory.resolve("manager-" + workers + ".log"),
+        "--batch.partition.mode=remote", "--batch.datasource.url=" + url, "--spring.batch.initialize-schema=always",
+        "input.dir=" + directory.resolve("inbound"));
+      processes.add(manager);
+      awaitPartitions(jdbcTemplate, manager);
+      for (int i = 0; i < workers; i++) {
+        processes.add(fork(directory.resolve("worker-" + workers + "-" + i + ".log"),
+          "--spring.batch.job.enabled=false", "--batch.worker.enabled=true", "--batch.worker.threads=1",
+          "--batch.worker.idle-timeout-ms=2000", "--batch.datasource.url=" + url,
+          "--spring.batch.initialize-schema=never"));
+      }
+      if (!manager.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES) || manager.exitValue() != 0) {
+        throw new IllegalStateException("The manager failed, see " + directory.resolve("manager-" + workers + ".log"));
+      }
+      long people = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM people", Long.class);
+      Map<String, Object> window = jdbcTemplate.queryForMap(
+        "SELECT MIN(start_time) AS first_start, MAX(end_time) AS last_end FROM batch_step_execution "
+          + "WHERE step_name LIKE 'step1:%'");
+      long millis = ((Timestamp) window.get("last_end")).getTime() - ((Timestamp) window.get("first_start")).getTime();
+      return String.format("%d worker(s): %d people in %d ms, %.0f people/s", workers, people, millis,
+        people * 1000.0 / millis);
+    } finally {
+      for (Process process : processes) {
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+          process.destroyForcibly();
+        }
+      }
+      server.shutdownWithCatalogs(Database.CLOSEMODE_IMMEDIATELY);
+    }
+  }
+
+  private Process fork(Path log, String... args) throws IOException {
+    List<String> command = new ArrayList<>(Arrays.asList(javaCommand, "-Xmx512m", "-cp", classPath,
+      Application.class.getName(), "--logging.level.org.sample.batch=WARN", "--logging.level.org.springframework=WARN"));
+    command.addAll(Arrays.asList(args));
+    return new ProcessBuilder(command)
+      .redirectErrorStream(true)
+      .redirectOutput(log.toFile())
+      .start();
+  }
+
+  /**
+   * The workers are started once the schema exists and the manager has stored the partitions.
+   */
+  private static void awaitPartitions(JdbcTemplate jdbcTemplate, Process manager) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+    while (System.currentTimeMillis() < deadline && manager.isAlive()) {
+      try {
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM batch_partition_lease", Long.class) > 0) {
+          return;
+        }
+      } catch (RuntimeException e) {
+        // the schema is not created yet
+      }
+      Thread.sleep(100);
+    }
+    throw new IllegalStateException("No partition stored by the manager");
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  private static void delete(Path path) throws IOException {
+    try (Stream<Path> files = Files.walk(path)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+}
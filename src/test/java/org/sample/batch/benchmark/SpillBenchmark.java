@@ -0,0 +1,133 @@
+package org.sample.batch.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sample.batch.PersonFaker;
+import org.sample.batch.config.BatchConfiguration;
+import org.sample.batch.model.Person;
+import org.sample.batch.spill.PersonSpillCodec;
+import org.sample.batch.spill.SpillCache;
+import org.sample.batch.spill.SpillingItemReader;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to read an input file again: parsed by the reader of step1, or from the spill of a previous run. The first
+ * run with the spill cache (parsed and spilled) shows the cost of writing the spill.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=org.sample.batch.benchmark.SpillBenchmark
+ * -Dexec.classpathScope=test}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpillBenchmark {
+
+  @Param({"100000"})
+  private int persons;
+
+  private Path directory;
+  private Path inputFile;
+  private SpillCache cache;
+  private SpillCache firstRunCache;
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(SpillBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    directory = Files.createTempDirectory("spill");
+    inputFile = directory.resolve("data.csv");
+    new PersonFaker().buildCsvOfPerson(inputFile.toString(), persons, persons / 100);
+    cache = new SpillCache(directory.resolve("spill"), 0);
+    firstRunCache = new SpillCache(directory.resolve("first-run"), 0);
+    // the spill of the previous run
+    readAll(spillingReader(cache));
+  }
+
+  @TearDown(Level.Invocation)
+  public void deleteFirstRunSpill() throws IOException {
+    delete(firstRunCache.getDirectory());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    delete(directory);
+  }
+
+  private static void delete(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(path)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Benchmark
+  public int parse() throws Exception {
+    return readAll(new BatchConfiguration().reader(inputFile.toString()));
+  }
+
+  @Benchmark
+  public int spill() throws Exception {
+    return readAll(spillingReader(cache));
+  }
+
+  @Benchmark
+  public int parseAndSpill() throws Exception {
+    return readAll(spillingReader(firstRunCache));
+  }
+
+  private SpillingItemReader<Person> spillingReader(SpillCache spillCache) {
+    return new SpillingItemReader<>(new BatchConfiguration().reader(inputFile.toString()), inputFile, spillCache,
+      new PersonSpillCodec(inputFile.getFileName().toString()));
+  }
+
+  private static int readAll(AbstractItemCountingItemStreamItemReader<Person> reader) throws Exception {
+    int count = 0;
+    reader.open(new ExecutionContext());
+    try {
+      while (true) {
+        try {
+          if (reader.read() == null) {
+            return count;
+          }
+        } catch (FlatFileParseException e) {
+          // skipped
+        }
+        count++;
+      }
+    } finally {
+      reader.close();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package org.sample.batch.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sample.batch.model.Person;
+import org.sample.batch.validation.RuleEngine;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compiled {@link RuleEngine} with a reflective Bean Validation (Hibernate Validator) on the same
+ * constraints as {@link Person}.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.mainClass=org.sample.batch.benchmark.ValidationBenchmark
+ * -Dexec.classpathScope=test}. Add {@code -prof gc} to the JMH options to check the allocation rate.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+  private RuleEngine<Person> ruleEngine;
+  private Validator validator;
+
+  private Person validPerson;
+  private Person invalidPerson;
+  private BeanValidatedPerson validBean;
+  private BeanValidatedPerson invalidBean;
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(ValidationBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup
+  public void setUp() {
+    ruleEngine = RuleEngine.forClass(Person.class);
+    validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    validPerson = new Person("john", "doe", 34);
+    invalidPerson = new Person("john", "doe", 0);
+    validBean = new BeanValidatedPerson("john", "doe", 34);
+    invalidBean = new BeanValidatedPerson("john", "doe", 0);
+  }
+
+  @Benchmark
+  public Object ruleEngineValid() {
+    return ruleEngine.validate(validPerson);
+  }
+
+  @Benchmark
+  public Object ruleEngineInvalid() {
+    return ruleEngine.validate(invalidPerson);
+  }
+
+  @Benchmark
+  public Object beanValidationValid() {
+    return validator.validate(validBean);
+  }
+
+  @Benchmark
+  public Object beanValidationInvalid() {
+    return validator.validate(invalidBean);
+  }
+
+  /**
+   * Same constraints as {@link Person}, expressed with Bean Validation annotations.
+   */
+  public static class BeanValidatedPerson {
+    @NotBlank
+    @Size(max = 20)
+    private final String firstName;
+    @NotBlank
+    @Size(max = 20)
+    private final String lastName;
+    @Min(value = 1, message = "must be born")
+    private final int age;
+
+    public BeanValidatedPerson(String firstName, String lastName, int age) {
+      this.firstName = firstName;
+      this.lastName = lastName;
+      this.age = age;
+    }
+  }
+}